@@ -3,12 +3,96 @@ package org.hsqldb.jdbc;
 import org.hsqldb.jdbc.pool.JDBCPooledConnection;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class HSQLDBPool extends JDBCPool {
 
+	/**
+	 * Maximum number of prepared statements kept for each pooled connection.
+	 * <p>
+	 * Enough for all of the commonly used, fixed SQL, while statements built with varying SQL
+	 * (e.g. with a variable number of values) are eventually evicted instead of accumulating.
+	 */
+	public static final int MAX_CACHED_STATEMENTS = 256;
+
+	/** Prepared statements, keyed by SQL, closing least recently used statement once full. */
+	private static class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+		private static final long serialVersionUID = 1L;
+
+		StatementCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if (this.size() <= MAX_CACHED_STATEMENTS)
+				return false;
+
+			try {
+				eldest.getValue().close();
+			} catch (SQLException e) {
+				// Being discarded anyway
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Logical connection last handed out for each pooled connection.
+	 * <p>
+	 * Closing a logical connection resets its HSQLDB session, which also discards any statements
+	 * prepared on it. Connections given back using {@link #releaseConnection(Connection)} are kept
+	 * open instead, so that the next lease gets the same session with its prepared statements intact.
+	 */
+	private final Connection[] leasedConnections;
+
+	/** Prepared statements, keyed by SQL, for each leased connection, up to {@link #MAX_CACHED_STATEMENTS}. */
+	private final List<Map<String, PreparedStatement>> statementCaches;
+
 	public HSQLDBPool(int poolSize) {
 		super(poolSize);
+
+		this.leasedConnections = new Connection[poolSize];
+		this.statementCaches = new ArrayList<>(Collections.nCopies(poolSize, null));
+	}
+
+	/**
+	 * Retrieves a connection, waiting for one to become available if necessary.
+	 *
+	 * @return  a connection to the data source
+	 * @exception SQLException if a database access error occurs, or no connection became available in time
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		int retries = 300;
+
+		if (source.loginTimeout != 0)
+			retries = source.loginTimeout * 10;
+
+		for (int count = 0; count < retries; count++) {
+			if (closed)
+				throw new SQLException("connection pool is closed");
+
+			Connection connection = this.tryConnection();
+			if (connection != null)
+				return connection;
+
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				// Keep trying, as before
+			}
+		}
+
+		throw JDBCUtil.invalidArgument();
 	}
 
 	/**
@@ -27,7 +111,7 @@ public class HSQLDBPool extends JDBCPool {
 					// Probably shutdown situation
 					return null;
 
-				return pooledConnection.getConnection();
+				return this.leaseConnection(i, pooledConnection);
 			}
 
 			if (states.compareAndSet(i, RefState.empty, RefState.allocated)) {
@@ -41,8 +125,9 @@ public class HSQLDBPool extends JDBCPool {
 					pooledConnection.addConnectionEventListener(this);
 					pooledConnection.addStatementEventListener(this);
 					connections[i] = pooledConnection;
+					this.leasedConnections[i] = null;
 
-					return pooledConnection.getConnection();
+					return this.leaseConnection(i, pooledConnection);
 				} catch (SQLException e) {
 					states.set(i, RefState.empty);
 				}
@@ -52,4 +137,64 @@ public class HSQLDBPool extends JDBCPool {
 		return null;
 	}
 
+	private Connection leaseConnection(int i, JDBCPooledConnection pooledConnection) throws SQLException {
+		Connection connection = this.leasedConnections[i];
+
+		// Same session as last time, so its prepared statements are still usable
+		if (connection != null && !connection.isClosed())
+			return connection;
+
+		// Any statements prepared on previous logical connection are now closed
+		connection = pooledConnection.getConnection();
+		this.leasedConnections[i] = connection;
+		this.statementCaches.set(i, new StatementCache());
+
+		return connection;
+	}
+
+	/**
+	 * Gives <tt>connection</tt> back to the pool without closing it, so that its session
+	 * and prepared statements can be reused by the next lease.
+	 * <p>
+	 * Caller is responsible for making sure there is no ongoing transaction.
+	 *
+	 * @return true if released, or false if <tt>connection</tt> should be closed as normal instead
+	 */
+	public boolean releaseConnection(Connection connection) {
+		if (closed)
+			return false;
+
+		for (int i = 0; i < this.leasedConnections.length; i++) {
+			if (this.leasedConnections[i] == connection) {
+				states.set(i, RefState.available);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns cache of prepared statements, keyed by SQL, for leased <tt>connection</tt>.
+	 * <p>
+	 * Cache is only used by whoever currently holds <tt>connection</tt>, so needs no synchronization.
+	 *
+	 * @return statement cache, or null if <tt>connection</tt> isn't from this pool
+	 */
+	public Map<String, PreparedStatement> getStatementCache(Connection connection) {
+		for (int i = 0; i < this.leasedConnections.length; i++)
+			if (this.leasedConnections[i] == connection)
+				return this.statementCaches.get(i);
+
+		return null;
+	}
+
+	@Override
+	public void close(int wait) throws SQLException {
+		super.close(wait);
+
+		Arrays.fill(this.leasedConnections, null);
+		Collections.fill(this.statementCaches, null);
+	}
+
 }
@@ -44,41 +44,132 @@ public class HTMLParser {
         Document document = Jsoup.parse(fileContents);
         Elements head = document.getElementsByTag("head");
         if (!head.isEmpty()) {
-            // Add q-apps script tag
-            String qAppsScriptElement = String.format("<script src=\"/apps/q-apps.js?time=%d\">", System.currentTimeMillis());
-            head.get(0).prepend(qAppsScriptElement);
-
-            // Add q-apps gateway script tag if in gateway mode
-            if (Objects.equals(this.qdnContext, "gateway")) {
-                String qAppsGatewayScriptElement = String.format("<script src=\"/apps/q-apps-gateway.js?time=%d\">", System.currentTimeMillis());
-                head.get(0).prepend(qAppsGatewayScriptElement);
+            head.get(0).prepend(this.getAdditionalHeaderTags());
+        }
+        String html = document.html();
+        this.data = html.getBytes();
+    }
+
+    /**
+     * Returns the tags to be added at the start of the document's &lt;head&gt;, so that
+     * they can be inserted whilst streaming a file, without parsing the whole document.
+     */
+    public String getAdditionalHeaderTags() {
+        StringBuilder tags = new StringBuilder();
+
+        // Add meta charset tag
+        tags.append("<meta charset=\"UTF-8\">");
+
+        // Add base href tag
+        // Exclude the path if this request was routed back to the index automatically
+        String baseHref = this.usingCustomRouting ? this.qdnBase : this.qdnBaseWithPath;
+        tags.append(String.format("<base href=\"%s/\">", baseHref));
+
+        // Escape and add vars
+        String qdnContext = this.qdnContext != null ? this.qdnContext.replace("\\", "").replace("\"","\\\"") : "";
+        String service = this.service.toString().replace("\\", "").replace("\"","\\\"");
+        String name = this.resourceId != null ? this.resourceId.replace("\\", "").replace("\"","\\\"") : "";
+        String identifier = this.identifier != null ? this.identifier.replace("\\", "").replace("\"","\\\"") : "";
+        String path = this.path != null ? this.path.replace("\\", "").replace("\"","\\\"") : "";
+        String theme = this.theme != null ? this.theme.replace("\\", "").replace("\"","\\\"") : "";
+        String qdnBase = this.qdnBase != null ? this.qdnBase.replace("\\", "").replace("\"","\\\"") : "";
+        String qdnBaseWithPath = this.qdnBaseWithPath != null ? this.qdnBaseWithPath.replace("\\", "").replace("\"","\\\"") : "";
+        tags.append(String.format("<script>var _qdnContext=\"%s\"; var _qdnTheme=\"%s\"; var _qdnService=\"%s\"; var _qdnName=\"%s\"; var _qdnIdentifier=\"%s\"; var _qdnPath=\"%s\"; var _qdnBase=\"%s\"; var _qdnBaseWithPath=\"%s\";</script>", qdnContext, theme, service, name, identifier, path, qdnBase, qdnBaseWithPath));
+
+        long time = System.currentTimeMillis();
+
+        // Add q-apps gateway script tag if in gateway mode
+        if (Objects.equals(this.qdnContext, "gateway")) {
+            tags.append(String.format("<script src=\"/apps/q-apps-gateway.js?time=%d\"></script>", time));
+        }
+
+        // Add q-apps script tag
+        tags.append(String.format("<script src=\"/apps/q-apps.js?time=%d\"></script>", time));
+
+        return tags.toString();
+    }
+
+    /**
+     * Returns the offset at which getAdditionalHeaderTags() should be inserted into an HTML
+     * document, given (at least) the start of the document. This is just after the opening
+     * &lt;head&gt; tag if present, otherwise just after &lt;html&gt; or the doctype, where
+     * browsers will open an implied &lt;head&gt; anyway.
+     * <p>
+     * Only ASCII-compatible encodings are supported, which is all that we serve in practice.
+     */
+    public static int findHeaderTagsOffset(byte[] data, int length) {
+        // Never insert before a UTF-8 byte order mark
+        boolean hasBom = length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF;
+        int doctypeEnd = hasBom ? 3 : 0;
+        int htmlEnd = -1;
+
+        int i = doctypeEnd;
+        while (i < length) {
+            if (data[i] != '<') {
+                ++i;
+                continue;
             }
 
-            // Escape and add vars
-            String qdnContext = this.qdnContext != null ? this.qdnContext.replace("\\", "").replace("\"","\\\"") : "";
-            String service = this.service.toString().replace("\\", "").replace("\"","\\\"");
-            String name = this.resourceId != null ? this.resourceId.replace("\\", "").replace("\"","\\\"") : "";
-            String identifier = this.identifier != null ? this.identifier.replace("\\", "").replace("\"","\\\"") : "";
-            String path = this.path != null ? this.path.replace("\\", "").replace("\"","\\\"") : "";
-            String theme = this.theme != null ? this.theme.replace("\\", "").replace("\"","\\\"") : "";
-            String qdnBase = this.qdnBase != null ? this.qdnBase.replace("\\", "").replace("\"","\\\"") : "";
-            String qdnBaseWithPath = this.qdnBaseWithPath != null ? this.qdnBaseWithPath.replace("\\", "").replace("\"","\\\"") : "";
-            String qdnContextVar = String.format("<script>var _qdnContext=\"%s\"; var _qdnTheme=\"%s\"; var _qdnService=\"%s\"; var _qdnName=\"%s\"; var _qdnIdentifier=\"%s\"; var _qdnPath=\"%s\"; var _qdnBase=\"%s\"; var _qdnBaseWithPath=\"%s\";</script>", qdnContext, theme, service, name, identifier, path, qdnBase, qdnBaseWithPath);
-            head.get(0).prepend(qdnContextVar);
-
-            // Add base href tag
-            // Exclude the path if this request was routed back to the index automatically
-            String baseHref = this.usingCustomRouting ? this.qdnBase : this.qdnBaseWithPath;
-            String baseElement = String.format("<base href=\"%s/\">", baseHref);
-            head.get(0).prepend(baseElement);
-
-            // Add meta charset tag
-            String metaCharsetElement = "<meta charset=\"UTF-8\">";
-            head.get(0).prepend(metaCharsetElement);
+            // Skip comments, which could contain anything
+            if (startsWithIgnoreCase(data, length, i, "<!--")) {
+                int commentEnd = indexOf(data, length, i + 4, "-->");
+                if (commentEnd < 0)
+                    break;
+
+                i = commentEnd + 3;
+                continue;
+            }
 
+            int tagEnd = indexOf(data, length, i, ">");
+            if (tagEnd < 0)
+                break;
+
+            if (isTag(data, length, i, "head"))
+                return tagEnd + 1;
+
+            if (isTag(data, length, i, "html"))
+                htmlEnd = tagEnd + 1;
+            else if (startsWithIgnoreCase(data, length, i, "<!doctype"))
+                doctypeEnd = tagEnd + 1;
+            else if (!startsWithIgnoreCase(data, length, i, "<?"))
+                // Some other element, so there's no explicit <head> before the content
+                break;
+
+            i = tagEnd + 1;
         }
-        String html = document.html();
-        this.data = html.getBytes();
+
+        return htmlEnd >= 0 ? htmlEnd : doctypeEnd;
+    }
+
+    private static boolean isTag(byte[] data, int length, int offset, String tagName) {
+        if (!startsWithIgnoreCase(data, length, offset + 1, tagName))
+            return false;
+
+        int next = offset + 1 + tagName.length();
+        if (next >= length)
+            return false;
+
+        byte b = data[next];
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f';
+    }
+
+    private static boolean startsWithIgnoreCase(byte[] data, int length, int offset, String prefix) {
+        if (offset + prefix.length() > length)
+            return false;
+
+        for (int i = 0; i < prefix.length(); ++i) {
+            if (Character.toLowerCase((char) data[offset + i]) != prefix.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int length, int offset, String target) {
+        for (int i = offset; i <= length - target.length(); ++i) {
+            if (startsWithIgnoreCase(data, length, i, target))
+                return i;
+        }
+        return -1;
     }
 
     public static boolean isHtmlFile(String path) {
@@ -0,0 +1,68 @@
+package org.qortal.api.model;
+
+import org.qortal.arbitrary.misc.Service;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildCache;
+import org.qortal.settings.Settings;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ArbitraryDataBuildCacheSummary {
+
+    /** Number of most requested resources to include */
+    private static final int RESOURCE_COUNT = 20;
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class CachedResource {
+        public String name;
+        public Service service;
+        public String identifier;
+        public boolean built;
+        public long bytes;
+        public long accessCount;
+        public long lastAccessed;
+
+        protected CachedResource() {
+        }
+
+        public CachedResource(ArbitraryDataBuildCache.CachedResource cachedResource) {
+            this.name = cachedResource.getResourceId();
+            this.service = cachedResource.getService();
+            this.identifier = cachedResource.getIdentifier();
+            this.built = cachedResource.isBuilt();
+            this.bytes = cachedResource.getBytes();
+            this.accessCount = cachedResource.getAccessCount();
+            this.lastAccessed = cachedResource.getLastAccessed();
+        }
+    }
+
+    public long maxBytes;
+    public long totalBytes;
+    public String evictionPolicy;
+    public int builtCount;
+    public long hits;
+    public long misses;
+    public long evictions;
+    public List<CachedResource> mostRequested = new ArrayList<>();
+
+    protected ArbitraryDataBuildCacheSummary() {
+    }
+
+    public ArbitraryDataBuildCacheSummary(ArbitraryDataBuildCache buildCache) {
+        this.maxBytes = Settings.getInstance().getBuiltDataCacheMaxSize();
+        this.totalBytes = buildCache.getTotalBytes();
+        this.evictionPolicy = Settings.getInstance().getBuiltDataCacheEvictionPolicy().toString();
+        this.builtCount = buildCache.getBuiltCount();
+        this.hits = buildCache.getHitCount();
+        this.misses = buildCache.getMissCount();
+        this.evictions = buildCache.getEvictionCount();
+
+        for (ArbitraryDataBuildCache.CachedResource cachedResource : buildCache.getMostRequested(RESOURCE_COUNT)) {
+            this.mostRequested.add(new CachedResource(cachedResource));
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.qortal.api.model;
+
+import org.qortal.controller.arbitrary.ArbitraryDataFileRequestScheduler;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ArbitraryDataRequestsSummary {
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class PeerRequests {
+        public String peer;
+        public int inFlight;
+        public Long averageLatency;
+        public long requestCount;
+        public long failureCount;
+
+        protected PeerRequests() {
+        }
+
+        public PeerRequests(ArbitraryDataFileRequestScheduler.PeerSummary peerSummary) {
+            this.peer = peerSummary.getPeer();
+            this.inFlight = peerSummary.getInFlight();
+            this.averageLatency = peerSummary.getAverageLatency();
+            this.requestCount = peerSummary.getRequestCount();
+            this.failureCount = peerSummary.getFailureCount();
+        }
+    }
+
+    public int pendingResources;
+    public int pendingChunks;
+    public int pendingResponses;
+    public int inFlight;
+    public List<PeerRequests> peers = new ArrayList<>();
+
+    protected ArbitraryDataRequestsSummary() {
+    }
+
+    public ArbitraryDataRequestsSummary(ArbitraryDataFileRequestScheduler requestScheduler) {
+        this.pendingResources = requestScheduler.getPendingResourceCount();
+        this.pendingChunks = requestScheduler.getPendingChunkCount();
+        this.pendingResponses = requestScheduler.getResponseCount();
+        this.inFlight = requestScheduler.getInFlightCount();
+
+        for (ArbitraryDataFileRequestScheduler.PeerSummary peerSummary : requestScheduler.getPeerSummaries()) {
+            this.peers.add(new PeerRequests(peerSummary));
+        }
+    }
+
+}
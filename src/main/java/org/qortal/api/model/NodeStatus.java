@@ -16,6 +16,8 @@ public class NodeStatus {
 
 	// Not always present
 	public final Integer syncPercent;
+	public final Double blockFetchRate;
+	public final Double blockProcessRate;
 
 	public final int numberOfConnections;
 
@@ -26,6 +28,8 @@ public class NodeStatus {
 
 		this.syncPercent = Synchronizer.getInstance().getSyncPercent();
 		this.isSynchronizing = Synchronizer.getInstance().isSynchronizing();
+		this.blockFetchRate = Synchronizer.getInstance().getBlockFetchRate();
+		this.blockProcessRate = Synchronizer.getInstance().getBlockProcessRate();
 
 		this.numberOfConnections = Network.getInstance().getImmutableHandshakedPeers().size();
 
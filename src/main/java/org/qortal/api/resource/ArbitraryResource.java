@@ -18,6 +18,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bouncycastle.util.encoders.Base64;
 import org.qortal.api.*;
+import org.qortal.api.model.ArbitraryDataBuildCacheSummary;
+import org.qortal.api.model.ArbitraryDataRequestsSummary;
 import org.qortal.api.model.FileProperties;
 import org.qortal.api.resource.TransactionsResource.ConfirmationStatus;
 import org.qortal.arbitrary.*;
@@ -27,7 +29,9 @@ import org.qortal.arbitrary.metadata.ArbitraryDataTransactionMetadata;
 import org.qortal.arbitrary.misc.Category;
 import org.qortal.arbitrary.misc.Service;
 import org.qortal.controller.Controller;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildCache;
 import org.qortal.controller.arbitrary.ArbitraryDataCacheManager;
+import org.qortal.controller.arbitrary.ArbitraryDataFileManager;
 import org.qortal.controller.arbitrary.ArbitraryDataRenderManager;
 import org.qortal.controller.arbitrary.ArbitraryDataStorageManager;
 import org.qortal.controller.arbitrary.ArbitraryMetadataManager;
@@ -110,7 +114,7 @@ public class ArbitraryResource {
 			@Parameter(description = "Include status") @QueryParam("includestatus") Boolean includeStatus,
 			@Parameter(description = "Include metadata") @QueryParam("includemetadata") Boolean includeMetadata) {
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 
 			// Treat empty identifier as null
 			if (identifier != null && identifier.isEmpty()) {
@@ -188,7 +192,7 @@ public class ArbitraryResource {
 			@Parameter(ref = "offset") @QueryParam("offset") Integer offset,
 			@Parameter(ref = "reverse") @QueryParam("reverse") Boolean reverse) {
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 
 			boolean defaultRes = Boolean.TRUE.equals(defaultResource);
 			boolean usePrefixOnly = Boolean.TRUE.equals(prefixOnly);
@@ -338,7 +342,7 @@ public class ArbitraryResource {
 		List<TransactionType> txTypes = new ArrayList<>();
 		txTypes.add(TransactionType.ARBITRARY);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<byte[]> signatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(startBlock, blockLimit, txGroupId, txTypes,
 					service, name, address, confirmationStatus, limit, offset, reverse);
 
@@ -418,6 +422,40 @@ public class ArbitraryResource {
 		return Settings.getInstance().isRelayModeEnabled();
 	}
 
+	@GET
+	@Path("/requests")
+	@Operation(
+			summary = "Returns status of data file requests, including per-peer latency and requests in flight",
+			responses = {
+					@ApiResponse(
+							content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ArbitraryDataRequestsSummary.class))
+					)
+			}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public ArbitraryDataRequestsSummary getRequests(@HeaderParam(Security.API_KEY_HEADER) String apiKey) {
+		Security.checkApiCallAllowed(request);
+
+		return new ArbitraryDataRequestsSummary(ArbitraryDataFileManager.getInstance().getRequestScheduler());
+	}
+
+	@GET
+	@Path("/builds/cache")
+	@Operation(
+			summary = "Returns size and hit rate of the built resource cache, including the most requested resources",
+			responses = {
+					@ApiResponse(
+							content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ArbitraryDataBuildCacheSummary.class))
+					)
+			}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public ArbitraryDataBuildCacheSummary getBuildCache(@HeaderParam(Security.API_KEY_HEADER) String apiKey) {
+		Security.checkApiCallAllowed(request);
+
+		return new ArbitraryDataBuildCacheSummary(ArbitraryDataBuildCache.getInstance());
+	}
+
 	@GET
 	@Path("/categories")
 	@Operation(
@@ -456,7 +494,7 @@ public class ArbitraryResource {
 																@Parameter(ref = "offset") @QueryParam("offset") Integer offset) {
 		Security.checkApiCallAllowed(request);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 
 			List<ArbitraryTransactionData> hostedTransactions = ArbitraryDataStorageManager.getInstance().listAllHostedTransactions(repository, limit, offset);
 
@@ -487,7 +525,7 @@ public class ArbitraryResource {
 
 		List<ArbitraryResourceData> resources = new ArrayList<>();
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			
 			List<ArbitraryTransactionData> transactionDataList;
 
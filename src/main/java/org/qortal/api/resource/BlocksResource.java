@@ -82,7 +82,7 @@ public class BlocksResource {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_SIGNATURE, e);
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 		    // Check the database first
 			BlockData blockData = repository.getBlockRepository().fromSignature(signature);
 			if (blockData != null) {
@@ -131,7 +131,7 @@ public class BlocksResource {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_SIGNATURE, e);
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 
 			// Default to version 1
 			if (version == null) {
@@ -217,7 +217,7 @@ public class BlocksResource {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_SIGNATURE, e);
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Check if the block exists in either the database or archive
 			int height = repository.getBlockRepository().getHeightFromSignature(signature);
 			if (height == 0) {
@@ -262,7 +262,7 @@ public class BlocksResource {
 		ApiError.REPOSITORY_ISSUE
 	})
 	public BlockData getFirstBlock() {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Check the database first
 			BlockData blockData = repository.getBlockRepository().fromHeight(1);
 			if (blockData != null) {
@@ -301,7 +301,7 @@ public class BlocksResource {
 		ApiError.REPOSITORY_ISSUE
 	})
 	public BlockData getLastBlock(@QueryParam("includeOnlineSignatures") Boolean includeOnlineSignatures) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			BlockData blockData = repository.getBlockRepository().getLastBlock();
 
 			if (includeOnlineSignatures == null || includeOnlineSignatures == false) {
@@ -342,7 +342,7 @@ public class BlocksResource {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_SIGNATURE, e);
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			BlockData childBlockData = null;
 
 			// Check if block exists in database
@@ -393,7 +393,7 @@ public class BlocksResource {
 		ApiError.REPOSITORY_ISSUE
 	})
 	public int getHeight() {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			return repository.getBlockRepository().getBlockchainHeight();
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
@@ -429,7 +429,7 @@ public class BlocksResource {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_SIGNATURE, e);
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Firstly check the database
 			BlockData blockData = repository.getBlockRepository().fromSignature(signature);
 			if (blockData != null) {
@@ -470,7 +470,7 @@ public class BlocksResource {
 	})
 	public BlockData getByHeight(@PathParam("height") int height,
 								 @QueryParam("includeOnlineSignatures") Boolean includeOnlineSignatures) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Firstly check the database
 			BlockData blockData = repository.getBlockRepository().fromHeight(height);
 			if (blockData != null) {
@@ -516,7 +516,7 @@ public class BlocksResource {
 			ApiError.BLOCK_UNKNOWN, ApiError.REPOSITORY_ISSUE
 	})
 	public BlockMintingInfo getBlockMintingInfoByHeight(@PathParam("height") int height) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Try the database
 			BlockData blockData = repository.getBlockRepository().fromHeight(height);
 			if (blockData == null) {
@@ -588,7 +588,7 @@ public class BlocksResource {
 	})
 	public BlockData getByTimestamp(@PathParam("timestamp") long timestamp,
 									@QueryParam("includeOnlineSignatures") Boolean includeOnlineSignatures) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			BlockData blockData = null;
 
 			// Try the Blocks table
@@ -649,7 +649,7 @@ public class BlocksResource {
 										 @Parameter(ref = "count") @QueryParam("count") int count,
 										 @Parameter(ref = "reverse") @QueryParam("reverse") Boolean reverse,
 										 @QueryParam("includeOnlineSignatures") Boolean includeOnlineSignatures) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<BlockData> blocks = new ArrayList<>();
 			boolean shouldReverse = (reverse != null && reverse == true);
 
@@ -708,7 +708,7 @@ public class BlocksResource {
 		if (!Crypto.isValidAddress(address))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_ADDRESS);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Get public key from address
 			AccountData accountData = repository.getAccountRepository().getAccount(address);
 			if (accountData == null || accountData.getPublicKey() == null)
@@ -767,7 +767,7 @@ public class BlocksResource {
 			) @QueryParam("offset") Integer offset, @Parameter(
 				ref = "reverse"
 			) @QueryParam("reverse") Boolean reverse) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			for (String address : addresses)
 				if (!Crypto.isValidAddress(address))
 					throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_ADDRESS);
@@ -812,7 +812,7 @@ public class BlocksResource {
 		if ((startHeight != null && startHeight < 1) || (endHeight != null && endHeight < 1) || (count != null && count < 1))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 
 			/*
 			 * start	end		count		result
@@ -60,7 +60,7 @@ public class NamesResource {
 										 @Parameter(ref = "limit") @QueryParam("limit") Integer limit,
 										 @Parameter(ref = "offset") @QueryParam("offset") Integer offset,
 										 @Parameter(ref="reverse") @QueryParam("reverse") Boolean reverse) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 
 			return repository.getNameRepository().getAllNames(after, limit, offset, reverse);
 		} catch (DataException e) {
@@ -88,7 +88,7 @@ public class NamesResource {
 		if (!Crypto.isValidAddress(address))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_ADDRESS);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<NameData> names;
 
 			if (Settings.getInstance().isLite()) {
@@ -120,7 +120,7 @@ public class NamesResource {
 	)
 	@ApiErrors({ApiError.NAME_UNKNOWN, ApiError.REPOSITORY_ISSUE})
 	public NameData getName(@PathParam("name") String name) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			NameData nameData;
 			String reducedName = Unicode.sanitize(name);
 
@@ -163,7 +163,7 @@ public class NamesResource {
 									  @Parameter(ref = "limit") @QueryParam("limit") Integer limit,
 									  @Parameter(ref = "offset") @QueryParam("offset") Integer offset,
 									  @Parameter(ref="reverse") @QueryParam("reverse") Boolean reverse) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			if (query == null) {
 				throw ApiExceptionFactory.INSTANCE.createCustomException(request, ApiError.INVALID_CRITERIA, "Missing query");
 			}
@@ -426,7 +426,7 @@ public class NamesResource {
 	@ApiErrors({ApiError.REPOSITORY_ISSUE})
 	public List<NameData> getNamesForSale(@Parameter(ref = "limit") @QueryParam("limit") Integer limit, @Parameter(ref = "offset") @QueryParam("offset") Integer offset,
 			@Parameter(ref="reverse") @QueryParam("reverse") Boolean reverse) {
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			return repository.getNameRepository().getNamesForSale(limit, offset, reverse);
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
@@ -23,6 +23,7 @@ import org.qortal.api.*;
 import org.qortal.api.model.ActivitySummary;
 import org.qortal.api.model.NodeInfo;
 import org.qortal.api.model.NodeStatus;
+import org.qortal.api.websocket.WebSocketMetrics;
 import org.qortal.block.BlockChain;
 import org.qortal.controller.BootstrapNode;
 import org.qortal.controller.Controller;
@@ -32,12 +33,14 @@ import org.qortal.controller.Synchronizer.SynchronizationResult;
 import org.qortal.controller.repository.BlockArchiveRebuilder;
 import org.qortal.data.account.MintingAccountData;
 import org.qortal.data.account.RewardShareData;
+import org.qortal.event.EventBus;
 import org.qortal.network.Network;
 import org.qortal.network.Peer;
 import org.qortal.network.PeerAddress;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.HSQLDBStatementMetrics;
 import org.qortal.settings.Settings;
 import org.qortal.utils.Base58;
 import org.qortal.utils.NTP;
@@ -384,6 +387,54 @@ public class AdminResource {
 		return Controller.getInstance().getStatsSnapshot();
 	}
 
+	@GET
+	@Path("/eventbusstats")
+	@Operation(
+		summary = "Fetch per-listener statistics for event bus",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					array = @ArraySchema(
+						schema = @Schema(
+							implementation = EventBus.ListenerStats.class
+						)
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public List<EventBus.ListenerStats> getEventBusStats(@HeaderParam(Security.API_KEY_HEADER) String apiKey) {
+		Security.checkApiCallAllowed(request);
+
+		return EventBus.INSTANCE.getListenerStats();
+	}
+
+	@GET
+	@Path("/websocketstats")
+	@Operation(
+		summary = "Fetch per-endpoint outbound statistics for API websockets",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					array = @ArraySchema(
+						schema = @Schema(
+							implementation = WebSocketMetrics.EndpointStats.class
+						)
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public List<WebSocketMetrics.EndpointStats> getWebSocketStats(@HeaderParam(Security.API_KEY_HEADER) String apiKey) {
+		Security.checkApiCallAllowed(request);
+
+		return WebSocketMetrics.getInstance().getEndpointStats();
+	}
+
 	@GET
 	@Path("/mintingaccounts")
 	@Operation(
@@ -775,6 +826,32 @@ public class AdminResource {
 		}
 	}
 
+	@GET
+	@Path("/repository/statements")
+	@Operation(
+		summary = "Fetch per-statement repository execution stats",
+		description = "Returns execution counts and latency histograms for repository SQL statements, most total time first.",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					array = @ArraySchema(
+						schema = @Schema(
+							implementation = HSQLDBStatementMetrics.StatementStats.class
+						)
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public List<HSQLDBStatementMetrics.StatementStats> getRepositoryStatementStats(@HeaderParam(Security.API_KEY_HEADER) String apiKey,
+			@Parameter(ref = "limit") @QueryParam("limit") Integer limit) {
+		Security.checkApiCallAllowed(request);
+
+		return HSQLDBStatementMetrics.getInstance().getStatementStats(limit != null ? limit : 0);
+	}
+
 	@POST
 	@Path("/repository/checkpoint")
 	@Operation(
@@ -1,22 +1,19 @@
 package org.qortal.api.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import org.qortal.controller.ActiveChatsIndex;
 import org.qortal.controller.ChatNotifier;
 import org.qortal.crypto.Crypto;
 import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
 import org.qortal.data.transaction.ChatTransactionData;
 import org.qortal.repository.DataException;
-import org.qortal.repository.Repository;
-import org.qortal.repository.RepositoryManager;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.qortal.data.chat.ChatMessage.Encoding;
@@ -41,18 +38,32 @@ public class ActiveChatsWebSocket extends ApiWebSocket {
 			return;
 		}
 
+		// Optionally, only send what has changed since previous output
+		boolean deltasOnly = isDeltasRequested(session);
+
 		AtomicReference<String> previousOutput = new AtomicReference<>(null);
+		AtomicReference<ActiveChats> previousChats = new AtomicReference<>(null);
+
+		super.onWebSocketConnect(session);
+
+		ActiveChatsIndex.getInstance().subscribe(address);
 
-		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, address, previousOutput);
+		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, address, deltasOnly, previousOutput, previousChats);
 		ChatNotifier.getInstance().register(session, listener);
 
-		this.onNotify(session, null, address, previousOutput);
+		this.onNotify(session, null, address, deltasOnly, previousOutput, previousChats);
 	}
 
 	@OnWebSocketClose
 	@Override
 	public void onWebSocketClose(Session session, int statusCode, String reason) {
 		ChatNotifier.getInstance().deregister(session);
+
+		String address = getPathParams(session, "/{address}").get("address");
+		if (address != null && Crypto.isValidAddress(address))
+			ActiveChatsIndex.getInstance().unsubscribe(address);
+
+		super.onWebSocketClose(session, statusCode, reason);
 	}
 
 	@OnWebSocketError
@@ -63,38 +74,97 @@ public class ActiveChatsWebSocket extends ApiWebSocket {
 	@OnWebSocketMessage
 	public void onWebSocketMessage(Session session, String message) {
 		if (Objects.equals(message, "ping")) {
-			session.getRemote().sendStringByFuture("pong");
+			send(session, "pong");
 		}
 	}
 
-	private void onNotify(Session session, ChatTransactionData chatTransactionData, String ourAddress, AtomicReference<String> previousOutput) {
-		// If CHAT has a recipient (i.e. direct message, not group-based) and we're neither sender nor recipient, then it's of no interest
-		if (chatTransactionData != null) {
-			String recipient = chatTransactionData.getRecipient();
-
-			if (recipient != null && (!recipient.equals(ourAddress) && !chatTransactionData.getSender().equals(ourAddress)))
-				return;
-		}
+	private void onNotify(Session session, ChatTransactionData chatTransactionData, String ourAddress, boolean deltasOnly,
+			AtomicReference<String> previousOutput, AtomicReference<ActiveChats> previousChats) {
+		// If CHAT is a direct message we're not part of, or for a group we're not in, then it's of no interest
+		if (chatTransactionData != null && !ActiveChatsIndex.getInstance().isRelevant(ourAddress, chatTransactionData))
+			return;
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
-			ActiveChats activeChats = repository.getChatRepository().getActiveChats(ourAddress, getTargetEncoding(session));
+		try {
+			// Served from memory, so no repository session per subscriber
+			ActiveChats activeChats = ActiveChatsIndex.getInstance().getActiveChats(ourAddress, getTargetEncoding(session));
 
-			StringWriter stringWriter = new StringWriter();
+			ActiveChats outputChats = activeChats;
+			if (deltasOnly) {
+				outputChats = getChanges(previousChats.get(), activeChats);
+				if (outputChats == null)
+					return;
 
-			marshall(stringWriter, activeChats);
+				previousChats.set(activeChats);
+			}
 
 			// Only output if something has changed
-			String output = stringWriter.toString();
+			String output = encode(outputChats);
 			if (output.equals(previousOutput.get()))
 				return;
 
 			previousOutput.set(output);
-			session.getRemote().sendStringByFuture(output);
-		} catch (DataException | IOException | WebSocketException e) {
+			send(session, output);
+		} catch (DataException | IOException e) {
 			// No output this time?
 		}
 	}
 
+	/**
+	 * Returns only the group and direct chats that are new or changed since <tt>previousChats</tt>,
+	 * or null if nothing has changed.
+	 * <p>
+	 * If there are no <tt>previousChats</tt>, or a chat has gone away (e.g. after leaving a group),
+	 * then all of <tt>activeChats</tt> are returned instead, marked as not being a delta.
+	 */
+	private static ActiveChats getChanges(ActiveChats previousChats, ActiveChats activeChats) {
+		if (previousChats == null)
+			return activeChats;
+
+		Map<Integer, GroupChat> previousGroups = new HashMap<>();
+		for (GroupChat groupChat : previousChats.getGroups())
+			previousGroups.put(groupChat.getGroupId(), groupChat);
+
+		Map<String, DirectChat> previousDirect = new HashMap<>();
+		for (DirectChat directChat : previousChats.getDirect())
+			previousDirect.put(directChat.getAddress(), directChat);
+
+		List<GroupChat> changedGroups = new ArrayList<>();
+		for (GroupChat groupChat : activeChats.getGroups()) {
+			GroupChat previousGroup = previousGroups.remove(groupChat.getGroupId());
+
+			if (previousGroup == null || !Objects.equals(previousGroup.getTimestamp(), groupChat.getTimestamp())
+					|| !Arrays.equals(previousGroup.getSignature(), groupChat.getSignature())
+					|| !Objects.equals(previousGroup.getGroupName(), groupChat.getGroupName()))
+				changedGroups.add(groupChat);
+		}
+
+		List<DirectChat> changedDirect = new ArrayList<>();
+		for (DirectChat directChat : activeChats.getDirect()) {
+			DirectChat previous = previousDirect.remove(directChat.getAddress());
+
+			if (previous == null || previous.getTimestamp() != directChat.getTimestamp()
+					|| !Objects.equals(previous.getSender(), directChat.getSender())
+					|| !Objects.equals(previous.getName(), directChat.getName()))
+				changedDirect.add(directChat);
+		}
+
+		// Something has gone, which we can't express as a delta
+		if (!previousGroups.isEmpty() || !previousDirect.isEmpty())
+			return activeChats;
+
+		if (changedGroups.isEmpty() && changedDirect.isEmpty())
+			return null;
+
+		ActiveChats changes = new ActiveChats(changedGroups, changedDirect);
+		changes.setIsDelta(true);
+		return changes;
+	}
+
+	private static boolean isDeltasRequested(Session session) {
+		List<String> deltasList = session.getUpgradeRequest().getParameterMap().get("deltas");
+		return deltasList != null && deltasList.size() == 1 && Boolean.parseBoolean(deltasList.get(0));
+	}
+
 	private Encoding getTargetEncoding(Session session) {
 		// Default to Base58 if not specified, for backwards support
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
@@ -1,7 +1,6 @@
 package org.qortal.api.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
 import org.qortal.api.model.NodeStatus;
@@ -11,7 +10,7 @@ import org.qortal.event.EventBus;
 import org.qortal.event.Listener;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 @WebSocket
@@ -31,7 +30,7 @@ public class AdminStatusWebSocket extends ApiWebSocket implements Listener {
 			return;
 		}
 
-		EventBus.INSTANCE.addListener(this::listen);
+		EventBus.INSTANCE.addAsyncListener("AdminStatusWebSocket", this::listen, 1, EventBus.OverflowPolicy.COALESCE, Set.of(Controller.StatusChangeEvent.class));
 	}
 
 	@Override
@@ -51,14 +50,16 @@ public class AdminStatusWebSocket extends ApiWebSocket implements Listener {
 			// Output hasn't changed, so don't send anything
 			return;
 
-		for (Session session : getSessions())
-			this.sendStatus(session, newOutput);
+		broadcast(newOutput);
 	}
 
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
-		this.sendStatus(session, previousOutput.get());
+		// Initial output is sent before session joins broadcasts
+		openSender(session);
+
+		send(session, previousOutput.get());
 
 		super.onWebSocketConnect(session);
 	}
@@ -79,19 +80,9 @@ public class AdminStatusWebSocket extends ApiWebSocket implements Listener {
 		/* ignored */
 	}
 
-	private static String buildStatusString() throws IOException {
+	private String buildStatusString() throws IOException {
 		NodeStatus nodeStatus = new NodeStatus();
-		StringWriter stringWriter = new StringWriter();
-		marshall(stringWriter, nodeStatus);
-		return stringWriter.toString();
-	}
-
-	private void sendStatus(Session session, String status) {
-		try {
-			session.getRemote().sendStringByFuture(status);
-		} catch (WebSocketException e) {
-			// No output this time?
-		}
+		return encode(nodeStatus);
 	}
 
 }
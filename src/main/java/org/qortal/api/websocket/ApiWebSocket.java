@@ -2,6 +2,8 @@ package org.qortal.api.websocket;
 
 import org.eclipse.jetty.http.pathmap.UriTemplatePathSpec;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
 import org.eclipse.persistence.jaxb.JAXBContextFactory;
@@ -16,12 +18,114 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 @SuppressWarnings("serial")
 abstract class ApiWebSocket extends WebSocketServlet {
 
+	/** Maximum number of frames waiting to be written to a session, before session is closed for being too slow */
+	private static final int MAX_QUEUED_FRAMES = 500;
+
 	private static final Map<Class<? extends ApiWebSocket>, List<Session>> SESSIONS_BY_CLASS = new HashMap<>();
 
+	/** JAXB contexts are expensive to build, but thread-safe, so we only build one per class */
+	private static final Map<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
+	private static final Map<Session, SessionSender> SENDERS_BY_SESSION = new ConcurrentHashMap<>();
+
+	/**
+	 * Writes frames to a session one at a time, in order.
+	 * <p>
+	 * Frames are queued while a previous write is still in progress. If the queue fills up then
+	 * the remote end isn't keeping up, so the session is closed rather than buffering without limit.
+	 */
+	private static class SessionSender implements WriteCallback {
+		private final Session session;
+		private final WebSocketMetrics.Endpoint metrics;
+		private final Deque<String> queue = new ArrayDeque<>();
+		private boolean isWriting = false;
+		private boolean isEvicted = false;
+		private String currentFrame;
+
+		private SessionSender(Session session, WebSocketMetrics.Endpoint metrics) {
+			this.session = session;
+			this.metrics = metrics;
+		}
+
+		/** Queues <tt>frame</tt> for sending, returning false if session has been evicted. */
+		private boolean send(String frame) {
+			boolean startWriting = false;
+			boolean evicting = false;
+
+			synchronized (this) {
+				if (this.isEvicted) {
+					this.metrics.droppedCount.increment();
+					return false;
+				}
+
+				if (this.queue.size() >= MAX_QUEUED_FRAMES) {
+					this.metrics.droppedCount.add(this.queue.size() + 1L);
+					this.metrics.evictedCount.increment();
+					this.queue.clear();
+					this.isEvicted = evicting = true;
+				} else {
+					this.queue.add(frame);
+
+					if (!this.isWriting)
+						this.isWriting = startWriting = true;
+				}
+			}
+
+			if (evicting) {
+				this.session.close(4008, "too slow");
+				return false;
+			}
+
+			if (startWriting)
+				this.writeNext();
+
+			return true;
+		}
+
+		private void writeNext() {
+			synchronized (this) {
+				this.currentFrame = this.queue.poll();
+
+				if (this.currentFrame == null) {
+					this.isWriting = false;
+					return;
+				}
+			}
+
+			try {
+				this.session.getRemote().sendString(this.currentFrame, this);
+			} catch (WebSocketException e) {
+				this.writeFailed(e);
+			}
+		}
+
+		@Override
+		public void writeSuccess() {
+			this.metrics.sentCount.increment();
+			this.metrics.sentCharacters.add(this.currentFrame.length());
+
+			this.writeNext();
+		}
+
+		@Override
+		public void writeFailed(Throwable x) {
+			this.metrics.failedCount.increment();
+
+			// Remote end probably closed, so no point trying the rest
+			synchronized (this) {
+				this.metrics.droppedCount.add(this.queue.size());
+				this.queue.clear();
+				this.isWriting = false;
+			}
+		}
+	}
+
 	protected static String getPathInfo(Session session) {
 		ServletUpgradeRequest upgradeRequest = (ServletUpgradeRequest) session.getUpgradeRequest();
 		return upgradeRequest.getHttpServletRequest().getPathInfo();
@@ -76,10 +180,14 @@ abstract class ApiWebSocket extends WebSocketServlet {
 
 	private static Marshaller createMarshaller(Class<?> objectClass) {
 		try {
-			// Create JAXB context aware of object's class
-			JAXBContext jc = JAXBContextFactory.createContext(new Class[] { objectClass }, null);
+			// JAXB context aware of object's class
+			JAXBContext jc = JAXB_CONTEXTS.get(objectClass);
+			if (jc == null) {
+				jc = JAXBContextFactory.createContext(new Class[] { objectClass }, null);
+				JAXB_CONTEXTS.putIfAbsent(objectClass, jc);
+			}
 
-			// Create marshaller
+			// Create marshaller, as these aren't thread-safe
 			Marshaller marshaller = jc.createMarshaller();
 
 			// Set the marshaller media type to JSON
@@ -94,7 +202,76 @@ abstract class ApiWebSocket extends WebSocketServlet {
 		}
 	}
 
+	/** Returns <tt>object</tt> marshalled as JSON, ready for sending to any number of sessions. */
+	protected String encode(Object object) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		marshall(stringWriter, object);
+
+		this.getMetrics().encodedCount.increment();
+		return stringWriter.toString();
+	}
+
+	/** Returns <tt>collection</tt> marshalled as JSON array, ready for sending to any number of sessions. */
+	protected String encode(Collection<?> collection) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		marshall(stringWriter, collection);
+
+		this.getMetrics().encodedCount.increment();
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Prepares to send frames to newly connected <tt>session</tt>.
+	 * <p>
+	 * Only to be called from <tt>onWebSocketConnect</tt>, before sending anything to <tt>session</tt>.
+	 * Sender is discarded by {@link #onWebSocketClose(Session, int, String)}.
+	 */
+	protected void openSender(Session session) {
+		SENDERS_BY_SESSION.putIfAbsent(session, new SessionSender(session, this.getMetrics()));
+	}
+
+	/**
+	 * Queues already-encoded <tt>frame</tt> for sending to <tt>session</tt>.
+	 * <p>
+	 * Frames for sessions that aren't open, e.g. already closed, are dropped.
+	 *
+	 * @return false if session isn't open, or has been closed for being too slow
+	 */
+	protected boolean send(Session session, String frame) {
+		SessionSender sender = SENDERS_BY_SESSION.get(session);
+		if (sender == null) {
+			this.getMetrics().droppedCount.increment();
+			return false;
+		}
+
+		return sender.send(frame);
+	}
+
+	/** Sends the same, already-encoded, <tt>frame</tt> to all of this endpoint's sessions that pass <tt>sessionFilter</tt>. */
+	protected void broadcast(String frame, Predicate<Session> sessionFilter) {
+		for (Session session : getSessions())
+			if (sessionFilter.test(session))
+				send(session, frame);
+	}
+
+	/** Sends the same, already-encoded, <tt>frame</tt> to all of this endpoint's sessions. */
+	protected void broadcast(String frame) {
+		broadcast(frame, session -> true);
+	}
+
+	private WebSocketMetrics.Endpoint getMetrics() {
+		return WebSocketMetrics.getInstance().getEndpoint(this.getClass());
+	}
+
+	static int getSessionCount(Class<? extends ApiWebSocket> endpointClass) {
+		synchronized (SESSIONS_BY_CLASS) {
+			return SESSIONS_BY_CLASS.getOrDefault(endpointClass, Collections.emptyList()).size();
+		}
+	}
+
 	public void onWebSocketConnect(Session session) {
+		this.openSender(session);
+
 		synchronized (SESSIONS_BY_CLASS) {
 			SESSIONS_BY_CLASS.computeIfAbsent(this.getClass(), clazz -> new ArrayList<>()).add(session);
 		}
@@ -106,11 +283,13 @@ abstract class ApiWebSocket extends WebSocketServlet {
 			if (sessions != null)
 				sessions.remove(session);
 		}
+
+		SENDERS_BY_SESSION.remove(session);
 	}
 
 	protected List<Session> getSessions() {
 		synchronized (SESSIONS_BY_CLASS) {
-			return new ArrayList<>(SESSIONS_BY_CLASS.get(this.getClass()));
+			return new ArrayList<>(SESSIONS_BY_CLASS.getOrDefault(this.getClass(), Collections.emptyList()));
 		}
 	}
 
@@ -1,7 +1,6 @@
 package org.qortal.api.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
 import org.qortal.api.ApiError;
@@ -17,8 +16,8 @@ import org.qortal.repository.RepositoryManager;
 import org.qortal.utils.Base58;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.List;
+import java.util.Set;
 
 @WebSocket
 @SuppressWarnings("serial")
@@ -28,7 +27,7 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 	public void configure(WebSocketServletFactory factory) {
 		factory.register(BlocksWebSocket.class);
 
-		EventBus.INSTANCE.addListener(this::listen);
+		EventBus.INSTANCE.addAsyncListener("BlocksWebSocket", this::listen, 1000, EventBus.OverflowPolicy.DROP_OLDEST, Set.of(Controller.NewBlockEvent.class));
 	}
 
 	@Override
@@ -39,8 +38,12 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 		BlockData blockData = ((Controller.NewBlockEvent) event).getBlockData();
 		BlockSummaryData blockSummary = new BlockSummaryData(blockData);
 
-		for (Session session : getSessions())
-			sendBlockSummary(session, blockSummary);
+		try {
+			// Same output for everyone
+			broadcast(encode(blockSummary));
+		} catch (IOException e) {
+			// No output this time
+		}
 	}
 
 	@OnWebSocketConnect
@@ -74,7 +77,7 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 				return;
 			}
 
-			try (final Repository repository = RepositoryManager.getRepository()) {
+			try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 				int height = repository.getBlockRepository().getHeightFromSignature(signature);
 				if (height == 0) {
 					sendError(session, ApiError.BLOCK_UNKNOWN);
@@ -109,7 +112,7 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 			return;
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<BlockSummaryData> blockSummaries = repository.getBlockRepository().getBlockSummaries(height, height);
 			if (blockSummaries == null || blockSummaries.isEmpty()) {
 				sendError(session, ApiError.BLOCK_UNKNOWN);
@@ -123,13 +126,9 @@ public class BlocksWebSocket extends ApiWebSocket implements Listener {
 	}
 
 	private void sendBlockSummary(Session session, BlockSummaryData blockSummary) {
-		StringWriter stringWriter = new StringWriter();
-
 		try {
-			marshall(stringWriter, blockSummary);
-
-			session.getRemote().sendStringByFuture(stringWriter.toString());
-		} catch (IOException | WebSocketException e) {
+			send(session, encode(blockSummary));
+		} catch (IOException e) {
 			// No output this time
 		}
 	}
@@ -1,7 +1,6 @@
 package org.qortal.api.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
 import org.qortal.controller.ChatNotifier;
@@ -12,8 +11,8 @@ import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.qortal.data.chat.ChatMessage.Encoding;
 
@@ -21,6 +20,19 @@ import static org.qortal.data.chat.ChatMessage.Encoding;
 @SuppressWarnings("serial")
 public class ChatMessagesWebSocket extends ApiWebSocket {
 
+	/** Output for a CHAT transaction, by encoding */
+	private static class ChatOutputs {
+		private final ChatTransactionData chatTransactionData;
+		private final Map<Encoding, String> outputs = new ConcurrentHashMap<>();
+
+		private ChatOutputs(ChatTransactionData chatTransactionData) {
+			this.chatTransactionData = chatTransactionData;
+		}
+	}
+
+	/** Most recently notified CHAT transaction, so its output is usually only built once per encoding, however many sessions want it */
+	private static volatile ChatOutputs previousChatOutputs;
+
 	@Override
 	public void configure(WebSocketServletFactory factory) {
 		factory.register(ChatMessagesWebSocket.class);
@@ -29,6 +41,9 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
+		// Initial output is sent before session joins broadcasts
+		openSender(session);
+
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
 		Encoding encoding = getTargetEncoding(session);
 
@@ -45,7 +60,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 		if (txGroupIds != null && txGroupIds.size() == 1) {
 			int txGroupId = Integer.parseInt(txGroupIds.get(0));
 
-			try (final Repository repository = RepositoryManager.getRepository()) {
+			try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 				List<ChatMessage> chatMessages = repository.getChatRepository().getMessagesMatchingCriteria(
 						null,
 						null,
@@ -65,6 +80,8 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 				return;
 			}
 
+			super.onWebSocketConnect(session);
+
 			ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, txGroupId);
 			ChatNotifier.getInstance().register(session, listener);
 
@@ -77,7 +94,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 			return;
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<ChatMessage> chatMessages = repository.getChatRepository().getMessagesMatchingCriteria(
 					null,
 					null,
@@ -97,6 +114,8 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 			return;
 		}
 
+		super.onWebSocketConnect(session);
+
 		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, involvingAddresses);
 		ChatNotifier.getInstance().register(session, listener);
 	}
@@ -105,6 +124,8 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 	@Override
 	public void onWebSocketClose(Session session, int statusCode, String reason) {
 		ChatNotifier.getInstance().deregister(session);
+
+		super.onWebSocketClose(session, statusCode, reason);
 	}
 
 	@OnWebSocketError
@@ -115,7 +136,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 	@OnWebSocketMessage
 	public void onWebSocketMessage(Session session, String message) {
 		if (Objects.equals(message, "ping")) {
-			session.getRemote().sendStringByFuture("pong");
+			send(session, "pong");
 		}
 	}
 
@@ -149,28 +170,45 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 	}
 
 	private void sendMessages(Session session, List<ChatMessage> chatMessages) {
-		StringWriter stringWriter = new StringWriter();
-
 		try {
-			marshall(stringWriter, chatMessages);
-
-			session.getRemote().sendStringByFuture(stringWriter.toString());
-		} catch (IOException | WebSocketException e) {
+			send(session, encode(chatMessages));
+		} catch (IOException e) {
 			// No output this time?
 		}
 	}
 
 	private void sendChat(Session session, ChatTransactionData chatTransactionData) {
-		// Convert ChatTransactionData to ChatMessage
-		ChatMessage chatMessage;
-		try (final Repository repository = RepositoryManager.getRepository()) {
-			chatMessage = repository.getChatRepository().toChatMessage(chatTransactionData, getTargetEncoding(session));
-		} catch (DataException e) {
+		String output = getChatOutput(chatTransactionData, getTargetEncoding(session));
+		if (output == null)
 			// No output this time?
 			return;
+
+		send(session, output);
+	}
+
+	private String getChatOutput(ChatTransactionData chatTransactionData, Encoding encoding) {
+		// ChatNotifier passes the same transaction to every session in turn.
+		// Sessions don't lock while building output, so a racing session might occasionally build it again, but never waits on another's query.
+		ChatOutputs chatOutputs = previousChatOutputs;
+		if (chatOutputs == null || chatOutputs.chatTransactionData != chatTransactionData) {
+			chatOutputs = new ChatOutputs(chatTransactionData);
+			previousChatOutputs = chatOutputs;
+		}
+
+		String output = chatOutputs.outputs.get(encoding);
+		if (output != null)
+			return output;
+
+		// Convert ChatTransactionData to ChatMessage
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
+			ChatMessage chatMessage = repository.getChatRepository().toChatMessage(chatTransactionData, encoding);
+			output = encode(Collections.singletonList(chatMessage));
+		} catch (DataException | IOException e) {
+			return null;
 		}
 
-		sendMessages(session, Collections.singletonList(chatMessage));
+		chatOutputs.outputs.putIfAbsent(encoding, output);
+		return output;
 	}
 
 	private Encoding getTargetEncoding(Session session) {
@@ -22,7 +22,6 @@ import org.qortal.utils.NTP;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -79,14 +78,15 @@ public class PresenceWebSocket extends ApiWebSocket implements Listener {
 	public void configure(WebSocketServletFactory factory) {
 		factory.register(PresenceWebSocket.class);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			populateCurrentInfo(repository);
 		} catch (DataException e) {
 			// How to fail properly?
 			return;
 		}
 
-		EventBus.INSTANCE.addListener(this::listen);
+		EventBus.INSTANCE.addAsyncListener("PresenceWebSocket", this::listen, 1000, EventBus.OverflowPolicy.DROP_OLDEST,
+				Set.of(Controller.NewTransactionEvent.class, Synchronizer.NewChainTipEvent.class));
 	}
 
 	@Override
@@ -120,18 +120,28 @@ public class PresenceWebSocket extends ApiWebSocket implements Listener {
 
 		List<PresenceInfo> presenceInfo = Collections.singletonList(new PresenceInfo(presenceType, pubKey58, computedTimestamp));
 
+		String output;
+		try {
+			output = encode(presenceInfo);
+		} catch (IOException e) {
+			// No output this time?
+			return;
+		}
+
 		// Notify sessions
-		for (Session session : getSessions()) {
+		broadcast(output, session -> {
 			PresenceType sessionPresenceType = sessionPresenceTypes.get(session);
 
-			if (sessionPresenceType == null || sessionPresenceType == presenceType)
-				sendPresenceInfo(session, presenceInfo);
-		}
+			return sessionPresenceType == null || sessionPresenceType == presenceType;
+		});
 	}
 
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
+		// Initial output is sent before session joins broadcasts
+		openSender(session);
+
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
 		List<String> presenceTypes = queryParams.get("presenceType");
 
@@ -188,17 +198,11 @@ public class PresenceWebSocket extends ApiWebSocket implements Listener {
 
 	private boolean sendPresenceInfo(Session session, List<PresenceInfo> presenceInfo) {
 		try {
-			StringWriter stringWriter = new StringWriter();
-			marshall(stringWriter, presenceInfo);
-
-			String output = stringWriter.toString();
-			session.getRemote().sendStringByFuture(output);
+			return send(session, encode(presenceInfo));
 		} catch (IOException e) {
 			// No output this time?
 			return false;
 		}
-
-		return true;
 	}
 
 	private static void populateCurrentInfo(Repository repository) throws DataException {
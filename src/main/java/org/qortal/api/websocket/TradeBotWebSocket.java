@@ -15,7 +15,6 @@ import org.qortal.repository.RepositoryManager;
 import org.qortal.utils.Base58;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,7 +31,7 @@ public class TradeBotWebSocket extends ApiWebSocket implements Listener {
 	public void configure(WebSocketServletFactory factory) {
 		factory.register(TradeBotWebSocket.class);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<TradeBotData> tradeBotEntries = repository.getCrossChainRepository().getAllTradeBotData();
 			if (tradeBotEntries == null)
 				// How do we properly fail here?
@@ -43,7 +42,7 @@ public class TradeBotWebSocket extends ApiWebSocket implements Listener {
 			// No output this time
 		}
 
-		EventBus.INSTANCE.addListener(this::listen);
+		EventBus.INSTANCE.addAsyncListener("TradeBotWebSocket", this::listen, 1000, EventBus.OverflowPolicy.DROP_OLDEST, Set.of(TradeBot.StateChangeEvent.class));
 	}
 
 	@Override
@@ -65,18 +64,28 @@ public class TradeBotWebSocket extends ApiWebSocket implements Listener {
 
 		List<TradeBotData> tradeBotEntries = Collections.singletonList(tradeBotData);
 
-		for (Session session : getSessions()) {
+		String output;
+		try {
+			output = encode(tradeBotEntries);
+		} catch (IOException e) {
+			// No output this time?
+			return;
+		}
+
+		broadcast(output, session -> {
 			// Only send if this session has this/no preferred blockchain
 			String preferredBlockchain = sessionBlockchain.get(session);
 
-			if (preferredBlockchain == null || preferredBlockchain.equals(tradeBotData.getForeignBlockchain()))
-				sendEntries(session, tradeBotEntries);
-		}
+			return preferredBlockchain == null || preferredBlockchain.equals(tradeBotData.getForeignBlockchain());
+		});
 	}
 
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
+		// Initial output is sent before session joins broadcasts
+		openSender(session);
+
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
 		final boolean excludeInitialData = queryParams.get("excludeInitialData") != null;
 
@@ -95,7 +104,7 @@ public class TradeBotWebSocket extends ApiWebSocket implements Listener {
 
 
 		// Maybe send all known trade-bot entries
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			List<TradeBotData> tradeBotEntries = new ArrayList<>();
 
 			// We might need to exclude the initial data from the response
@@ -142,17 +151,11 @@ public class TradeBotWebSocket extends ApiWebSocket implements Listener {
 
 	private boolean sendEntries(Session session, List<TradeBotData> tradeBotEntries) {
 		try {
-			StringWriter stringWriter = new StringWriter();
-			marshall(stringWriter, tradeBotEntries);
-
-			String output = stringWriter.toString();
-			session.getRemote().sendStringByFuture(output);
+			return send(session, encode(tradeBotEntries));
 		} catch (IOException e) {
 			// No output this time?
 			return false;
 		}
-
-		return true;
 	}
 
 }
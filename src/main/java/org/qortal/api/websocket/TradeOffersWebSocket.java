@@ -24,7 +24,6 @@ import org.qortal.utils.ByteArray;
 import org.qortal.utils.NTP;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -58,7 +57,7 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 	public void configure(WebSocketServletFactory factory) {
 		factory.register(TradeOffersWebSocket.class);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			populateCurrentSummaries(repository);
 
 			populateHistoricSummaries(repository);
@@ -67,7 +66,7 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 			return;
 		}
 
-		EventBus.INSTANCE.addListener(this::listen);
+		EventBus.INSTANCE.addAsyncListener("TradeOffersWebSocket", this::listen, 1000, EventBus.OverflowPolicy.DROP_OLDEST, Set.of(Synchronizer.NewChainTipEvent.class));
 	}
 
 	@Override
@@ -79,7 +78,7 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 
 		// Process any new info
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
 			// Find any new/changed trade ATs since this block
 			final Boolean isFinished = null;
 			final Integer dataByteOffset = null;
@@ -144,14 +143,21 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 					cachedInfo.historicSummaries.values().removeIf(historicSummary -> historicSummary.getTimestamp() < tooOldTimestamp);
 				}
 
+				String output;
+				try {
+					output = encode(crossChainOfferSummaries);
+				} catch (IOException e) {
+					// No output this time?
+					continue;
+				}
+
 				// Notify sessions
-				for (Session session : getSessions()) {
+				broadcast(output, session -> {
 					// Only send if this session has this/no preferred blockchain
 					String preferredBlockchain = sessionBlockchain.get(session);
 
-					if (preferredBlockchain == null || preferredBlockchain.equals(blockchain.name()))
-						sendOfferSummaries(session, crossChainOfferSummaries);
-				}
+					return preferredBlockchain == null || preferredBlockchain.equals(blockchain.name());
+				});
 
 			}
 		} catch (DataException e) {
@@ -162,6 +168,9 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
+		// Initial output is sent before session joins broadcasts
+		openSender(session);
+
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
 		final boolean includeHistoric = queryParams.get("includeHistoric") != null;
 		final boolean excludeInitialData = queryParams.get("excludeInitialData") != null;
@@ -230,17 +239,11 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 
 	private boolean sendOfferSummaries(Session session, List<CrossChainOfferSummary> crossChainOfferSummaries) {
 		try {
-			StringWriter stringWriter = new StringWriter();
-			marshall(stringWriter, crossChainOfferSummaries);
-
-			String output = stringWriter.toString();
-			session.getRemote().sendStringByFuture(output);
+			return send(session, encode(crossChainOfferSummaries));
 		} catch (IOException e) {
 			// No output this time?
 			return false;
 		}
-
-		return true;
 	}
 
 	private static void populateCurrentSummaries(Repository repository) throws DataException {
@@ -13,7 +13,6 @@ import org.qortal.utils.Base58;
 import org.qortal.utils.NTP;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
 
 @WebSocket
@@ -29,7 +28,8 @@ public class TradePresenceWebSocket extends ApiWebSocket implements Listener {
 
 		populateCurrentInfo();
 
-		EventBus.INSTANCE.addListener(this::listen);
+		EventBus.INSTANCE.addAsyncListener("TradePresenceWebSocket", this::listen, 1000, EventBus.OverflowPolicy.DROP_OLDEST,
+				Set.of(TradeBot.TradePresenceEvent.class, Controller.NewBlockEvent.class));
 	}
 
 	@Override
@@ -56,14 +56,19 @@ public class TradePresenceWebSocket extends ApiWebSocket implements Listener {
 		List<TradePresenceData> tradePresences = Collections.singletonList(tradePresence);
 
 		// Notify sessions
-		for (Session session : getSessions()) {
-			sendTradePresences(session, tradePresences);
+		try {
+			broadcast(encode(tradePresences));
+		} catch (IOException e) {
+			// No output this time?
 		}
 	}
 
 	@OnWebSocketConnect
 	@Override
 	public void onWebSocketConnect(Session session) {
+		// Initial output is sent before session joins broadcasts
+		openSender(session);
+
 		Map<String, List<String>> queryParams = session.getUpgradeRequest().getParameterMap();
 		final boolean excludeInitialData = queryParams.get("excludeInitialData") != null;
 
@@ -103,17 +108,11 @@ public class TradePresenceWebSocket extends ApiWebSocket implements Listener {
 
 	private boolean sendTradePresences(Session session, List<TradePresenceData> tradePresences) {
 		try {
-			StringWriter stringWriter = new StringWriter();
-			marshall(stringWriter, tradePresences);
-
-			String output = stringWriter.toString();
-			session.getRemote().sendStringByFuture(output);
+			return send(session, encode(tradePresences));
 		} catch (IOException e) {
 			// No output this time?
 			return false;
 		}
-
-		return true;
 	}
 
 	private static void populateCurrentInfo() {
@@ -0,0 +1,79 @@
+package org.qortal.api.websocket;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound traffic counts for each websocket endpoint.
+ */
+public class WebSocketMetrics {
+
+	public static class EndpointStats {
+		public String endpoint;
+		public int sessionCount;
+		/** Number of times output was built, regardless of how many sessions it was sent to */
+		public long encodedCount;
+		public long sentCount;
+		public long sentCharacters;
+		/** Frames that couldn't be written, e.g. because remote end went away */
+		public long failedCount;
+		/** Frames discarded because session's outbound queue was full */
+		public long droppedCount;
+		/** Sessions closed for not keeping up with output */
+		public long evictedCount;
+
+		public EndpointStats() {
+		}
+	}
+
+	static class Endpoint {
+		final LongAdder encodedCount = new LongAdder();
+		final LongAdder sentCount = new LongAdder();
+		final LongAdder sentCharacters = new LongAdder();
+		final LongAdder failedCount = new LongAdder();
+		final LongAdder droppedCount = new LongAdder();
+		final LongAdder evictedCount = new LongAdder();
+	}
+
+	private static final WebSocketMetrics INSTANCE = new WebSocketMetrics();
+
+	private final Map<Class<? extends ApiWebSocket>, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+	private WebSocketMetrics() {
+	}
+
+	public static WebSocketMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	Endpoint getEndpoint(Class<? extends ApiWebSocket> endpointClass) {
+		return this.endpoints.computeIfAbsent(endpointClass, k -> new Endpoint());
+	}
+
+	/** Returns snapshot of stats for each websocket endpoint that has had any activity, by endpoint name. */
+	public List<EndpointStats> getEndpointStats() {
+		List<EndpointStats> endpointStats = new ArrayList<>();
+
+		this.endpoints.forEach((endpointClass, endpoint) -> {
+			EndpointStats stats = new EndpointStats();
+			stats.endpoint = endpointClass.getSimpleName();
+			stats.sessionCount = ApiWebSocket.getSessionCount(endpointClass);
+			stats.encodedCount = endpoint.encodedCount.sum();
+			stats.sentCount = endpoint.sentCount.sum();
+			stats.sentCharacters = endpoint.sentCharacters.sum();
+			stats.failedCount = endpoint.failedCount.sum();
+			stats.droppedCount = endpoint.droppedCount.sum();
+			stats.evictedCount = endpoint.evictedCount.sum();
+
+			endpointStats.add(stats);
+		});
+
+		endpointStats.sort(Comparator.comparing(stats -> stats.endpoint));
+		return endpointStats;
+	}
+
+}
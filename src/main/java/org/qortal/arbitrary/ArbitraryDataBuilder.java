@@ -14,6 +14,7 @@ import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.settings.Settings;
 import org.qortal.utils.Base58;
+import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.NTP;
 
 import java.io.IOException;
@@ -22,11 +23,19 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ArbitraryDataBuilder {
 
     private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataBuilder.class);
 
+    /** Loads layers in parallel, each with its own decryption and extraction */
+    private static final ExecutorService LAYER_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("ArbitraryDataLayers"));
+
     private final String name;
     private final Service service;
     private final String identifier;
@@ -131,48 +140,90 @@ public class ArbitraryDataBuilder {
     private void processTransactions() throws IOException, DataException, MissingDataException {
         List<ArbitraryTransactionData> transactionDataList = new ArrayList<>(this.transactions);
 
-        int count = 0;
+        // Layers don't depend on each other until they are combined, so fetch, decrypt and extract them in parallel
+        List<Future<Path>> futures = new ArrayList<>();
         for (ArbitraryTransactionData transactionData : transactionDataList) {
-            LOGGER.trace("Found arbitrary transaction {}", Base58.encode(transactionData.getSignature()));
-            count++;
-
-            // Build the data file, overwriting anything that was previously there
-            String sig58 = Base58.encode(transactionData.getSignature());
-            ArbitraryDataReader arbitraryDataReader = new ArbitraryDataReader(sig58, ResourceIdType.TRANSACTION_DATA,
-                    this.service, this.identifier);
-            arbitraryDataReader.setTransactionData(transactionData);
-            arbitraryDataReader.setCanRequestMissingFiles(this.canRequestMissingFiles);
-            boolean hasMissingData = false;
-            try {
-                arbitraryDataReader.loadSynchronously(true);
-            }
-            catch (MissingDataException e) {
-                hasMissingData = true;
-            }
+            futures.add(LAYER_EXECUTOR.submit(() -> this.loadLayer(transactionData)));
+        }
+
+        // Wait for all layers, even if one fails, so that every layer has the opportunity to request missing data
+        List<Path> layerPaths = new ArrayList<>();
+        boolean hasMissingData = false;
+        Exception firstException = null;
 
-            // Handle missing data
-            if (hasMissingData) {
-                if (!this.canRequestMissingFiles) {
-                    throw new MissingDataException("Files are missing but were not requested.");
+        for (Future<Path> future : futures) {
+            try {
+                Path path = future.get();
+                if (path == null) {
+                    hasMissingData = true;
+                    continue;
                 }
-                if (count == transactionDataList.size()) {
-                    // This is the final transaction in the list, so we need to fail
-                    throw new MissingDataException("Requesting missing files. Please wait and try again.");
+                layerPaths.add(path);
+
+            } catch (ExecutionException e) {
+                if (firstException == null) {
+                    firstException = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
                 }
-                // There are more transactions, so we should process them to give them the opportunity to request data
-                continue;
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new DataException("Interrupted while loading layers");
             }
+        }
 
-            // By this point we should have all data needed to build the layers
-            Path path = arbitraryDataReader.getFilePath();
-            if (path == null) {
-                throw new DataException(String.format("Null path when building data from transaction %s", sig58));
-            }
-            if (!Files.exists(path)) {
-                throw new DataException(String.format("Path doesn't exist when building data from transaction %s", sig58));
+        if (firstException instanceof IOException) {
+            throw (IOException) firstException;
+        }
+        if (firstException instanceof DataException) {
+            throw (DataException) firstException;
+        }
+        if (firstException != null) {
+            throw new DataException(firstException.getMessage());
+        }
+
+        // Handle missing data
+        if (hasMissingData) {
+            if (!this.canRequestMissingFiles) {
+                throw new MissingDataException("Files are missing but were not requested.");
             }
-            paths.add(path);
+            throw new MissingDataException("Requesting missing files. Please wait and try again.");
         }
+
+        this.paths.addAll(layerPaths);
+    }
+
+    /**
+     * Builds a single layer's data
+     *
+     * @return path of layer's data, or null if data is missing
+     */
+    private Path loadLayer(ArbitraryTransactionData transactionData) throws IOException, DataException {
+        LOGGER.trace("Found arbitrary transaction {}", Base58.encode(transactionData.getSignature()));
+
+        // Build the data file, overwriting anything that was previously there
+        String sig58 = Base58.encode(transactionData.getSignature());
+        ArbitraryDataReader arbitraryDataReader = new ArbitraryDataReader(sig58, ResourceIdType.TRANSACTION_DATA,
+                this.service, this.identifier);
+        arbitraryDataReader.setTransactionData(transactionData);
+        arbitraryDataReader.setCanRequestMissingFiles(this.canRequestMissingFiles);
+        // Layers are combined and then cleaned up, so only the final build is tracked by the cache
+        arbitraryDataReader.setRecordsAccess(false);
+        try {
+            arbitraryDataReader.loadSynchronously(true);
+        }
+        catch (MissingDataException e) {
+            return null;
+        }
+
+        // By this point we should have all data needed to build the layer
+        Path path = arbitraryDataReader.getFilePath();
+        if (path == null) {
+            throw new DataException(String.format("Null path when building data from transaction %s", sig58));
+        }
+        if (!Files.exists(path)) {
+            throw new DataException(String.format("Path doesn't exist when building data from transaction %s", sig58));
+        }
+        return path;
     }
 
     private void findLatestSignature() throws DataException {
@@ -215,6 +266,10 @@ public class ArbitraryDataBuilder {
             byte[] signatureBefore = this.transactions.get(i-1).getSignature();
             ArbitraryDataCombiner combiner = new ArbitraryDataCombiner(pathBefore, pathAfter, signatureBefore);
 
+            // The first layer is combined into a new directory, sharing the base layer's files rather than copying
+            // them. Later layers are then applied straight on top of that, so we never copy the whole resource again.
+            combiner.setMergeInPlace(i > 1);
+
             // We only want to validate this layer's hash if it's the final layer, or if the settings
             // indicate that we should validate interim layers too
             boolean isFinalLayer = (i == paths.size() - 1);
@@ -0,0 +1,273 @@
+package org.qortal.arbitrary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.controller.arbitrary.ArbitraryDataStorageLedger;
+import org.qortal.settings.Settings;
+import org.qortal.utils.FilesystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * Content-addressed store of data files (mostly chunks), shared between transactions.
+ * <p>
+ * Data files are still stored under each transaction's signature directory, but each one is also
+ * hard-linked into <tt>{dataPath}/_chunks/xx/yy/{hash58}</tt>. A file that another transaction
+ * needs can then be linked into place instead of being downloaded again, and takes no extra disk space.
+ * <p>
+ * The filesystem's link count is the reference count: the store's own link, plus one for each
+ * signature directory that references the file. Deleting a file from a signature directory
+ * therefore only releases a reference, and the store's entry is removed once nothing else uses it.
+ * <p>
+ * The store is disabled on filesystems that can't report link counts.
+ */
+public class ArbitraryDataChunkStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataChunkStore.class);
+
+    public static final String STORE_DIRECTORY = "_chunks";
+
+    /** Locks, striped by hash, so that linking and releasing the same entry don't race */
+    private static final int LOCK_COUNT = 64;
+
+    private static ArbitraryDataChunkStore instance;
+
+    private final Object[] locks = new Object[LOCK_COUNT];
+    private volatile boolean isSupported;
+
+    public ArbitraryDataChunkStore() {
+        for (int i = 0; i < LOCK_COUNT; ++i) {
+            this.locks[i] = new Object();
+        }
+
+        this.isSupported = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    }
+
+    public static synchronized ArbitraryDataChunkStore getInstance() {
+        if (instance == null)
+            instance = new ArbitraryDataChunkStore();
+
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return this.isSupported && Settings.getInstance().isDataChunkStoreEnabled();
+    }
+
+    public static Path getStorePath() {
+        return Paths.get(Settings.getInstance().getDataPath(), STORE_DIRECTORY);
+    }
+
+    public static Path getStorePath(String hash58) {
+        String hash58First2Chars = hash58.substring(0, 2).toLowerCase();
+        String hash58Next2Chars = hash58.substring(2, 4).toLowerCase();
+        return Paths.get(Settings.getInstance().getDataPath(), STORE_DIRECTORY, hash58First2Chars, hash58Next2Chars, hash58);
+    }
+
+    public boolean contains(String hash58) {
+        return this.isEnabled() && Files.exists(getStorePath(hash58));
+    }
+
+    /**
+     * Adds file, already written to <tt>path</tt> with content matching <tt>hash58</tt>, to the store.
+     * <p>
+     * Callers must have already verified that the file's content matches <tt>hash58</tt>, as anything
+     * in the store can later be linked into place without being checked again.
+     * <p>
+     * If the store already has this file, <tt>path</tt> is replaced with a link to the stored copy instead.
+     */
+    public void add(String hash58, Path path) {
+        if (!this.isEnabled() || hash58 == null || path == null) {
+            return;
+        }
+
+        Path storePath = getStorePath(hash58);
+        synchronized (this.lockFor(hash58)) {
+            try {
+                if (Files.exists(storePath) && Files.size(storePath) != Files.size(path)) {
+                    // Stored copy must have been damaged, so replace it with our verified copy
+                    LOGGER.info("Replacing damaged chunk store entry {}", hash58);
+                    Files.delete(storePath);
+                }
+
+                if (Files.exists(storePath)) {
+                    if (!Files.isSameFile(storePath, path)) {
+                        // Swap our copy for a link, so that it doesn't take up any extra space
+                        Path tempPath = path.resolveSibling(path.getFileName() + ".link");
+                        Files.deleteIfExists(tempPath);
+                        Files.createLink(tempPath, storePath);
+                        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    return;
+                }
+
+                Files.createDirectories(storePath.getParent());
+                Files.createLink(storePath, path);
+
+            } catch (FileAlreadyExistsException e) {
+                // Already added
+            } catch (UnsupportedOperationException e) {
+                LOGGER.info("Filesystem doesn't support hard links, so data files won't be shared between transactions");
+                this.isSupported = false;
+            } catch (IOException e) {
+                LOGGER.debug("Unable to add {} to chunk store: {}", hash58, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Links stored file with <tt>hash58</tt> into place at <tt>destPath</tt>, if we have it.
+     *
+     * @return true if <tt>destPath</tt> now exists
+     */
+    public boolean linkTo(String hash58, Path destPath) {
+        if (!this.isEnabled() || hash58 == null || destPath == null) {
+            return false;
+        }
+
+        Path storePath = getStorePath(hash58);
+        synchronized (this.lockFor(hash58)) {
+            if (!Files.exists(storePath)) {
+                return false;
+            }
+
+            try {
+                Files.createDirectories(destPath.getParent());
+                Files.createLink(destPath, storePath);
+
+            } catch (FileAlreadyExistsException e) {
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                LOGGER.debug("Unable to link {} from chunk store: {}", hash58, e.getMessage());
+                return false;
+            }
+        }
+
+        LOGGER.debug("Linked data file {} from chunk store instead of fetching it", hash58);
+        ArbitraryDataStorageLedger.getInstance().recordFileChange(destPath, ArbitraryDataStorageLedger.fileSize(destPath));
+        return true;
+    }
+
+    /**
+     * Releases a reference to stored file with <tt>hash58</tt>, after a copy of it has been deleted,
+     * removing it from the store if it is no longer referenced.
+     */
+    public void release(String hash58) {
+        if (!this.isEnabled() || hash58 == null) {
+            return;
+        }
+
+        Path storePath = getStorePath(hash58);
+        synchronized (this.lockFor(hash58)) {
+            if (getReferenceCount(storePath) != 0) {
+                return;
+            }
+
+            try {
+                Files.deleteIfExists(storePath);
+                FilesystemUtils.safeDeleteEmptyParentDirectories(storePath);
+            } catch (IOException e) {
+                LOGGER.debug("Unable to remove {} from chunk store: {}", hash58, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns whether file at <tt>path</tt> is also held by another signature directory,
+     * in which case deleting it wouldn't free any disk space.
+     */
+    public boolean isShared(Path path) {
+        if (!this.isEnabled() || path == null) {
+            return false;
+        }
+
+        int linkCount = getLinkCount(path);
+        if (linkCount <= 1) {
+            return false;
+        }
+
+        // Don't count the store's own link
+        Path storePath = getStorePath(path.getFileName().toString());
+        try {
+            if (Files.exists(storePath) && Files.isSameFile(storePath, path)) {
+                linkCount--;
+            }
+        } catch (IOException e) {
+            // Can't tell, so assume it's shared
+            return true;
+        }
+
+        return linkCount > 1;
+    }
+
+    /** Returns number of signature directories referencing stored file with <tt>hash58</tt>, or -1 if not stored. */
+    public int getReferenceCount(String hash58) {
+        if (!this.isEnabled()) {
+            return -1;
+        }
+
+        return getReferenceCount(getStorePath(hash58));
+    }
+
+    /**
+     * Removes any stored files that are no longer referenced, e.g. because a whole
+     * signature directory was deleted.
+     *
+     * @return number of files removed
+     */
+    public int prune() throws InterruptedException {
+        if (!this.isEnabled()) {
+            return 0;
+        }
+
+        int removedCount = 0;
+        for (File level1 : listFiles(getStorePath().toFile())) {
+            for (File level2 : listFiles(level1)) {
+                for (File file : listFiles(level2)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    String hash58 = file.getName();
+                    if (file.isFile() && this.getReferenceCount(hash58) == 0) {
+                        this.release(hash58);
+                        removedCount++;
+                    }
+                }
+            }
+        }
+
+        return removedCount;
+    }
+
+    private static int getReferenceCount(Path storePath) {
+        int linkCount = getLinkCount(storePath);
+        // Don't count the store's own link
+        return linkCount > 0 ? linkCount - 1 : -1;
+    }
+
+    /** Returns number of hard links to file at <tt>path</tt>, or -1 if it doesn't exist or can't be determined. */
+    private static int getLinkCount(Path path) {
+        try {
+            return (Integer) Files.getAttribute(path, "unix:nlink");
+
+        } catch (NoSuchFileException e) {
+            return -1;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            // Can't tell, so assume it's still needed
+            return -1;
+        }
+    }
+
+    private Object lockFor(String hash58) {
+        return this.locks[Math.floorMod(hash58.hashCode(), LOCK_COUNT)];
+    }
+
+    private static File[] listFiles(File directory) {
+        File[] files = directory.listFiles();
+        return files != null ? files : new File[0];
+    }
+
+}
@@ -25,6 +25,7 @@ public class ArbitraryDataCombiner {
     private final Path pathAfter;
     private final byte[] signatureBefore;
     private boolean shouldValidateHashes;
+    private boolean mergeInPlace;
     private Path finalPath;
     private ArbitraryDataMetadataPatch metadata;
 
@@ -49,7 +50,9 @@ public class ArbitraryDataCombiner {
     }
 
     public void cleanup() {
-        this.cleanupPath(this.pathBefore);
+        if (!this.mergeInPlace) {
+            this.cleanupPath(this.pathBefore);
+        }
         this.cleanupPath(this.pathAfter);
     }
 
@@ -135,6 +138,7 @@ public class ArbitraryDataCombiner {
 
     private void process() throws IOException, DataException {
         ArbitraryDataMerge merge = new ArbitraryDataMerge(this.pathBefore, this.pathAfter);
+        merge.setMergeInPlace(this.mergeInPlace);
         merge.compute();
         this.finalPath = merge.getMergePath();
     }
@@ -163,6 +167,16 @@ public class ArbitraryDataCombiner {
         this.shouldValidateHashes = shouldValidateHashes;
     }
 
+    /**
+     * Apply changes directly to pathBefore, rather than a copy of it.
+     * Only suitable when pathBefore is itself the output of an earlier combine.
+     *
+     * @param mergeInPlace
+     */
+    public void setMergeInPlace(boolean mergeInPlace) {
+        this.mergeInPlace = mergeInPlace;
+    }
+
     public Path getFinalPath() {
         return this.finalPath;
     }
@@ -3,19 +3,21 @@ package org.qortal.arbitrary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.arbitrary.metadata.ArbitraryDataTransactionMetadata;
+import org.qortal.controller.arbitrary.ArbitraryDataStorageLedger;
 import org.qortal.crypto.Crypto;
 import org.qortal.data.transaction.ArbitraryTransactionData;
 import org.qortal.repository.DataException;
 import org.qortal.settings.Settings;
 import org.qortal.utils.Base58;
+import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.FilesystemUtils;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toMap;
@@ -57,6 +59,11 @@ public class ArbitraryDataFile {
     public static final int CHUNK_SIZE = 512 * 1024; // 0.5MiB
     public static int SHORT_DIGEST_LENGTH = 8;
 
+    /** Splits and joins hash and copy chunks using all available cores */
+    private static final ExecutorService CHUNK_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("ArbitraryDataFileChunks"));
+    private static final ThreadLocal<ByteBuffer> CHUNK_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(CHUNK_SIZE));
+
     protected Path filePath;
     protected String hash58;
     protected byte[] signature;
@@ -104,14 +111,28 @@ public class ArbitraryDataFile {
             outputFilePath = getOutputFilePath(this.hash58, signature, true);
         }
 
-        File outputFile = outputFilePath.toFile();
-        try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
-            outputStream.write(fileContent);
+        long replacedBytes = ArbitraryDataStorageLedger.fileSize(outputFilePath);
+        try {
+            // An existing file may be shared with other transactions, so replace it rather than writing to it in place
+            boolean replacing = !useTemporaryFile && Files.exists(outputFilePath);
+            Path writePath = replacing ? Files.createTempFile(outputFilePath.getParent(), this.hash58, ".tmp") : outputFilePath;
+
+            try (FileOutputStream outputStream = new FileOutputStream(writePath.toFile())) {
+                outputStream.write(fileContent);
+            }
+            if (replacing) {
+                ArbitraryDataFile.moveIntoPlace(writePath, outputFilePath);
+            }
             this.filePath = outputFilePath;
         } catch (IOException e) {
             this.delete();
             throw new DataException(String.format("Unable to write data with hash %s: %s", this.hash58, e.getMessage()));
         }
+
+        ArbitraryDataStorageLedger.getInstance().recordFileChange(outputFilePath, fileContent.length - replacedBytes);
+        if (!useTemporaryFile) {
+            ArbitraryDataChunkStore.getInstance().add(this.hash58, outputFilePath);
+        }
     }
 
     public static ArbitraryDataFile fromHash58(String hash58, byte[] signature) throws DataException {
@@ -178,7 +199,10 @@ public class ArbitraryDataFile {
                 else if (!path.equals(arbitraryDataFile.getFilePath())) {
                     // Wrong path, so relocate (but don't cleanup, as the source folder may still be needed by the caller)
                     Path dest = arbitraryDataFile.getFilePath();
+                    long bytes = ArbitraryDataStorageLedger.fileSize(path);
+                    long replacedBytes = ArbitraryDataStorageLedger.fileSize(dest);
                     FilesystemUtils.moveFile(path, dest, false);
+                    ArbitraryDataStorageLedger.getInstance().recordFileMove(path, dest, bytes, replacedBytes);
                 }
                 return arbitraryDataFile;
 
@@ -201,7 +225,10 @@ public class ArbitraryDataFile {
         sourcePath = sourcePath.toAbsolutePath();
         Path destPath = outputFilePath.toAbsolutePath();
         try {
-            return Files.copy(sourcePath, destPath, StandardCopyOption.REPLACE_EXISTING);
+            long replacedBytes = ArbitraryDataStorageLedger.fileSize(destPath);
+            Files.copy(sourcePath, destPath, StandardCopyOption.REPLACE_EXISTING);
+            ArbitraryDataStorageLedger.getInstance().recordFileChange(destPath, ArbitraryDataStorageLedger.fileSize(destPath) - replacedBytes);
+            return destPath;
         } catch (IOException e) {
             throw new DataException(String.format("Unable to copy file %s to data directory %s", sourcePath, destPath));
         }
@@ -305,7 +332,6 @@ public class ArbitraryDataFile {
         try {
 
             File file = this.getFile();
-            byte[] buffer = new byte[chunkSize];
             this.chunks = new ArrayList<>();
 
             if (file != null) {
@@ -314,24 +340,21 @@ public class ArbitraryDataFile {
                     return 0;
                 }
 
-                try (FileInputStream fileInputStream = new FileInputStream(file);
-                     BufferedInputStream bis = new BufferedInputStream(fileInputStream)) {
-
-                    int numberOfBytes;
-                    while ((numberOfBytes = bis.read(buffer)) > 0) {
-                        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                            out.write(buffer, 0, numberOfBytes);
-                            out.flush();
-
-                            ArbitraryDataFileChunk chunk = new ArbitraryDataFileChunk(out.toByteArray(), this.signature);
-                            ValidationResult validationResult = chunk.isValid();
-                            if (validationResult == ValidationResult.OK) {
-                                this.chunks.add(chunk);
-                            } else {
-                                throw new DataException(String.format("Chunk %s is invalid", chunk));
-                            }
-                        }
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long fileSize = channel.size();
+
+                    // Identical chunks share a path, so mustn't be written concurrently
+                    Map<String, Object> writeLocks = new ConcurrentHashMap<>();
+
+                    // Hash and write chunks in parallel
+                    List<Future<ArbitraryDataFileChunk>> futures = new ArrayList<>();
+                    for (long offset = 0; offset < fileSize; offset += chunkSize) {
+                        final long chunkOffset = offset;
+                        final int chunkLength = (int) Math.min(chunkSize, fileSize - offset);
+                        futures.add(CHUNK_EXECUTOR.submit(() -> this.writeChunk(channel, chunkOffset, chunkLength, writeLocks)));
                     }
+
+                    this.chunks.addAll(ArbitraryDataFile.awaitAll(futures));
                 }
             }
         } catch (Exception e) {
@@ -341,59 +364,202 @@ public class ArbitraryDataFile {
         return this.chunks.size();
     }
 
+    private ArbitraryDataFileChunk writeChunk(FileChannel channel, long offset, int length, Map<String, Object> writeLocks) throws IOException, DataException {
+        ByteBuffer buffer = ArbitraryDataFile.getChunkBuffer(length);
+        ArbitraryDataFile.readFully(channel, buffer, offset);
+
+        buffer.flip();
+        String chunkHash58 = Base58.encode(Crypto.digest(buffer));
+        buffer.rewind();
+
+        Path chunkPath = getOutputFilePath(chunkHash58, this.signature, true);
+        synchronized (writeLocks.computeIfAbsent(chunkHash58, k -> new Object())) {
+            long replacedBytes = ArbitraryDataStorageLedger.fileSize(chunkPath);
+            // An existing chunk may be shared with other transactions, so replace it rather than writing to it in place
+            boolean replacing = Files.exists(chunkPath);
+            Path writePath = replacing ? Files.createTempFile(chunkPath.getParent(), chunkHash58, ".tmp") : chunkPath;
+            try (FileChannel chunkChannel = FileChannel.open(writePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    chunkChannel.write(buffer);
+                }
+            }
+            if (replacing) {
+                ArbitraryDataFile.moveIntoPlace(writePath, chunkPath);
+            }
+            ArbitraryDataStorageLedger.getInstance().recordFileChange(chunkPath, length - replacedBytes);
+            ArbitraryDataChunkStore.getInstance().add(chunkHash58, chunkPath);
+        }
+
+        ArbitraryDataFileChunk chunk = ArbitraryDataFileChunk.fromHash58(chunkHash58, this.signature);
+        ValidationResult validationResult = chunk.isValid();
+        if (validationResult != ValidationResult.OK) {
+            throw new DataException(String.format("Chunk %s is invalid", chunk));
+        }
+        return chunk;
+    }
+
     public boolean join() {
         // Ensure we have chunks
         if (this.chunks != null && this.chunks.size() > 0) {
 
-            // Create temporary path for joined file
-            // Use the user-specified temp dir, as it is deterministic, and is more likely to be located on reusable storage hardware
-            String baseDir = Settings.getInstance().getTempDataPath();
-            Path tempDir = Paths.get(baseDir, "join");
+            Path outputPath;
+            Path tempPath;
             try {
-                Files.createDirectories(tempDir);
-            } catch (IOException e) {
+                // Join straight into the data directory, using a temporary name until complete
+                // so that a partially joined file is never mistaken for the complete file
+                outputPath = getOutputFilePath(this.hash58, this.signature, true);
+                tempPath = Files.createTempFile(outputPath.getParent(), this.hash58, ".join");
+            } catch (IOException | DataException e) {
                 return false;
             }
 
-            // Join the chunks
-            Path outputPath = Paths.get(tempDir.toString(), this.chunks.get(0).digest58());
-            File outputFile = new File(outputPath.toString());
-            try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
-                for (ArbitraryDataFileChunk chunk : this.chunks) {
-                    File sourceFile = chunk.filePath.toFile();
-                    BufferedInputStream in = new BufferedInputStream(new FileInputStream(sourceFile));
-                    byte[] buffer = new byte[2048];
-                    int inSize;
-                    while ((inSize = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, inSize);
+            try {
+                long[] offsets = new long[this.chunks.size()];
+                for (int i = 1; i < offsets.length; ++i) {
+                    offsets[i] = offsets[i - 1] + Files.size(this.chunks.get(i - 1).getFilePath());
+                }
+
+                try (FileChannel outputChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                    // Verify and write chunks in parallel, each at its own offset
+                    List<Future<Long>> futures = new ArrayList<>();
+                    for (int i = 0; i < offsets.length; ++i) {
+                        final ArbitraryDataFileChunk chunk = this.chunks.get(i);
+                        final long chunkOffset = offsets[i];
+                        futures.add(CHUNK_EXECUTOR.submit(() -> ArbitraryDataFile.joinChunk(chunk, outputChannel, chunkOffset)));
                     }
-                    in.close();
+
+                    ArbitraryDataFile.awaitAll(futures);
                 }
-                out.close();
 
-                // Copy temporary file to data directory
-                this.filePath = this.copyToDataDirectory(outputPath, this.signature);
-                if (FilesystemUtils.pathInsideDataOrTempPath(outputPath)) {
-                    Files.delete(outputPath);
+                // Chunks are valid individually, but make sure they make up the file we expected,
+                // before anyone else can use it via the chunk store
+                if (!Arrays.equals(Crypto.digest(tempPath.toFile()), Base58.decode(this.hash58))) {
+                    throw new DataException(String.format("Joined file doesn't match hash %s", this.hash58));
                 }
 
+                long replacedBytes = ArbitraryDataStorageLedger.fileSize(outputPath);
+                ArbitraryDataFile.moveIntoPlace(tempPath, outputPath);
+                ArbitraryDataStorageLedger.getInstance().recordFileChange(outputPath, ArbitraryDataStorageLedger.fileSize(outputPath) - replacedBytes);
+                ArbitraryDataChunkStore.getInstance().add(this.hash58, outputPath);
+
+                this.filePath = outputPath;
                 return true;
-            } catch (FileNotFoundException e) {
-                return false;
+
             } catch (IOException | DataException e) {
+                LOGGER.debug("Unable to join chunks for file {}: {}", this.hash58, e.getMessage());
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (IOException e2) {
+                    LOGGER.debug("Unable to delete partially joined file {}", tempPath);
+                }
                 return false;
             }
         }
         return false;
     }
 
+    private static void moveIntoPlace(Path source, Path dest) throws IOException {
+        try {
+            Files.move(source, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Long joinChunk(ArbitraryDataFileChunk chunk, FileChannel outputChannel, long offset) throws IOException, DataException {
+        try (FileChannel chunkChannel = FileChannel.open(chunk.getFilePath(), StandardOpenOption.READ)) {
+            long chunkSize = chunkChannel.size();
+            if (chunkSize > MAX_CHUNK_SIZE) {
+                throw new DataException(String.format("Chunk %s is too large: %d bytes", chunk, chunkSize));
+            }
+
+            ByteBuffer buffer = ArbitraryDataFile.getChunkBuffer((int) chunkSize);
+            ArbitraryDataFile.readFully(chunkChannel, buffer, 0);
+
+            // Validate chunk before using it
+            buffer.flip();
+            if (!Arrays.equals(Crypto.digest(buffer), chunk.getHash())) {
+                throw new DataException(String.format("Chunk %s doesn't match its hash", chunk));
+            }
+            buffer.rewind();
+
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += outputChannel.write(buffer, position);
+            }
+            return chunkSize;
+        }
+    }
+
+    /** Returns this thread's buffer for chunk data, cleared and limited to <tt>length</tt>. */
+    private static ByteBuffer getChunkBuffer(int length) {
+        ByteBuffer buffer = CHUNK_BUFFER.get();
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length);
+            CHUNK_BUFFER.set(buffer);
+        }
+
+        buffer.clear();
+        buffer.limit(length);
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int bytesRead = channel.read(buffer, position);
+            if (bytesRead < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+            position += bytesRead;
+        }
+    }
+
+    /**
+     * Waits for all futures, even if some fail, so that no task is still using
+     * shared resources (e.g. file channels) once this returns.
+     */
+    private static <T> List<T> awaitAll(List<Future<T>> futures) throws IOException, DataException {
+        List<T> results = new ArrayList<>(futures.size());
+        Exception firstException = null;
+
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (firstException == null) {
+                    firstException = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (firstException == null) {
+                    firstException = e;
+                }
+            }
+        }
+
+        if (firstException instanceof IOException) {
+            throw (IOException) firstException;
+        }
+        if (firstException instanceof DataException) {
+            throw (DataException) firstException;
+        }
+        if (firstException != null) {
+            throw new DataException(firstException.getMessage());
+        }
+
+        return results;
+    }
+
     public boolean delete() {
         // Delete the complete file
         // ... but only if it's inside the Qortal data or temp directory
         if (FilesystemUtils.pathInsideDataOrTempPath(this.filePath)) {
             if (Files.exists(this.filePath)) {
                 try {
+                    long bytes = ArbitraryDataStorageLedger.fileSize(this.filePath);
                     Files.delete(this.filePath);
+                    ArbitraryDataStorageLedger.getInstance().recordFileChange(this.filePath, -bytes);
+                    ArbitraryDataChunkStore.getInstance().release(this.hash58);
                     this.cleanupFilesystem();
                     LOGGER.debug("Deleted file {}", this.filePath);
                     return true;
@@ -490,6 +656,18 @@ public class ArbitraryDataFile {
         return file.exists();
     }
 
+    /**
+     * Links this file into place from the chunk store, if another transaction already has it
+     *
+     * @return true if the file now exists
+     */
+    public boolean linkFromChunkStore() {
+        if (this.hash58 == null || this.filePath == null) {
+            return false;
+        }
+        return ArbitraryDataChunkStore.getInstance().linkTo(this.hash58, this.filePath);
+    }
+
     public boolean chunkExists(byte[] hash) {
         for (ArbitraryDataFileChunk chunk : this.chunks) {
             if (Arrays.equals(hash, chunk.getHash())) {
@@ -635,7 +813,7 @@ public class ArbitraryDataFile {
             List<byte[]> chunks = metadata.getChunks();
             for (byte[] chunkHash : chunks) {
                 ArbitraryDataFileChunk chunk = ArbitraryDataFileChunk.fromHash(chunkHash, this.signature);
-                if (!chunk.exists()) {
+                if (!chunk.exists() && !chunk.linkFromChunkStore()) {
                     missingHashes.add(chunkHash);
                 }
             }
@@ -16,7 +16,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,6 +28,7 @@ public class ArbitraryDataMerge {
     private Path mergePath;
     private String identifier;
     private ArbitraryDataMetadataPatch metadata;
+    private boolean mergeInPlace;
 
     public ArbitraryDataMerge(Path pathBefore, Path pathAfter) {
         this.pathBefore = pathBefore;
@@ -49,6 +49,10 @@ public class ArbitraryDataMerge {
     }
 
     private void preExecute() throws DataException {
+        if (this.mergeInPlace) {
+            this.mergePath = this.pathBefore;
+            return;
+        }
         this.createRandomIdentifier();
         this.createOutputDirectory();
     }
@@ -74,7 +78,16 @@ public class ArbitraryDataMerge {
     }
 
     private void copyPreviousStateToMergePath() throws IOException {
-        ArbitraryDataMerge.copyDirPathToBaseDir(this.pathBefore, this.mergePath, Paths.get(""));
+        if (this.mergeInPlace) {
+            // Already there
+            return;
+        }
+
+        // Share the previous state's files rather than copying them, as they are only ever replaced, not modified
+        if (!Files.exists(this.pathBefore)) {
+            throw new IOException(String.format("File not found: %s", this.pathBefore.toString()));
+        }
+        FilesystemUtils.linkOrCopyDirectory(this.pathBefore, this.mergePath);
     }
 
     private void loadMetadata() throws IOException, DataException {
@@ -107,7 +120,7 @@ public class ArbitraryDataMerge {
     private void applyPatch(ModifiedPath modifiedPath) throws IOException, DataException {
         if (modifiedPath.getDiffType() == DiffType.UNIFIED_DIFF) {
             // Create destination file from patch
-            UnifiedDiffPatch unifiedDiffPatch = new UnifiedDiffPatch(pathBefore, pathAfter, mergePath);
+            UnifiedDiffPatch unifiedDiffPatch = new UnifiedDiffPatch(mergePath, pathAfter, mergePath);
             unifiedDiffPatch.apply(modifiedPath.getPath());
         }
         else if (modifiedPath.getDiffType() == DiffType.COMPLETE_FILE) {
@@ -136,7 +149,7 @@ public class ArbitraryDataMerge {
         LOGGER.trace("Copying {} to {}", source, dest);
 
         if (sourceFile.isFile()) {
-            Files.copy(source, dest, StandardCopyOption.REPLACE_EXISTING);
+            FilesystemUtils.linkOrCopyFile(source, dest);
         }
         else if (sourceFile.isDirectory()) {
             FilesystemUtils.copyAndReplaceDirectory(source.toString(), dest.toString());
@@ -146,16 +159,6 @@ public class ArbitraryDataMerge {
         }
     }
 
-    private static void copyDirPathToBaseDir(Path source, Path base, Path relativePath) throws IOException {
-        if (!Files.exists(source)) {
-            throw new IOException(String.format("File not found: %s", source.toString()));
-        }
-
-        Path dest = Paths.get(base.toString(), relativePath.toString());
-        LOGGER.trace("Copying {} to {}", source, dest);
-        FilesystemUtils.copyAndReplaceDirectory(source.toString(), dest.toString());
-    }
-
     private static void deletePathInBaseDir(Path base, Path relativePath) throws IOException {
         Path dest = Paths.get(base.toString(), relativePath.toString());
         File file = new File(dest.toString());
@@ -173,6 +176,10 @@ public class ArbitraryDataMerge {
         }
     }
 
+    public void setMergeInPlace(boolean mergeInPlace) {
+        this.mergeInPlace = mergeInPlace;
+    }
+
     public Path getMergePath() {
         return this.mergePath;
     }
@@ -7,6 +7,7 @@ import org.qortal.arbitrary.ArbitraryDataFile.ResourceIdType;
 import org.qortal.arbitrary.exception.DataNotPublishedException;
 import org.qortal.arbitrary.exception.MissingDataException;
 import org.qortal.arbitrary.misc.Service;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildCache;
 import org.qortal.controller.arbitrary.ArbitraryDataBuildManager;
 import org.qortal.controller.arbitrary.ArbitraryDataManager;
 import org.qortal.crypto.AES;
@@ -50,6 +51,7 @@ public class ArbitraryDataReader {
     private String secret58;
     private Path filePath;
     private boolean canRequestMissingFiles;
+    private boolean recordsAccess;
 
     // Intermediate paths
     private final Path workingPath;
@@ -88,6 +90,10 @@ public class ArbitraryDataReader {
         // By default we can request missing files
         // Callers can use setCanRequestMissingFiles(false) to prevent it
         this.canRequestMissingFiles = true;
+
+        // By default each load counts as a request for the resource in the build cache's stats
+        // Callers can use setRecordsAccess(false) for follow-up requests, e.g. a rendered page's assets
+        this.recordsAccess = true;
     }
 
     private Path buildWorkingPath() throws DataException {
@@ -114,6 +120,7 @@ public class ArbitraryDataReader {
                 this.resourceId, this.resourceIdType, this.service, this.identifier);
         if (cache.isCachedDataAvailable()) {
             this.filePath = this.uncompressedPath;
+            this.recordCacheHit();
             return true;
         }
         return false;
@@ -149,8 +156,10 @@ public class ArbitraryDataReader {
         if (cache.isCachedDataAvailable()) {
             // Use cached data
             this.filePath = this.uncompressedPath;
+            this.recordCacheHit();
             return true;
         }
+        this.recordCacheMiss();
 
         ArbitraryDataBuildQueueItem item = this.createQueueItem();
         item.setPriority(priority);
@@ -173,8 +182,13 @@ public class ArbitraryDataReader {
             if (cache.isCachedDataAvailable()) {
                 // Use cached data
                 this.filePath = this.uncompressedPath;
+                this.recordCacheHit();
                 return;
             }
+            if (!overwrite) {
+                // Forced rebuilds (including queued builds) aren't requests for the data itself
+                this.recordCacheMiss();
+            }
 
             this.arbitraryDataResource = this.createArbitraryDataResource();
 
@@ -190,6 +204,7 @@ public class ArbitraryDataReader {
             this.decrypt();
             this.uncompress();
             this.validate();
+            this.recordCacheBuild();
 
         } catch (DataNotPublishedException e) {
             if (e.getMessage() != null) {
@@ -224,6 +239,39 @@ public class ArbitraryDataReader {
         ArbitraryDataReader.inProgress.remove(this.arbitraryDataResource.getUniqueKey());
     }
 
+    private void recordCacheHit() {
+        if (!this.recordsAccess) {
+            return;
+        }
+
+        Long now = NTP.getTime();
+        if (now != null) {
+            ArbitraryDataBuildCache.getInstance().recordHit(this.createArbitraryDataResource(), this.workingPath, now);
+        }
+    }
+
+    private void recordCacheMiss() {
+        if (!this.recordsAccess) {
+            return;
+        }
+
+        Long now = NTP.getTime();
+        if (now != null) {
+            ArbitraryDataBuildCache.getInstance().recordMiss(this.createArbitraryDataResource(), this.workingPath, now);
+        }
+    }
+
+    private void recordCacheBuild() {
+        if (!this.recordsAccess) {
+            return;
+        }
+
+        Long now = NTP.getTime();
+        if (now != null) {
+            ArbitraryDataBuildCache.getInstance().recordBuild(this.createArbitraryDataResource(), this.workingPath, now);
+        }
+    }
+
     private void checkEnabled() throws DataException {
         if (!Settings.getInstance().isQdnEnabled()) {
             throw new DataException("QDN is disabled in settings");
@@ -625,4 +673,14 @@ public class ArbitraryDataReader {
         this.canRequestMissingFiles = canRequestMissingFiles;
     }
 
+    /**
+     * Use the below setter to stop this reader's builds and accesses being tracked
+     * by the build cache, e.g. for intermediate layers that are cleaned up by their builder
+     *
+     * @param recordsAccess - whether or not to record builds, hits and misses
+     */
+    public void setRecordsAccess(boolean recordsAccess) {
+        this.recordsAccess = recordsAccess;
+    }
+
 }
@@ -1,6 +1,7 @@
 package org.qortal.arbitrary;
 
 import com.google.common.io.Resources;
+import com.google.common.primitives.Bytes;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.logging.log4j.LogManager;
@@ -8,30 +9,43 @@ import org.apache.logging.log4j.Logger;
 import org.qortal.api.HTMLParser;
 import org.qortal.arbitrary.ArbitraryDataFile.ResourceIdType;
 import org.qortal.arbitrary.exception.MissingDataException;
+import org.qortal.arbitrary.metadata.ArbitraryDataMetadataCache;
 import org.qortal.arbitrary.misc.Service;
 import org.qortal.controller.Controller;
+import org.qortal.crypto.Crypto;
+import org.qortal.repository.DataException;
 import org.qortal.settings.Settings;
+import org.qortal.utils.Base58;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ArbitraryDataRenderer {
 
     private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataRenderer.class);
 
+    /** How much of an HTML file to search for the &lt;head&gt; tag, before falling back to an implied one */
+    private static final int HTML_HEAD_SEARCH_LIMIT = 64 * 1024;
+
     private final String resourceId;
     private final ResourceIdType resourceIdType;
     private final Service service;
@@ -80,6 +94,8 @@ public class ArbitraryDataRenderer {
         try {
             arbitraryDataReader = new ArbitraryDataReader(resourceId, resourceIdType, service, identifier);
             arbitraryDataReader.setSecret58(secret58); // Optional, used for loading encrypted file hashes only
+            // Only count top-level renders as requests for the resource, rather than every asset they load
+            arbitraryDataReader.setRecordsAccess(inPath.equals("/") || HTMLParser.isHtmlFile(inPath));
 
             if (!arbitraryDataReader.isCachedDataAvailable()) {
                 // If async is requested, show a loading screen whilst build is in progress
@@ -163,30 +179,30 @@ public class ArbitraryDataRenderer {
                 }
             }
 
-            if (HTMLParser.isHtmlFile(filename)) {
-                // HTML file - needs to be parsed
-                byte[] data = Files.readAllBytes(filePath); // TODO: limit file size that can be read into memory
-                HTMLParser htmlParser = new HTMLParser(resourceId, inPath, prefix, includeResourceIdInPrefix, data, qdnContext, service, identifier, theme, usingCustomRouting);
-                htmlParser.addAdditionalHeaderTags();
+            boolean isHtml = HTMLParser.isHtmlFile(filename);
+
+            // Conditional requests are keyed on the signature that the served data was built from
+            String eTag = this.getETag(Paths.get(unzippedPath), filename, isHtml, usingCustomRouting);
+            if (eTag != null) {
+                response.setHeader("ETag", eTag);
+                if (ArbitraryDataRenderer.matchesETag(request.getHeader("If-None-Match"), eTag)) {
+                    response.setStatus(304);
+                    return response;
+                }
+            }
+
+            if (isHtml) {
+                // HTML file - needs additional header tags, which are added whilst streaming
+                HTMLParser htmlParser = new HTMLParser(resourceId, inPath, prefix, includeResourceIdInPrefix, null, qdnContext, service, identifier, theme, usingCustomRouting);
                 response.addHeader("Content-Security-Policy", "default-src 'self' 'unsafe-inline' 'unsafe-eval'; media-src 'self' data: blob:; img-src 'self' data: blob:;");
                 response.setContentType(context.getMimeType(filename));
-                response.setContentLength(htmlParser.getData().length);
-                response.getOutputStream().write(htmlParser.getData());
+                this.writeHtmlFile(filePath, htmlParser);
             }
             else {
-                // Regular file - can be streamed directly
-                File file = filePath.toFile();
-                FileInputStream inputStream = new FileInputStream(file);
+                // Regular file - can be streamed directly, or in part
                 response.addHeader("Content-Security-Policy", "default-src 'self'");
                 response.setContentType(context.getMimeType(filename));
-                int bytesRead, length = 0;
-                byte[] buffer = new byte[10240];
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    response.getOutputStream().write(buffer, 0, bytesRead);
-                    length += bytesRead;
-                }
-                response.setContentLength(length);
-                inputStream.close();
+                this.writeFile(filePath, eTag);
             }
             return response;
         } catch (FileNotFoundException | NoSuchFileException e) {
@@ -198,6 +214,119 @@ public class ArbitraryDataRenderer {
         return ArbitraryDataRenderer.getResponse(response, 404, "Error 404: File Not Found");
     }
 
+    private void writeFile(Path filePath, String eTag) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            response.setHeader("Accept-Ranges", "bytes");
+
+            // Ranges only apply if the client's copy is still current
+            ByteRange range = ByteRange.parse(request.getHeader("Range"), fileSize);
+            String ifRange = request.getHeader("If-Range");
+            if (range != null && ifRange != null && !ifRange.trim().equals(eTag)) {
+                range = null;
+            }
+
+            if (range == ByteRange.UNSATISFIABLE) {
+                response.setStatus(416);
+                response.setHeader("Content-Range", String.format("bytes */%d", fileSize));
+                return;
+            }
+
+            long position = 0;
+            long count = fileSize;
+            if (range != null) {
+                position = range.getStart();
+                count = range.getLength();
+                response.setStatus(206);
+                response.setHeader("Content-Range", String.format("bytes %d-%d/%d", range.getStart(), range.getEnd(), fileSize));
+            }
+
+            response.setContentLengthLong(count);
+            this.transferTo(channel, position, count);
+        }
+    }
+
+    private void writeHtmlFile(Path filePath, HTMLParser htmlParser) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            // Only the start of the document is needed to find where to add the header tags
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(fileSize, HTML_HEAD_SEARCH_LIMIT));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading
+            }
+            byte[] start = buffer.array();
+            int startLength = buffer.position();
+
+            int offset = HTMLParser.findHeaderTagsOffset(start, startLength);
+            byte[] headerTags = htmlParser.getAdditionalHeaderTags().getBytes(StandardCharsets.UTF_8);
+
+            response.setContentLengthLong(fileSize + headerTags.length);
+            OutputStream outputStream = response.getOutputStream();
+            outputStream.write(start, 0, offset);
+            outputStream.write(headerTags);
+            outputStream.write(start, offset, startLength - offset);
+
+            this.transferTo(channel, startLength, fileSize - startLength);
+        }
+    }
+
+    private void transferTo(FileChannel channel, long position, long count) throws IOException {
+        WritableByteChannel outputChannel = Channels.newChannel(response.getOutputStream());
+        while (count > 0) {
+            long bytesTransferred = channel.transferTo(position, count, outputChannel);
+            if (bytesTransferred <= 0) {
+                throw new IOException("File truncated whilst being served");
+            }
+            position += bytesTransferred;
+            count -= bytesTransferred;
+        }
+    }
+
+    private String getETag(Path unzippedPath, String filename, boolean isHtml, boolean usingCustomRouting) {
+        byte[] signature;
+        try {
+            ArbitraryDataMetadataCache cache = new ArbitraryDataMetadataCache(unzippedPath);
+            cache.read();
+            signature = cache.getSignature();
+        } catch (IOException | DataException e) {
+            return null;
+        }
+        if (signature == null) {
+            return null;
+        }
+
+        // HTML files also vary with the header tags added for this request, and with the node build that generates them
+        String variant = isHtml
+                ? String.join("\n", filename, inPath, prefix, String.valueOf(includeResourceIdInPrefix), qdnContext, theme, String.valueOf(usingCustomRouting),
+                        Controller.getInstance().getVersionString(), String.valueOf(Controller.getInstance().getBuildTimestamp()))
+                : filename;
+
+        byte[] hash = Crypto.digest(Bytes.concat(signature, variant.getBytes(StandardCharsets.UTF_8)));
+        return String.format("\"%s\"", Base58.encode(Arrays.copyOf(hash, 16)));
+    }
+
+    /**
+     * Returns true if an If-None-Match header value contains the given (strong) ETag,
+     * using weak comparison as required for conditional GET requests.
+     */
+    public static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String getFilename(String directory, String userPath) {
         if (userPath == null || userPath.endsWith("/") || userPath.equals("")) {
             // Locate index file
@@ -257,4 +386,86 @@ public class ArbitraryDataRenderer {
         this.theme = theme;
     }
 
+
+    /** Single byte range from an HTTP Range header, with inclusive start and end offsets. */
+    public static class ByteRange {
+
+        /** Returned when the requested range lies entirely outside the file */
+        public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        private final long start;
+        private final long end;
+
+        public ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Parses a Range header for a file of the given size.
+         * <p>
+         * Returns null if the whole file should be served instead, including for malformed
+         * headers and for multiple ranges, which we don't support (as permitted by RFC 7233).
+         */
+        public static ByteRange parse(String rangeHeader, long fileSize) {
+            if (rangeHeader == null) {
+                return null;
+            }
+
+            rangeHeader = rangeHeader.trim();
+            if (!rangeHeader.startsWith("bytes=") || rangeHeader.contains(",")) {
+                return null;
+            }
+
+            String spec = rangeHeader.substring("bytes=".length()).trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            String firstString = spec.substring(0, dash).trim();
+            String lastString = spec.substring(dash + 1).trim();
+
+            try {
+                if (firstString.isEmpty()) {
+                    // Suffix range, i.e. last N bytes
+                    long suffixLength = Long.parseLong(lastString);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength == 0 || fileSize == 0) {
+                        return UNSATISFIABLE;
+                    }
+                    return new ByteRange(Math.max(0, fileSize - suffixLength), fileSize - 1);
+                }
+
+                long first = Long.parseLong(firstString);
+                long last = lastString.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastString);
+                if (first < 0 || last < first) {
+                    return null;
+                }
+                if (first >= fileSize) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(first, Math.min(last, fileSize - 1));
+
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        public long getStart() {
+            return this.start;
+        }
+
+        public long getEnd() {
+            return this.end;
+        }
+
+        public long getLength() {
+            return this.end - this.start + 1;
+        }
+
+    }
+
 }
@@ -6,6 +6,7 @@ import org.qortal.arbitrary.ArbitraryDataFile.ResourceIdType;
 import org.qortal.arbitrary.exception.DataNotPublishedException;
 import org.qortal.arbitrary.metadata.ArbitraryDataTransactionMetadata;
 import org.qortal.arbitrary.misc.Service;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildCache;
 import org.qortal.controller.arbitrary.ArbitraryDataBuildManager;
 import org.qortal.controller.arbitrary.ArbitraryDataManager;
 import org.qortal.controller.arbitrary.ArbitraryDataStorageManager;
@@ -215,6 +216,7 @@ public class ArbitraryDataResource {
         if (cachePath.toFile().exists()) {
             boolean success = FilesystemUtils.safeDeleteDirectory(cachePath, true);
             if (success) {
+                ArbitraryDataBuildCache.getInstance().recordRemoval(cachePath);
                 LOGGER.info("Cleared cache for resource {}", this.toString());
             }
         }
@@ -468,6 +470,10 @@ public class ArbitraryDataResource {
         return this.resourceId;
     }
 
+    public ResourceIdType getResourceIdType() {
+        return this.resourceIdType;
+    }
+
     public Service getService() {
         return this.service;
     }
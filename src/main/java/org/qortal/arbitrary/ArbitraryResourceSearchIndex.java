@@ -0,0 +1,489 @@
+package org.qortal.arbitrary;
+
+import org.qortal.arbitrary.misc.Service;
+import org.qortal.data.arbitrary.ArbitraryResourceData;
+import org.qortal.data.arbitrary.ArbitraryResourceMetadata;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted index of QDN resources, tokenized over name, identifier, title, description and tags.
+ * <p>
+ * Used to narrow down general resource searches to a small set of candidates, rather than scanning every
+ * cached resource using <tt>LIKE '%query%'</tt>. Candidates are a superset of actual matches, so callers
+ * still need to apply exact matching (e.g. in SQL), but only against the candidates.
+ * <p>
+ * Searches don't need any locking. Changes are serialized, and are expected to come from
+ * {@link org.qortal.controller.arbitrary.ArbitraryDataCacheManager}, which builds the index on startup
+ * and keeps it up to date as resources are cached. Until the index is built, searches return null.
+ */
+public class ArbitraryResourceSearchIndex {
+
+    /** Default maximum number of candidates returned, with only the best ranked returned if there are more */
+    public static final int MAX_CANDIDATES = 250;
+    /** Searches give up as soon as any single query term matches more resources than this */
+    private static final int MAX_TERM_MATCHES = 50000;
+    /**
+     * Longer tokens are truncated, to avoid indexing huge strings such as encoded data.
+     * Resources with truncated tokens are returned as candidates for every search, as words
+     * beyond the truncated part can't be looked up.
+     */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private static final int EXACT_TOKEN_SCORE = 3;
+    private static final int TOKEN_PREFIX_SCORE = 2;
+    private static final int TOKEN_INFIX_SCORE = 1;
+
+    /**
+     * Sorted doc IDs for a token. Arrays may have spare capacity, which is only ever written beyond <tt>size</tt>,
+     * so postings can be shared with searches and still be appended to cheaply.
+     */
+    private static class Posting {
+        final int[] docIds;
+        final int size;
+
+        Posting(int[] docIds, int size) {
+            this.docIds = docIds;
+            this.size = size;
+        }
+    }
+
+    /** Resource key, matching ArbitraryResourcesCache's primary key. Null identifiers are stored as "default". */
+    public static class ResourceKey {
+        private final int service;
+        private final String name;
+        private final String identifier;
+
+        public ResourceKey(Service service, String name, String identifier) {
+            this.service = service.value;
+            this.name = name;
+            this.identifier = identifier != null ? identifier : "default";
+        }
+
+        public int getServiceValue() {
+            return this.service;
+        }
+
+        public Service getService() {
+            return Service.valueOf(this.service);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getIdentifier() {
+            return this.identifier;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other)
+                return true;
+
+            if (!(other instanceof ResourceKey))
+                return false;
+
+            ResourceKey otherKey = (ResourceKey) other;
+            return this.service == otherKey.service
+                    && Objects.equals(this.name, otherKey.name)
+                    && Objects.equals(this.identifier, otherKey.identifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.service, this.name, this.identifier);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %s", this.name, this.getService(), this.identifier);
+        }
+    }
+
+    /** Candidate resource, with how well it matched query. Higher scores are better matches. */
+    public static class Candidate {
+        private final ResourceKey key;
+        private final int score;
+
+        private Candidate(ResourceKey key, int score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        public ResourceKey getKey() {
+            return this.key;
+        }
+
+        public int getScore() {
+            return this.score;
+        }
+    }
+
+    private static ArbitraryResourceSearchIndex instance;
+
+    /** Doc IDs, by token. Postings are replaced, never modified, so searches can use them without locking. */
+    private final ConcurrentSkipListMap<String, Posting> postings = new ConcurrentSkipListMap<>();
+
+    private final Map<ResourceKey, Integer> docIdsByKey = new ConcurrentHashMap<>();
+    /** Doc IDs of resources with truncated tokens, which could match anything */
+    private final Set<Integer> truncatedDocIds = ConcurrentHashMap.newKeySet();
+    /** Resource keys, by doc ID. Replaced when grown, so searches always see a consistent array. */
+    private volatile ResourceKey[] docs = new ResourceKey[1024];
+    /** Indexed tokens, by doc ID, so we can remove them later. Only accessed while holding lock. */
+    private String[][] docTokens = new String[1024][];
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+    private int nextDocId = 0;
+
+    private volatile boolean isReady = false;
+    private int generation = 0;
+
+    public ArbitraryResourceSearchIndex() {
+    }
+
+    public static synchronized ArbitraryResourceSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new ArbitraryResourceSearchIndex();
+        }
+
+        return instance;
+    }
+
+    public boolean isReady() {
+        return this.isReady;
+    }
+
+    /**
+     * Empties index, which won't be used for searches again until {@link #markReady(int)} is called.
+     *
+     * @return generation to pass to {@link #markReady(int)} once index has been rebuilt
+     */
+    public synchronized int clear() {
+        this.isReady = false;
+
+        this.postings.clear();
+        this.docIdsByKey.clear();
+        this.truncatedDocIds.clear();
+        this.docs = new ResourceKey[1024];
+        this.docTokens = new String[1024][];
+        this.freeDocIds.clear();
+        this.nextDocId = 0;
+
+        return ++this.generation;
+    }
+
+    /** Marks index as ready for searches, unless it has been cleared again since <tt>generation</tt>. */
+    public synchronized boolean markReady(int generation) {
+        if (generation != this.generation)
+            return false;
+
+        this.isReady = true;
+        return true;
+    }
+
+    /** Adds resource to index, or replaces its existing entry, using resource's name, identifier and metadata. */
+    public void put(ArbitraryResourceData arbitraryResourceData) {
+        ResourceKey key = new ResourceKey(arbitraryResourceData.service, arbitraryResourceData.name, arbitraryResourceData.identifier);
+
+        Set<String> tokens = new HashSet<>();
+        boolean isTruncated = tokenize(key.getName(), tokens);
+        isTruncated |= tokenize(key.getIdentifier(), tokens);
+
+        ArbitraryResourceMetadata metadata = arbitraryResourceData.metadata;
+        if (metadata != null) {
+            isTruncated |= tokenize(metadata.getTitle(), tokens);
+            isTruncated |= tokenize(metadata.getDescription(), tokens);
+
+            if (metadata.getTags() != null)
+                for (String tag : metadata.getTags())
+                    isTruncated |= tokenize(tag, tokens);
+        }
+
+        this.put(key, tokens, isTruncated);
+    }
+
+    private synchronized void put(ResourceKey key, Set<String> tokens, boolean isTruncated) {
+        Integer existingDocId = this.docIdsByKey.get(key);
+        if (existingDocId != null) {
+            int docId = existingDocId;
+
+            if (isTruncated)
+                this.truncatedDocIds.add(docId);
+            else
+                this.truncatedDocIds.remove(docId);
+
+            String[] oldTokens = this.docTokens[docId];
+
+            for (String token : oldTokens)
+                if (!tokens.contains(token))
+                    this.removePosting(token, docId);
+
+            Set<String> oldTokenSet = Set.of(oldTokens);
+            for (String token : tokens)
+                if (!oldTokenSet.contains(token))
+                    this.addPosting(token, docId);
+
+            this.docTokens[docId] = tokens.toArray(new String[0]);
+            return;
+        }
+
+        int docId = this.allocateDocId();
+        this.docs[docId] = key;
+        this.docTokens[docId] = tokens.toArray(new String[0]);
+        this.docIdsByKey.put(key, docId);
+
+        // Postings are added last, so searches never find a doc ID without its key
+        for (String token : tokens)
+            this.addPosting(token, docId);
+
+        if (isTruncated)
+            this.truncatedDocIds.add(docId);
+    }
+
+    public synchronized void remove(Service service, String name, String identifier) {
+        ResourceKey key = new ResourceKey(service, name, identifier);
+
+        Integer docId = this.docIdsByKey.remove(key);
+        if (docId == null)
+            return;
+
+        for (String token : this.docTokens[docId])
+            this.removePosting(token, docId);
+        this.truncatedDocIds.remove(docId);
+
+        // Leave key in place, in case any in-progress searches still refer to it
+        this.docTokens[docId] = null;
+        this.freeDocIds.add(docId);
+    }
+
+    public int getResourceCount() {
+        return this.docIdsByKey.size();
+    }
+
+    public int getTokenCount() {
+        return this.postings.size();
+    }
+
+    /**
+     * Returns up to {@link #MAX_CANDIDATES} candidate resources for general <tt>query</tt>, best matches first.
+     *
+     * @see #rank(String, boolean, int)
+     */
+    public List<ResourceKey> search(String query, boolean prefixOnly) {
+        List<Candidate> candidates = this.rank(query, prefixOnly, MAX_CANDIDATES);
+        if (candidates == null)
+            return null;
+
+        List<ResourceKey> keys = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates)
+            keys.add(candidate.key);
+
+        return keys;
+    }
+
+    /**
+     * Returns candidate resources for general <tt>query</tt>, with scores, best matches first.
+     * <p>
+     * Unless there are more than <tt>maxCandidates</tt>, every resource with a name, identifier, title, description or tag
+     * containing <tt>query</tt> (case-insensitive, or starting with <tt>query</tt> if <tt>prefixOnly</tt>) is included, but so may be
+     * other resources containing the query's individual words, or resources with words too long to index in full,
+     * so callers must still check for exact matches.
+     * <p>
+     * Candidates are ranked by how well each query word matches: exact word, word prefix, then anywhere in a word.
+     * Only the best <tt>maxCandidates</tt> are returned, with (usually) more recently indexed resources preferred for equal scores.
+     *
+     * @return candidates, possibly empty, or null if index can't help with this query, e.g. because it's not ready,
+     * query has no letters or digits, or a query word is too common
+     */
+    public List<Candidate> rank(String query, boolean prefixOnly, int maxCandidates) {
+        if (!this.isReady || query == null)
+            return null;
+
+        String lowercaseQuery = query.toLowerCase();
+
+        Set<String> terms = new LinkedHashSet<>();
+        boolean isTruncated = tokenize(lowercaseQuery, terms);
+        if (terms.isEmpty() || isTruncated)
+            return null;
+
+        // Prefix searches only match fields starting with the query, so if query starts with a word,
+        // then that word must start a token, and we can look it up directly
+        boolean isFirstTermPrefix = prefixOnly && Character.isLetterOrDigit(lowercaseQuery.charAt(0));
+
+        Map<Integer, Integer> scores = null;
+        boolean isFirstTerm = true;
+
+        for (String term : terms) {
+            Map<String, Posting> tokens = isFirstTerm && isFirstTermPrefix
+                    ? this.postings.subMap(term, true, term + Character.MAX_VALUE, false)
+                    : this.postings;
+
+            Map<Integer, Integer> termScores = new HashMap<>();
+
+            for (Map.Entry<String, Posting> entry : tokens.entrySet()) {
+                String token = entry.getKey();
+                if (!token.contains(term))
+                    continue;
+
+                int score = token.equals(term) ? EXACT_TOKEN_SCORE : token.startsWith(term) ? TOKEN_PREFIX_SCORE : TOKEN_INFIX_SCORE;
+
+                Posting posting = entry.getValue();
+                for (int i = 0; i < posting.size; ++i) {
+                    int docId = posting.docIds[i];
+
+                    // Only interested in docs that also matched previous terms
+                    if (scores != null && !scores.containsKey(docId))
+                        continue;
+
+                    termScores.merge(docId, score, Math::max);
+                }
+
+                if (termScores.size() > MAX_TERM_MATCHES)
+                    return null;
+            }
+
+            if (scores != null)
+                for (Map.Entry<Integer, Integer> entry : termScores.entrySet())
+                    entry.setValue(entry.getValue() + scores.get(entry.getKey()));
+
+            scores = termScores;
+            if (scores.isEmpty())
+                break;
+
+            isFirstTerm = false;
+        }
+
+        // Resources with truncated words might match in the part we didn't index, so always include them, ranked last
+        for (Integer docId : this.truncatedDocIds)
+            scores.putIfAbsent(docId, 0);
+
+        // Best score first, then higher doc IDs, which are usually more recent resources
+        Comparator<Map.Entry<Integer, Integer>> ranking = Map.Entry.<Integer, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+
+        // Keep only the best ranked docs, with worst at head of queue, so it can be replaced by better ones
+        PriorityQueue<Map.Entry<Integer, Integer>> rankedDocs = new PriorityQueue<>(Math.min(scores.size(), maxCandidates) + 1, ranking);
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            if (rankedDocs.size() < maxCandidates) {
+                rankedDocs.add(entry);
+            } else if (!rankedDocs.isEmpty() && ranking.compare(entry, rankedDocs.peek()) > 0) {
+                rankedDocs.poll();
+                rankedDocs.add(entry);
+            }
+        }
+
+        ResourceKey[] docs = this.docs;
+        Candidate[] candidates = new Candidate[rankedDocs.size()];
+        // Queue gives us worst first, so fill array from the end
+        for (int i = candidates.length - 1; i >= 0; --i) {
+            Map.Entry<Integer, Integer> rankedDoc = rankedDocs.poll();
+            int docId = rankedDoc.getKey();
+            if (docId < docs.length && docs[docId] != null)
+                candidates[i] = new Candidate(docs[docId], rankedDoc.getValue());
+        }
+
+        List<Candidate> rankedCandidates = new ArrayList<>(candidates.length);
+        for (Candidate candidate : candidates)
+            if (candidate != null)
+                rankedCandidates.add(candidate);
+
+        return rankedCandidates;
+    }
+
+    /**
+     * Adds lowercase words from <tt>text</tt> to <tt>tokens</tt>, where words are runs of letters and digits.
+     *
+     * @return true if any words had to be truncated
+     */
+    private static boolean tokenize(String text, Collection<String> tokens) {
+        if (text == null)
+            return false;
+
+        String lowercaseText = text.toLowerCase();
+        boolean isTruncated = false;
+        int tokenStart = -1;
+
+        for (int i = 0; i <= lowercaseText.length(); ++i) {
+            boolean isTokenChar = i < lowercaseText.length() && Character.isLetterOrDigit(lowercaseText.charAt(i));
+
+            if (isTokenChar && tokenStart == -1) {
+                tokenStart = i;
+            } else if (!isTokenChar && tokenStart != -1) {
+                int tokenEnd = Math.min(i, tokenStart + MAX_TOKEN_LENGTH);
+                isTruncated |= tokenEnd < i;
+
+                tokens.add(lowercaseText.substring(tokenStart, tokenEnd));
+                tokenStart = -1;
+            }
+        }
+
+        return isTruncated;
+    }
+
+    private int allocateDocId() {
+        if (!this.freeDocIds.isEmpty())
+            return this.freeDocIds.remove();
+
+        int docId = this.nextDocId++;
+
+        if (docId >= this.docs.length) {
+            int newLength = this.docs.length * 2;
+            this.docTokens = Arrays.copyOf(this.docTokens, newLength);
+            this.docs = Arrays.copyOf(this.docs, newLength);
+        }
+
+        return docId;
+    }
+
+    private void addPosting(String token, int docId) {
+        Posting posting = this.postings.get(token);
+        if (posting == null) {
+            this.postings.put(token, new Posting(new int[] { docId }, 1));
+            return;
+        }
+
+        int index = Arrays.binarySearch(posting.docIds, 0, posting.size, docId);
+        if (index >= 0)
+            return;
+
+        int insertionPoint = -index - 1;
+
+        if (insertionPoint == posting.size && posting.size < posting.docIds.length) {
+            // Usual case when building index: append into spare capacity, beyond what any search can see
+            posting.docIds[posting.size] = docId;
+            this.postings.put(token, new Posting(posting.docIds, posting.size + 1));
+            return;
+        }
+
+        int[] newDocIds = new int[Math.max(posting.size + 1, posting.size * 3 / 2)];
+        System.arraycopy(posting.docIds, 0, newDocIds, 0, insertionPoint);
+        newDocIds[insertionPoint] = docId;
+        System.arraycopy(posting.docIds, insertionPoint, newDocIds, insertionPoint + 1, posting.size - insertionPoint);
+
+        this.postings.put(token, new Posting(newDocIds, posting.size + 1));
+    }
+
+    private void removePosting(String token, int docId) {
+        Posting posting = this.postings.get(token);
+        if (posting == null)
+            return;
+
+        int index = Arrays.binarySearch(posting.docIds, 0, posting.size, docId);
+        if (index < 0)
+            return;
+
+        if (posting.size == 1) {
+            this.postings.remove(token);
+            return;
+        }
+
+        int[] newDocIds = new int[posting.size - 1];
+        System.arraycopy(posting.docIds, 0, newDocIds, 0, index);
+        System.arraycopy(posting.docIds, index + 1, newDocIds, index, newDocIds.length - index);
+
+        this.postings.put(token, new Posting(newDocIds, newDocIds.length));
+    }
+
+}
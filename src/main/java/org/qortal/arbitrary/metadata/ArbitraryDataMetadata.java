@@ -3,6 +3,7 @@ package org.qortal.arbitrary.metadata;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONException;
+import org.qortal.controller.arbitrary.ArbitraryDataStorageLedger;
 import org.qortal.repository.DataException;
 
 import java.io.BufferedWriter;
@@ -59,14 +60,18 @@ public class ArbitraryDataMetadata {
         this.buildJson();
         this.createParentDirectories();
 
+        long replacedBytes = ArbitraryDataStorageLedger.fileSize(this.filePath);
         BufferedWriter writer = new BufferedWriter(new FileWriter(this.filePath.toString()));
         writer.write(this.jsonString);
         writer.newLine();
         writer.close();
+        ArbitraryDataStorageLedger.getInstance().recordFileChange(this.filePath, ArbitraryDataStorageLedger.fileSize(this.filePath) - replacedBytes);
     }
 
     public void delete() throws IOException {
+        long bytes = ArbitraryDataStorageLedger.fileSize(this.filePath);
         Files.delete(this.filePath);
+        ArbitraryDataStorageLedger.getInstance().recordFileChange(this.filePath, -bytes);
     }
 
 
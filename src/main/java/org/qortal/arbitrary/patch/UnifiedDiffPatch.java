@@ -172,15 +172,16 @@ public class UnifiedDiffPatch {
             throw new DataException("Patch file doesn't exist, but its path was included in modifiedPaths");
         }
 
+        List<String> originalContents = FileUtils.readLines(originalPath.toFile(), StandardCharsets.UTF_8);
+        List<String> patchContents = FileUtils.readLines(patchPath.toFile(), StandardCharsets.UTF_8);
+
         // Delete an existing file, as we are starting from a duplicate of pathBefore
+        // The original may be the same file, or share its data via a hard link, so it must be read first
         File destFile = mergePath.toFile();
         if (destFile.exists() && destFile.isFile()) {
             Files.delete(mergePath);
         }
 
-        List<String> originalContents = FileUtils.readLines(originalPath.toFile(), StandardCharsets.UTF_8);
-        List<String> patchContents = FileUtils.readLines(patchPath.toFile(), StandardCharsets.UTF_8);
-
         // Check if the patch file (and therefore the original file) ends with a newline
         boolean endsWithNewline = FilesystemUtils.fileEndsWithNewline(patchPath);
 
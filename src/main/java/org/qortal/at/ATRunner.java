@@ -0,0 +1,183 @@
+package org.qortal.at;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.controller.Controller;
+import org.qortal.data.at.ATData;
+import org.qortal.data.at.ATStateData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.settings.Settings;
+import org.qortal.transaction.AtTransaction;
+import org.qortal.utils.DaemonThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a block's executable ATs, on several threads at once where possible.
+ * <p>
+ * ATs only read from the repository while running. Any AT-Transactions they generate aren't processed
+ * until the block itself is processed, so one AT never sees the effects of another within the same block.
+ * This means ATs can be run at the same time against separate repository sessions, as long as those sessions
+ * see the same data as the block's own session.
+ * <p>
+ * Results are always returned in the same order as the passed ATs, i.e. earliest creation first,
+ * so AT states, and hence the block's AT states hash, are identical to running ATs one after another.
+ */
+public class ATRunner {
+
+	private static final Logger LOGGER = LogManager.getLogger(ATRunner.class);
+
+	/** Not worth handing off to other threads for fewer ATs than this. */
+	private static final int MIN_PARALLEL_AT_COUNT = 4;
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("AT runner"));
+
+	/** Outcome of running one AT. */
+	public static class Result {
+		private final ATStateData atStateData;
+		private final List<AtTransaction> atTransactions;
+
+		private Result(ATStateData atStateData, List<AtTransaction> atTransactions) {
+			this.atStateData = atStateData;
+			this.atTransactions = atTransactions;
+		}
+
+		/** Returns new AT state, or null if AT didn't execute (e.g. sleeping). */
+		public ATStateData getATStateData() {
+			return this.atStateData;
+		}
+
+		public List<AtTransaction> getAtTransactions() {
+			return this.atTransactions;
+		}
+	}
+
+	private ATRunner() {
+	}
+
+	/**
+	 * Runs each of <tt>repository</tt>'s executable ATs, returning results in the same order, i.e. earliest creation first.
+	 * <p>
+	 * ATs are run in parallel if enabled via settings, and it is safe to do so,
+	 * otherwise they are run one after another using <tt>repository</tt>.
+	 *
+	 * @throws DataException if any AT failed to run
+	 */
+	public static List<Result> run(Repository repository, int blockHeight, long blockTimestamp) throws DataException {
+		int threadCount = Settings.getInstance().getAtExecutionThreadCount();
+
+		// Checked before fetching ATs, as it might refresh repository's view of the chain
+		boolean canRunInParallel = threadCount > 1 && canRunInParallel(repository);
+
+		List<ATData> executableATs = repository.getATRepository().getAllExecutableATs();
+		threadCount = Math.min(threadCount, executableATs.size());
+
+		if (canRunInParallel && threadCount > 1 && executableATs.size() >= MIN_PARALLEL_AT_COUNT)
+			return runInParallel(repository, executableATs, blockHeight, blockTimestamp, threadCount);
+
+		return runSequentially(repository, executableATs, blockHeight, blockTimestamp);
+	}
+
+	/** Runs each of <tt>executableATs</tt> in turn, using <tt>repository</tt>. */
+	public static List<Result> runSequentially(Repository repository, List<ATData> executableATs, int blockHeight, long blockTimestamp) throws DataException {
+		List<Result> results = new ArrayList<>(executableATs.size());
+
+		for (ATData atData : executableATs)
+			results.add(runAT(repository, atData, blockHeight, blockTimestamp));
+
+		return results;
+	}
+
+	/**
+	 * Runs <tt>executableATs</tt> using <tt>threadCount</tt> threads, each with its own repository session.
+	 * <p>
+	 * Caller is responsible for making sure other sessions see the same data as <tt>repository</tt>.
+	 */
+	public static List<Result> runInParallel(Repository repository, List<ATData> executableATs, int blockHeight, long blockTimestamp, int threadCount) throws DataException {
+		final int atCount = executableATs.size();
+
+		Result[] results = new Result[atCount];
+		Exception[] exceptions = new Exception[atCount];
+		AtomicInteger nextIndex = new AtomicInteger();
+
+		Callable<Void> worker = () -> {
+			try (final Repository workerRepository = RepositoryManager.getReadOnlyRepository()) {
+				int index;
+				while ((index = nextIndex.getAndIncrement()) < atCount) {
+					try {
+						results[index] = runAT(workerRepository, executableATs.get(index), blockHeight, blockTimestamp);
+					} catch (DataException | RuntimeException e) {
+						exceptions[index] = e;
+					}
+				}
+			}
+
+			return null;
+		};
+
+		List<Callable<Void>> workers = new ArrayList<>(threadCount);
+		for (int i = 0; i < threadCount; ++i)
+			workers.add(worker);
+
+		try {
+			for (Future<Void> future : EXECUTOR.invokeAll(workers))
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataException("Interrupted while running ATs");
+		} catch (ExecutionException e) {
+			// Worker couldn't obtain or close its repository session
+			throw new DataException("Unable to run ATs in parallel", e.getCause());
+		}
+
+		// Report the same failure that running ATs in order would have hit first
+		for (Exception exception : exceptions) {
+			if (exception instanceof DataException)
+				throw (DataException) exception;
+
+			if (exception != null)
+				throw (RuntimeException) exception;
+		}
+
+		// AT-Transactions are processed later, using block's repository session
+		for (Result result : results)
+			for (AtTransaction atTransaction : result.getAtTransactions())
+				atTransaction.setRepository(repository);
+
+		return Arrays.asList(results);
+	}
+
+	private static Result runAT(Repository repository, ATData atData, int blockHeight, long blockTimestamp) throws DataException {
+		AT at = new AT(repository, atData);
+		List<AtTransaction> atTransactions = at.run(blockHeight, blockTimestamp);
+
+		return new Result(at.getATStateData(), atTransactions);
+	}
+
+	/**
+	 * Returns whether new repository sessions would see exactly the same data as <tt>repository</tt>.
+	 * <p>
+	 * Blockchain data only changes while blockchain lock is held, so while we hold it, new sessions see the latest
+	 * committed chain. <tt>repository</tt> must see that too, so it can't have any unsaved changes, nor be reading
+	 * from a snapshot taken before we acquired the lock. As we can't tell when its snapshot was taken, we end its
+	 * transaction so that its next query starts a new one.
+	 */
+	private static boolean canRunInParallel(Repository repository) throws DataException {
+		if (!Controller.getInstance().getBlockchainLock().isHeldByCurrentThread())
+			return false;
+
+		if (!repository.refreshSnapshot()) {
+			LOGGER.trace("Running ATs sequentially as block's repository session has unsaved changes");
+			return false;
+		}
+
+		return true;
+	}
+
+}
@@ -12,6 +12,7 @@ import org.qortal.account.PrivateKeyAccount;
 import org.qortal.account.PublicKeyAccount;
 import org.qortal.asset.Asset;
 import org.qortal.at.AT;
+import org.qortal.at.ATRunner;
 import org.qortal.block.BlockChain.AccountLevelShareBin;
 import org.qortal.block.BlockChain.BlockTimingByHeight;
 import org.qortal.controller.OnlineAccountsManager;
@@ -1172,10 +1173,9 @@ public class Block {
 		// Remove those already validated & cached by online accounts manager - no need to re-validate them
 		OnlineAccountsManager.getInstance().removeKnown(onlineAccounts, onlineTimestamp);
 
-		// Validate the rest
-		for (OnlineAccountData onlineAccount : onlineAccounts)
-			if (!OnlineAccountsManager.getInstance().verifyMemoryPoW(onlineAccount, null))
-				return ValidationResult.ONLINE_ACCOUNT_NONCE_INCORRECT;
+		// Validate the rest, in parallel
+		if (!OnlineAccountsManager.getInstance().verifyMemoryPoW(onlineAccounts))
+			return ValidationResult.ONLINE_ACCOUNT_NONCE_INCORRECT;
 
 		// Cache the valid online accounts as they will likely be needed for the next block
 		OnlineAccountsManager.getInstance().addBlocksOnlineAccounts(onlineAccounts, onlineTimestamp);
@@ -1470,19 +1470,17 @@ public class Block {
 		this.ourAtStates = new ArrayList<>();
 		this.ourAtFees = 0;
 
-		// Find all executable ATs, ordered by earliest creation date first
-		List<ATData> executableATs = this.repository.getATRepository().getAllExecutableATs();
+		// Run all executable ATs, possibly in parallel, but with results ordered by earliest creation date first
+		List<ATRunner.Result> atResults = ATRunner.run(this.repository, this.blockData.getHeight(), this.blockData.getTimestamp());
 
-		// Run each AT, appends AT-Transactions and corresponding AT states, to our lists
-		for (ATData atData : executableATs) {
-			AT at = new AT(this.repository, atData);
-			List<AtTransaction> atTransactions = at.run(this.blockData.getHeight(), this.blockData.getTimestamp());
-			ATStateData atStateData = at.getATStateData();
+		// Append AT-Transactions and corresponding AT states to our lists
+		for (ATRunner.Result atResult : atResults) {
+			ATStateData atStateData = atResult.getATStateData();
 			// Didn't execute? (e.g. sleeping)
 			if (atStateData == null)
 				continue;
 
-			allAtTransactions.addAll(atTransactions);
+			allAtTransactions.addAll(atResult.getAtTransactions());
 			this.ourAtStates.add(atStateData);
 			this.ourAtFees += atStateData.getFees();
 		}
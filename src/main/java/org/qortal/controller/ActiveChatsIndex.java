@@ -0,0 +1,351 @@
+package org.qortal.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
+import org.qortal.data.naming.NameData;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.event.Event;
+import org.qortal.event.EventBus;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.transaction.Transaction.TransactionType;
+import org.qortal.utils.Base58;
+
+import java.util.*;
+
+import static org.qortal.data.chat.ChatMessage.Encoding;
+
+/**
+ * In-memory index of active chats, for addresses with websocket subscribers.
+ * <p>
+ * Each subscribed address is loaded from the repository once, then kept up to date
+ * from new CHAT transactions, so notifying many subscribers doesn't need a repository
+ * session per subscriber.
+ * <p>
+ * Entries are reloaded after group membership changes, and also after {@link #MAX_LOAD_AGE}
+ * to pick up anything we weren't notified about, e.g. CHAT transactions only seen in synced blocks,
+ * or expired unconfirmed transactions.
+ */
+public class ActiveChatsIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger(ActiveChatsIndex.class);
+
+	/** Reload an address's active chats from repository after this long (ms) */
+	private static final long MAX_LOAD_AGE = 10 * 60 * 1000L;
+
+	private static ActiveChatsIndex instance;
+
+	private static class GroupChatEntry {
+		private final int groupId;
+		private final String groupName;
+		private final Long timestamp;
+		private final String sender;
+		private final String senderName;
+		private final byte[] signature;
+		private final byte[] data;
+
+		private GroupChatEntry(int groupId, String groupName, Long timestamp, String sender, String senderName, byte[] signature, byte[] data) {
+			this.groupId = groupId;
+			this.groupName = groupName;
+			this.timestamp = timestamp;
+			this.sender = sender;
+			this.senderName = senderName;
+			this.signature = signature;
+			this.data = data;
+		}
+
+		private GroupChat toGroupChat(Encoding encoding) {
+			return new GroupChat(this.groupId, this.groupName, this.timestamp, this.sender, this.senderName, this.signature, encoding, this.data);
+		}
+	}
+
+	private static class AddressEntry {
+		private int subscriberCount;
+		/** Groups that address is a member of, with group 0 last, as returned by repository */
+		private List<Integer> groupIds = Collections.emptyList();
+		/** Latest direct chat, by other party's address */
+		private final Map<String, DirectChat> directChats = new LinkedHashMap<>();
+		/** Direct chats we were notified about while entry needed reloading, in case repository didn't have them yet */
+		private final Map<String, DirectChat> pendingDirectChats = new HashMap<>();
+		/** Group chats we were notified about while entry needed reloading, by group ID, in case repository didn't have them yet */
+		private final Map<Integer, GroupChatEntry> pendingGroupChats = new HashMap<>();
+		/** When entry was loaded from repository, or 0 if it needs reloading */
+		private long loadedWhen;
+
+		private boolean needsLoading() {
+			return this.loadedWhen == 0 || System.currentTimeMillis() - this.loadedWhen > MAX_LOAD_AGE;
+		}
+	}
+
+	/** Latest message for each group that any subscribed address is a member of */
+	private final Map<Integer, GroupChatEntry> groupChats = new HashMap<>();
+	private final Map<String, AddressEntry> addresses = new HashMap<>();
+
+	private ActiveChatsIndex() {
+		// Synchronous, so index is updated before ChatNotifier listeners are called
+		EventBus.INSTANCE.addListener("ActiveChatsIndex", this::listen, Set.of(Controller.NewTransactionEvent.class));
+	}
+
+	public static synchronized ActiveChatsIndex getInstance() {
+		if (instance == null)
+			instance = new ActiveChatsIndex();
+
+		return instance;
+	}
+
+	public synchronized void subscribe(String address) {
+		this.addresses.computeIfAbsent(address, k -> new AddressEntry()).subscriberCount++;
+	}
+
+	public synchronized void unsubscribe(String address) {
+		AddressEntry addressEntry = this.addresses.get(address);
+		if (addressEntry == null)
+			return;
+
+		if (--addressEntry.subscriberCount <= 0) {
+			this.addresses.remove(address);
+			this.retainSubscribedGroups();
+		}
+	}
+
+	/** Marks all addresses as needing a reload, e.g. after group membership changes. */
+	public synchronized void invalidate() {
+		for (AddressEntry addressEntry : this.addresses.values())
+			addressEntry.loadedWhen = 0;
+	}
+
+	/**
+	 * Returns active chats for <tt>address</tt>, loading from repository if not indexed yet.
+	 */
+	public ActiveChats getActiveChats(String address, Encoding encoding) throws DataException {
+		synchronized (this) {
+			ActiveChats activeChats = this.buildActiveChats(address, encoding);
+			if (activeChats != null)
+				return activeChats;
+		}
+
+		// Load from repository without holding up other subscribers
+		ActiveChats loadedChats;
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
+			loadedChats = repository.getChatRepository().getActiveChats(address, Encoding.BASE58);
+		}
+
+		synchronized (this) {
+			this.install(address, loadedChats, System.currentTimeMillis());
+
+			ActiveChats activeChats = this.buildActiveChats(address, encoding);
+			if (activeChats != null)
+				return activeChats;
+		}
+
+		// Not subscribed, so not indexed
+		return loadedChats;
+	}
+
+	/**
+	 * Returns whether <tt>chatTransactionData</tt> could change active chats for <tt>address</tt>.
+	 * If we don't know yet, returns true.
+	 */
+	public synchronized boolean isRelevant(String address, ChatTransactionData chatTransactionData) {
+		String recipient = chatTransactionData.getRecipient();
+		if (recipient != null)
+			return recipient.equals(address) || chatTransactionData.getSender().equals(address);
+
+		AddressEntry addressEntry = this.addresses.get(address);
+		if (addressEntry == null || addressEntry.needsLoading())
+			return true;
+
+		return addressEntry.groupIds.contains(chatTransactionData.getTxGroupId());
+	}
+
+	public void listen(Event event) {
+		if (!(event instanceof Controller.NewTransactionEvent))
+			return;
+
+		TransactionData transactionData = ((Controller.NewTransactionEvent) event).getTransactionData();
+		if (transactionData.getType() != TransactionType.CHAT)
+			return;
+
+		this.onNewChatTransaction((ChatTransactionData) transactionData);
+	}
+
+	public void onNewChatTransaction(ChatTransactionData chatTransactionData) {
+		String sender = chatTransactionData.getSender();
+		String recipient = chatTransactionData.getRecipient();
+
+		synchronized (this) {
+			if (!this.isIndexed(chatTransactionData))
+				return;
+		}
+
+		// One name lookup per CHAT transaction, rather than per subscriber
+		String senderName;
+		String recipientName = null;
+		try (final Repository repository = RepositoryManager.getReadOnlyRepository()) {
+			senderName = getName(repository, sender);
+
+			if (recipient != null)
+				recipientName = getName(repository, recipient);
+		} catch (DataException e) {
+			LOGGER.debug("Unable to look up names for active chats: {}", e.getMessage());
+			// Index might now be out of date, so reload affected addresses when next needed
+			this.invalidate(chatTransactionData);
+			return;
+		}
+
+		long timestamp = chatTransactionData.getTimestamp();
+
+		synchronized (this) {
+			if (recipient == null) {
+				int groupId = chatTransactionData.getTxGroupId();
+				GroupChatEntry previousEntry = this.groupChats.get(groupId);
+
+				if (previousEntry == null || previousEntry.timestamp == null || previousEntry.timestamp <= timestamp) {
+					// Group name is filled in by next load if we don't know it yet
+					String groupName = previousEntry != null ? previousEntry.groupName : null;
+					GroupChatEntry groupChatEntry = new GroupChatEntry(groupId, groupName, timestamp, sender, senderName,
+							chatTransactionData.getSignature(), chatTransactionData.getData());
+					this.groupChats.put(groupId, groupChatEntry);
+
+					// Addresses being loaded might be members of this group
+					for (AddressEntry addressEntry : this.addresses.values())
+						if (addressEntry.needsLoading())
+							addressEntry.pendingGroupChats.put(groupId, groupChatEntry);
+				}
+
+				return;
+			}
+
+			this.updateDirectChat(sender, recipient, recipientName, timestamp, sender, senderName);
+			this.updateDirectChat(recipient, sender, senderName, timestamp, sender, senderName);
+		}
+	}
+
+	private void updateDirectChat(String address, String otherAddress, String otherName, long timestamp, String sender, String senderName) {
+		AddressEntry addressEntry = this.addresses.get(address);
+		if (addressEntry == null)
+			return;
+
+		DirectChat previousChat = addressEntry.directChats.get(otherAddress);
+		if (previousChat != null && previousChat.getTimestamp() > timestamp)
+			return;
+
+		DirectChat directChat = new DirectChat(otherAddress, otherName, timestamp, sender, senderName);
+		addressEntry.directChats.put(otherAddress, directChat);
+
+		if (addressEntry.needsLoading())
+			addressEntry.pendingDirectChats.put(otherAddress, directChat);
+	}
+
+	/** Returns whether any indexed, or soon to be indexed, address could be affected by <tt>chatTransactionData</tt>. */
+	private boolean isIndexed(ChatTransactionData chatTransactionData) {
+		String recipient = chatTransactionData.getRecipient();
+		if (recipient != null)
+			return this.addresses.containsKey(recipient) || this.addresses.containsKey(chatTransactionData.getSender());
+
+		if (this.groupChats.containsKey(chatTransactionData.getTxGroupId()))
+			return true;
+
+		// Might be a group that an address being loaded is a member of
+		return this.addresses.values().stream().anyMatch(AddressEntry::needsLoading);
+	}
+
+	/** Marks addresses affected by <tt>chatTransactionData</tt> as needing a reload. */
+	private synchronized void invalidate(ChatTransactionData chatTransactionData) {
+		String sender = chatTransactionData.getSender();
+		String recipient = chatTransactionData.getRecipient();
+
+		for (Map.Entry<String, AddressEntry> entry : this.addresses.entrySet()) {
+			AddressEntry addressEntry = entry.getValue();
+
+			boolean isAffected = recipient == null
+					? addressEntry.groupIds.contains(chatTransactionData.getTxGroupId())
+					: entry.getKey().equals(sender) || entry.getKey().equals(recipient);
+
+			if (isAffected)
+				addressEntry.loadedWhen = 0;
+		}
+	}
+
+	/** Returns active chats from index, or null if <tt>address</tt> needs (re)loading first. */
+	private ActiveChats buildActiveChats(String address, Encoding encoding) {
+		AddressEntry addressEntry = this.addresses.get(address);
+		if (addressEntry == null || addressEntry.needsLoading())
+			return null;
+
+		List<GroupChat> groups = new ArrayList<>(addressEntry.groupIds.size());
+		for (Integer groupId : addressEntry.groupIds) {
+			GroupChatEntry groupChatEntry = this.groupChats.get(groupId);
+			if (groupChatEntry != null)
+				groups.add(groupChatEntry.toGroupChat(encoding));
+		}
+
+		List<DirectChat> direct = new ArrayList<>(addressEntry.directChats.values());
+
+		return new ActiveChats(groups, direct);
+	}
+
+	private void install(String address, ActiveChats activeChats, long now) {
+		AddressEntry addressEntry = this.addresses.get(address);
+		if (addressEntry == null)
+			return;
+
+		List<Integer> groupIds = new ArrayList<>(activeChats.getGroups().size());
+		for (GroupChat groupChat : activeChats.getGroups()) {
+			groupIds.add(groupChat.getGroupId());
+
+			// Repository has the latest, unless we were notified of something newer while loading,
+			// so that e.g. expired unconfirmed CHAT transactions are dropped by reloading
+			GroupChatEntry pendingEntry = addressEntry.pendingGroupChats.get(groupChat.getGroupId());
+			if (pendingEntry != null && pendingEntry.timestamp != null
+					&& (groupChat.getTimestamp() == null || pendingEntry.timestamp > groupChat.getTimestamp())) {
+				this.groupChats.put(groupChat.getGroupId(), new GroupChatEntry(pendingEntry.groupId, groupChat.getGroupName(),
+						pendingEntry.timestamp, pendingEntry.sender, pendingEntry.senderName, pendingEntry.signature, pendingEntry.data));
+
+				continue;
+			}
+
+			byte[] data = groupChat.getData() != null ? Base58.decode(groupChat.getData()) : null;
+			this.groupChats.put(groupChat.getGroupId(), new GroupChatEntry(groupChat.getGroupId(), groupChat.getGroupName(),
+					groupChat.getTimestamp(), groupChat.getSender(), groupChat.getSenderName(), groupChat.getSignature(), data));
+		}
+		addressEntry.groupIds = groupIds;
+		addressEntry.pendingGroupChats.clear();
+
+		addressEntry.directChats.clear();
+		for (DirectChat directChat : activeChats.getDirect())
+			addressEntry.directChats.put(directChat.getAddress(), directChat);
+
+		// Anything we were notified about while loading might not have been in repository yet
+		for (DirectChat pendingChat : addressEntry.pendingDirectChats.values()) {
+			DirectChat loadedChat = addressEntry.directChats.get(pendingChat.getAddress());
+			if (loadedChat == null || loadedChat.getTimestamp() < pendingChat.getTimestamp())
+				addressEntry.directChats.put(pendingChat.getAddress(), pendingChat);
+		}
+		addressEntry.pendingDirectChats.clear();
+
+		addressEntry.loadedWhen = now;
+
+		this.retainSubscribedGroups();
+	}
+
+	/** Drops latest messages for groups that no subscribed address is a member of. */
+	private void retainSubscribedGroups() {
+		Set<Integer> subscribedGroupIds = new HashSet<>();
+		for (AddressEntry addressEntry : this.addresses.values())
+			subscribedGroupIds.addAll(addressEntry.groupIds);
+
+		this.groupChats.keySet().retainAll(subscribedGroupIds);
+	}
+
+	private static String getName(Repository repository, String address) throws DataException {
+		List<NameData> names = repository.getNameRepository().getNamesByOwner(address);
+		return names.isEmpty() ? null : names.get(0).getName();
+	}
+
+}
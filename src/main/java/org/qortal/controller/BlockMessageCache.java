@@ -0,0 +1,204 @@
+package org.qortal.controller;
+
+import org.qortal.network.message.Message;
+import org.qortal.network.message.MessageException;
+import org.qortal.network.message.MessageType;
+import org.qortal.utils.ByteArray;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of outgoing block messages, indexed by block signature and message type, bounded by total message size.
+ * <p>
+ * Entries are spread across independently locked shards, so concurrent peer requests don't all contend on one lock.
+ * Each shard evicts its least-recently-used entries once it holds more than its share of the total size limit.
+ * <p>
+ * Optionally, only blocks from popular height ranges are cached, i.e. ranges with at least a given number
+ * of recent requests, as reported via {@link #recordRequest(int)}.
+ */
+public class BlockMessageCache {
+
+	private static final int SHARD_COUNT = 16;
+
+	/** Number of blocks in each height range, when tracking popular ranges. */
+	public static final int HEIGHT_RANGE_SIZE = 1000;
+	/** How long requests count towards a height range's popularity. */
+	private static final long POPULARITY_WINDOW = TimeUnit.MINUTES.toNanos(10);
+
+	private static class Key {
+		private final ByteArray signature;
+		private final MessageType messageType;
+
+		Key(byte[] signature, MessageType messageType) {
+			this.signature = ByteArray.wrap(signature);
+			this.messageType = messageType;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+
+			if (!(other instanceof Key))
+				return false;
+
+			Key otherKey = (Key) other;
+			return this.messageType == otherKey.messageType && this.signature.equals(otherKey.signature);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.signature, this.messageType);
+		}
+	}
+
+	private static class Entry {
+		private final Message message;
+		private final int length;
+
+		Entry(Message message, int length) {
+			this.message = message;
+			this.length = length;
+		}
+	}
+
+	private static class Shard {
+		/** Access-ordered, so eldest entry is least-recently used */
+		private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+		private long byteCount = 0L;
+	}
+
+	private final long maxBytesPerShard;
+	private final int minRangeRequests;
+
+	private final Shard[] shards = new Shard[SHARD_COUNT];
+	private final AtomicLong byteCount = new AtomicLong();
+
+	/** Recent request counts, by height range */
+	private final Map<Integer, AtomicInteger> rangeRequestCounts = new ConcurrentHashMap<>();
+	private volatile long rangeRequestCountsResetTime = System.nanoTime();
+
+	/**
+	 * @param maxBytes maximum total serialized size of cached messages
+	 * @param minRangeRequests minimum recent requests for a height range before its blocks are cached, or 0 to cache any block
+	 */
+	public BlockMessageCache(long maxBytes, int minRangeRequests) {
+		this.maxBytesPerShard = maxBytes / SHARD_COUNT;
+		this.minRangeRequests = minRangeRequests;
+
+		for (int i = 0; i < SHARD_COUNT; ++i)
+			this.shards[i] = new Shard();
+	}
+
+	public boolean isEnabled() {
+		return this.maxBytesPerShard > 0;
+	}
+
+	/** Returns cached message for block with <tt>signature</tt>, of given type, or null. Caller must not modify message. */
+	public Message get(byte[] signature, MessageType messageType) {
+		if (!this.isEnabled())
+			return null;
+
+		Key key = new Key(signature, messageType);
+		Shard shard = this.getShard(key);
+
+		synchronized (shard) {
+			Entry entry = shard.entries.get(key);
+			return entry != null ? entry.message : null;
+		}
+	}
+
+	/** Notes a request for block at <tt>height</tt>, which counts towards its height range's popularity. */
+	public void recordRequest(int height) {
+		if (!this.isEnabled() || this.minRangeRequests <= 0)
+			return;
+
+		long now = System.nanoTime();
+		if (now - this.rangeRequestCountsResetTime > POPULARITY_WINDOW) {
+			this.rangeRequestCountsResetTime = now;
+			this.rangeRequestCounts.clear();
+		}
+
+		this.rangeRequestCounts.computeIfAbsent(height / HEIGHT_RANGE_SIZE, range -> new AtomicInteger()).incrementAndGet();
+	}
+
+	/**
+	 * Caches <tt>message</tt>, which must already have all data needed for serialization,
+	 * for block with <tt>signature</tt> at <tt>height</tt>.
+	 *
+	 * @return whether message was cached
+	 */
+	public boolean put(int height, byte[] signature, Message message) {
+		if (!this.isEnabled() || !this.isPopular(height))
+			return false;
+
+		int messageLength;
+		try {
+			messageLength = message.getSerializedLength();
+		} catch (MessageException e) {
+			return false;
+		}
+
+		if (messageLength > this.maxBytesPerShard)
+			return false;
+
+		Key key = new Key(signature, message.getType());
+		Shard shard = this.getShard(key);
+		Entry newEntry = new Entry(message, messageLength);
+
+		synchronized (shard) {
+			Entry previousEntry = shard.entries.put(key, newEntry);
+			long byteCountDelta = messageLength - (previousEntry != null ? previousEntry.length : 0L);
+
+			// Evict least-recently used entries until we're back within limits
+			Iterator<Entry> iterator = shard.entries.values().iterator();
+			while (shard.byteCount + byteCountDelta > this.maxBytesPerShard && iterator.hasNext()) {
+				Entry eldestEntry = iterator.next();
+				if (eldestEntry == newEntry)
+					continue;
+
+				byteCountDelta -= eldestEntry.length;
+				iterator.remove();
+			}
+
+			shard.byteCount += byteCountDelta;
+			this.byteCount.addAndGet(byteCountDelta);
+		}
+
+		return true;
+	}
+
+	/** Returns total serialized size of cached messages. */
+	public long getByteCount() {
+		return this.byteCount.get();
+	}
+
+	public void clear() {
+		for (Shard shard : this.shards)
+			synchronized (shard) {
+				shard.entries.clear();
+				this.byteCount.addAndGet(-shard.byteCount);
+				shard.byteCount = 0L;
+			}
+	}
+
+	private boolean isPopular(int height) {
+		if (this.minRangeRequests <= 0)
+			return true;
+
+		AtomicInteger requestCount = this.rangeRequestCounts.get(height / HEIGHT_RANGE_SIZE);
+		return requestCount != null && requestCount.get() >= this.minRangeRequests;
+	}
+
+	private Shard getShard(Key key) {
+		return this.shards[Math.floorMod(key.hashCode(), SHARD_COUNT)];
+	}
+
+}
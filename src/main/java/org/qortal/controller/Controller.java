@@ -43,6 +43,7 @@ import org.qortal.utils.*;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
 import java.awt.TrayIcon.MessageType;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -101,14 +102,12 @@ public class Controller extends Thread {
 	/** Latest blocks on our chain. Note: tail/last is the latest block. */
 	private final Deque<BlockData> latestBlocks = new LinkedList<>();
 
-	/** Cache of BlockMessages, indexed by block signature */
-	@SuppressWarnings("serial")
-	private final LinkedHashMap<ByteArray, CachedBlockMessage> blockMessageCache = new LinkedHashMap<>() {
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<ByteArray, CachedBlockMessage> eldest) {
-			return this.size() > Settings.getInstance().getBlockCacheSize();
-		}
-	};
+	/** Cache of recent blocks' BLOCK/BLOCK_V2 messages */
+	private final BlockMessageCache blockMessageCache = new BlockMessageCache(Settings.getInstance().getBlockCacheMaxBytes(), 0);
+
+	/** Cache of BLOCK/BLOCK_V2 messages for older blocks, but only from height ranges that are popular with peers */
+	private final BlockMessageCache historicBlockMessageCache = new BlockMessageCache(Settings.getInstance().getHistoricBlockCacheMaxBytes(),
+			Settings.getInstance().getHistoricBlockCacheMinRangeRequests());
 
 	private long repositoryBackupTimestamp = startTime; // ms
 	private long repositoryMaintenanceTimestamp = startTime; // ms
@@ -129,11 +128,25 @@ public class Controller extends Thread {
 		public static class GetBlockMessageStats {
 			public AtomicLong requests = new AtomicLong();
 			public AtomicLong cacheHits = new AtomicLong();
+			public AtomicLong historicCacheHits = new AtomicLong();
 			public AtomicLong unknownBlocks = new AtomicLong();
 			public AtomicLong cacheFills = new AtomicLong();
+			public AtomicLong historicCacheFills = new AtomicLong();
 
 			public GetBlockMessageStats() {
 			}
+
+			@XmlElement
+			public double getCacheHitRatio() {
+				long requestCount = this.requests.get();
+				return requestCount > 0 ? (double) this.cacheHits.get() / requestCount : 0.0;
+			}
+
+			@XmlElement
+			public double getHistoricCacheHitRatio() {
+				long requestCount = this.requests.get();
+				return requestCount > 0 ? (double) this.historicCacheHits.get() / requestCount : 0.0;
+			}
 		}
 		public GetBlockMessageStats getBlockMessageStats = new GetBlockMessageStats();
 
@@ -988,6 +1001,9 @@ public class Controller extends Thread {
 				LOGGER.info("Shutting down networking");
 				Network.getInstance().shutdown();
 
+				LOGGER.info("Shutting down event bus");
+				EventBus.INSTANCE.shutdown();
+
 				LOGGER.info("Shutting down controller");
 				this.interrupt();
 				try {
@@ -1194,6 +1210,7 @@ public class Controller extends Thread {
 
 		if (this.notifyGroupMembershipChange) {
 			this.notifyGroupMembershipChange = false;
+			ActiveChatsIndex.getInstance().invalidate();
 			ChatNotifier.getInstance().onGroupMembershipChange();
 		}
 	}
@@ -1379,17 +1396,22 @@ public class Controller extends Thread {
 		byte[] signature = getBlockMessage.getSignature();
 		this.stats.getBlockMessageStats.requests.incrementAndGet();
 
-		ByteArray signatureAsByteArray = ByteArray.wrap(signature);
+		final boolean peerSupportsV2 = peer.getPeersVersion() >= BlockV2Message.MIN_PEER_VERSION;
 
-		CachedBlockMessage cachedBlockMessage = this.blockMessageCache.get(signatureAsByteArray);
-		int blockCacheSize = Settings.getInstance().getBlockCacheSize();
-
-		// Check cached latest block message
+		// Check cached block messages
+		Message cachedBlockMessage = getCachedBlockMessage(this.blockMessageCache, signature, peerSupportsV2);
 		if (cachedBlockMessage != null) {
 			this.stats.getBlockMessageStats.cacheHits.incrementAndGet();
+		} else {
+			cachedBlockMessage = getCachedBlockMessage(this.historicBlockMessageCache, signature, peerSupportsV2);
+
+			if (cachedBlockMessage != null)
+				this.stats.getBlockMessageStats.historicCacheHits.incrementAndGet();
+		}
 
+		if (cachedBlockMessage != null) {
 			// We need to duplicate it to prevent multiple threads setting ID on the same message
-			CachedBlockMessage clonedBlockMessage = Message.cloneWithNewId(cachedBlockMessage, message.getId());
+			Message clonedBlockMessage = Message.cloneWithNewId(cachedBlockMessage, message.getId());
 
 			if (!peer.sendMessage(clonedBlockMessage))
 				peer.disconnect("failed to send block");
@@ -1437,7 +1459,8 @@ public class Controller extends Thread {
 							return;
 						}
 
-						// Sent successfully from archive, so nothing more to do
+						// Sent successfully from archive, so just cache it if appropriate
+						this.cacheBlockMessage(serializedBlock.getC(), signature, blockMessage);
 						return;
 					}
 				}
@@ -1463,18 +1486,7 @@ public class Controller extends Thread {
 			Block block = new Block(repository, blockData);
 
 			// V2 support
-			if (peer.getPeersVersion() >= BlockV2Message.MIN_PEER_VERSION) {
-				Message blockMessage = new BlockV2Message(block);
-				blockMessage.setId(message.getId());
-				if (!peer.sendMessage(blockMessage)) {
-					peer.disconnect("failed to send block");
-					// Don't fall-through to caching because failure to send might be from failure to build message
-					return;
-				}
-				return;
-			}
-
-			CachedBlockMessage blockMessage = new CachedBlockMessage(block);
+			Message blockMessage = peerSupportsV2 ? new BlockV2Message(block) : new CachedBlockMessage(block);
 			blockMessage.setId(message.getId());
 
 			if (!peer.sendMessage(blockMessage)) {
@@ -1483,12 +1495,7 @@ public class Controller extends Thread {
 				return;
 			}
 
-			// If request is for a recent block, cache it
-			if (getChainHeight() - blockData.getHeight() <= blockCacheSize) {
-				this.stats.getBlockMessageStats.cacheFills.incrementAndGet();
-
-				this.blockMessageCache.put(ByteArray.wrap(blockData.getSignature()), blockMessage);
-			}
+			this.cacheBlockMessage(blockData.getHeight(), blockData.getSignature(), blockMessage);
 		} catch (DataException e) {
 			LOGGER.error(String.format("Repository issue while sending block %s to peer %s", Base58.encode(signature), peer), e);
 		} catch (TransformationException e) {
@@ -1496,6 +1503,33 @@ public class Controller extends Thread {
 		}
 	}
 
+	/** Returns cached message for block with <tt>signature</tt>, preferring BLOCK_V2 if peer supports it, or null. */
+	private static Message getCachedBlockMessage(BlockMessageCache cache, byte[] signature, boolean peerSupportsV2) {
+		if (peerSupportsV2) {
+			Message blockMessage = cache.get(signature, org.qortal.network.message.MessageType.BLOCK_V2);
+			if (blockMessage != null)
+				return blockMessage;
+		}
+
+		return cache.get(signature, org.qortal.network.message.MessageType.BLOCK);
+	}
+
+	private void cacheBlockMessage(int height, byte[] signature, Message blockMessage) {
+		// If request is for a recent block, cache it
+		if (getChainHeight() - height <= Settings.getInstance().getBlockCacheSize()) {
+			if (this.blockMessageCache.put(height, signature, blockMessage))
+				this.stats.getBlockMessageStats.cacheFills.incrementAndGet();
+
+			return;
+		}
+
+		// Otherwise only cache it if peers are requesting lots of blocks around this height, e.g. while syncing
+		this.historicBlockMessageCache.recordRequest(height);
+
+		if (this.historicBlockMessageCache.put(height, signature, blockMessage))
+			this.stats.getBlockMessageStats.historicCacheFills.incrementAndGet();
+	}
+
 	private void onNetworkGetBlockSummariesMessage(Peer peer, Message message) {
 		GetBlockSummariesMessage getBlockSummariesMessage = (GetBlockSummariesMessage) message;
 		final byte[] parentSignature = getBlockSummariesMessage.getParentSignature();
@@ -10,6 +10,7 @@ import org.qortal.block.Block;
 import org.qortal.block.BlockChain;
 import org.qortal.crypto.Crypto;
 import org.qortal.crypto.MemoryPoW;
+import org.qortal.crypto.MemoryPoWVerifier;
 import org.qortal.crypto.Qortal25519Extras;
 import org.qortal.data.account.MintingAccountData;
 import org.qortal.data.account.RewardShareData;
@@ -75,12 +76,13 @@ public class OnlineAccountsManager {
     public static final int POW_BUFFER_SIZE_TESTNET = 1 * 1024 * 1024; // bytes
     public static final int POW_DIFFICULTY_TESTNET = 5; // leading zero bits
 
-    // IMPORTANT: if we ever need to dynamically modify the buffer size using a feature trigger, the
-    // pre-allocated buffer below will NOT work, and we should instead use a dynamically allocated
-    // one for the transition period.
-    private static long[] POW_VERIFY_WORK_BUFFER = new long[getPoWBufferSize() / 8];
-
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4, new NamedThreadFactory("OnlineAccounts"));
+
+    // IMPORTANT: if we ever need to dynamically modify the buffer size using a feature trigger, the
+    // verifier's pre-allocated per-thread work buffers will NOT work, and we should instead use
+    // dynamically allocated ones for the transition period.
+    private final MemoryPoWVerifier memoryPoWVerifier = new MemoryPoWVerifier(getPoWBufferSize(),
+            Settings.getInstance().getOnlineAccountsPoWVerifyPoolSize(), "OnlineAccounts-PoW");
     private volatile boolean isStopping = false;
 
     private final Set<OnlineAccountData> onlineAccountsImportQueue = ConcurrentHashMap.newKeySet();
@@ -171,6 +173,7 @@ public class OnlineAccountsManager {
     public void shutdown() {
         isStopping = true;
         executor.shutdownNow();
+        memoryPoWVerifier.shutdown();
     }
 
     // Testing support
@@ -212,7 +215,8 @@ public class OnlineAccountsManager {
 
         LOGGER.debug("Processing online accounts import queue (size: {})", this.onlineAccountsImportQueue.size());
 
-        Set<OnlineAccountData> onlineAccountsToAdd = new HashSet<>();
+        Set<OnlineAccountData> onlineAccountsToVerify = new HashSet<>();
+        List<OnlineAccountData> onlineAccountsToAdd = new ArrayList<>();
         Set<OnlineAccountData> onlineAccountsToRemove = new HashSet<>();
         try (final Repository repository = RepositoryManager.getRepository()) {
             for (OnlineAccountData onlineAccountData : this.onlineAccountsImportQueue) {
@@ -229,15 +233,27 @@ public class OnlineAccountsManager {
 
                 boolean isValid = this.isValidCurrentAccount(repository, onlineAccountData);
                 if (isValid)
-                    onlineAccountsToAdd.add(onlineAccountData);
+                    onlineAccountsToVerify.add(onlineAccountData);
 
                 // Don't remove from the queue yet - we'll do this at the end of the process
                 // This prevents duplicates being added to the queue whilst it's being processed
                 onlineAccountsToRemove.add(onlineAccountData);
             }
+
+            // Validate mempow nonces last, as this is the most expensive check, but can be run in parallel
+            onlineAccountsToAdd = this.memoryPoWVerifier.filterValid(onlineAccountsToVerify, this::verifyMemoryPoW);
+
+            if (LOGGER.isTraceEnabled() && onlineAccountsToAdd.size() != onlineAccountsToVerify.size()) {
+                onlineAccountsToVerify.removeAll(onlineAccountsToAdd);
+                for (OnlineAccountData onlineAccountData : onlineAccountsToVerify)
+                    LOGGER.trace(() -> String.format("Rejecting online reward-share %s due to invalid PoW nonce", Base58.encode(onlineAccountData.getPublicKey())));
+            }
         } catch (DataException e) {
             LOGGER.error("Repository issue while verifying online accounts", e);
 
+        } catch (InterruptedException e) {
+            // We're shutting down - fall-through to tidy up
+
         } finally {
             if (!onlineAccountsToAdd.isEmpty()) {
                 LOGGER.debug("Merging {} validated online accounts from import queue", onlineAccountsToAdd.size());
@@ -349,12 +365,7 @@ public class OnlineAccountsManager {
             return false;
         }
 
-        // Validate mempow
-        if (!getInstance().verifyMemoryPoW(onlineAccountData, POW_VERIFY_WORK_BUFFER)) {
-            LOGGER.trace(() -> String.format("Rejecting online reward-share for account %s due to invalid PoW nonce", mintingAccount.getAddress()));
-            return false;
-        }
-
+        // Mempow is validated separately, in parallel with other accounts
         return true;
     }
 
@@ -676,6 +687,22 @@ public class OnlineAccountsManager {
         return MemoryPoW.verify2(mempowBytes, workBuffer, getPoWBufferSize(), getPoWDifficulty(onlineAccountData.getTimestamp()), nonce);
     }
 
+    /**
+     * Returns whether all online accounts have valid mempow nonces.
+     * <p>
+     * Nonces are verified in parallel, stopping early on the first failure.
+     * <p>
+     * Typically called by {@link Block#areOnlineAccountsValid()}
+     */
+    public boolean verifyMemoryPoW(Collection<OnlineAccountData> onlineAccounts) throws DataException {
+        try {
+            return this.memoryPoWVerifier.verifyAll(onlineAccounts, this::verifyMemoryPoW);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataException("Interrupted while verifying online accounts' mempow nonces");
+        }
+    }
+
 
     /**
      * Returns whether online accounts manager has any online accounts with timestamp recent enough to be considered currently online.
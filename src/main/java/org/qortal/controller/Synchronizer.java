@@ -31,7 +31,12 @@ import java.security.SecureRandom;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -78,6 +83,10 @@ public class Synchronizer extends Thread {
 	private volatile int syncPercent = 0;
 	/** Temporary estimate of blocks remaining for SysTray use. */
 	private volatile int blocksRemaining = 0;
+	/** Blocks per second fetched from peers during the current sync round, for API use. */
+	private volatile Double blockFetchRate = null;
+	/** Blocks per second validated and processed during the current sync round, for API use. */
+	private volatile Double blockProcessRate = null;
 
 	private static volatile boolean requestSync = false;
 	private boolean syncRequestPending = false;
@@ -195,6 +204,14 @@ public class Synchronizer extends Thread {
 		}
 	}
 
+	public Double getBlockFetchRate() {
+		return this.isSynchronizing ? this.blockFetchRate : null;
+	}
+
+	public Double getBlockProcessRate() {
+		return this.isSynchronizing ? this.blockProcessRate : null;
+	}
+
 	public void requestSync() {
 		requestSync = true;
 	}
@@ -952,8 +969,10 @@ public class Synchronizer extends Thread {
 							ourInitialHeight, Base58.encode(ourLastBlockSignature), ourLatestBlockData.getTimestamp());
 					LOGGER.info(syncString);
 
-					// Reset last re-org size as we are starting a new sync round
+					// Reset last re-org size and sync rates as we are starting a new sync round
 					this.lastReorgSize = 0;
+					this.blockFetchRate = null;
+					this.blockProcessRate = null;
 
 					// Set the initial value of timeValidBlockLastReceived if it's null
 					Long now = NTP.getTime();
@@ -1260,156 +1279,163 @@ public class Synchronizer extends Thread {
 
 		int retryCount = 0;
 
-		// Keep fetching blocks from peer until we reach their tip, or reach a count of MAXIMUM_COMMON_DELTA blocks.
-		// We need to limit the total number, otherwise too much can be loaded into memory, causing an
-		// OutOfMemoryException. This is common when syncing from 1000+ blocks behind the chain tip, after starting
-		// from a small fork that didn't become part of the main chain. This causes the entire sync process to
-		// use syncToPeerChain(), resulting in potentially thousands of blocks being held in memory if the limit
-		// below isn't applied.
-		while (height < peerHeight && peerBlocks.size() <= MAXIMUM_COMMON_DELTA) {
-			if (Controller.isStopping())
-				return SynchronizationResult.SHUTTING_DOWN;
+		// Blocks are fetched through a pipeline, so that several requests are outstanding at once
+		try (BlockFetchPipeline pipeline = new BlockFetchPipeline(repository, peer, commonBlockSig)) {
+			// Keep fetching blocks from peer until we reach their tip, or reach a count of MAXIMUM_COMMON_DELTA blocks.
+			// We need to limit the total number, otherwise too much can be loaded into memory, causing an
+			// OutOfMemoryException. This is common when syncing from 1000+ blocks behind the chain tip, after starting
+			// from a small fork that didn't become part of the main chain. This causes the entire sync process to
+			// use syncToPeerChain(), resulting in potentially thousands of blocks being held in memory if the limit
+			// below isn't applied.
+			while (height < peerHeight && peerBlocks.size() <= MAXIMUM_COMMON_DELTA) {
+				if (Controller.isStopping())
+					return SynchronizationResult.SHUTTING_DOWN;
 
-			// Ensure we don't request more than MAXIMUM_REQUEST_SIZE
-			int numberRequested = Math.min(numberSignaturesRequired, MAXIMUM_REQUEST_SIZE);
-
-			// Do we need more signatures?
-			if (peerBlockSignatures.isEmpty() && numberRequested > 0) {
-				LOGGER.trace(String.format("Requesting %d signature%s after height %d, sig %.8s",
-						numberRequested, (numberRequested != 1 ? "s" : ""), height, Base58.encode(latestPeerSignature)));
-
-				peerBlockSignatures = this.getBlockSignatures(peer, latestPeerSignature, numberRequested);
-
-				if (peerBlockSignatures == null || peerBlockSignatures.isEmpty()) {
-					LOGGER.info(String.format("Peer %s failed to respond with more block signatures after height %d, sig %.8s", peer,
-							height, Base58.encode(latestPeerSignature)));
-
-					// Clear our cache of common block summaries for this peer, as they are likely to be invalid
-					CommonBlockData cachedCommonBlockData = peer.getCommonBlockData();
-					if (cachedCommonBlockData != null)
-						cachedCommonBlockData.setBlockSummariesAfterCommonBlock(null);
-
-                    // If we have already received newer blocks from this peer that what we have already, go ahead and apply them
-                    if (peerBlocks.size() > 0) {
-						final BlockData ourLatestBlockData = repository.getBlockRepository().getLastBlock();
-						final Block peerLatestBlock = peerBlocks.get(peerBlocks.size() - 1);
-						final Long minLatestBlockTimestamp = Controller.getMinimumLatestBlockTimestamp();
-						if (ourLatestBlockData != null && peerLatestBlock != null && minLatestBlockTimestamp != null) {
-
-							// If our latest block is very old....
-							if (ourLatestBlockData.getTimestamp() < minLatestBlockTimestamp) {
-								// ... and we have received a block that is more recent than our latest block ...
-								if (peerLatestBlock.getBlockData().getTimestamp() > ourLatestBlockData.getTimestamp()) {
-									// ... then apply the blocks, as it takes us a step forward.
-									// This is particularly useful when starting up a node that was on a small fork when it was last shut down.
-									// In these cases, we now allow the node to sync forward, and get onto the main chain again.
-									// Without this, we would require that the node syncs ENTIRELY with this peer,
-									// and any problems downloading a block would cause all progress to be lost.
-									LOGGER.debug(String.format("Newly received blocks are %d ms newer than our latest block - so we will apply them", peerLatestBlock.getBlockData().getTimestamp() - ourLatestBlockData.getTimestamp()));
-									break;
+				// Ensure we don't request more than MAXIMUM_REQUEST_SIZE
+				int numberRequested = Math.min(numberSignaturesRequired, MAXIMUM_REQUEST_SIZE);
+
+				// Do we need more signatures?
+				if (peerBlockSignatures.isEmpty() && numberRequested > 0) {
+					LOGGER.trace(String.format("Requesting %d signature%s after height %d, sig %.8s",
+							numberRequested, (numberRequested != 1 ? "s" : ""), height, Base58.encode(latestPeerSignature)));
+
+					peerBlockSignatures = this.getBlockSignatures(peer, latestPeerSignature, numberRequested);
+
+					if (peerBlockSignatures == null || peerBlockSignatures.isEmpty()) {
+						LOGGER.info(String.format("Peer %s failed to respond with more block signatures after height %d, sig %.8s", peer,
+								height, Base58.encode(latestPeerSignature)));
+
+						// Clear our cache of common block summaries for this peer, as they are likely to be invalid
+						CommonBlockData cachedCommonBlockData = peer.getCommonBlockData();
+						if (cachedCommonBlockData != null)
+							cachedCommonBlockData.setBlockSummariesAfterCommonBlock(null);
+
+	                    // If we have already received newer blocks from this peer that what we have already, go ahead and apply them
+	                    if (peerBlocks.size() > 0) {
+							final BlockData ourLatestBlockData = repository.getBlockRepository().getLastBlock();
+							final Block peerLatestBlock = peerBlocks.get(peerBlocks.size() - 1);
+							final Long minLatestBlockTimestamp = Controller.getMinimumLatestBlockTimestamp();
+							if (ourLatestBlockData != null && peerLatestBlock != null && minLatestBlockTimestamp != null) {
+
+								// If our latest block is very old....
+								if (ourLatestBlockData.getTimestamp() < minLatestBlockTimestamp) {
+									// ... and we have received a block that is more recent than our latest block ...
+									if (peerLatestBlock.getBlockData().getTimestamp() > ourLatestBlockData.getTimestamp()) {
+										// ... then apply the blocks, as it takes us a step forward.
+										// This is particularly useful when starting up a node that was on a small fork when it was last shut down.
+										// In these cases, we now allow the node to sync forward, and get onto the main chain again.
+										// Without this, we would require that the node syncs ENTIRELY with this peer,
+										// and any problems downloading a block would cause all progress to be lost.
+										LOGGER.debug(String.format("Newly received blocks are %d ms newer than our latest block - so we will apply them", peerLatestBlock.getBlockData().getTimestamp() - ourLatestBlockData.getTimestamp()));
+										break;
+									}
 								}
 							}
-						}
-                    }
-					// Otherwise, give up and move on to the next peer, to avoid putting our chain into an outdated or incomplete state
-                    return SynchronizationResult.NO_REPLY;
-                }
+	                    }
+						// Otherwise, give up and move on to the next peer, to avoid putting our chain into an outdated or incomplete state
+	                    return SynchronizationResult.NO_REPLY;
+	                }
 
-				numberSignaturesRequired = peerHeight - height - peerBlockSignatures.size();
-				LOGGER.trace(String.format("Received %s signature%s", peerBlockSignatures.size(), (peerBlockSignatures.size() != 1 ? "s" : "")));
-			}
+					numberSignaturesRequired = peerHeight - height - peerBlockSignatures.size();
+					LOGGER.trace(String.format("Received %s signature%s", peerBlockSignatures.size(), (peerBlockSignatures.size() != 1 ? "s" : "")));
+				}
 
-			if (peerBlockSignatures.isEmpty()) {
-				LOGGER.trace(String.format("No more signatures or blocks to request from peer %s", peer));
-				break;
-			}
+				if (peerBlockSignatures.isEmpty()) {
+					LOGGER.trace(String.format("No more signatures or blocks to request from peer %s", peer));
+					break;
+				}
 
-			// Catch a block with an invalid signature before orphaning, so that we retain our existing valid candidate
-			if (this.containsInvalidBlockSignature(peerBlockSignatures)) {
-				LOGGER.info(String.format("Peer %s sent invalid block signature: %.8s", peer, Base58.encode(latestPeerSignature)));
-				return SynchronizationResult.INVALID_DATA;
-			}
+				// Catch a block with an invalid signature before orphaning, so that we retain our existing valid candidate
+				if (this.containsInvalidBlockSignature(peerBlockSignatures)) {
+					LOGGER.info(String.format("Peer %s sent invalid block signature: %.8s", peer, Base58.encode(latestPeerSignature)));
+					return SynchronizationResult.INVALID_DATA;
+				}
 
-			// Final check to make sure the peer isn't out of date
-			if (peer.getChainTipData() != null) {
-				final Long minLatestBlockTimestamp = Controller.getMinimumLatestBlockTimestamp();
-				final Long peerLastBlockTimestamp = peer.getChainTipData().getTimestamp();
-				if (peerLastBlockTimestamp == null || peerLastBlockTimestamp < minLatestBlockTimestamp) {
-					LOGGER.info(String.format("Peer %s is out of date, so abandoning sync attempt", peer));
-					return SynchronizationResult.CHAIN_TIP_TOO_OLD;
+				// Final check to make sure the peer isn't out of date
+				if (peer.getChainTipData() != null) {
+					final Long minLatestBlockTimestamp = Controller.getMinimumLatestBlockTimestamp();
+					final Long peerLastBlockTimestamp = peer.getChainTipData().getTimestamp();
+					if (peerLastBlockTimestamp == null || peerLastBlockTimestamp < minLatestBlockTimestamp) {
+						LOGGER.info(String.format("Peer %s is out of date, so abandoning sync attempt", peer));
+						return SynchronizationResult.CHAIN_TIP_TOO_OLD;
+					}
 				}
-			}
 
-			byte[] nextPeerSignature = peerBlockSignatures.get(0);
-			int nextHeight = height + 1;
-
-			LOGGER.trace(String.format("Fetching block %d, sig %.8s from %s", nextHeight, Base58.encode(nextPeerSignature), peer));
-			Block newBlock = this.fetchBlock(repository, peer, nextPeerSignature);
-
-			if (newBlock == null) {
-				LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
-						nextHeight, Base58.encode(nextPeerSignature)));
-
-				if (retryCount >= maxRetries) {
-					// If we have already received newer blocks from this peer that what we have already, go ahead and apply them
-					if (peerBlocks.size() > 0) {
-						final BlockData ourLatestBlockData = repository.getBlockRepository().getLastBlock();
-						final Block peerLatestBlock = peerBlocks.get(peerBlocks.size() - 1);
-						final Long minLatestBlockTimestamp = Controller.getMinimumLatestBlockTimestamp();
-						if (ourLatestBlockData != null && peerLatestBlock != null && minLatestBlockTimestamp != null) {
-
-							// If our latest block is very old....
-							if (ourLatestBlockData.getTimestamp() < minLatestBlockTimestamp) {
-								// ... and we have received a block that is more recent than our latest block ...
-								if (peerLatestBlock.getBlockData().getTimestamp() > ourLatestBlockData.getTimestamp()) {
-									// ... then apply the blocks, as it takes us a step forward.
-									// This is particularly useful when starting up a node that was on a small fork when it was last shut down.
-									// In these cases, we now allow the node to sync forward, and get onto the main chain again.
-									// Without this, we would require that the node syncs ENTIRELY with this peer,
-									// and any problems downloading a block would cause all progress to be lost.
-									LOGGER.debug(String.format("Newly received blocks are %d ms newer than our latest block - so we will apply them", peerLatestBlock.getBlockData().getTimestamp() - ourLatestBlockData.getTimestamp()));
-									break;
+				byte[] nextPeerSignature = peerBlockSignatures.get(0);
+				int nextHeight = height + 1;
+
+				LOGGER.trace(String.format("Fetching block %d, sig %.8s from %s", nextHeight, Base58.encode(nextPeerSignature), peer));
+				pipeline.fill(peerBlockSignatures, nextHeight);
+				Block newBlock = pipeline.take();
+
+				if (newBlock == null) {
+					LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
+							nextHeight, Base58.encode(nextPeerSignature)));
+
+					if (retryCount >= maxRetries) {
+						// If we have already received newer blocks from this peer that what we have already, go ahead and apply them
+						if (peerBlocks.size() > 0) {
+							final BlockData ourLatestBlockData = repository.getBlockRepository().getLastBlock();
+							final Block peerLatestBlock = peerBlocks.get(peerBlocks.size() - 1);
+							final Long minLatestBlockTimestamp = Controller.getMinimumLatestBlockTimestamp();
+							if (ourLatestBlockData != null && peerLatestBlock != null && minLatestBlockTimestamp != null) {
+
+								// If our latest block is very old....
+								if (ourLatestBlockData.getTimestamp() < minLatestBlockTimestamp) {
+									// ... and we have received a block that is more recent than our latest block ...
+									if (peerLatestBlock.getBlockData().getTimestamp() > ourLatestBlockData.getTimestamp()) {
+										// ... then apply the blocks, as it takes us a step forward.
+										// This is particularly useful when starting up a node that was on a small fork when it was last shut down.
+										// In these cases, we now allow the node to sync forward, and get onto the main chain again.
+										// Without this, we would require that the node syncs ENTIRELY with this peer,
+										// and any problems downloading a block would cause all progress to be lost.
+										LOGGER.debug(String.format("Newly received blocks are %d ms newer than our latest block - so we will apply them", peerLatestBlock.getBlockData().getTimestamp() - ourLatestBlockData.getTimestamp()));
+										break;
+									}
 								}
 							}
 						}
-					}
-					// Otherwise, give up and move on to the next peer, to avoid putting our chain into an outdated or incomplete state
-					return SynchronizationResult.NO_REPLY;
-
-				} else {
-					// Re-fetch signatures, in case the peer is now on a different fork
-					peerBlockSignatures.clear();
-					numberSignaturesRequired = peerHeight - height;
+						// Otherwise, give up and move on to the next peer, to avoid putting our chain into an outdated or incomplete state
+						return SynchronizationResult.NO_REPLY;
 
-					// Retry until retryCount reaches maxRetries
-					retryCount++;
-					int triesRemaining = maxRetries - retryCount;
-					LOGGER.info(String.format("Re-issuing request to peer %s (%d attempt%s remaining)", peer, triesRemaining, (triesRemaining != 1 ? "s" : "")));
-					continue;
+					} else {
+						// Re-fetch signatures, in case the peer is now on a different fork
+						peerBlockSignatures.clear();
+						pipeline.clear();
+						numberSignaturesRequired = peerHeight - height;
+
+						// Retry until retryCount reaches maxRetries
+						retryCount++;
+						int triesRemaining = maxRetries - retryCount;
+						LOGGER.info(String.format("Re-issuing request to peer %s (%d attempt%s remaining)", peer, triesRemaining, (triesRemaining != 1 ? "s" : "")));
+						continue;
+					}
 				}
-			}
 
-			// Reset retryCount because the last request succeeded
-			retryCount = 0;
+				// Reset retryCount because the last request succeeded
+				retryCount = 0;
 
-			LOGGER.trace(String.format("Fetched block %d, sig %.8s from %s", nextHeight, Base58.encode(latestPeerSignature), peer));
+				LOGGER.trace(String.format("Fetched block %d, sig %.8s from %s", nextHeight, Base58.encode(latestPeerSignature), peer));
 
-			if (!newBlock.isSignatureValid()) {
-				LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
-						nextHeight, Base58.encode(latestPeerSignature)));
-				return SynchronizationResult.INVALID_DATA;
-			}
+				if (!newBlock.isSignatureValid()) {
+					LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
+							nextHeight, Base58.encode(latestPeerSignature)));
+					return SynchronizationResult.INVALID_DATA;
+				}
+
+				// Transactions are transmitted without approval status so determine that now
+				for (Transaction transaction : newBlock.getTransactions())
+					transaction.setInitialApprovalStatus();
 
-			// Transactions are transmitted without approval status so determine that now
-			for (Transaction transaction : newBlock.getTransactions())
-				transaction.setInitialApprovalStatus();
+				peerBlocks.add(newBlock);
 
-			peerBlocks.add(newBlock);
+				// Now that we've received this block, we can increase our height and move on to the next one
+				latestPeerSignature = nextPeerSignature;
+				peerBlockSignatures.remove(0);
+				++height;
 
-			// Now that we've received this block, we can increase our height and move on to the next one
-			latestPeerSignature = nextPeerSignature;
-			peerBlockSignatures.remove(0);
-			++height;
+				this.blockFetchRate = pipeline.getFetchRate();
+			}
 		}
 
 		// Unwind to common block (unless common block is our latest block)
@@ -1438,10 +1464,15 @@ public class Synchronizer extends Thread {
 
 		LOGGER.debug(String.format("Orphaned blocks back to height %d, sig %.8s - applying new blocks from peer %s", commonBlockHeight, commonBlockSig58, peer));
 
+		int processedCount = 0;
+		long processingNanos = 0;
+
 		for (Block newBlock : peerBlocks) {
 			if (Controller.isStopping())
 				return SynchronizationResult.SHUTTING_DOWN;
 
+			final long processingStart = System.nanoTime();
+
 			newBlock.preProcess();
 
 			ValidationResult blockResult = newBlock.isValid();
@@ -1468,6 +1499,9 @@ public class Synchronizer extends Thread {
 
 			repository.saveChanges();
 
+			processingNanos += System.nanoTime() - processingStart;
+			this.blockProcessRate = blocksPerSecond(++processedCount, processingNanos);
+
 			synchronized (this.syncLock) {
 				if (peer.getChainTipData() != null) {
 					this.blocksRemaining = peer.getChainTipData().getHeight() - newBlock.getBlockData().getHeight();
@@ -1496,89 +1530,271 @@ public class Synchronizer extends Thread {
 
 		// Convert any block summaries from above into signatures to request from peer
 		List<byte[]> peerBlockSignatures = peerBlockSummaries.stream().map(BlockSummaryData::getSignature).collect(Collectors.toList());
+		boolean moreSignaturesAvailable = true;
 
-		while (ourHeight < peerHeight && ourHeight < maxBatchHeight) {
-			if (Controller.isStopping())
-				return SynchronizationResult.SHUTTING_DOWN;
+		int processedCount = 0;
+		long processingNanos = 0;
+
+		// Blocks are fetched through a pipeline, so that several requests are outstanding while we process earlier blocks
+		try (BlockFetchPipeline pipeline = new BlockFetchPipeline(repository, peer, commonBlockSig)) {
+			while (ourHeight < peerHeight && ourHeight < maxBatchHeight) {
+				if (Controller.isStopping())
+					return SynchronizationResult.SHUTTING_DOWN;
+
+				// Do we need more signatures? We ask once all the signatures we have are already being fetched, to keep the pipeline full
+				if (moreSignaturesAvailable && peerBlockSignatures.size() <= pipeline.size()) {
+					final int lastSignatureHeight = ourHeight + peerBlockSignatures.size();
+					final byte[] parentSignature = peerBlockSignatures.isEmpty() ? latestPeerSignature : peerBlockSignatures.get(peerBlockSignatures.size() - 1);
+					int numberRequested = Math.min(maxBatchHeight - lastSignatureHeight, MAXIMUM_REQUEST_SIZE);
+
+					if (numberRequested > 0) {
+						LOGGER.trace(String.format("Requesting %d signature%s after height %d, sig %.8s",
+								numberRequested, (numberRequested != 1 ? "s": ""), lastSignatureHeight, Base58.encode(parentSignature)));
+
+						List<byte[]> moreSignatures = this.getBlockSignatures(peer, parentSignature, numberRequested);
+
+						if (moreSignatures == null || moreSignatures.isEmpty()) {
+							LOGGER.info(String.format("Peer %s failed to respond with more block signatures after height %d, sig %.8s", peer,
+									lastSignatureHeight, Base58.encode(parentSignature)));
+
+							// Apply any blocks that are already on their way before giving up
+							moreSignaturesAvailable = false;
+						} else {
+							LOGGER.trace(String.format("Received %s signature%s", moreSignatures.size(), (moreSignatures.size() != 1 ? "s" : "")));
+							peerBlockSignatures.addAll(moreSignatures);
+						}
+					} else {
+						moreSignaturesAvailable = false;
+					}
+				}
+
+				if (peerBlockSignatures.isEmpty())
+					return SynchronizationResult.NO_REPLY;
 
-			// Do we need more signatures?
-			if (peerBlockSignatures.isEmpty()) {
-				int numberRequested = Math.min(maxBatchHeight - ourHeight, MAXIMUM_REQUEST_SIZE);
+				// Keep the window of outstanding block requests topped up
+				pipeline.fill(peerBlockSignatures, ourHeight + 1);
 
-				LOGGER.trace(String.format("Requesting %d signature%s after height %d, sig %.8s",
-						numberRequested, (numberRequested != 1 ? "s": ""), ourHeight, Base58.encode(latestPeerSignature)));
+				latestPeerSignature = peerBlockSignatures.get(0);
+				peerBlockSignatures.remove(0);
+				++ourHeight;
 
-				peerBlockSignatures = this.getBlockSignatures(peer, latestPeerSignature, numberRequested);
+				LOGGER.trace(String.format("Fetching block %d, sig %.8s from %s", ourHeight, Base58.encode(latestPeerSignature), peer));
+				Block newBlock = pipeline.take();
+				LOGGER.trace(String.format("Fetched block %d, sig %.8s from %s", ourHeight, Base58.encode(latestPeerSignature), peer));
 
-				if (peerBlockSignatures == null || peerBlockSignatures.isEmpty()) {
-					LOGGER.info(String.format("Peer %s failed to respond with more block signatures after height %d, sig %.8s", peer,
+				if (newBlock == null) {
+					LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
 							ourHeight, Base58.encode(latestPeerSignature)));
 					return SynchronizationResult.NO_REPLY;
 				}
 
-				LOGGER.trace(String.format("Received %s signature%s", peerBlockSignatures.size(), (peerBlockSignatures.size() != 1 ? "s" : "")));
-			}
+				if (!newBlock.isSignatureValid()) {
+					LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
+							ourHeight, Base58.encode(latestPeerSignature)));
+					return SynchronizationResult.INVALID_DATA;
+				}
 
-			latestPeerSignature = peerBlockSignatures.get(0);
-			peerBlockSignatures.remove(0);
-			++ourHeight;
+				final long processingStart = System.nanoTime();
 
-			LOGGER.trace(String.format("Fetching block %d, sig %.8s from %s", ourHeight, Base58.encode(latestPeerSignature), peer));
-			Block newBlock = this.fetchBlock(repository, peer, latestPeerSignature);
-			LOGGER.trace(String.format("Fetched block %d, sig %.8s from %s", ourHeight, Base58.encode(latestPeerSignature), peer));
+				// Transactions are transmitted without approval status so determine that now
+				for (Transaction transaction : newBlock.getTransactions())
+					transaction.setInitialApprovalStatus();
 
-			if (newBlock == null) {
-				LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
-						ourHeight, Base58.encode(latestPeerSignature)));
-				return SynchronizationResult.NO_REPLY;
-			}
+				newBlock.preProcess();
 
-			if (!newBlock.isSignatureValid()) {
-				LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
-						ourHeight, Base58.encode(latestPeerSignature)));
-				return SynchronizationResult.INVALID_DATA;
+				ValidationResult blockResult = newBlock.isValid();
+				if (blockResult != ValidationResult.OK) {
+					LOGGER.info(String.format("Peer %s sent invalid block for height %d, sig %.8s: %s", peer,
+							ourHeight, Base58.encode(latestPeerSignature), blockResult.name()));
+					this.addInvalidBlockSignature(newBlock.getSignature());
+					this.timeInvalidBlockLastReceived = NTP.getTime();
+					return SynchronizationResult.INVALID_DATA;
+				}
+
+				// Block is valid
+				this.timeValidBlockLastReceived = NTP.getTime();
+
+				// Save transactions attached to this block
+				for (Transaction transaction : newBlock.getTransactions()) {
+					TransactionData transactionData = transaction.getTransactionData();
+					repository.getTransactionRepository().save(transactionData);
+				}
+
+				newBlock.process();
+
+				LOGGER.trace(String.format("Processed block height %d, sig %.8s", newBlock.getBlockData().getHeight(), Base58.encode(newBlock.getBlockData().getSignature())));
+
+				repository.saveChanges();
+
+				processingNanos += System.nanoTime() - processingStart;
+				this.blockProcessRate = blocksPerSecond(++processedCount, processingNanos);
+				this.blockFetchRate = pipeline.getFetchRate();
+
+				synchronized (this.syncLock) {
+					if (peer.getChainTipData() != null) {
+						this.blocksRemaining = peer.getChainTipData().getHeight() - newBlock.getBlockData().getHeight();
+					}
+				}
+
+				Controller.getInstance().onNewBlock(newBlock.getBlockData());
 			}
+		}
 
-			// Transactions are transmitted without approval status so determine that now
-			for (Transaction transaction : newBlock.getTransactions())
-				transaction.setInitialApprovalStatus();
+		return SynchronizationResult.OK;
+	}
 
-			newBlock.preProcess();
+	private static Double blocksPerSecond(int blockCount, long nanos) {
+		if (nanos <= 0)
+			return null;
 
-			ValidationResult blockResult = newBlock.isValid();
-			if (blockResult != ValidationResult.OK) {
-				LOGGER.info(String.format("Peer %s sent invalid block for height %d, sig %.8s: %s", peer,
-						ourHeight, Base58.encode(latestPeerSignature), blockResult.name()));
-				this.addInvalidBlockSignature(newBlock.getSignature());
-				this.timeInvalidBlockLastReceived = NTP.getTime();
-				return SynchronizationResult.INVALID_DATA;
+		return blockCount * 1_000_000_000d / nanos;
+	}
+
+	/**
+	 * Fetches blocks in order, keeping a window of outstanding requests.
+	 * <p>
+	 * Requests are spread across our sync peer and other peers that share the same common block,
+	 * falling back to the sync peer if another peer can't supply a block.
+	 * Blocks are handed back in strict request order, so callers can validate and process them as usual.
+	 */
+	private class BlockFetchPipeline implements AutoCloseable {
+		private final Repository repository;
+		private final Peer peer;
+		private final List<Peer> helperPeers;
+		/** Helper peers that failed to supply a block, and so won't be asked again during this sync */
+		private final Set<Peer> skippedHelperPeers = ConcurrentHashMap.newKeySet();
+		private final int windowSize;
+
+		/** Outstanding requests, in signature order */
+		private final Deque<CompletableFuture<Message>> outstandingRequests = new ArrayDeque<>();
+		private final AtomicInteger fetchedCount = new AtomicInteger();
+		private final long startTime = System.nanoTime();
+		private int nextPeerIndex = 0;
+
+		private BlockFetchPipeline(Repository repository, Peer peer, byte[] commonBlockSignature) {
+			this.repository = repository;
+			this.peer = peer;
+			this.windowSize = Math.max(1, Settings.getInstance().getSyncBlockFetchWindowSize());
+
+			// Only spread requests if we're allowed more than one outstanding request
+			this.helperPeers = this.windowSize > 1 ? getPeersSharingCommonBlock(peer, commonBlockSignature) : Collections.emptyList();
+		}
+
+		/** Returns number of outstanding requests */
+		private int size() {
+			return this.outstandingRequests.size();
+		}
+
+		/**
+		 * Requests blocks for the leading <tt>signatures</tt> not yet requested, up to the window size.
+		 * <p>
+		 * Outstanding requests always correspond to the first entries of <tt>signatures</tt>,
+		 * with <tt>signatures.get(0)</tt> being the block at <tt>firstHeight</tt>.
+		 */
+		private void fill(List<byte[]> signatures, int firstHeight) {
+			final int limit = Math.min(this.windowSize, signatures.size());
+
+			for (int i = this.outstandingRequests.size(); i < limit; ++i) {
+				final byte[] signature = signatures.get(i);
+				final Peer fetchPeer = this.chooseFetchPeer(firstHeight + i);
+
+				this.outstandingRequests.add(this.requestBlockFrom(fetchPeer, signature));
 			}
+		}
 
-			// Block is valid
-			this.timeValidBlockLastReceived = NTP.getTime();
+		/** Returns next block in request order, or null if it couldn't be fetched. */
+		private Block take() throws InterruptedException {
+			CompletableFuture<Message> request = this.outstandingRequests.poll();
+			if (request == null)
+				return null;
 
-			// Save transactions attached to this block
-			for (Transaction transaction : newBlock.getTransactions()) {
-				TransactionData transactionData = transaction.getTransactionData();
-				repository.getTransactionRepository().save(transactionData);
+			try {
+				return toBlock(this.repository, request.get());
+			} catch (ExecutionException | CancellationException e) {
+				LOGGER.debug(String.format("Failed to fetch block from peer %s: %s", this.peer, e.getMessage()));
+				return null;
 			}
+		}
 
-			newBlock.process();
+		/** Cancels all outstanding requests. */
+		private void clear() {
+			for (CompletableFuture<Message> request : this.outstandingRequests)
+				request.cancel(false);
 
-			LOGGER.trace(String.format("Processed block height %d, sig %.8s", newBlock.getBlockData().getHeight(), Base58.encode(newBlock.getBlockData().getSignature())));
+			this.outstandingRequests.clear();
+		}
 
-			repository.saveChanges();
+		/** Returns blocks per second fetched so far. */
+		private Double getFetchRate() {
+			return blocksPerSecond(this.fetchedCount.get(), System.nanoTime() - this.startTime);
+		}
 
-			synchronized (this.syncLock) {
-				if (peer.getChainTipData() != null) {
-					this.blocksRemaining = peer.getChainTipData().getHeight() - newBlock.getBlockData().getHeight();
-				}
+		@Override
+		public void close() {
+			this.clear();
+		}
+
+		private Peer chooseFetchPeer(int height) {
+			// Round-robin across our sync peer and any helper peers that claim to have a block at this height
+			final int peerCount = this.helperPeers.size() + 1;
+
+			for (int attempt = 0; attempt < peerCount; ++attempt) {
+				final int index = this.nextPeerIndex++ % peerCount;
+				if (index == 0)
+					return this.peer;
+
+				Peer helperPeer = this.helperPeers.get(index - 1);
+				if (this.skippedHelperPeers.contains(helperPeer))
+					continue;
+
+				BlockSummaryData helperChainTip = helperPeer.getChainTipData();
+				if (helperChainTip != null && helperChainTip.getHeight() >= height)
+					return helperPeer;
 			}
 
-			Controller.getInstance().onNewBlock(newBlock.getBlockData());
+			return this.peer;
 		}
 
-		return SynchronizationResult.OK;
+		/** Requests block from peer, without tying up a thread while waiting for response. */
+		private CompletableFuture<Message> requestBlockFrom(Peer fetchPeer, byte[] signature) {
+			CompletableFuture<Message> request;
+
+			if (fetchPeer == this.peer) {
+				request = requestBlock(this.peer, signature);
+			} else {
+				// Helper peers were only asked opportunistically, so they aren't penalized for failures,
+				// but we don't trust them to send the block we asked for, and stop asking them if they don't.
+				// Either way, we fall back to our sync peer.
+				request = fetchPeer.request(new GetBlockMessage(signature))
+						.thenCompose(message -> {
+							if (isBlockWithSignature(message, signature))
+								return CompletableFuture.completedFuture(message);
+
+							if (this.skippedHelperPeers.add(fetchPeer))
+								LOGGER.debug(String.format("Helper peer %s didn't supply block %s - no longer asking it during this sync", fetchPeer, Base58.encode(signature)));
+
+							return requestBlock(this.peer, signature);
+						});
+			}
+
+			return request.thenApply(message -> {
+				if (message != null)
+					this.fetchedCount.incrementAndGet();
+
+				return message;
+			});
+		}
+	}
+
+	private List<Peer> getPeersSharingCommonBlock(Peer peer, byte[] commonBlockSignature) {
+		return Network.getInstance().getImmutableHandshakedPeers().stream()
+				.filter(otherPeer -> otherPeer != peer)
+				.filter(otherPeer -> {
+					CommonBlockData commonBlockData = otherPeer.getCommonBlockData();
+					return commonBlockData != null && commonBlockData.getCommonBlockSummary() != null
+							&& Arrays.equals(commonBlockData.getCommonBlockSummary().getSignature(), commonBlockSignature);
+				})
+				.collect(Collectors.toList());
 	}
 
 	private List<BlockSummaryData> getBlockSummaries(Peer peer, byte[] parentSignature, int numberRequested) throws InterruptedException {
@@ -1612,10 +1828,20 @@ public class Synchronizer extends Thread {
 		return signaturesMessage.getSignatures();
 	}
 
-	private Block fetchBlock(Repository repository, Peer peer, byte[] signature) throws InterruptedException {
+	/**
+	 * Requests block from our sync peer, returning future block response message, or null if no valid response.
+	 * <p>
+	 * Failures count towards marking sync peer as misbehaved.
+	 * No thread is tied up while waiting for response.
+	 */
+	private CompletableFuture<Message> requestBlock(Peer peer, byte[] signature) {
 		Message getBlockMessage = new GetBlockMessage(signature);
 
-		Message message = peer.getResponse(getBlockMessage);
+		return peer.request(getBlockMessage).thenApply(message -> checkBlockResponse(peer, message));
+	}
+
+	/** Updates peer's failed sync count depending on <tt>message</tt>, returning <tt>message</tt> if it's a block response. */
+	private Message checkBlockResponse(Peer peer, Message message) {
 		if (message == null) {
 			peer.getPeerData().incrementFailedSyncCount();
 			if (peer.getPeerData().getFailedSyncCount() >= MAX_CONSECUTIVE_FAILED_SYNC_ATTEMPTS) {
@@ -1631,6 +1857,37 @@ public class Synchronizer extends Thread {
 		// at a later stage. For now we are only defending against serialization errors or no responses.
 		peer.getPeerData().setFailedSyncCount(0);
 
+		switch (message.getType()) {
+			case BLOCK:
+			case BLOCK_V2:
+				return message;
+
+			default:
+				return null;
+		}
+	}
+
+	/** Returns whether <tt>message</tt> is a block response containing block with <tt>signature</tt>. */
+	private static boolean isBlockWithSignature(Message message, byte[] signature) {
+		if (message == null)
+			return false;
+
+		switch (message.getType()) {
+			case BLOCK:
+				return Arrays.equals(((BlockMessage) message).getBlockData().getSignature(), signature);
+
+			case BLOCK_V2:
+				return Arrays.equals(((BlockV2Message) message).getBlockData().getSignature(), signature);
+
+			default:
+				return false;
+		}
+	}
+
+	private static Block toBlock(Repository repository, Message message) {
+		if (message == null)
+			return null;
+
 		switch (message.getType()) {
 			case BLOCK: {
 				BlockMessage blockMessage = (BlockMessage) message;
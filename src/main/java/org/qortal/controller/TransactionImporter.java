@@ -144,6 +144,9 @@ public class TransactionImporter extends Thread {
             // We need the latest block in order to check for expired transactions
             BlockData latestBlock = Controller.getInstance().getChainTip();
 
+            // Transactions whose signatures still need validating, verified as a batch below
+            List<Transaction> transactionsToValidate = new ArrayList<>();
+
             // Signature validation round - does not require blockchain lock
             for (Map.Entry<TransactionData, Boolean> transactionEntry : incomingTransactionsCopy.entrySet()) {
                 // Quick exit?
@@ -180,36 +183,55 @@ public class TransactionImporter extends Thread {
                         continue;
                     }
 
-                    if (!transaction.isSignatureValid()) {
-                        LOGGER.debug("Ignoring {} transaction {} with invalid signature", transactionData.getType().name(), signature58);
-                        removeIncomingTransaction(transactionData.getSignature());
-
-                        // Also add to invalidIncomingTransactions map
-                        now = NTP.getTime();
-                        if (now != null) {
-                            Long expiry = now + INVALID_TRANSACTION_RECHECK_INTERVAL;
-                            LOGGER.trace("Adding invalid transaction {} to invalidUnconfirmedTransactions...", signature58);
-                            // Add to invalidUnconfirmedTransactions so that we don't keep requesting it
-                            invalidUnconfirmedTransactions.put(signature58, expiry);
-                        }
+                    transactionsToValidate.add(transaction);
+                    continue;
+                }
 
-                        // We're done with this transaction
-                        continue;
-                    }
+                LOGGER.trace(() -> String.format("Transaction %s known to have valid signature", Base58.encode(transactionData.getSignature())));
+
+                // Signature valid - add to shortlist
+                sigValidTransactions.add(transaction);
+            }
+
+            // Verify all outstanding signatures in one batch, spread across cores
+            boolean[] areSignaturesValid = Transaction.areSignaturesValid(transactionsToValidate);
 
-                    // Count the number that were validated in this round, for logging purposes
-                    validatedCount++;
+            for (int i = 0; i < transactionsToValidate.size(); ++i) {
+                // Quick exit?
+                if (isStopping) {
+                    return;
+                }
 
-                    // Add mark signature as valid if transaction still exists in import queue
-                    incomingTransactions.computeIfPresent(transactionData, (k, v) -> Boolean.TRUE);
+                Transaction transaction = transactionsToValidate.get(i);
+                TransactionData transactionData = transaction.getTransactionData();
 
-                    // Signature validated in this round
-                    newlyValidSignatures.add(transactionData.getSignature());
+                if (!areSignaturesValid[i]) {
+                    String signature58 = Base58.encode(transactionData.getSignature());
+                    LOGGER.debug("Ignoring {} transaction {} with invalid signature", transactionData.getType().name(), signature58);
+                    removeIncomingTransaction(transactionData.getSignature());
 
-                } else {
-                    LOGGER.trace(() -> String.format("Transaction %s known to have valid signature", Base58.encode(transactionData.getSignature())));
+                    // Also add to invalidIncomingTransactions map
+                    Long now = NTP.getTime();
+                    if (now != null) {
+                        Long expiry = now + INVALID_TRANSACTION_RECHECK_INTERVAL;
+                        LOGGER.trace("Adding invalid transaction {} to invalidUnconfirmedTransactions...", signature58);
+                        // Add to invalidUnconfirmedTransactions so that we don't keep requesting it
+                        invalidUnconfirmedTransactions.put(signature58, expiry);
+                    }
+
+                    // We're done with this transaction
+                    continue;
                 }
 
+                // Count the number that were validated in this round, for logging purposes
+                validatedCount++;
+
+                // Add mark signature as valid if transaction still exists in import queue
+                incomingTransactions.computeIfPresent(transactionData, (k, v) -> Boolean.TRUE);
+
+                // Signature validated in this round
+                newlyValidSignatures.add(transactionData.getSignature());
+
                 // Signature valid - add to shortlist
                 sigValidTransactions.add(transaction);
             }
@@ -0,0 +1,592 @@
+package org.qortal.controller.arbitrary;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.arbitrary.ArbitraryDataBuildQueueItem;
+import org.qortal.arbitrary.ArbitraryDataFile.ResourceIdType;
+import org.qortal.arbitrary.ArbitraryDataResource;
+import org.qortal.arbitrary.misc.Service;
+import org.qortal.settings.Settings;
+import org.qortal.utils.FilesystemUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Size limit and access statistics for built resources in the reader cache (<tt>{tempDataPath}/reader</tt>).
+ * <p>
+ * Each build is recorded along with its size, and each time it is served we record when and how often.
+ * When the total size of all builds goes over <tt>builtDataCacheMaxSize</tt>, builds are deleted
+ * according to <tt>builtDataCacheEvictionPolicy</tt> until it is back under the limit. Deleted builds
+ * are simply rebuilt the next time they are requested.
+ * <p>
+ * Access statistics are saved to disk, so that the most requested resources can be rebuilt
+ * in the background after a restart, if they are no longer cached.
+ */
+public class ArbitraryDataBuildCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataBuildCache.class);
+
+    public enum EvictionPolicy {
+        /** Least recently used first */
+        LRU,
+        /** Least frequently used first, then least recently used */
+        LFU
+    }
+
+    private static final String STATS_FILENAME = ".build-cache";
+    private static final String STATS_HEADER = "qortal-build-cache\t1";
+
+    /** Builds served this recently may still be in use, so aren't evicted */
+    private static final long MIN_EVICTION_AGE = 2 * 60 * 1000L; // ms
+
+    /** Maximum number of resources to keep access statistics for, when not built */
+    private static final int MAX_UNBUILT_ENTRIES = 1000;
+
+    /** Priority of warm-up builds, so that they don't hold up anything requested by a user */
+    private static final int WARM_UP_PRIORITY = 0;
+
+    public static class CachedResource {
+        private final String key;
+        private ResourceIdType resourceIdType;
+        private String resourceId;
+        private Service service;
+        private String identifier;
+
+        private boolean isBuilt;
+        private long bytes;
+        private long lastAccessed;
+        private long accessCount;
+
+        private CachedResource(String key) {
+            this.key = key;
+        }
+
+        private void setResource(ArbitraryDataResource resource) {
+            if (resource == null) {
+                return;
+            }
+            this.resourceIdType = resource.getResourceIdType();
+            this.resourceId = resource.getResourceId();
+            this.service = resource.getService();
+            this.identifier = resource.getIdentifier();
+        }
+
+        private boolean hasResource() {
+            return this.resourceIdType != null && this.resourceId != null && this.service != null;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public ResourceIdType getResourceIdType() {
+            return this.resourceIdType;
+        }
+
+        public String getResourceId() {
+            return this.resourceId;
+        }
+
+        public Service getService() {
+            return this.service;
+        }
+
+        public String getIdentifier() {
+            return this.identifier;
+        }
+
+        public boolean isBuilt() {
+            return this.isBuilt;
+        }
+
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        public long getLastAccessed() {
+            return this.lastAccessed;
+        }
+
+        public long getAccessCount() {
+            return this.accessCount;
+        }
+    }
+
+    private static ArbitraryDataBuildCache instance;
+
+    // All below are guarded by this
+    /** Keyed by build's path, relative to reader directory */
+    private final Map<String, CachedResource> entries = new HashMap<>();
+    private long totalBytes = 0L;
+    private long hitCount = 0L;
+    private long missCount = 0L;
+    private long evictionCount = 0L;
+    private boolean isDirty = false;
+
+    public ArbitraryDataBuildCache() {
+    }
+
+    public static synchronized ArbitraryDataBuildCache getInstance() {
+        if (instance == null)
+            instance = new ArbitraryDataBuildCache();
+
+        return instance;
+    }
+
+    public static Path getReaderPath() {
+        return Paths.get(Settings.getInstance().getTempDataPath(), "reader");
+    }
+
+    public static Path getStatsPath() {
+        return Paths.get(Settings.getInstance().getTempDataPath(), "reader", STATS_FILENAME);
+    }
+
+    /**
+     * Records that built resource at <tt>path</tt> was served from the cache.
+     */
+    public void recordHit(ArbitraryDataResource resource, Path path, long now) {
+        String key = keyForPath(path);
+        if (key == null) {
+            return;
+        }
+
+        boolean needsMeasuring;
+        synchronized (this) {
+            CachedResource entry = this.getOrCreateEntry(key, resource);
+            entry.accessCount++;
+            entry.lastAccessed = now;
+            this.hitCount++;
+            this.isDirty = true;
+
+            // Built before we were tracking it
+            needsMeasuring = !entry.isBuilt;
+        }
+
+        if (needsMeasuring) {
+            this.recordSize(key, measure(path));
+        }
+    }
+
+    /**
+     * Records that resource at <tt>path</tt> was requested, but needs building first.
+     */
+    public void recordMiss(ArbitraryDataResource resource, Path path, long now) {
+        String key = keyForPath(path);
+        if (key == null) {
+            return;
+        }
+
+        synchronized (this) {
+            CachedResource entry = this.getOrCreateEntry(key, resource);
+            entry.accessCount++;
+            entry.lastAccessed = now;
+            this.missCount++;
+            this.isDirty = true;
+        }
+    }
+
+    /**
+     * Records newly built resource at <tt>path</tt>, evicting other builds if the cache is now too large.
+     */
+    public void recordBuild(ArbitraryDataResource resource, Path path, long now) {
+        String key = keyForPath(path);
+        if (key == null) {
+            return;
+        }
+
+        long bytes = measure(path);
+        synchronized (this) {
+            CachedResource entry = this.getOrCreateEntry(key, resource);
+            entry.lastAccessed = Math.max(entry.lastAccessed, now);
+            this.setSize(entry, bytes);
+        }
+
+        this.evict(now);
+    }
+
+    /**
+     * Records that built resource at <tt>path</tt> has been deleted.
+     */
+    public void recordRemoval(Path path) {
+        String key = keyForPath(path);
+        if (key == null) {
+            return;
+        }
+
+        synchronized (this) {
+            CachedResource entry = this.entries.get(key);
+            if (entry != null) {
+                this.setUnbuilt(entry);
+            }
+        }
+    }
+
+    /**
+     * Deletes builds, according to eviction policy, until the cache is within its size limit.
+     * Builds that are queued, or have been served very recently, are left alone.
+     *
+     * @return number of builds deleted
+     */
+    public int evict(long now) {
+        long maxBytes = Settings.getInstance().getBuiltDataCacheMaxSize();
+
+        List<CachedResource> candidates;
+        synchronized (this) {
+            if (this.totalBytes <= maxBytes) {
+                return 0;
+            }
+
+            candidates = this.entries.values().stream()
+                    .filter(entry -> entry.isBuilt && entry.lastAccessed < now - MIN_EVICTION_AGE)
+                    .sorted(getComparator(Settings.getInstance().getBuiltDataCacheEvictionPolicy()))
+                    .collect(Collectors.toList());
+        }
+
+        ArbitraryDataBuildManager buildManager = ArbitraryDataBuildManager.getInstance();
+        int evictedCount = 0;
+
+        for (CachedResource candidate : candidates) {
+            synchronized (this) {
+                if (this.totalBytes <= maxBytes) {
+                    break;
+                }
+                // Might have been served since we started
+                if (!candidate.isBuilt || candidate.lastAccessed >= now - MIN_EVICTION_AGE) {
+                    continue;
+                }
+            }
+
+            if (candidate.hasResource() && buildManager.isInBuildQueue(new ArbitraryDataBuildQueueItem(
+                    candidate.resourceId, candidate.resourceIdType, candidate.service, candidate.identifier))) {
+                continue;
+            }
+
+            Path path = getReaderPath().resolve(candidate.key);
+            try {
+                FilesystemUtils.safeDeleteDirectory(path, true);
+            } catch (IOException e) {
+                LOGGER.debug("Unable to evict build {} from cache: {}", candidate.key, e.getMessage());
+                continue;
+            }
+
+            LOGGER.debug("Evicted build {} ({} bytes) from cache", candidate.key, candidate.bytes);
+            synchronized (this) {
+                this.setUnbuilt(candidate);
+                this.evictionCount++;
+            }
+            evictedCount++;
+        }
+
+        return evictedCount;
+    }
+
+    /**
+     * Updates cache with builds that are actually on disk, e.g. after a restart,
+     * or after builds have expired, then evicts if necessary.
+     */
+    public void reconcile(long now) {
+        Path readerPath = getReaderPath();
+        Map<String, Long> measuredBytes = new HashMap<>();
+        Map<String, Long> lastModified = new HashMap<>();
+
+        // Builds are in reader/<resourceIdType>/<resourceId>/<service>/<identifier>
+        for (File typeDirectory : listDirectories(readerPath.toFile())) {
+            for (File resourceDirectory : listDirectories(typeDirectory)) {
+                for (File serviceDirectory : listDirectories(resourceDirectory)) {
+                    for (File buildDirectory : listDirectories(serviceDirectory)) {
+                        String key = keyForPath(buildDirectory.toPath());
+                        if (key != null) {
+                            measuredBytes.put(key, measure(buildDirectory.toPath()));
+                            lastModified.put(key, buildDirectory.lastModified());
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            for (CachedResource entry : this.entries.values()) {
+                if (entry.isBuilt && !measuredBytes.containsKey(entry.key)) {
+                    this.setUnbuilt(entry);
+                }
+            }
+
+            for (Map.Entry<String, Long> measured : measuredBytes.entrySet()) {
+                CachedResource entry = this.getOrCreateEntry(measured.getKey(), null);
+                if (entry.lastAccessed == 0L) {
+                    entry.lastAccessed = lastModified.get(measured.getKey());
+                }
+                this.setSize(entry, measured.getValue());
+            }
+
+            this.trimUnbuiltEntries();
+        }
+
+        this.evict(now);
+    }
+
+    /**
+     * Queues background builds of the most requested name-based resources that aren't currently built.
+     *
+     * @return number of builds queued
+     */
+    public int warmUp(int count) {
+        List<CachedResource> mostRequested;
+        synchronized (this) {
+            mostRequested = this.entries.values().stream()
+                    .filter(entry -> !entry.isBuilt && entry.accessCount > 0 && entry.hasResource()
+                            && entry.resourceIdType == ResourceIdType.NAME)
+                    .sorted(Comparator.comparingLong((CachedResource entry) -> entry.accessCount).reversed())
+                    .limit(count)
+                    .collect(Collectors.toList());
+        }
+
+        int queuedCount = 0;
+        for (CachedResource entry : mostRequested) {
+            ArbitraryDataBuildQueueItem queueItem = new ArbitraryDataBuildQueueItem(entry.resourceId, entry.resourceIdType, entry.service, entry.identifier);
+            queueItem.setPriority(WARM_UP_PRIORITY);
+            if (ArbitraryDataBuildManager.getInstance().addToBuildQueue(queueItem)) {
+                queuedCount++;
+            }
+        }
+
+        if (queuedCount > 0) {
+            LOGGER.info("Queued {} frequently requested resources for building", queuedCount);
+        }
+        return queuedCount;
+    }
+
+    /** Loads access statistics from disk, if saved previously. */
+    public boolean load() {
+        Path statsPath = getStatsPath();
+        if (!Files.exists(statsPath)) {
+            return false;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(statsPath, StandardCharsets.UTF_8)) {
+            if (!STATS_HEADER.equals(reader.readLine())) {
+                LOGGER.info("Ignoring build cache statistics with unknown format");
+                return false;
+            }
+
+            synchronized (this) {
+                this.clear();
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // key, lastAccessed, accessCount, then resourceIdType, resourceId, service, identifier if known
+                    String[] fields = line.split("\t", -1);
+
+                    CachedResource entry = this.getOrCreateEntry(fields[0], null);
+                    entry.lastAccessed = Long.parseLong(fields[1]);
+                    entry.accessCount = Long.parseLong(fields[2]);
+                    if (fields.length > 6) {
+                        entry.resourceIdType = ResourceIdType.valueOf(fields[3]);
+                        entry.resourceId = fields[4];
+                        entry.service = Service.valueOf(fields[5]);
+                        entry.identifier = fields[6].isEmpty() ? null : fields[6];
+                    }
+                }
+
+                this.isDirty = false;
+                LOGGER.debug("Loaded build cache statistics for {} resources", this.entries.size());
+            }
+
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Unable to load build cache statistics: {}", e.getMessage());
+            synchronized (this) {
+                this.clear();
+            }
+            return false;
+        }
+    }
+
+    /** Saves access statistics to disk, if they have changed since last saved. */
+    public void save() {
+        List<String> lines;
+
+        synchronized (this) {
+            if (!this.isDirty) {
+                return;
+            }
+
+            lines = new ArrayList<>(this.entries.size() + 1);
+            lines.add(STATS_HEADER);
+
+            for (CachedResource entry : this.entries.values()) {
+                if (entry.hasResource()) {
+                    lines.add(String.format("%s\t%d\t%d\t%s\t%s\t%s\t%s", entry.key, entry.lastAccessed, entry.accessCount,
+                            entry.resourceIdType, entry.resourceId, entry.service, entry.identifier != null ? entry.identifier : ""));
+                } else {
+                    lines.add(String.format("%s\t%d\t%d", entry.key, entry.lastAccessed, entry.accessCount));
+                }
+            }
+
+            this.isDirty = false;
+        }
+
+        // Write to temporary file first, so that we never leave partial statistics behind
+        Path statsPath = getStatsPath();
+        Path newStatsPath = Paths.get(statsPath + ".new");
+        try {
+            Files.createDirectories(statsPath.getParent());
+
+            try (BufferedWriter writer = Files.newBufferedWriter(newStatsPath, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+
+            Files.move(newStatsPath, statsPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.info("Unable to save build cache statistics: {}", e.getMessage());
+            synchronized (this) {
+                this.isDirty = true;
+            }
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    public synchronized int getBuiltCount() {
+        return (int) this.entries.values().stream().filter(entry -> entry.isBuilt).count();
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /** Returns the <tt>count</tt> most requested resources, most requested first. */
+    public synchronized List<CachedResource> getMostRequested(int count) {
+        return this.entries.values().stream()
+                .filter(entry -> entry.accessCount > 0)
+                .sorted(Comparator.comparingLong((CachedResource entry) -> entry.accessCount).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized CachedResource getEntry(Path path) {
+        String key = keyForPath(path);
+        return key != null ? this.entries.get(key) : null;
+    }
+
+    private CachedResource getOrCreateEntry(String key, ArbitraryDataResource resource) {
+        CachedResource entry = this.entries.computeIfAbsent(key, CachedResource::new);
+        if (resource != null && !entry.hasResource()) {
+            entry.setResource(resource);
+        }
+        return entry;
+    }
+
+    private synchronized void recordSize(String key, long bytes) {
+        CachedResource entry = this.entries.get(key);
+        if (entry != null) {
+            this.setSize(entry, bytes);
+        }
+    }
+
+    private void setSize(CachedResource entry, long bytes) {
+        this.totalBytes += bytes - entry.bytes;
+        entry.bytes = bytes;
+        entry.isBuilt = true;
+    }
+
+    private void setUnbuilt(CachedResource entry) {
+        this.totalBytes -= entry.bytes;
+        entry.bytes = 0L;
+        entry.isBuilt = false;
+        this.isDirty = true;
+    }
+
+    /** Forgets about least requested resources that aren't built, so statistics don't grow forever */
+    private void trimUnbuiltEntries() {
+        List<CachedResource> unbuilt = this.entries.values().stream()
+                .filter(entry -> !entry.isBuilt)
+                .sorted(Comparator.comparingLong((CachedResource entry) -> entry.accessCount)
+                        .thenComparingLong(entry -> entry.lastAccessed))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < unbuilt.size() - MAX_UNBUILT_ENTRIES; ++i) {
+            this.entries.remove(unbuilt.get(i).key);
+        }
+    }
+
+    private void clear() {
+        this.entries.clear();
+        this.totalBytes = 0L;
+    }
+
+    private static Comparator<CachedResource> getComparator(EvictionPolicy evictionPolicy) {
+        Comparator<CachedResource> byLastAccessed = Comparator.comparingLong(entry -> entry.lastAccessed);
+
+        switch (evictionPolicy) {
+            case LFU:
+                return Comparator.comparingLong((CachedResource entry) -> entry.accessCount).thenComparing(byLastAccessed);
+
+            case LRU:
+            default:
+                return byLastAccessed;
+        }
+    }
+
+    /** Returns path of build, relative to reader directory, or null if not a build. */
+    private static String keyForPath(Path path) {
+        if (path == null) {
+            return null;
+        }
+
+        Path readerPath = getReaderPath().toAbsolutePath().normalize();
+        Path absolutePath = path.toAbsolutePath().normalize();
+        if (!absolutePath.startsWith(readerPath)) {
+            return null;
+        }
+
+        // Expecting <resourceIdType>/<resourceId>/<service>/<identifier>
+        Path relativePath = readerPath.relativize(absolutePath);
+        if (relativePath.getNameCount() != 4) {
+            return null;
+        }
+
+        return relativePath.toString();
+    }
+
+    private static long measure(Path path) {
+        try {
+            return FileUtils.sizeOfDirectory(path.toFile());
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            // Doesn't exist, or changed while we were measuring it
+            return 0L;
+        }
+    }
+
+    private static File[] listDirectories(File directory) {
+        File[] directories = directory.listFiles(File::isDirectory);
+        return directories != null ? directories : new File[0];
+    }
+
+}
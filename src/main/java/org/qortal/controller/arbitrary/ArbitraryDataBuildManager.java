@@ -3,6 +3,7 @@ package org.qortal.controller.arbitrary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.arbitrary.ArbitraryDataBuildQueueItem;
+import org.qortal.settings.Settings;
 import org.qortal.utils.NTP;
 
 import java.util.Collections;
@@ -17,8 +18,13 @@ public class ArbitraryDataBuildManager extends Thread {
 
     private static ArbitraryDataBuildManager instance;
 
+    private static final long BUILD_CACHE_RECONCILE_INTERVAL = 6 * 60 * 60 * 1000L; // ms
+    private static final long BUILD_CACHE_SAVE_INTERVAL = 10 * 60 * 1000L; // ms
+
     private volatile boolean isStopping = false;
     private boolean buildInProgress = false;
+    private long lastBuildCacheReconcile = 0L;
+    private long lastBuildCacheSave = 0L;
 
     /**
      * Map to keep track of arbitrary transaction resources currently being built (or queued).
@@ -48,14 +54,44 @@ public class ArbitraryDataBuildManager extends Thread {
                 arbitraryDataBuildExecutor.execute(new ArbitraryDataBuilderThread());
             }
 
+            // Find out what's already built, and what was popular last time we were running
+            ArbitraryDataBuildCache buildCache = ArbitraryDataBuildCache.getInstance();
+            buildCache.load();
+            boolean isWarmedUp = false;
+
             while (!isStopping) {
-                // Nothing to do yet
                 Thread.sleep(5000);
+
+                Long now = NTP.getTime();
+                if (now == null) {
+                    // Can't use build queue until we have synced the time
+                    continue;
+                }
+
+                if (!isWarmedUp) {
+                    buildCache.reconcile(now);
+                    buildCache.warmUp(Settings.getInstance().getBuiltDataCacheWarmUpCount());
+                    this.lastBuildCacheReconcile = now;
+                    isWarmedUp = true;
+                }
+
+                // Pick up builds that have expired or been deleted elsewhere
+                if (now - this.lastBuildCacheReconcile > BUILD_CACHE_RECONCILE_INTERVAL) {
+                    buildCache.reconcile(now);
+                    this.lastBuildCacheReconcile = now;
+                }
+
+                if (now - this.lastBuildCacheSave > BUILD_CACHE_SAVE_INTERVAL) {
+                    buildCache.save();
+                    this.lastBuildCacheSave = now;
+                }
             }
 
         } catch (InterruptedException e) {
             // Fall-through to exit thread...
         }
+
+        ArbitraryDataBuildCache.getInstance().save();
     }
 
     public static ArbitraryDataBuildManager getInstance() {
@@ -3,7 +3,10 @@ package org.qortal.controller.arbitrary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.api.resource.TransactionsResource;
+import org.qortal.arbitrary.ArbitraryResourceSearchIndex;
+import org.qortal.arbitrary.ArbitraryResourceSearchIndex.ResourceKey;
 import org.qortal.controller.Controller;
+import org.qortal.arbitrary.misc.Service;
 import org.qortal.data.arbitrary.ArbitraryResourceData;
 import org.qortal.data.transaction.ArbitraryTransactionData;
 import org.qortal.gui.SplashFrame;
@@ -18,6 +21,8 @@ import org.qortal.utils.Base58;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ArbitraryDataCacheManager extends Thread {
 
@@ -29,6 +34,11 @@ public class ArbitraryDataCacheManager extends Thread {
     /** Queue of arbitrary transactions that require cache updates */
     private final List<ArbitraryTransactionData> updateQueue = Collections.synchronizedList(new ArrayList<>());
 
+    /** Resources that require search index updates, e.g. because they were cached elsewhere */
+    private final Set<ResourceKey> searchIndexQueue = ConcurrentHashMap.newKeySet();
+
+    private final ArbitraryResourceSearchIndex searchIndex = ArbitraryResourceSearchIndex.getInstance();
+
 
     public static synchronized ArbitraryDataCacheManager getInstance() {
         if (instance == null) {
@@ -46,8 +56,14 @@ public class ArbitraryDataCacheManager extends Thread {
             while (!Controller.isStopping()) {
                 Thread.sleep(500L);
 
-                // Process queue
+                // (Re)build search index if needed, e.g. on startup or after cache rebuild
+                if (!this.searchIndex.isReady()) {
+                    buildSearchIndex();
+                }
+
+                // Process queues
                 processResourceQueue();
+                processSearchIndexQueue();
             }
         } catch (InterruptedException e) {
             // Fall through to exit thread
@@ -92,6 +108,8 @@ public class ArbitraryDataCacheManager extends Thread {
                     arbitraryTransaction.updateArbitraryResourceStatus(repository);
                     repository.saveChanges();
 
+                    this.updateSearchIndex(repository, transactionData.getService(), transactionData.getName(), transactionData.getIdentifier());
+
                     LOGGER.debug(() -> String.format("Finished processing transaction %.8s in arbitrary resource queue...", Base58.encode(transactionData.getSignature())));
 
                 } catch (DataException e) {
@@ -104,11 +122,88 @@ public class ArbitraryDataCacheManager extends Thread {
         }
     }
 
+    private void processSearchIndexQueue() {
+        if (this.searchIndexQueue.isEmpty()) {
+            // Nothing to do
+            return;
+        }
+
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            for (ResourceKey key : List.copyOf(this.searchIndexQueue)) {
+                this.searchIndexQueue.remove(key);
+
+                this.updateSearchIndex(repository, key.getService(), key.getName(), key.getIdentifier());
+            }
+        } catch (DataException e) {
+            LOGGER.error("Repository issue while updating arbitrary resource search index", e);
+        }
+    }
+
+    /** Brings search index entry for resource into line with resources cache. */
+    private void updateSearchIndex(Repository repository, Service service, String name, String identifier) throws DataException {
+        if (service == null || name == null) {
+            // Not cached, so not indexed either
+            return;
+        }
+
+        // Cache stores null identifiers as "default"
+        ArbitraryResourceData arbitraryResourceData = repository.getArbitraryRepository()
+                .getArbitraryResource(service, name, identifier != null ? identifier : "default");
+
+        if (arbitraryResourceData == null) {
+            this.searchIndex.remove(service, name, identifier);
+        } else {
+            this.searchIndex.put(arbitraryResourceData);
+        }
+    }
+
+    private void buildSearchIndex() {
+        LOGGER.info("Building arbitrary resource search index...");
+        final long startTime = System.currentTimeMillis();
+
+        int generation = this.searchIndex.clear();
+
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            final int batchSize = 1000;
+            ArbitraryResourceData lastResource = null;
+
+            while (!Controller.isStopping()) {
+                // Page by key, rather than offset, so that each batch doesn't need to skip over all previous ones
+                List<ArbitraryResourceData> resources = repository.getArbitraryRepository().getArbitraryResourcesAfter(lastResource, batchSize);
+                if (resources.isEmpty()) {
+                    break;
+                }
+
+                for (ArbitraryResourceData arbitraryResourceData : resources) {
+                    this.searchIndex.put(arbitraryResourceData);
+                }
+                lastResource = resources.get(resources.size() - 1);
+            }
+        } catch (DataException e) {
+            LOGGER.error("Repository issue while building arbitrary resource search index", e);
+            return;
+        }
+
+        if (this.searchIndex.markReady(generation)) {
+            LOGGER.info("Built arbitrary resource search index of {} resources and {} tokens in {}ms",
+                    this.searchIndex.getResourceCount(), this.searchIndex.getTokenCount(), System.currentTimeMillis() - startTime);
+        }
+    }
+
     public void addToUpdateQueue(ArbitraryTransactionData transactionData) {
         this.updateQueue.add(transactionData);
         LOGGER.debug(() -> String.format("Transaction %.8s added to queue", Base58.encode(transactionData.getSignature())));
     }
 
+    /** Queues search index update for resource that has been cached without going through our update queue. */
+    public void addToSearchIndexQueue(ArbitraryTransactionData transactionData) {
+        if (transactionData.getService() == null || transactionData.getName() == null) {
+            return;
+        }
+
+        this.searchIndexQueue.add(new ResourceKey(transactionData.getService(), transactionData.getName(), transactionData.getIdentifier()));
+    }
+
     public boolean needsArbitraryResourcesCacheRebuild(Repository repository) throws DataException {
         // Check if we have an entry in the cache for the oldest ARBITRARY transaction with a name
         List<ArbitraryTransactionData> oldestCacheableTransactions = repository.getArbitraryRepository().getArbitraryTransactions(true, 1, 0, false);
@@ -182,6 +277,9 @@ public class ArbitraryDataCacheManager extends Thread {
             // Now refresh all statuses
             refreshArbitraryStatuses(repository);
 
+            // Search index needs rebuilding to match
+            this.searchIndex.clear();
+
             LOGGER.info("Completed build of arbitrary resources cache.");
             return true;
         }
@@ -3,6 +3,7 @@ package org.qortal.controller.arbitrary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.api.resource.TransactionsResource.ConfirmationStatus;
+import org.qortal.arbitrary.ArbitraryDataChunkStore;
 import org.qortal.data.transaction.ArbitraryTransactionData;
 import org.qortal.data.transaction.TransactionData;
 import org.qortal.repository.DataException;
@@ -51,6 +52,14 @@ public class ArbitraryDataCleanupManager extends Thread {
 	 */
 	private static final int CHUNK_DELETION_BATCH_SIZE = 10;
 
+	/**
+	 * How often to check the chunk store for files no longer referenced by any transaction.
+	 * Most are removed as soon as their last copy is deleted, so this only needs to run occasionally.
+	 */
+	private static final long CHUNK_STORE_PRUNE_INTERVAL = 24 * 60 * 60 * 1000L; // 1 day
+
+	private long lastChunkStorePruneTime = 0L;
+
 
 	/*
 	TODO:
@@ -104,6 +113,15 @@ public class ArbitraryDataCleanupManager extends Thread {
 					this.cleanupTempDirectory(now);
 				}
 
+				// Occasionally remove chunk store entries left behind by deleted directories
+				if (now - this.lastChunkStorePruneTime > CHUNK_STORE_PRUNE_INTERVAL) {
+					this.lastChunkStorePruneTime = now;
+					int prunedCount = ArbitraryDataChunkStore.getInstance().prune();
+					if (prunedCount > 0) {
+						LOGGER.debug("Removed {} unreferenced files from chunk store", prunedCount);
+					}
+				}
+
 				// Any arbitrary transactions we want to fetch data for?
 				try (final Repository repository = RepositoryManager.getRepository()) {
 					List<byte[]> signatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(null, null, null, ARBITRARY_TX_TYPE, null, null, null, ConfirmationStatus.BOTH, limit, offset, true);
@@ -298,7 +316,9 @@ public class ArbitraryDataCleanupManager extends Thread {
 				return;
 			}
 			LOGGER.info("Found path with no associated transaction: {}", expiredPath.toString());
-			this.safeDeleteDirectory(expiredPath.toFile(), "no matching transaction");
+			if (this.safeDeleteDirectory(expiredPath.toFile(), "no matching transaction")) {
+				ArbitraryDataStorageLedger.getInstance().recordDirectoryRemoval(expiredPath);
+			}
 		}
 	}
 
@@ -375,6 +395,14 @@ public class ArbitraryDataCleanupManager extends Thread {
 			if (FilesystemUtils.isChild(randomItem.toPath(), tempDataPath)) {
 				return false;
 			}
+			// Don't delete our record of storage usage
+			if (randomItem.toPath().toAbsolutePath().equals(ArbitraryDataStorageLedger.getLedgerPath().toAbsolutePath())) {
+				return false;
+			}
+			// Chunk store entries are removed once nothing references them
+			if (randomItem.toPath().toAbsolutePath().equals(ArbitraryDataChunkStore.getStorePath().toAbsolutePath())) {
+				return false;
+			}
 			// Make sure it exists
 			if (!randomItem.exists()) {
 				return false;
@@ -423,9 +451,18 @@ public class ArbitraryDataCleanupManager extends Thread {
 					}
 				}
 
+				// Deleting a copy that other transactions still share wouldn't free any space
+				if (ArbitraryDataChunkStore.getInstance().isShared(randomItem.toPath())) {
+					return false;
+				}
+
 				LOGGER.info("Deleting random file {} because we have reached max storage capacity...", randomItem.toString());
+				long bytes = randomItem.length();
 				boolean success = randomItem.delete();
 				if (success) {
+					ArbitraryDataStorageLedger.getInstance().recordFileChange(randomItem.toPath(), -bytes);
+					ArbitraryDataChunkStore.getInstance().release(randomItem.getName());
+
 					try {
 						FilesystemUtils.safeDeleteEmptyParentDirectories(randomItem.toPath().getParent());
 					} catch (IOException e) {
@@ -6,7 +6,6 @@ import org.apache.logging.log4j.Logger;
 import org.qortal.arbitrary.ArbitraryDataFile;
 import org.qortal.controller.Controller;
 import org.qortal.data.arbitrary.ArbitraryDirectConnectionInfo;
-import org.qortal.data.arbitrary.ArbitraryFileListResponseInfo;
 import org.qortal.data.arbitrary.ArbitraryRelayInfo;
 import org.qortal.data.network.PeerData;
 import org.qortal.data.transaction.ArbitraryTransactionData;
@@ -19,10 +18,12 @@ import org.qortal.repository.RepositoryManager;
 import org.qortal.settings.Settings;
 import org.qortal.utils.ArbitraryTransactionUtils;
 import org.qortal.utils.Base58;
+import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.NTP;
 
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
@@ -46,9 +47,20 @@ public class ArbitraryDataFileManager extends Thread {
     public List<ArbitraryRelayInfo> arbitraryRelayMap = Collections.synchronizedList(new ArrayList<>());
 
     /**
-     * List to keep track of any arbitrary data file hash responses
+     * Scheduler for requesting the data files that peers have told us they can supply
      */
-    public final List<ArbitraryFileListResponseInfo> arbitraryDataFileHashResponses = Collections.synchronizedList(new ArrayList<>());
+    private final ArbitraryDataFileRequestScheduler requestScheduler = new ArbitraryDataFileRequestScheduler(
+            new ArbitraryDataFileRequestScheduler.ChunkFetcher() {
+                @Override
+                public boolean isRequesting(String hash58) {
+                    return arbitraryDataFileRequests.containsKey(hash58);
+                }
+
+                @Override
+                public CompletableFuture<Boolean> fetch(Peer peer, String signature58, String hash58) {
+                    return fetchArbitraryDataFile(peer, signature58, hash58);
+                }
+            });
 
     /**
      * List to keep track of peers potentially available for direct connections, based on recent requests
@@ -65,6 +77,12 @@ public class ArbitraryDataFileManager extends Thread {
 
     public static int MAX_FILE_HASH_RESPONSES = 1000;
 
+    /**
+     * Executor for processing data file responses, so that network threads aren't held up,
+     * and no thread is tied up while waiting for responses
+     */
+    private final ExecutorService responseExecutor = Executors.newFixedThreadPool(4, new DaemonThreadFactory("ArbitraryDataFileResponse"));
+
 
     private ArbitraryDataFileManager() {
     }
@@ -81,24 +99,21 @@ public class ArbitraryDataFileManager extends Thread {
         Thread.currentThread().setName("Arbitrary Data File Manager");
 
         try {
-            // Use a fixed thread pool to execute the arbitrary data file requests
-            int threadCount = 5;
-            ExecutorService arbitraryDataFileRequestExecutor = Executors.newFixedThreadPool(threadCount);
-            for (int i = 0; i < threadCount; i++) {
-                arbitraryDataFileRequestExecutor.execute(new ArbitraryDataFileRequestThread());
-            }
-
-            while (!isStopping) {
-                // Nothing to do yet
-                Thread.sleep(1000);
-            }
+            // Requests are dispatched as file hash responses arrive, and completed asynchronously
+            this.requestScheduler.processRequests();
         } catch (InterruptedException e) {
             // Fall-through to exit thread...
         }
     }
 
+    public ArbitraryDataFileRequestScheduler getRequestScheduler() {
+        return this.requestScheduler;
+    }
+
     public void shutdown() {
         isStopping = true;
+        this.requestScheduler.shutdown();
+        this.responseExecutor.shutdownNow();
         this.interrupt();
     }
 
@@ -112,7 +127,7 @@ public class ArbitraryDataFileManager extends Thread {
 
         final long relayMinimumTimestamp = now - ArbitraryDataManager.getInstance().ARBITRARY_RELAY_TIMEOUT;
         arbitraryRelayMap.removeIf(entry -> entry == null || entry.getTimestamp() == null || entry.getTimestamp() < relayMinimumTimestamp);
-        arbitraryDataFileHashResponses.removeIf(entry -> entry.getTimestamp() < relayMinimumTimestamp);
+        requestScheduler.cleanup(relayMinimumTimestamp, now);
 
         final long directConnectionInfoMinimumTimestamp = now - ArbitraryDataManager.getInstance().ARBITRARY_DIRECT_CONNECTION_INFO_TIMEOUT;
         directConnectionInfo.removeIf(entry -> entry.getTimestamp() < directConnectionInfoMinimumTimestamp);
@@ -125,112 +140,117 @@ public class ArbitraryDataFileManager extends Thread {
 
     // Fetch data files by hash
 
-    public boolean fetchArbitraryDataFiles(Repository repository,
-                                           Peer peer,
-                                           byte[] signature,
-                                           ArbitraryTransactionData arbitraryTransactionData,
-                                           List<byte[]> hashes) throws DataException {
+    /**
+     * Requests a single data file from peer, as scheduled by <tt>requestScheduler</tt>.
+     *
+     * @return future that completes with true if we now have the file
+     */
+    private CompletableFuture<Boolean> fetchArbitraryDataFile(Peer peer, String signature58, String hash58) {
+        if (isStopping) {
+            return CompletableFuture.completedFuture(false);
+        }
 
-        // Load data file(s)
-        ArbitraryDataFile arbitraryDataFile = ArbitraryDataFile.fromTransactionData(arbitraryTransactionData);
-        boolean receivedAtLeastOneFile = false;
+        byte[] signature = Base58.decode(signature58);
+        byte[] hash = Base58.decode(hash58);
 
-        // Now fetch actual data from this peer
-        for (byte[] hash : hashes) {
-            if (isStopping) {
-                return false;
+        try {
+            // Fetch the transaction data
+            ArbitraryTransactionData arbitraryTransactionData;
+            try (final Repository repository = RepositoryManager.getRepository()) {
+                arbitraryTransactionData = ArbitraryTransactionUtils.fetchTransactionData(repository, signature);
+            }
+            if (arbitraryTransactionData == null) {
+                return CompletableFuture.completedFuture(false);
             }
-            String hash58 = Base58.encode(hash);
-            if (!arbitraryDataFile.chunkExists(hash)) {
-                // Only request the file if we aren't already requesting it from someone else
-                if (!arbitraryDataFileRequests.containsKey(Base58.encode(hash))) {
-                    LOGGER.debug("Requesting data file {} from peer {}", hash58, peer);
-                    Long startTime = NTP.getTime();
-                    ArbitraryDataFile receivedArbitraryDataFile = fetchArbitraryDataFile(peer, null, arbitraryTransactionData, signature, hash, null);
-                    Long endTime = NTP.getTime();
-                    if (receivedArbitraryDataFile != null) {
-                        LOGGER.debug("Received data file {} from peer {}. Time taken: {} ms", receivedArbitraryDataFile.getHash58(), peer, (endTime-startTime));
-                        receivedAtLeastOneFile = true;
-
-                        // Remove this hash from arbitraryDataFileHashResponses now that we have received it
-                        arbitraryDataFileHashResponses.remove(hash58);
-                    }
-                    else {
-                        LOGGER.debug("Peer {} didn't respond with data file {} for signature {}. Time taken: {} ms", peer, Base58.encode(hash), Base58.encode(signature), (endTime-startTime));
 
-                        // Remove this hash from arbitraryDataFileHashResponses now that we have failed to receive it
-                        arbitraryDataFileHashResponses.remove(hash58);
+            LOGGER.debug("Requesting data file {} from peer {}", hash58, peer);
+            final long startTime = System.currentTimeMillis();
 
-                        // Stop asking for files from this peer
-                        break;
-                    }
-                }
-                else {
-                    LOGGER.trace("Already requesting data file {} for signature {} from peer {}", arbitraryDataFile, Base58.encode(signature), peer);
-                }
-            }
-            else {
-                // Remove this hash from arbitraryDataFileHashResponses because we have a local copy
-                arbitraryDataFileHashResponses.remove(hash58);
-            }
+            return requestArbitraryDataFile(peer, null, arbitraryTransactionData, signature, hash, null)
+                    .thenApply(receivedArbitraryDataFile -> {
+                        long timeTaken = System.currentTimeMillis() - startTime;
+                        if (receivedArbitraryDataFile == null) {
+                            LOGGER.debug("Peer {} didn't respond with data file {} for signature {}. Time taken: {} ms", peer, hash58, signature58, timeTaken);
+                            return false;
+                        }
+
+                        LOGGER.debug("Received data file {} from peer {}. Time taken: {} ms", hash58, peer, timeTaken);
+                        this.onArbitraryDataFileFetched(arbitraryTransactionData);
+                        return true;
+                    });
+
+        } catch (DataException e) {
+            LOGGER.debug("Unable to fetch data file {}: {}", hash58, e.getMessage());
+            return CompletableFuture.completedFuture(false);
         }
+    }
 
-        if (receivedAtLeastOneFile) {
-            // Invalidate the hosted transactions cache as we are now hosting something new
-            ArbitraryDataStorageManager.getInstance().invalidateHostedTransactionsCache();
+    private void onArbitraryDataFileFetched(ArbitraryTransactionData arbitraryTransactionData) {
+        // Invalidate the hosted transactions cache as we are now hosting something new
+        ArbitraryDataStorageManager.getInstance().invalidateHostedTransactionsCache();
 
+        try {
             // Check if we have all the files we need for this transaction
+            ArbitraryDataFile arbitraryDataFile = ArbitraryDataFile.fromTransactionData(arbitraryTransactionData);
             if (arbitraryDataFile.allFilesExist()) {
 
                 // We have all the chunks for this transaction, so we should invalidate the transaction's name's
                 // data cache so that it is rebuilt the next time we serve it
                 ArbitraryDataManager.getInstance().invalidateCache(arbitraryTransactionData);
             }
+        } catch (DataException e) {
+            LOGGER.debug("Unable to check for remaining data files: {}", e.getMessage());
         }
-
-        return receivedAtLeastOneFile;
     }
 
-    private ArbitraryDataFile fetchArbitraryDataFile(Peer peer, Peer requestingPeer, ArbitraryTransactionData arbitraryTransactionData, byte[] signature, byte[] hash, Message originalMessage) throws DataException {
+    /**
+     * Requests data file from peer, if we don't already have it, without tying up a thread while waiting for the response.
+     * <p>
+     * Response is processed using <tt>responseExecutor</tt>.
+     *
+     * @return future data file, or <tt>null</tt> if peer didn't supply a valid one
+     */
+    private CompletableFuture<ArbitraryDataFile> requestArbitraryDataFile(Peer peer, Peer requestingPeer, ArbitraryTransactionData arbitraryTransactionData, byte[] signature, byte[] hash, Message originalMessage) throws DataException {
         ArbitraryDataFile existingFile = ArbitraryDataFile.fromHash(hash, signature);
-        boolean fileAlreadyExists = existingFile.exists();
         String hash58 = Base58.encode(hash);
-        ArbitraryDataFile arbitraryDataFile;
-
-        // Fetch the file if it doesn't exist locally
-        if (!fileAlreadyExists) {
-            LOGGER.debug(String.format("Fetching data file %.8s from peer %s", hash58, peer));
-            arbitraryDataFileRequests.put(hash58, NTP.getTime());
-            Message getArbitraryDataFileMessage = new GetArbitraryDataFileMessage(signature, hash);
-
-            Message response = null;
-            try {
-                response = peer.getResponseWithTimeout(getArbitraryDataFileMessage, (int) ArbitraryDataManager.ARBITRARY_REQUEST_TIMEOUT);
-            } catch (InterruptedException e) {
-                // Will return below due to null response
-            }
-            arbitraryDataFileRequests.remove(hash58);
-            LOGGER.trace(String.format("Removed hash %.8s from arbitraryDataFileRequests", hash58));
-
-            // We may need to remove the file list request, if we have all the files for this transaction
-            this.handleFileListRequests(signature);
 
-            if (response == null) {
-                LOGGER.debug("Received null response from peer {}", peer);
-                return null;
-            }
-            if (response.getType() != MessageType.ARBITRARY_DATA_FILE) {
-                LOGGER.debug("Received response with invalid type: {} from peer {}", response.getType(), peer);
-                return null;
-            }
-
-            ArbitraryDataFileMessage peersArbitraryDataFileMessage = (ArbitraryDataFileMessage) response;
-            arbitraryDataFile = peersArbitraryDataFileMessage.getArbitraryDataFile();
-        } else {
+        // Relayed files aren't kept, so only link our own requests from the chunk store
+        if (existingFile.exists() || (requestingPeer == null && existingFile.linkFromChunkStore())) {
             LOGGER.debug(String.format("File hash %s already exists, so skipping the request", hash58));
-            arbitraryDataFile = existingFile;
+            return CompletableFuture.completedFuture(onArbitraryDataFileReceived(requestingPeer, arbitraryTransactionData, signature, hash, originalMessage, existingFile, true));
         }
 
+        // Fetch the file as it doesn't exist locally
+        LOGGER.debug(String.format("Fetching data file %.8s from peer %s", hash58, peer));
+        arbitraryDataFileRequests.put(hash58, NTP.getTime());
+        Message getArbitraryDataFileMessage = new GetArbitraryDataFileMessage(signature, hash);
+
+        return peer.request(getArbitraryDataFileMessage, (int) ArbitraryDataManager.ARBITRARY_REQUEST_TIMEOUT)
+                .thenApplyAsync(response -> {
+                    arbitraryDataFileRequests.remove(hash58);
+                    LOGGER.trace(String.format("Removed hash %.8s from arbitraryDataFileRequests", hash58));
+
+                    // We may need to remove the file list request, if we have all the files for this transaction
+                    this.handleFileListRequests(signature);
+
+                    if (response == null) {
+                        LOGGER.debug("Received null response from peer {}", peer);
+                        return null;
+                    }
+                    if (response.getType() != MessageType.ARBITRARY_DATA_FILE) {
+                        LOGGER.debug("Received response with invalid type: {} from peer {}", response.getType(), peer);
+                        return null;
+                    }
+
+                    ArbitraryDataFileMessage peersArbitraryDataFileMessage = (ArbitraryDataFileMessage) response;
+                    ArbitraryDataFile arbitraryDataFile = peersArbitraryDataFileMessage.getArbitraryDataFile();
+
+                    return onArbitraryDataFileReceived(requestingPeer, arbitraryTransactionData, signature, hash, originalMessage, arbitraryDataFile, false);
+                }, this.responseExecutor);
+    }
+
+    private ArbitraryDataFile onArbitraryDataFileReceived(Peer requestingPeer, ArbitraryTransactionData arbitraryTransactionData, byte[] signature, byte[] hash,
+                                                          Message originalMessage, ArbitraryDataFile arbitraryDataFile, boolean fileAlreadyExists) {
         if (arbitraryDataFile == null) {
             // We don't have a file, so give up here
             return null;
@@ -594,7 +614,7 @@ public class ArbitraryDataFileManager extends Thread {
                     LOGGER.debug("Asking peer {} for hash {}", peerToAsk, hash58);
                     // No need to pass arbitraryTransactionData below because this is only used for metadata caching,
                     // and metadata isn't retained when relaying.
-                    this.fetchArbitraryDataFile(peerToAsk, peer, null, signature, hash, message);
+                    this.requestArbitraryDataFile(peerToAsk, peer, null, signature, hash, message);
                 }
                 else {
                     LOGGER.debug("Peer {} not found in relay info", peer);
@@ -0,0 +1,398 @@
+package org.qortal.controller.arbitrary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.data.arbitrary.ArbitraryFileListResponseInfo;
+import org.qortal.network.Peer;
+import org.qortal.utils.NTP;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Schedules requests for data files (chunks) that peers have told us they can supply.
+ * <p>
+ * Pending chunks are grouped by resource (transaction signature), and resources take turns
+ * so that one large resource can't starve the others. Each chunk is requested from the
+ * available peer with the fewest hops and lowest observed latency, with a limit on how many
+ * requests each peer has in flight, and overall.
+ * <p>
+ * {@link #processRequests()} waits to be signalled whenever new file hash responses arrive,
+ * or a request completes, rather than polling.
+ */
+public class ArbitraryDataFileRequestScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataFileRequestScheduler.class);
+
+    /** Maximum number of chunk requests in flight to any one peer */
+    public static final int MAX_IN_FLIGHT_PER_PEER = 4;
+    /** Maximum number of chunk requests in flight overall */
+    public static final int MAX_IN_FLIGHT = 24;
+
+    /** Weight given to newest latency sample in peer's moving average */
+    private static final double LATENCY_SMOOTHING = 0.25;
+    /** How long to keep latency stats for peers we haven't requested from (ms) */
+    private static final long PEER_STATS_TIMEOUT = 60 * 60 * 1000L;
+    /** How long to wait for a signal before re-checking pending chunks anyway (ms) */
+    private static final long IDLE_WAIT = 5000L;
+
+    public interface ChunkFetcher {
+        /** Returns true if chunk is already being requested by something other than this scheduler */
+        boolean isRequesting(String hash58);
+
+        /** Requests chunk from peer, completing with true if the chunk was received */
+        CompletableFuture<Boolean> fetch(Peer peer, String signature58, String hash58);
+    }
+
+    private static class PendingChunk {
+        private final String hash58;
+        /** Peers that can supply this chunk, keyed by peer */
+        private final Map<Peer, ArbitraryFileListResponseInfo> responses = new LinkedHashMap<>();
+
+        private PendingChunk(String hash58) {
+            this.hash58 = hash58;
+        }
+    }
+
+    private static class PeerStats {
+        private final String peerAddress;
+        private int inFlight;
+        /** Moving average of response time in ms, or null if not yet known */
+        private Double latency;
+        private long lastRequestTime;
+        private long requestCount;
+        private long failureCount;
+
+        private PeerStats(String peerAddress) {
+            this.peerAddress = peerAddress;
+        }
+    }
+
+    public static class PeerSummary {
+        private final String peer;
+        private final int inFlight;
+        private final Long averageLatency;
+        private final long requestCount;
+        private final long failureCount;
+
+        private PeerSummary(PeerStats stats) {
+            this.peer = stats.peerAddress;
+            this.inFlight = stats.inFlight;
+            this.averageLatency = stats.latency != null ? Math.round(stats.latency) : null;
+            this.requestCount = stats.requestCount;
+            this.failureCount = stats.failureCount;
+        }
+
+        public String getPeer() {
+            return this.peer;
+        }
+
+        public int getInFlight() {
+            return this.inFlight;
+        }
+
+        public Long getAverageLatency() {
+            return this.averageLatency;
+        }
+
+        public long getRequestCount() {
+            return this.requestCount;
+        }
+
+        public long getFailureCount() {
+            return this.failureCount;
+        }
+    }
+
+    private static class Dispatch {
+        private final String signature58;
+        private final PendingChunk chunk;
+        private final ArbitraryFileListResponseInfo response;
+
+        private Dispatch(String signature58, PendingChunk chunk, ArbitraryFileListResponseInfo response) {
+            this.signature58 = signature58;
+            this.chunk = chunk;
+            this.response = response;
+        }
+    }
+
+    private final ChunkFetcher fetcher;
+
+    // All of the below are guarded by 'this'
+
+    /** Pending chunks, grouped by signature58 in the order in which resources take turns */
+    private final LinkedHashMap<String, LinkedHashMap<String, PendingChunk>> pendingResources = new LinkedHashMap<>();
+    /** Hash58s of chunks requested by us and not yet completed */
+    private final Set<String> inFlightHashes = new HashSet<>();
+    /** Stats keyed by peer address, so they survive reconnections */
+    private final Map<String, PeerStats> peerStats = new HashMap<>();
+    private int responseCount = 0;
+    private boolean isStopping = false;
+
+    public ArbitraryDataFileRequestScheduler(ChunkFetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /** Adds a peer's claim to have a chunk, waking the scheduler if necessary. */
+    public synchronized void addResponse(ArbitraryFileListResponseInfo responseInfo) {
+        if (responseInfo == null || !responseInfo.isValid()) {
+            return;
+        }
+
+        PendingChunk chunk = this.pendingResources
+                .computeIfAbsent(responseInfo.getSignature58(), k -> new LinkedHashMap<>())
+                .computeIfAbsent(responseInfo.getHash58(), PendingChunk::new);
+
+        if (chunk.responses.put(responseInfo.getPeer(), responseInfo) == null) {
+            this.responseCount++;
+        }
+
+        this.notifyAll();
+    }
+
+    /** Returns the number of (chunk, peer) pairs waiting to be requested. */
+    public synchronized int getResponseCount() {
+        return this.responseCount;
+    }
+
+    public synchronized int getPendingResourceCount() {
+        return this.pendingResources.size();
+    }
+
+    public synchronized int getPendingChunkCount() {
+        return this.pendingResources.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public synchronized int getInFlightCount() {
+        return this.inFlightHashes.size();
+    }
+
+    public synchronized List<PeerSummary> getPeerSummaries() {
+        List<PeerSummary> summaries = new ArrayList<>();
+        for (PeerStats stats : this.peerStats.values()) {
+            summaries.add(new PeerSummary(stats));
+        }
+
+        summaries.sort(Comparator.comparing(PeerSummary::getPeer));
+        return summaries;
+    }
+
+    /** Discards responses older than <tt>minimumTimestamp</tt>, and stats for peers we haven't used in a while. */
+    public synchronized void cleanup(long minimumTimestamp, long now) {
+        Iterator<LinkedHashMap<String, PendingChunk>> resourceIterator = this.pendingResources.values().iterator();
+        while (resourceIterator.hasNext()) {
+            LinkedHashMap<String, PendingChunk> chunks = resourceIterator.next();
+
+            Iterator<PendingChunk> chunkIterator = chunks.values().iterator();
+            while (chunkIterator.hasNext()) {
+                PendingChunk chunk = chunkIterator.next();
+
+                int sizeBefore = chunk.responses.size();
+                chunk.responses.values().removeIf(response -> response.getTimestamp() < minimumTimestamp);
+                this.responseCount -= sizeBefore - chunk.responses.size();
+
+                if (chunk.responses.isEmpty() && !this.inFlightHashes.contains(chunk.hash58)) {
+                    chunkIterator.remove();
+                }
+            }
+
+            if (chunks.isEmpty()) {
+                resourceIterator.remove();
+            }
+        }
+
+        final long peerStatsMinimumTimestamp = now - PEER_STATS_TIMEOUT;
+        this.peerStats.values().removeIf(stats -> stats.inFlight == 0 && stats.lastRequestTime < peerStatsMinimumTimestamp);
+    }
+
+    /**
+     * Dispatches chunk requests until stopped, waiting to be signalled when there is nothing to do.
+     */
+    public void processRequests() throws InterruptedException {
+        while (true) {
+            List<Dispatch> dispatches;
+
+            synchronized (this) {
+                if (this.isStopping) {
+                    return;
+                }
+
+                dispatches = this.selectRequests();
+
+                if (dispatches.isEmpty()) {
+                    this.wait(IDLE_WAIT);
+                    continue;
+                }
+            }
+
+            for (Dispatch dispatch : dispatches) {
+                this.startRequest(dispatch);
+            }
+        }
+    }
+
+    public synchronized void shutdown() {
+        this.isStopping = true;
+        this.notifyAll();
+    }
+
+    /**
+     * Chooses chunks to request now, and marks them as in flight.
+     * <p>
+     * Each pass over the pending resources takes at most one chunk from each resource,
+     * and a resource that supplied a chunk moves to the back of the queue.
+     */
+    private List<Dispatch> selectRequests() {
+        List<Dispatch> dispatches = new ArrayList<>();
+
+        boolean madeProgress = true;
+        while (madeProgress && this.inFlightHashes.size() < MAX_IN_FLIGHT) {
+            madeProgress = false;
+
+            List<String> signatures = new ArrayList<>(this.pendingResources.keySet());
+            for (String signature58 : signatures) {
+                if (this.inFlightHashes.size() >= MAX_IN_FLIGHT) {
+                    break;
+                }
+
+                Dispatch dispatch = this.selectRequest(signature58);
+                if (dispatch == null) {
+                    continue;
+                }
+
+                // Send resource to back of the queue
+                this.pendingResources.put(signature58, this.pendingResources.remove(signature58));
+
+                this.inFlightHashes.add(dispatch.chunk.hash58);
+                PeerStats stats = this.getPeerStats(dispatch.response.getPeer());
+                stats.inFlight++;
+
+                dispatches.add(dispatch);
+                madeProgress = true;
+            }
+        }
+
+        return dispatches;
+    }
+
+    private Dispatch selectRequest(String signature58) {
+        LinkedHashMap<String, PendingChunk> chunks = this.pendingResources.get(signature58);
+
+        for (PendingChunk chunk : chunks.values()) {
+            if (this.inFlightHashes.contains(chunk.hash58)) {
+                continue;
+            }
+
+            // Leave chunk for later if it's being requested elsewhere
+            if (this.fetcher.isRequesting(chunk.hash58)) {
+                continue;
+            }
+
+            ArbitraryFileListResponseInfo bestResponse = null;
+            for (ArbitraryFileListResponseInfo response : chunk.responses.values()) {
+                if (this.getPeerStats(response.getPeer()).inFlight >= MAX_IN_FLIGHT_PER_PEER) {
+                    continue;
+                }
+
+                if (bestResponse == null || this.compareResponses(response, bestResponse) < 0) {
+                    bestResponse = response;
+                }
+            }
+
+            if (bestResponse != null) {
+                return new Dispatch(signature58, chunk, bestResponse);
+            }
+        }
+
+        return null;
+    }
+
+    /** Orders by lowest number of node hops, then lowest observed latency, then fewest requests in flight. */
+    private int compareResponses(ArbitraryFileListResponseInfo a, ArbitraryFileListResponseInfo b) {
+        int result = Integer.compare(a.getRequestHops(), b.getRequestHops());
+        if (result != 0) {
+            return result;
+        }
+
+        PeerStats aStats = this.getPeerStats(a.getPeer());
+        PeerStats bStats = this.getPeerStats(b.getPeer());
+
+        // Peers we haven't tried yet are given a chance first
+        double aLatency = aStats.latency != null ? aStats.latency : 0;
+        double bLatency = bStats.latency != null ? bStats.latency : 0;
+        result = Double.compare(aLatency, bLatency);
+        if (result != 0) {
+            return result;
+        }
+
+        return Integer.compare(aStats.inFlight, bStats.inFlight);
+    }
+
+    private PeerStats getPeerStats(Peer peer) {
+        return this.peerStats.computeIfAbsent(peer.toString(), PeerStats::new);
+    }
+
+    private void startRequest(Dispatch dispatch) {
+        Peer peer = dispatch.response.getPeer();
+        String hash58 = dispatch.chunk.hash58;
+        final long startTime = System.currentTimeMillis();
+
+        LOGGER.trace("Fetching file {} from peer {} via request scheduler...", hash58, peer);
+
+        CompletableFuture<Boolean> future;
+        try {
+            future = this.fetcher.fetch(peer, dispatch.signature58, hash58);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((received, e) -> {
+            if (e != null) {
+                LOGGER.debug("Unable to fetch file {} from peer {}: {}", hash58, peer, e.getMessage());
+            }
+
+            this.onRequestComplete(dispatch, e == null && Boolean.TRUE.equals(received), System.currentTimeMillis() - startTime);
+        });
+    }
+
+    private synchronized void onRequestComplete(Dispatch dispatch, boolean received, long duration) {
+        this.inFlightHashes.remove(dispatch.chunk.hash58);
+
+        PeerStats stats = this.getPeerStats(dispatch.response.getPeer());
+        stats.inFlight--;
+        stats.requestCount++;
+        stats.lastRequestTime = NTP.getTime() != null ? NTP.getTime() : System.currentTimeMillis();
+
+        // Failures count as a full timeout, so that unresponsive peers are avoided
+        double sample = received ? duration : Math.max(duration, ArbitraryDataManager.ARBITRARY_REQUEST_TIMEOUT);
+        stats.latency = stats.latency == null ? sample : stats.latency + LATENCY_SMOOTHING * (sample - stats.latency);
+        if (!received) {
+            stats.failureCount++;
+        }
+
+        LinkedHashMap<String, PendingChunk> chunks = this.pendingResources.get(dispatch.signature58);
+        PendingChunk chunk = chunks != null ? chunks.get(dispatch.chunk.hash58) : null;
+        if (chunk != null) {
+            if (received) {
+                // Don't need to ask anyone else
+                this.responseCount -= chunk.responses.size();
+                chunk.responses.clear();
+            } else {
+                // Try other peers, if there are any
+                if (chunk.responses.remove(dispatch.response.getPeer()) != null) {
+                    this.responseCount--;
+                }
+            }
+
+            if (chunk.responses.isEmpty()) {
+                chunks.remove(chunk.hash58);
+                if (chunks.isEmpty()) {
+                    this.pendingResources.remove(dispatch.signature58);
+                }
+            }
+        }
+
+        this.notifyAll();
+    }
+
+}
@@ -0,0 +1,620 @@
+package org.qortal.controller.arbitrary;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.arbitrary.ArbitraryDataChunkStore;
+import org.qortal.data.transaction.ArbitraryTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.settings.Settings;
+import org.qortal.utils.Base58;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Running totals of QDN storage usage, per signature and per name, so that storage checks don't need to
+ * walk the data directory.
+ * <p>
+ * Totals are adjusted as hosted files are written and deleted, via {@link #recordFileChange(Path, long)},
+ * and saved to disk periodically, so they survive restarts. They are also reconciled against the filesystem
+ * in the background now and again, to correct any drift caused by changes we didn't see, e.g. files removed
+ * by hand. The temp directory, and other files in the data directory that aren't hosted data, change too often
+ * to be worth tracking, so their sizes are re-measured separately, via {@link #measureUntrackedBytes()}.
+ */
+public class ArbitraryDataStorageLedger {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArbitraryDataStorageLedger.class);
+
+    private static final String LEDGER_FILENAME = ".storage-ledger";
+    private static final String LEDGER_HEADER = "qortal-storage-ledger\t1";
+
+    /** Key for files in the "_misc" directory, which don't have a signature yet */
+    public static final String MISC_KEY = "_misc";
+
+    /** How often to reconcile with the filesystem */
+    private static final long RECONCILE_INTERVAL = 24 * 60 * 60 * 1000L; // ms
+    /** Pause after this many signature directories while reconciling, to limit disk load */
+    private static final int RECONCILE_BATCH_SIZE = 100;
+    private static final long RECONCILE_BATCH_PAUSE = 50L; // ms
+
+    private static class SignatureUsage {
+        long bytes;
+        /** Name of transaction's registered name, or null if it doesn't have one */
+        String name;
+        boolean isNameResolved;
+    }
+
+    private static ArbitraryDataStorageLedger instance;
+
+    // All below are guarded by this
+    private final Map<String, SignatureUsage> usageBySignature = new HashMap<>();
+    private final Map<String, Long> bytesByName = new HashMap<>();
+    private final Set<String> unresolvedSignatures = new HashSet<>();
+    /** Total of usageBySignature */
+    private long hostedBytes = 0L;
+    /** Data directory files that aren't hosted data, as of last measurement */
+    private long otherBytes = 0L;
+    /** Temp directory size, as of last measurement */
+    private long tempBytes = 0L;
+    private long lastReconcileTime = 0L;
+    private boolean isInitialized = false;
+    private boolean isDirty = false;
+    /** Signatures with changes recorded during current reconcile, which mustn't be treated as gone */
+    private Set<String> changedDuringReconcile = null;
+
+    public ArbitraryDataStorageLedger() {
+    }
+
+    public static synchronized ArbitraryDataStorageLedger getInstance() {
+        if (instance == null) {
+            instance = new ArbitraryDataStorageLedger();
+        }
+
+        return instance;
+    }
+
+    /** Returns size of file at <tt>path</tt>, or 0 if it doesn't exist. */
+    public static long fileSize(Path path) {
+        if (path == null) {
+            return 0L;
+        }
+
+        File file = path.toFile();
+        return file.isFile() ? file.length() : 0L;
+    }
+
+    /** Whether ledger has been loaded from disk or reconciled, and so can be relied on. */
+    public synchronized boolean isInitialized() {
+        return this.isInitialized;
+    }
+
+    /** Returns total bytes used by data and temp directories. */
+    public synchronized long getTotalBytes() {
+        return this.hostedBytes + this.otherBytes + this.tempBytes;
+    }
+
+    public synchronized long getBytesForSignature(String signature58) {
+        SignatureUsage usage = this.usageBySignature.get(signature58);
+        return usage != null ? usage.bytes : 0L;
+    }
+
+    /**
+     * Returns bytes used by data for <tt>name</tt>.
+     * <p>
+     * Newly hosted signatures only count towards their name once {@link #resolveNames(Repository)}
+     * has looked them up, which happens in the background, so that this doesn't need the repository.
+     */
+    public synchronized long getBytesForName(String name) {
+        return this.bytesByName.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Records change in size of file at <tt>path</tt>, after it has been written, replaced or deleted.
+     * Files outside the data directory, or inside the temp directory, are ignored.
+     */
+    public void recordFileChange(Path path, long deltaBytes) {
+        if (deltaBytes == 0) {
+            return;
+        }
+
+        String key = keyForPath(path);
+        if (key == null) {
+            return;
+        }
+
+        synchronized (this) {
+            SignatureUsage usage = this.usageBySignature.get(key);
+            if (usage == null) {
+                usage = this.addSignature(key);
+            }
+
+            this.addBytes(usage, deltaBytes);
+
+            if (usage.bytes <= 0) {
+                // Nothing left for this signature
+                this.removeSignature(key);
+            }
+
+            if (this.changedDuringReconcile != null) {
+                this.changedDuringReconcile.add(key);
+            }
+
+            this.isDirty = true;
+        }
+    }
+
+    /**
+     * Records deletion of whole signature directory at <tt>directory</tt>, e.g. for data whose transaction has expired.
+     * Directories that don't hold hosted data are ignored.
+     */
+    public void recordDirectoryRemoval(Path directory) {
+        String key = keyForDirectory(directory);
+        if (key == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!this.usageBySignature.containsKey(key)) {
+                return;
+            }
+
+            this.removeSignature(key);
+            this.isDirty = true;
+        }
+    }
+
+    /** Records move of file, of <tt>bytes</tt> size, from <tt>source</tt> to <tt>dest</tt>, which previously had <tt>replacedBytes</tt>. */
+    public void recordFileMove(Path source, Path dest, long bytes, long replacedBytes) {
+        this.recordFileChange(dest, bytes - replacedBytes);
+        this.recordFileChange(source, -bytes);
+    }
+
+    /** Whether there are signatures whose names haven't been looked up yet. */
+    public synchronized boolean hasUnresolvedNames() {
+        return !this.unresolvedSignatures.isEmpty();
+    }
+
+    /** Looks up names for any signatures we haven't seen before, so they count towards per-name totals. */
+    public void resolveNames(Repository repository) {
+        List<String> signatures;
+        synchronized (this) {
+            if (this.unresolvedSignatures.isEmpty()) {
+                return;
+            }
+
+            signatures = new ArrayList<>(this.unresolvedSignatures);
+        }
+
+        for (String signature58 : signatures) {
+            String name = null;
+            try {
+                byte[] signature = Base58.decode(signature58);
+                TransactionData transactionData = signature != null ? repository.getTransactionRepository().fromSignature(signature) : null;
+                if (transactionData instanceof ArbitraryTransactionData) {
+                    name = ((ArbitraryTransactionData) transactionData).getName();
+                }
+            } catch (NumberFormatException e) {
+                // Not a signature, so treat as unnamed
+            } catch (DataException e) {
+                // Try again later
+                continue;
+            }
+
+            synchronized (this) {
+                SignatureUsage usage = this.usageBySignature.get(signature58);
+                if (usage == null || usage.isNameResolved) {
+                    continue;
+                }
+
+                usage.name = name;
+                usage.isNameResolved = true;
+                this.unresolvedSignatures.remove(signature58);
+
+                if (name != null) {
+                    this.bytesByName.merge(name, usage.bytes, Long::sum);
+                }
+                this.isDirty = true;
+            }
+        }
+    }
+
+    public synchronized boolean shouldReconcile(long now) {
+        return !this.isInitialized || now - this.lastReconcileTime > RECONCILE_INTERVAL;
+    }
+
+    /**
+     * Walks data and temp directories, correcting totals to match what's actually on disk.
+     * <p>
+     * Slow on nodes hosting a lot of data, so call from a low priority thread.
+     *
+     * @return true if completed, false if interrupted
+     */
+    public boolean reconcile(long now) {
+        Path dataPath = Paths.get(Settings.getInstance().getDataPath()).toAbsolutePath().normalize();
+        Path tempPath = Paths.get(Settings.getInstance().getTempDataPath()).toAbsolutePath().normalize();
+
+        LOGGER.debug("Reconciling QDN storage ledger...");
+        final long startTime = System.currentTimeMillis();
+
+        synchronized (this) {
+            this.changedDuringReconcile = new HashSet<>();
+        }
+
+        try {
+            Set<String> seenSignatures = new HashSet<>();
+
+            long measuredOtherBytes = this.walkDataDirectory(dataPath, tempPath, (key, directory) -> {
+                this.setMeasuredBytes(key, directory);
+                seenSignatures.add(key);
+            });
+
+            long measuredTempBytes = sizeOfDirectory(tempPath.toFile());
+
+            synchronized (this) {
+                // Anything we didn't find has gone, unless it was written while we were walking
+                for (String signature58 : new ArrayList<>(this.usageBySignature.keySet())) {
+                    if (!seenSignatures.contains(signature58) && !this.changedDuringReconcile.contains(signature58)) {
+                        this.removeSignature(signature58);
+                    }
+                }
+
+                this.otherBytes = measuredOtherBytes;
+                this.tempBytes = measuredTempBytes;
+                this.lastReconcileTime = now;
+                this.isInitialized = true;
+                this.isDirty = true;
+
+                LOGGER.debug("Reconciled QDN storage ledger in {}ms: {} bytes hosted for {} signatures, {} bytes other, {} bytes temp",
+                        System.currentTimeMillis() - startTime, this.hostedBytes, this.usageBySignature.size(), this.otherBytes, this.tempBytes);
+            }
+
+            return true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+
+        } finally {
+            synchronized (this) {
+                this.changedDuringReconcile = null;
+            }
+        }
+    }
+
+    /**
+     * Re-measures temp directory, and files in the data directory that aren't hosted data.
+     * <p>
+     * Much quicker than {@link #reconcile(long)}, as hosted data in signature directories isn't walked.
+     */
+    public void measureUntrackedBytes() {
+        Path dataPath = Paths.get(Settings.getInstance().getDataPath()).toAbsolutePath().normalize();
+        Path tempPath = Paths.get(Settings.getInstance().getTempDataPath()).toAbsolutePath().normalize();
+
+        try {
+            long measuredOtherBytes = this.walkDataDirectory(dataPath, tempPath, null);
+            long measuredTempBytes = sizeOfDirectory(tempPath.toFile());
+
+            synchronized (this) {
+                this.otherBytes = measuredOtherBytes;
+                this.tempBytes = measuredTempBytes;
+                this.isDirty = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface SignatureDirectoryVisitor {
+        void visit(String key, File directory);
+    }
+
+    /**
+     * Walks data directory, passing each signature directory (and "_misc") to <tt>visitor</tt>, if not null.
+     *
+     * @return total size of files that aren't hosted data
+     */
+    private long walkDataDirectory(Path dataPath, Path tempPath, SignatureDirectoryVisitor visitor) throws InterruptedException {
+        long measuredOtherBytes = 0L;
+        int signatureCount = 0;
+
+        // Hosted files are in <data>/_misc/... or <data>/xx/yy/<signature58>/...
+        for (File level1 : listFiles(dataPath.toFile())) {
+            if (level1.isFile()) {
+                measuredOtherBytes += level1.length();
+                continue;
+            }
+
+            if (level1.toPath().toAbsolutePath().normalize().equals(tempPath)) {
+                // Measured separately
+                continue;
+            }
+
+            if (level1.getName().equals(MISC_KEY)) {
+                if (visitor != null) {
+                    visitor.visit(MISC_KEY, level1);
+                }
+                continue;
+            }
+
+            if (level1.getName().equals(ArbitraryDataChunkStore.STORE_DIRECTORY)) {
+                // Hard links to files already counted under their signatures
+                continue;
+            }
+
+            for (File level2 : listFiles(level1)) {
+                if (level2.isFile()) {
+                    measuredOtherBytes += level2.length();
+                    continue;
+                }
+
+                for (File signatureDirectory : listFiles(level2)) {
+                    if (signatureDirectory.isFile()) {
+                        measuredOtherBytes += signatureDirectory.length();
+                        continue;
+                    }
+
+                    if (visitor == null) {
+                        continue;
+                    }
+
+                    visitor.visit(signatureDirectory.getName(), signatureDirectory);
+
+                    if (++signatureCount % RECONCILE_BATCH_SIZE == 0) {
+                        Thread.sleep(RECONCILE_BATCH_PAUSE);
+                    }
+                }
+            }
+        }
+
+        return measuredOtherBytes;
+    }
+
+    /** Loads ledger from disk, if saved previously. */
+    public boolean load() {
+        Path ledgerPath = getLedgerPath();
+        if (!Files.exists(ledgerPath)) {
+            return false;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(ledgerPath, StandardCharsets.UTF_8)) {
+            if (!LEDGER_HEADER.equals(reader.readLine())) {
+                LOGGER.info("Ignoring QDN storage ledger with unknown format");
+                return false;
+            }
+
+            String[] totals = reader.readLine().split("\t");
+            long otherBytes = Long.parseLong(totals[0]);
+            long tempBytes = Long.parseLong(totals[1]);
+            long lastReconcileTime = Long.parseLong(totals[2]);
+
+            synchronized (this) {
+                this.clear();
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // signature58, bytes, then name if resolved (possibly empty)
+                    String[] fields = line.split("\t", -1);
+
+                    SignatureUsage usage = this.addSignature(fields[0]);
+                    if (fields.length > 2) {
+                        usage.name = fields[2].isEmpty() ? null : fields[2];
+                        usage.isNameResolved = true;
+                        this.unresolvedSignatures.remove(fields[0]);
+                    }
+
+                    this.addBytes(usage, Long.parseLong(fields[1]));
+                }
+
+                this.otherBytes = otherBytes;
+                this.tempBytes = tempBytes;
+                this.lastReconcileTime = lastReconcileTime;
+                this.isInitialized = true;
+                this.isDirty = false;
+
+                LOGGER.debug("Loaded QDN storage ledger with {} signatures", this.usageBySignature.size());
+            }
+
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Unable to load QDN storage ledger: {}", e.getMessage());
+            synchronized (this) {
+                this.clear();
+            }
+            return false;
+        }
+    }
+
+    /** Saves ledger to disk, if it has changed since last saved. */
+    public void save() {
+        List<String> lines;
+
+        synchronized (this) {
+            if (!this.isInitialized || !this.isDirty) {
+                return;
+            }
+
+            lines = new ArrayList<>(this.usageBySignature.size() + 2);
+            lines.add(LEDGER_HEADER);
+            lines.add(String.format("%d\t%d\t%d", this.otherBytes, this.tempBytes, this.lastReconcileTime));
+
+            for (Map.Entry<String, SignatureUsage> entry : this.usageBySignature.entrySet()) {
+                SignatureUsage usage = entry.getValue();
+                if (usage.isNameResolved) {
+                    lines.add(String.format("%s\t%d\t%s", entry.getKey(), usage.bytes, usage.name != null ? usage.name : ""));
+                } else {
+                    lines.add(String.format("%s\t%d", entry.getKey(), usage.bytes));
+                }
+            }
+
+            this.isDirty = false;
+        }
+
+        // Write to temporary file first, so that we never leave a partial ledger behind
+        Path ledgerPath = getLedgerPath();
+        Path newLedgerPath = Paths.get(ledgerPath + ".new");
+        try {
+            Files.createDirectories(ledgerPath.getParent());
+
+            try (BufferedWriter writer = Files.newBufferedWriter(newLedgerPath, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+
+            Files.move(newLedgerPath, ledgerPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.info("Unable to save QDN storage ledger: {}", e.getMessage());
+            synchronized (this) {
+                this.isDirty = true;
+            }
+        }
+    }
+
+    public static Path getLedgerPath() {
+        return Paths.get(Settings.getInstance().getDataPath(), LEDGER_FILENAME);
+    }
+
+    /** Returns signature58 (or {@link #MISC_KEY}) that file at <tt>path</tt> is stored under, or null if not hosted data. */
+    private static String keyForPath(Path path) {
+        if (path == null) {
+            return null;
+        }
+
+        Path dataPath = Paths.get(Settings.getInstance().getDataPath()).toAbsolutePath().normalize();
+        Path tempPath = Paths.get(Settings.getInstance().getTempDataPath()).toAbsolutePath().normalize();
+        Path absolutePath = path.toAbsolutePath().normalize();
+
+        if (!absolutePath.startsWith(dataPath) || absolutePath.startsWith(tempPath)) {
+            return null;
+        }
+
+        Path relativePath = dataPath.relativize(absolutePath);
+        if (relativePath.getNameCount() > 1 && relativePath.getName(0).toString().equals(MISC_KEY)) {
+            return MISC_KEY;
+        }
+        if (relativePath.getName(0).toString().equals(ArbitraryDataChunkStore.STORE_DIRECTORY)) {
+            return null;
+        }
+
+        // Expecting xx/yy/<signature58>/<file>
+        if (relativePath.getNameCount() == 4) {
+            return relativePath.getName(2).toString();
+        }
+
+        return null;
+    }
+
+    /** Returns signature58 (or {@link #MISC_KEY}) for hosted data <tt>directory</tt>, or null if not a signature directory. */
+    private static String keyForDirectory(Path directory) {
+        if (directory == null) {
+            return null;
+        }
+
+        Path dataPath = Paths.get(Settings.getInstance().getDataPath()).toAbsolutePath().normalize();
+        Path absolutePath = directory.toAbsolutePath().normalize();
+        if (!absolutePath.startsWith(dataPath)) {
+            return null;
+        }
+
+        // Expecting xx/yy/<signature58>, or _misc
+        Path relativePath = dataPath.relativize(absolutePath);
+        if (relativePath.getNameCount() == 1 && relativePath.getName(0).toString().equals(MISC_KEY)) {
+            return MISC_KEY;
+        }
+        if (relativePath.getNameCount() == 3) {
+            // Also rules out temp and chunk store directories, which won't be keyed by a signature
+            return relativePath.getName(2).toString();
+        }
+
+        return null;
+    }
+
+    private void setMeasuredBytes(String key, File directory) {
+        synchronized (this) {
+            SignatureUsage usage = this.usageBySignature.get(key);
+            if (usage == null) {
+                usage = this.addSignature(key);
+            }
+
+            // Measure while holding lock, so no changes can be recorded in between
+            this.addBytes(usage, sizeOfDirectory(directory) - usage.bytes);
+        }
+    }
+
+    private SignatureUsage addSignature(String key) {
+        SignatureUsage usage = new SignatureUsage();
+
+        if (key.equals(MISC_KEY)) {
+            // Never has a name
+            usage.isNameResolved = true;
+        } else {
+            this.unresolvedSignatures.add(key);
+        }
+
+        this.usageBySignature.put(key, usage);
+        return usage;
+    }
+
+    private void removeSignature(String key) {
+        SignatureUsage usage = this.usageBySignature.get(key);
+        if (usage == null) {
+            return;
+        }
+
+        this.addBytes(usage, -usage.bytes);
+        this.usageBySignature.remove(key);
+        this.unresolvedSignatures.remove(key);
+    }
+
+    private void addBytes(SignatureUsage usage, long deltaBytes) {
+        usage.bytes += deltaBytes;
+        this.hostedBytes += deltaBytes;
+
+        if (usage.name != null) {
+            this.bytesByName.merge(usage.name, deltaBytes, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private void clear() {
+        this.usageBySignature.clear();
+        this.bytesByName.clear();
+        this.unresolvedSignatures.clear();
+        this.hostedBytes = 0L;
+        this.otherBytes = 0L;
+        this.tempBytes = 0L;
+        this.isInitialized = false;
+    }
+
+    private static File[] listFiles(File directory) {
+        File[] files = directory.listFiles();
+        return files != null ? files : new File[0];
+    }
+
+    private static long sizeOfDirectory(File directory) {
+        if (!directory.isDirectory()) {
+            return 0L;
+        }
+
+        try {
+            return FileUtils.sizeOfDirectory(directory);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            // Directory disappeared while we were measuring it
+            return 0L;
+        }
+    }
+
+}
@@ -1,12 +1,12 @@
 package org.qortal.controller.arbitrary;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.data.transaction.ArbitraryTransactionData;
 import org.qortal.data.transaction.TransactionData;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
 import org.qortal.settings.Settings;
 import org.qortal.transaction.Transaction;
 import org.qortal.utils.*;
@@ -38,14 +38,15 @@ public class ArbitraryDataStorageManager extends Thread {
     private volatile boolean isStopping = false;
 
     private Long storageCapacity = null;
-    private long totalDirectorySize = 0L;
     private long lastDirectorySizeCheck = 0;
+    private long lastLedgerSave = 0;
 
     private List<ArbitraryTransactionData> hostedTransactions;
 
     private String searchQuery;
 
     private static final long DIRECTORY_SIZE_CHECK_INTERVAL = 10 * 60 * 1000L; // 10 minutes
+    private static final long LEDGER_SAVE_INTERVAL = 10 * 60 * 1000L; // 10 minutes
 
     /** Treat storage as full at 90% usage, to reduce risk of going over the limit.
      * This is necessary because we don't calculate total storage values before every write.
@@ -72,6 +73,14 @@ public class ArbitraryDataStorageManager extends Thread {
     @Override
     public void run() {
         Thread.currentThread().setName("Arbitrary Data Storage Manager");
+        // Reconciling the storage ledger walks the data directory, so mustn't compete with more important work
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+
+        ArbitraryDataStorageLedger ledger = ArbitraryDataStorageLedger.getInstance();
+        if (!ledger.isInitialized()) {
+            ledger.load();
+        }
+
         try {
             while (!isStopping) {
                 Thread.sleep(1000);
@@ -92,11 +101,32 @@ public class ArbitraryDataStorageManager extends Thread {
                     this.calculateDirectorySize(now);
                 }
 
+                // Correct any drift in the storage ledger now and again
+                if (ledger.shouldReconcile(now)) {
+                    ledger.reconcile(now);
+                }
+
+                // Keep per-name storage totals up to date
+                if (ledger.hasUnresolvedNames()) {
+                    try (final Repository repository = RepositoryManager.getRepository()) {
+                        ledger.resolveNames(repository);
+                    } catch (DataException e) {
+                        LOGGER.debug("Unable to resolve names for storage ledger: {}", e.getMessage());
+                    }
+                }
+
+                if (now - this.lastLedgerSave > LEDGER_SAVE_INTERVAL) {
+                    ledger.save();
+                    this.lastLedgerSave = now;
+                }
+
                 Thread.sleep(59000);
             }
         } catch (InterruptedException e) {
             // Fall-through to exit thread...
         }
+
+        ledger.save();
     }
 
     public void shutdown() {
@@ -415,7 +445,6 @@ public class ArbitraryDataStorageManager extends Thread {
             return;
         }
 
-        long totalSize = 0;
         long remainingCapacity = 0;
 
         // Calculate remaining capacity
@@ -426,28 +455,25 @@ public class ArbitraryDataStorageManager extends Thread {
             return;
         }
 
-        // Calculate total size of data directory
-        LOGGER.trace("Calculating data directory size...");
-        Path dataDirectoryPath = Paths.get(Settings.getInstance().getDataPath());
-        if (dataDirectoryPath.toFile().exists()) {
-            totalSize += FileUtils.sizeOfDirectory(dataDirectoryPath.toFile());
-        }
-
-        // Add total size of temp directory, if it's not already inside the data directory
-        Path tempDirectoryPath = Paths.get(Settings.getInstance().getTempDataPath());
-        if (tempDirectoryPath.toFile().exists()) {
-            if (!FilesystemUtils.isChild(tempDirectoryPath, dataDirectoryPath)) {
-                LOGGER.trace("Calculating temp directory size...");
-                totalSize += FileUtils.sizeOfDirectory(dataDirectoryPath.toFile());
+        // Hosted data comes from the storage ledger, rather than walking the data directory.
+        // If we don't have a saved ledger yet, we have no choice but to walk it once.
+        ArbitraryDataStorageLedger ledger = ArbitraryDataStorageLedger.getInstance();
+        if (!ledger.isInitialized() && !ledger.load()) {
+            LOGGER.trace("Calculating data directory size...");
+            if (!ledger.reconcile(now)) {
+                return;
             }
+        } else {
+            // Temp directory and other untracked files can grow quickly, e.g. due to resource builds
+            ledger.measureUntrackedBytes();
         }
 
-        this.totalDirectorySize = totalSize;
+        long totalDirectorySize = ledger.getTotalBytes();
         this.lastDirectorySizeCheck = now;
 
-        // It's essential that used space (this.totalDirectorySize) is included in the storage capacity
+        // It's essential that used space (totalDirectorySize) is included in the storage capacity
         LOGGER.trace("Calculating total storage capacity...");
-        long storageCapacity = remainingCapacity + this.totalDirectorySize;
+        long storageCapacity = remainingCapacity + totalDirectorySize;
 
         // Make sure to limit the storage capacity if the user is overriding it in the settings
         if (Settings.getInstance().getMaxStorageCapacity() != null) {
@@ -455,7 +481,7 @@ public class ArbitraryDataStorageManager extends Thread {
         }
         this.storageCapacity = storageCapacity;
 
-        LOGGER.info("Total used: {} bytes, Total capacity: {} bytes", this.totalDirectorySize, this.storageCapacity);
+        LOGGER.info("Total used: {} bytes, Total capacity: {} bytes", totalDirectorySize, this.storageCapacity);
     }
 
     private long getRemainingUsableStorageCapacity() throws IOException {
@@ -468,8 +494,13 @@ public class ArbitraryDataStorageManager extends Thread {
         return dataDirectoryPath.toFile().getUsableSpace();
     }
 
+    /** Returns current total size of data and temp directories, once storage capacity has been calculated. */
     public long getTotalDirectorySize() {
-        return this.totalDirectorySize;
+        if (!this.isStorageCapacityCalculated()) {
+            return 0L;
+        }
+
+        return ArbitraryDataStorageLedger.getInstance().getTotalBytes();
     }
 
     public boolean isStorageSpaceAvailable(double threshold) {
@@ -478,7 +509,7 @@ public class ArbitraryDataStorageManager extends Thread {
         }
 
         long maxStorageCapacity = (long)((double)this.storageCapacity * threshold);
-        if (this.totalDirectorySize >= maxStorageCapacity) {
+        if (this.getTotalDirectorySize() >= maxStorageCapacity) {
             return false;
         }
         return true;
@@ -506,20 +537,8 @@ public class ArbitraryDataStorageManager extends Thread {
             return true;
         }
 
-        long totalSizeForName = 0;
         long maxStoragePerName = this.storageCapacityPerName(threshold);
-
-        // Fetch all hosted transactions
-        List<ArbitraryTransactionData> hostedTransactions = this.listAllHostedTransactions(repository, null, null);
-        for (ArbitraryTransactionData transactionData : hostedTransactions) {
-            String transactionName = transactionData.getName();
-            if (!Objects.equals(name, transactionName)) {
-                // Transaction relates to a different name
-                continue;
-            }
-
-            totalSizeForName += transactionData.getSize();
-        }
+        long totalSizeForName = ArbitraryDataStorageLedger.getInstance().getBytesForName(name);
 
         // Have we reached the limit for this name?
         if (totalSizeForName > maxStoragePerName) {
@@ -24,6 +24,11 @@ import org.qortal.utils.Triple;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.qortal.controller.arbitrary.ArbitraryDataFileListManager.*;
 
@@ -59,6 +64,12 @@ public class ArbitraryMetadataManager {
      */
     private Map<String, Triple<Integer, Integer, Long>> arbitraryMetadataSignatureRequests = Collections.synchronizedMap(new HashMap<>());
 
+    /**
+     * Our own outstanding metadata requests, keyed by request's message ID,
+     * completed once the metadata has been received
+     */
+    private final Map<Integer, CompletableFuture<Void>> pendingMetadataRequests = new ConcurrentHashMap<>();
+
 
     private ArbitraryMetadataManager() {
     }
@@ -167,27 +178,20 @@ public class ArbitraryMetadataManager {
         } while (arbitraryMetadataRequests.put(id, requestEntry) != null);
         getArbitraryMetadataMessage.setId(id);
 
-        // Broadcast request
-        Network.getInstance().broadcast(peer -> getArbitraryMetadataMessage);
-
-        // Poll to see if data has arrived
-        final long singleWait = 100;
-        long totalWait = 0;
-        while (totalWait < ArbitraryDataManager.ARBITRARY_REQUEST_TIMEOUT) {
-            try {
-                Thread.sleep(singleWait);
-            } catch (InterruptedException e) {
-                break;
-            }
-
-            requestEntry = arbitraryMetadataRequests.get(id);
-            if (requestEntry == null)
-                return null;
+        // Completed when metadata arrives
+        CompletableFuture<Void> pendingRequest = new CompletableFuture<>();
+        pendingMetadataRequests.put(id, pendingRequest);
 
-            if (requestEntry.getA() == null)
-                break;
-
-            totalWait += singleWait;
+        try {
+            // Broadcast request
+            Network.getInstance().broadcast(peer -> getArbitraryMetadataMessage);
+
+            // Wait for data to arrive
+            pendingRequest.get(ArbitraryDataManager.ARBITRARY_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            // Check for metadata below anyway
+        } finally {
+            pendingMetadataRequests.remove(id);
         }
 
         try {
@@ -326,6 +330,12 @@ public class ArbitraryMetadataManager {
         Triple<String, Peer, Long> newEntry = new Triple<>(null, null, request.getC());
         arbitraryMetadataRequests.put(message.getId(), newEntry);
 
+        // Wake up our own request, if waiting
+        CompletableFuture<Void> pendingRequest = pendingMetadataRequests.get(message.getId());
+        if (pendingRequest != null) {
+            pendingRequest.complete(null);
+        }
+
         // Get transaction info
         try (final Repository repository = RepositoryManager.getRepository()) {
             TransactionData transactionData = repository.getTransactionRepository().fromSignature(signature);
@@ -32,7 +32,6 @@ public class BlockArchiveRebuilder {
         // New archive path is in a different location from original archive path, to avoid conflicts.
         // It will be moved later, once the process is complete.
         final Path newArchivePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive-rebuild");
-        final Path originalArchivePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive");
 
         // Delete archive-rebuild if it exists from a previous attempt
         FileUtils.deleteDirectory(newArchivePath.toFile());
@@ -58,9 +57,7 @@ public class BlockArchiveRebuilder {
                     if (startHeight >= maximumArchiveHeight) {
                         // We've finished.
                         // Delete existing archive and move the newly built one into its place
-                        FileUtils.deleteDirectory(originalArchivePath.toFile());
-                        FileUtils.moveDirectory(newArchivePath.toFile(), originalArchivePath.toFile());
-                        BlockArchiveReader.getInstance().invalidateFileListCache();
+                        BlockArchiveReader.getInstance().replaceArchive(newArchivePath);
                         LOGGER.info("Block archive successfully rebuilt");
                         return;
                     }
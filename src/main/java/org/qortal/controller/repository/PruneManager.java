@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.controller.Controller;
 import org.qortal.data.block.BlockData;
+import org.qortal.repository.BlockArchiveReader;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.settings.Settings;
@@ -118,6 +119,7 @@ public class PruneManager {
             if (archivePath.toFile().exists()) {
                 LOGGER.info("Deleting block archive because we are in top-only mode...");
                 FileUtils.deleteDirectory(archivePath.toFile());
+                BlockArchiveReader.getInstance().invalidateFileListCache();
             }
 
         } catch (IOException e) {
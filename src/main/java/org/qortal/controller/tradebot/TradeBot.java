@@ -118,7 +118,10 @@ public class TradeBot implements Listener {
 	private Map<String, Long> validTrades = new HashMap<>();
 
 	private TradeBot() {
-		EventBus.INSTANCE.addListener(event -> TradeBot.getInstance().listen(event));
+		// Trade-bots talk to foreign blockchains, so run them asynchronously rather than holding up synchronizer.
+		// Each run processes all trade-bot entries, so we only ever need to process the latest chain tip.
+		EventBus.INSTANCE.addAsyncListener("TradeBot", event -> TradeBot.getInstance().listen(event), 1,
+				EventBus.OverflowPolicy.COALESCE, Set.of(Synchronizer.NewChainTipEvent.class));
 	}
 
 	public static synchronized TradeBot getInstance() {
@@ -16,11 +16,17 @@ import org.bitcoinj.wallet.SendRequest;
 import org.bitcoinj.wallet.Wallet;
 import org.qortal.api.model.SimpleForeignTransaction;
 import org.qortal.crypto.Crypto;
+import org.qortal.data.crosschain.ForeignWalletData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
 import org.qortal.settings.Settings;
 import org.qortal.utils.Amounts;
 import org.qortal.utils.BitTwiddling;
+import org.qortal.utils.ByteArray;
 import org.qortal.utils.NTP;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -37,11 +43,10 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 
 	protected final NetworkParameters params;
 
-	/** Cache recent transactions to speed up subsequent lookups */
-	protected List<SimpleTransaction> transactionsCache;
-	protected Long transactionsCacheTimestamp;
-	protected String transactionsCacheXpub;
-	protected static long TRANSACTIONS_CACHE_TIMEOUT = 2 * 60 * 1000L; // 2 minutes
+	/** Wallet indexes already loaded from repository, by wallet ID */
+	protected final Map<ByteArray, ForeignWalletData> walletIndexes = new HashMap<>();
+	/** How long a synced wallet index is used as-is, before checking foreign blockchain again */
+	protected static long WALLET_INDEX_REFRESH_INTERVAL = 2 * 60 * 1000L; // 2 minutes
 
 	/** Keys that have been previously marked as fully spent,<br>
 	 * i.e. keys with transactions but with no unspent outputs. */
@@ -255,6 +260,25 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 		throw(e2);
 	}
 
+	/**
+	 * Returns transactions for each of passed scripts, in the same order.
+	 * <p>
+	 * @throws ForeignBlockchainException if error occurs
+	 */
+	public List<List<TransactionHash>> getAddressTransactions(List<byte[]> scriptPubKeys, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		int retries = 0;
+		ForeignBlockchainException e2 = null;
+		while (retries <= 3) {
+			try {
+				return this.blockchainProvider.getAddressTransactions(scriptPubKeys, includeUnconfirmed);
+			} catch (ForeignBlockchainException e) {
+				e2 = e;
+				retries++;
+			}
+		}
+		throw(e2);
+	}
+
 	/**
 	 * Returns list of transaction hashes pertaining to passed address.
 	 * <p>
@@ -273,13 +297,10 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 	public List<byte[]> getAddressTransactions(String base58Address) throws ForeignBlockchainException {
 		List<TransactionHash> transactionHashes = this.blockchainProvider.getAddressTransactions(addressToScriptPubKey(base58Address), false);
 
-		List<byte[]> rawTransactions = new ArrayList<>();
-		for (TransactionHash transactionInfo : transactionHashes) {
-			byte[] rawTransaction = this.blockchainProvider.getRawTransaction(HashCode.fromString(transactionInfo.txHash).asBytes());
-			rawTransactions.add(rawTransaction);
-		}
+		// Fetch all at once, rather than one round trip per transaction
+		List<String> txHashes = transactionHashes.stream().map(transactionInfo -> transactionInfo.txHash).collect(Collectors.toList());
 
-		return rawTransactions;
+		return this.blockchainProvider.getRawTransactions(txHashes);
 	}
 
 	/**
@@ -386,20 +407,11 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 	 * @return unspent BTC balance, or null if unable to determine balance
 	 */
 	public Long getWalletBalance(String key58) throws ForeignBlockchainException {
-		Long balance = 0L;
+		ForeignWalletData walletData = this.syncWalletIndex(key58);
 
-		List<TransactionOutput> allUnspentOutputs = new ArrayList<>();
-		Set<String> walletAddresses = this.getWalletAddresses(key58);
-		for (String address : walletAddresses) {
-			allUnspentOutputs.addAll(this.getUnspentOutputs(address));
-		}
-		for (TransactionOutput output : allUnspentOutputs) {
-			if (!output.isAvailableForSpending()) {
-				continue;
-			}
-			balance += output.getValue().value;
-		}
-		return balance;
+		return walletData.getUnspentOutputs().stream()
+				.mapToLong(unspentOutput -> unspentOutput.value)
+				.sum();
 	}
 
 	public Long getWalletBalanceFromBitcoinj(String key58) {
@@ -426,85 +438,13 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 	}
 
 	public List<SimpleTransaction> getWalletTransactions(String key58) throws ForeignBlockchainException {
-		synchronized (this) {
-			// Serve from the cache if it's recent, and matches this xpub
-			if (Objects.equals(transactionsCacheXpub, key58)) {
-				if (transactionsCache != null && transactionsCacheTimestamp != null) {
-					Long now = NTP.getTime();
-					boolean isCacheStale = (now != null && now - transactionsCacheTimestamp >= TRANSACTIONS_CACHE_TIMEOUT);
-					if (!isCacheStale) {
-						return transactionsCache;
-					}
-				}
-			}
-
-			Context.propagate(bitcoinjContext);
-
-			Wallet wallet = walletFromDeterministicKey58(key58);
-			DeterministicKeyChain keyChain = wallet.getActiveKeyChain();
-
-			keyChain.setLookaheadSize(Bitcoiny.WALLET_KEY_LOOKAHEAD_INCREMENT);
-			keyChain.maybeLookAhead();
+		ForeignWalletData walletData = this.syncWalletIndex(key58);
 
-			List<DeterministicKey> keys = new ArrayList<>(keyChain.getLeafKeys());
-
-			Set<BitcoinyTransaction> walletTransactions = new HashSet<>();
-			Set<String> keySet = new HashSet<>();
-
-			int unusedCounter = 0;
-			int ki = 0;
-			do {
-				boolean areAllKeysUnused = true;
-
-				for (; ki < keys.size(); ++ki) {
-					DeterministicKey dKey = keys.get(ki);
+		Comparator<SimpleTransaction> newestTimestampFirstComparator = Comparator.comparingLong(SimpleTransaction::getTimestamp).reversed();
 
-					// Check for transactions
-					Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
-					keySet.add(address.toString());
-					byte[] script = ScriptBuilder.createOutputScript(address).getProgram();
-
-					// Ask for transaction history - if it's empty then key has never been used
-					List<TransactionHash> historicTransactionHashes = this.getAddressTransactions(script, false);
-
-					if (!historicTransactionHashes.isEmpty()) {
-						areAllKeysUnused = false;
-
-						for (TransactionHash transactionHash : historicTransactionHashes)
-							walletTransactions.add(this.getTransaction(transactionHash.txHash));
-					}
-				}
-
-				if (areAllKeysUnused) {
-					// No transactions
-					if (unusedCounter >= Settings.getInstance().getGapLimit()) {
-						// ... and we've hit our search limit
-						break;
-					}
-					// We haven't hit our search limit yet so increment the counter and keep looking
-					unusedCounter += WALLET_KEY_LOOKAHEAD_INCREMENT;
-				} else {
-					// Some keys in this batch were used, so reset the counter
-					unusedCounter = 0;
-				}
-
-				// Generate some more keys
-				keys.addAll(generateMoreKeys(keyChain));
-
-				// Process new keys
-			} while (true);
-
-			Comparator<SimpleTransaction> newestTimestampFirstComparator = Comparator.comparingLong(SimpleTransaction::getTimestamp).reversed();
-
-			// Update cache and return
-			transactionsCacheTimestamp = NTP.getTime();
-			transactionsCacheXpub = key58;
-			transactionsCache = walletTransactions.stream()
-					.map(t -> convertToSimpleTransaction(t, keySet))
-					.sorted(newestTimestampFirstComparator).collect(Collectors.toList());
-
-			return transactionsCache;
-		}
+		return walletData.getTransactions().values().stream()
+				.sorted(newestTimestampFirstComparator)
+				.collect(Collectors.toList());
 	}
 
 	public List<AddressInfo> getWalletAddressInfos(String key58) throws ForeignBlockchainException {
@@ -542,60 +482,220 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 	}
 
 	public Set<String> getWalletAddresses(String key58) throws ForeignBlockchainException {
+		ForeignWalletData walletData = this.syncWalletIndex(key58);
+
+		return new HashSet<>(walletData.getAddresses());
+	}
+
+	/**
+	 * Returns index of wallet's addresses, confirmed transactions and unspent outputs, bringing it up to date first if necessary.
+	 * <p>
+	 * Indexes are persisted in the repository, so only changes since the last sync need fetching:
+	 * <ul>
+	 * <li>if synced recently, the index is returned as-is</li>
+	 * <li>if the foreign blockchain height hasn't changed, only unspent outputs are refreshed</li>
+	 * <li>otherwise, address histories are refreshed and only previously unseen transactions are fetched</li>
+	 * </ul>
+	 *
+	 * @param key58 BIP32/HD extended Bitcoin private/public key
+	 * @throws ForeignBlockchainException if index couldn't be brought up to date
+	 */
+	protected ForeignWalletData syncWalletIndex(String key58) throws ForeignBlockchainException {
 		synchronized (this) {
-			Context.propagate(bitcoinjContext);
+			byte[] walletId = this.getWalletId(key58);
 
-			Wallet wallet = walletFromDeterministicKey58(key58);
-			DeterministicKeyChain keyChain = wallet.getActiveKeyChain();
+			ForeignWalletData walletData = this.walletIndexes.get(ByteArray.wrap(walletId));
+			if (walletData == null) {
+				walletData = this.loadWalletIndex(walletId);
 
-			keyChain.setLookaheadSize(Bitcoiny.WALLET_KEY_LOOKAHEAD_INCREMENT);
-			keyChain.maybeLookAhead();
+				if (walletData == null)
+					walletData = new ForeignWalletData(walletId, this.blockchainProvider.getNetId());
 
-			List<DeterministicKey> keys = new ArrayList<>(keyChain.getLeafKeys());
+				this.walletIndexes.put(ByteArray.wrap(walletId), walletData);
+			}
 
-			Set<String> keySet = new HashSet<>();
+			Long now = NTP.getTime();
+			if (now == null)
+				now = System.currentTimeMillis();
 
-			int unusedCounter = 0;
-			int ki = 0;
-			do {
-				boolean areAllKeysUnused = true;
+			if (walletData.getSyncedHeight() > 0 && now - walletData.getUpdatedWhen() < WALLET_INDEX_REFRESH_INTERVAL)
+				return walletData;
 
-				for (; ki < keys.size(); ++ki) {
-					DeterministicKey dKey = keys.get(ki);
+			int height = this.getBlockchainHeight();
 
-					// Check for transactions
-					Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
-					keySet.add(address.toString());
-					byte[] script = ScriptBuilder.createOutputScript(address).getProgram();
+			if (height != walletData.getSyncedHeight())
+				this.syncWalletTransactions(key58, walletData);
 
-					// Ask for transaction history - if it's empty then key has never been used
-					List<TransactionHash> historicTransactionHashes = this.getAddressTransactions(script, false);
+			// Unconfirmed spends can remove unspent outputs without the height changing
+			this.syncWalletUnspentOutputs(walletData);
 
-					if (!historicTransactionHashes.isEmpty()) {
-						areAllKeysUnused = false;
-					}
+			walletData.setSyncedHeight(height);
+			walletData.setUpdatedWhen(now);
+
+			this.saveWalletIndex(walletData);
+
+			return walletData;
+		}
+	}
+
+	/** Refreshes wallet's addresses and confirmed transactions, only fetching transactions not already in the index. */
+	private void syncWalletTransactions(String key58, ForeignWalletData walletData) throws ForeignBlockchainException {
+		Context.propagate(bitcoinjContext);
+
+		// Histories of addresses already known to be in this wallet can all be requested at once
+		Map<String, List<TransactionHash>> histories = new HashMap<>();
+
+		List<String> knownAddresses = walletData.getAddresses();
+		List<byte[]> knownScripts = knownAddresses.stream().map(this::addressToScriptPubKey).collect(Collectors.toList());
+		List<List<TransactionHash>> knownHistories = this.getAddressTransactions(knownScripts, false);
+		for (int i = 0; i < knownAddresses.size(); ++i)
+			histories.put(knownAddresses.get(i), knownHistories.get(i));
+
+		Wallet wallet = walletFromDeterministicKey58(key58);
+		DeterministicKeyChain keyChain = wallet.getActiveKeyChain();
+
+		keyChain.setLookaheadSize(Bitcoiny.WALLET_KEY_LOOKAHEAD_INCREMENT);
+		keyChain.maybeLookAhead();
+
+		List<DeterministicKey> keys = new ArrayList<>(keyChain.getLeafKeys());
+
+		List<String> addresses = new ArrayList<>();
+		Set<String> usedAddresses = new HashSet<>();
+		int lastUsedIndex = -1;
+		Map<String, Integer> transactionHeights = new HashMap<>();
+
+		int unusedCounter = 0;
+		int ki = 0;
+		do {
+			boolean areAllKeysUnused = true;
+
+			List<String> batchAddresses = new ArrayList<>();
+			List<String> newAddresses = new ArrayList<>();
+			List<byte[]> newScripts = new ArrayList<>();
+			for (; ki < keys.size(); ++ki) {
+				DeterministicKey dKey = keys.get(ki);
+
+				Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
+				batchAddresses.add(address.toString());
+
+				if (!histories.containsKey(address.toString())) {
+					newAddresses.add(address.toString());
+					newScripts.add(ScriptBuilder.createOutputScript(address).getProgram());
 				}
+			}
 
-				if (areAllKeysUnused) {
-					// No transactions
-					if (unusedCounter >= Settings.getInstance().getGapLimit()) {
-						// ... and we've hit our search limit
-						break;
-					}
-					// We haven't hit our search limit yet so increment the counter and keep looking
-					unusedCounter += WALLET_KEY_LOOKAHEAD_INCREMENT;
-				} else {
-					// Some keys in this batch were used, so reset the counter
-					unusedCounter = 0;
+			// Ask for transaction history of any keys new to the index all at once
+			List<List<TransactionHash>> newHistories = this.getAddressTransactions(newScripts, false);
+			for (int i = 0; i < newAddresses.size(); ++i)
+				histories.put(newAddresses.get(i), newHistories.get(i));
+
+			for (String address : batchAddresses) {
+				addresses.add(address);
+
+				// If history is empty then key has never been used
+				List<TransactionHash> historicTransactionHashes = histories.get(address);
+				if (historicTransactionHashes.isEmpty())
+					continue;
+
+				areAllKeysUnused = false;
+				usedAddresses.add(address);
+				lastUsedIndex = addresses.size() - 1;
+
+				for (TransactionHash transactionHash : historicTransactionHashes)
+					transactionHeights.put(transactionHash.txHash, transactionHash.height);
+			}
+
+			if (areAllKeysUnused) {
+				// No transactions
+				if (unusedCounter >= Settings.getInstance().getGapLimit()) {
+					// ... and we've hit our search limit
+					break;
 				}
+				// We haven't hit our search limit yet so increment the counter and keep looking
+				unusedCounter += WALLET_KEY_LOOKAHEAD_INCREMENT;
+			} else {
+				// Some keys in this batch were used, so reset the counter
+				unusedCounter = 0;
+			}
 
-				// Generate some more keys
-				keys.addAll(generateMoreKeys(keyChain));
+			// Generate some more keys
+			keys.addAll(generateMoreKeys(keyChain));
 
-				// Process new keys
-			} while (true);
+			// Process new keys
+		} while (true);
+
+		// Transactions no longer in any history, e.g. due to a reorg, are dropped
+		Map<String, SimpleTransaction> transactions = new HashMap<>(walletData.getTransactions());
+		Set<String> droppedTxHashes = new HashSet<>(transactions.keySet());
+		droppedTxHashes.removeAll(transactionHeights.keySet());
+		transactions.keySet().removeAll(droppedTxHashes);
+
+		// New transactions, or known transactions in a different block (e.g. due to a reorg), need saving
+		Set<String> changedTxHashes = new HashSet<>();
+		Set<String> keySet = new HashSet<>(addresses);
+		for (Map.Entry<String, Integer> entry : transactionHeights.entrySet()) {
+			String txHash = entry.getKey();
+
+			if (!transactions.containsKey(txHash)) {
+				transactions.put(txHash, convertToSimpleTransaction(this.getTransaction(txHash), keySet));
+				changedTxHashes.add(txHash);
+			} else if (!entry.getValue().equals(walletData.getTransactionHeights().get(txHash))) {
+				changedTxHashes.add(txHash);
+			}
+		}
+
+		walletData.setAddresses(addresses);
+		walletData.setUsedAddresses(usedAddresses);
+		walletData.setLastUsedIndex(lastUsedIndex);
+		walletData.setTransactions(transactions);
+		walletData.setTransactionHeights(transactionHeights);
+		walletData.recordTransactionChanges(changedTxHashes, droppedTxHashes);
+	}
+
+	/** Refreshes confirmed unspent outputs of wallet's used addresses. */
+	private void syncWalletUnspentOutputs(ForeignWalletData walletData) throws ForeignBlockchainException {
+		// Only addresses with confirmed transactions can have confirmed unspent outputs
+		List<String> usedAddresses = walletData.getAddresses().stream()
+				.filter(walletData.getUsedAddresses()::contains)
+				.collect(Collectors.toList());
 
-			return keySet;
+		List<byte[]> scripts = usedAddresses.stream().map(this::addressToScriptPubKey).collect(Collectors.toList());
+		List<List<UnspentOutput>> addressUnspentOutputs = this.blockchainProvider.getUnspentOutputs(scripts, false);
+
+		List<UnspentOutput> unspentOutputs = new ArrayList<>();
+		for (int i = 0; i < usedAddresses.size(); ++i)
+			for (UnspentOutput unspentOutput : addressUnspentOutputs.get(i))
+				unspentOutputs.add(new UnspentOutput(unspentOutput.hash, unspentOutput.index, unspentOutput.height,
+						unspentOutput.value, null, usedAddresses.get(i)));
+
+		walletData.setUnspentOutputs(unspentOutputs);
+	}
+
+	/** Returns ID for wallet index, derived from key so that key itself isn't stored. */
+	protected byte[] getWalletId(String key58) {
+		String walletName = this.blockchainProvider.getNetId() + ":" + key58;
+		return Crypto.digest(walletName.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private ForeignWalletData loadWalletIndex(byte[] walletId) {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			return repository.getCrossChainRepository().getForeignWallet(walletId);
+		} catch (DataException e) {
+			// Not fatal - we'll just have to rebuild index from scratch
+			LOGGER.warn(String.format("Unable to load %s wallet index: %s", this.currencyCode, e.getMessage()));
+			return null;
+		}
+	}
+
+	private void saveWalletIndex(ForeignWalletData walletData) {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.getCrossChainRepository().save(walletData);
+			repository.saveChanges();
+
+			walletData.markTransactionsSaved();
+		} catch (DataException e) {
+			// Not fatal - index is still held in memory
+			LOGGER.warn(String.format("Unable to save %s wallet index: %s", this.currencyCode, e.getMessage()));
 		}
 	}
 
@@ -628,16 +728,17 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 			do {
 				boolean areAllKeysUnused = true;
 
+				List<byte[]> scripts = new ArrayList<>();
 				for (; ki < keys.size(); ++ki) {
 					DeterministicKey dKey = keys.get(ki);
 
 					// Check for transactions
 					Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
-					byte[] script = ScriptBuilder.createOutputScript(address).getProgram();
-
-					// Ask for transaction history - if it's empty then key has never been used
-					List<TransactionHash> historicTransactionHashes = this.getAddressTransactions(script, false);
+					scripts.add(ScriptBuilder.createOutputScript(address).getProgram());
+				}
 
+				// Ask for transaction history of all new keys at once - if it's empty then key has never been used
+				for (List<TransactionHash> historicTransactionHashes : this.getAddressTransactions(scripts, false)) {
 					if (!historicTransactionHashes.isEmpty()) {
 						areAllKeysUnused = false;
 					}
@@ -666,7 +767,7 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 		}
 	}
 
-	protected SimpleTransaction convertToSimpleTransaction(BitcoinyTransaction t, Set<String> keySet) {
+	protected SimpleTransaction convertToSimpleTransaction(BitcoinyTransaction t, Set<String> keySet) throws ForeignBlockchainException {
 		long amount = 0;
 		long total = 0L;
 		long totalInputAmount = 0L;
@@ -696,7 +797,8 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 						inputs.add(new SimpleTransaction.Input(sender, inputAmount, addressInWallet));
 					}
 				}
-			} catch (ForeignBlockchainException e) {
+			} catch (ForeignBlockchainException.NotFoundException e) {
+				// Other errors are passed on, rather than indexing a transaction with missing inputs
 				LOGGER.trace("Failed to retrieve transaction information {}", input.outputTxHash);
 			}
 		}
@@ -2,6 +2,7 @@ package org.qortal.crosschain;
 
 import cash.z.wallet.sdk.rpc.CompactFormats.CompactBlock;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -42,12 +43,32 @@ public abstract class BitcoinyBlockchainProvider {
 	/** Returns raw, serialized, transaction bytes given <tt>txHash</tt>. */
 	public abstract byte[] getRawTransaction(byte[] txHash) throws ForeignBlockchainException;
 
+	/** Returns raw, serialized, transaction bytes for each of <tt>txHashes</tt>, in the same order. */
+	public List<byte[]> getRawTransactions(List<String> txHashes) throws ForeignBlockchainException {
+		List<byte[]> rawTransactions = new ArrayList<>(txHashes.size());
+
+		for (String txHash : txHashes)
+			rawTransactions.add(this.getRawTransaction(txHash));
+
+		return rawTransactions;
+	}
+
 	/** Returns unpacked transaction given <tt>txHash</tt>. */
 	public abstract BitcoinyTransaction getTransaction(String txHash) throws ForeignBlockchainException;
 
 	/** Returns list of transaction hashes (and heights) for address represented by <tt>scriptPubKey</tt>, optionally including unconfirmed transactions. */
 	public abstract List<TransactionHash> getAddressTransactions(byte[] scriptPubKey, boolean includeUnconfirmed) throws ForeignBlockchainException;
 
+	/** Returns list of transaction hashes (and heights) for each address represented by <tt>scriptPubKeys</tt>, in the same order. */
+	public List<List<TransactionHash>> getAddressTransactions(List<byte[]> scriptPubKeys, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		List<List<TransactionHash>> addressTransactions = new ArrayList<>(scriptPubKeys.size());
+
+		for (byte[] scriptPubKey : scriptPubKeys)
+			addressTransactions.add(this.getAddressTransactions(scriptPubKey, includeUnconfirmed));
+
+		return addressTransactions;
+	}
+
 	/** Returns list of BitcoinyTransaction objects for <tt>address</tt>, optionally including unconfirmed transactions. */
 	public abstract List<BitcoinyTransaction> getAddressBitcoinyTransactions(String address, boolean includeUnconfirmed) throws ForeignBlockchainException;
 
@@ -57,6 +78,16 @@ public abstract class BitcoinyBlockchainProvider {
 	/** Returns list of unspent transaction outputs for address represented by <tt>scriptPubKey</tt>, optionally including unconfirmed transactions. */
 	public abstract List<UnspentOutput> getUnspentOutputs(byte[] scriptPubKey, boolean includeUnconfirmed) throws ForeignBlockchainException;
 
+	/** Returns list of unspent transaction outputs for each address represented by <tt>scriptPubKeys</tt>, in the same order. */
+	public List<List<UnspentOutput>> getUnspentOutputs(List<byte[]> scriptPubKeys, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		List<List<UnspentOutput>> unspentOutputs = new ArrayList<>(scriptPubKeys.size());
+
+		for (byte[] scriptPubKey : scriptPubKeys)
+			unspentOutputs.add(this.getUnspentOutputs(scriptPubKey, includeUnconfirmed));
+
+		return unspentOutputs;
+	}
+
 	/** Broadcasts raw, serialized, transaction bytes to network, returning success/failure. */
 	public abstract void broadcastTransaction(byte[] rawTransaction) throws ForeignBlockchainException;
 
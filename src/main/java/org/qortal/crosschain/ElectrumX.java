@@ -9,17 +9,16 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.qortal.crypto.Crypto;
-import org.qortal.crypto.TrustlessSSLSocketFactory;
 import org.qortal.utils.BitTwiddling;
+import org.qortal.utils.DaemonThreadFactory;
 
-import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketAddress;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,6 +43,15 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 
 	private static final int RESPONSE_TIME_READINGS = 5;
 	private static final long MAX_AVG_RESPONSE_TIME = 2000L; // ms
+	private static final long RESPONSE_TIMEOUT = 30_000L; // ms
+
+	/** Number of servers we try to stay connected to, so requests can go to whichever is fastest */
+	private static final int CONNECTION_POOL_SIZE = 3;
+	/** Maximum number of requests sent in one JSON-RPC batch */
+	private static final int MAX_BATCH_SIZE = 20;
+
+	/** Opens additional pooled connections, so callers don't have to wait */
+	private static final ExecutorService CONNECTION_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("ElectrumX connector"));
 
 	public static class Server implements ChainableServer {
 		String hostname;
@@ -60,7 +68,7 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 		}
 
 		@Override
-		public void addResponseTime(long responseTime) {
+		public synchronized void addResponseTime(long responseTime) {
 			while (this.responseTimes.size() > RESPONSE_TIME_READINGS) {
 				this.responseTimes.remove(0);
 			}
@@ -68,7 +76,7 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 		}
 
 		@Override
-		public long averageResponseTime() {
+		public synchronized long averageResponseTime() {
 			if (this.responseTimes.size() < RESPONSE_TIME_READINGS) {
 				// Not enough readings yet
 				return 0L;
@@ -130,10 +138,22 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	private Bitcoiny blockchain;
 
 	private final Object serverLock = new Object();
-	private ChainableServer currentServer;
-	private Socket socket;
-	private Scanner scanner;
-	private int nextId = 1;
+	/** Connections to the fastest servers we've found so far. Guarded by serverLock. */
+	private final List<ElectrumXConnection> connections = new ArrayList<>();
+	/** Connections no longer given new requests, but still waiting for responses to requests in flight. Guarded by serverLock. */
+	private final List<ElectrumXConnection> drainingConnections = new ArrayList<>();
+	private boolean isAddingConnection = false;
+
+	/** Results of RPC calls, along with the server that answered them. */
+	private static class RpcResults {
+		private final List<Object> results;
+		private final ChainableServer server;
+
+		private RpcResults(List<Object> results, ChainableServer server) {
+			this.results = results;
+			this.server = server;
+		}
+	}
 
 	private static final int TX_CACHE_SIZE = 1000;
 	@SuppressWarnings("serial")
@@ -325,10 +345,40 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 */
 	@Override
 	public List<UnspentOutput> getUnspentOutputs(byte[] script, boolean includeUnconfirmed) throws ForeignBlockchainException {
-		byte[] scriptHash = Crypto.digest(script);
-		Bytes.reverse(scriptHash);
+		return this.getUnspentOutputs(Collections.singletonList(script), includeUnconfirmed).get(0);
+	}
 
-		Object unspentJson = this.rpc("blockchain.scripthash.listunspent", HashCode.fromBytes(scriptHash).toString());
+	/**
+	 * Returns list of unspent outputs for each of passed payment scripts, in the same order.
+	 * <p>
+	 * Unspent outputs are requested using JSON-RPC batches.
+	 *
+	 * @return list of unspent outputs for each script, or empty list if script unknown
+	 * @throws ForeignBlockchainException if there was an error.
+	 */
+	@Override
+	public List<List<UnspentOutput>> getUnspentOutputs(List<byte[]> scripts, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		if (scripts.isEmpty())
+			return new ArrayList<>();
+
+		List<Object[]> paramsList = new ArrayList<>(scripts.size());
+		for (byte[] script : scripts) {
+			byte[] scriptHash = Crypto.digest(script);
+			Bytes.reverse(scriptHash);
+
+			paramsList.add(new Object[] { HashCode.fromBytes(scriptHash).toString() });
+		}
+
+		List<Object> unspentJsons = this.batchRpc("blockchain.scripthash.listunspent", paramsList).results;
+
+		List<List<UnspentOutput>> unspentOutputs = new ArrayList<>(unspentJsons.size());
+		for (Object unspentJson : unspentJsons)
+			unspentOutputs.add(parseUnspentOutputs(unspentJson, includeUnconfirmed));
+
+		return unspentOutputs;
+	}
+
+	private static List<UnspentOutput> parseUnspentOutputs(Object unspentJson, boolean includeUnconfirmed) throws ForeignBlockchainException {
 		if (!(unspentJson instanceof JSONArray))
 			throw new ForeignBlockchainException("Expected array output from ElectrumX blockchain.scripthash.listunspent RPC");
 
@@ -361,9 +411,31 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 */
 	@Override
 	public byte[] getRawTransaction(String txHash) throws ForeignBlockchainException {
-		Object rawTransactionHex;
+		return this.getRawTransactions(Collections.singletonList(txHash)).get(0);
+	}
+
+	/**
+	 * Returns raw transaction for each of passed transaction hashes, in the same order.
+	 * <p>
+	 * Transactions are requested using JSON-RPC batches.
+	 * <p>
+	 * NOTE: Do not mutate returned byte[]s!
+	 *
+	 * @throws ForeignBlockchainException.NotFoundException if any transaction not found
+	 * @throws ForeignBlockchainException if error occurs
+	 */
+	@Override
+	public List<byte[]> getRawTransactions(List<String> txHashes) throws ForeignBlockchainException {
+		if (txHashes.isEmpty())
+			return new ArrayList<>();
+
+		List<Object[]> paramsList = new ArrayList<>(txHashes.size());
+		for (String txHash : txHashes)
+			paramsList.add(new Object[] { txHash, false });
+
+		List<Object> rawTransactionHexes;
 		try {
-			rawTransactionHex = this.rpc("blockchain.transaction.get", txHash, false);
+			rawTransactionHexes = this.batchRpc("blockchain.transaction.get", paramsList).results;
 		} catch (ForeignBlockchainException.NetworkException e) {
 			// DaemonError({'code': -5, 'message': 'No such mempool or blockchain transaction. Use gettransaction for wallet transactions.'})
 			if (Integer.valueOf(-5).equals(e.getDaemonErrorCode()))
@@ -372,10 +444,15 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 			throw e;
 		}
 
-		if (!(rawTransactionHex instanceof String))
-			throw new ForeignBlockchainException.NetworkException("Expected hex string as raw transaction from ElectrumX blockchain.transaction.get RPC");
+		List<byte[]> rawTransactions = new ArrayList<>(rawTransactionHexes.size());
+		for (Object rawTransactionHex : rawTransactionHexes) {
+			if (!(rawTransactionHex instanceof String))
+				throw new ForeignBlockchainException.NetworkException("Expected hex string as raw transaction from ElectrumX blockchain.transaction.get RPC");
 
-		return HashCode.fromString((String) rawTransactionHex).asBytes();
+			rawTransactions.add(HashCode.fromString((String) rawTransactionHex).asBytes());
+		}
+
+		return rawTransactions;
 	}
 
 	/**
@@ -405,10 +482,13 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 			return transaction;
 
 		Object transactionObj = null;
+		ChainableServer server = null;
 
 		do {
 			try {
-				transactionObj = this.rpc("blockchain.transaction.get", txHash, true);
+				RpcResults rpcResults = this.batchRpc("blockchain.transaction.get", Collections.singletonList(new Object[] { txHash, true }));
+				transactionObj = rpcResults.results.get(0);
+				server = rpcResults.server;
 			} catch (ForeignBlockchainException.NetworkException e) {
 				// DaemonError({'code': -5, 'message': 'No such mempool or blockchain transaction. Use gettransaction for wallet transactions.'})
 				if (Integer.valueOf(-5).equals(e.getDaemonErrorCode()))
@@ -495,10 +575,8 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 				// Update: it turns out that they were just using a different key - "address" instead of "addresses"
 				// The code below can remain in place, just in case a peer returns a missing address in the future
 				if (addresses == null || addresses.isEmpty()) {
-					if (this.currentServer != null) {
-						this.uselessServers.add(this.currentServer);
-						this.closeServer(this.currentServer);
-					}
+					this.uselessServers.add(server);
+					this.closeServer(server);
 					LOGGER.info("No output addresses returned for transaction {}", txHash);
 					throw new ForeignBlockchainException(String.format("No output addresses returned for transaction %s", txHash));
 				}
@@ -527,10 +605,40 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 */
 	@Override
 	public List<TransactionHash> getAddressTransactions(byte[] script, boolean includeUnconfirmed) throws ForeignBlockchainException {
-		byte[] scriptHash = Crypto.digest(script);
-		Bytes.reverse(scriptHash);
+		return this.getAddressTransactions(Collections.singletonList(script), includeUnconfirmed).get(0);
+	}
+
+	/**
+	 * Returns list of transactions for each of passed payment scripts, in the same order.
+	 * <p>
+	 * Histories are requested using JSON-RPC batches.
+	 *
+	 * @return list of related transactions for each script, or empty list if script unknown
+	 * @throws ForeignBlockchainException if error occurs
+	 */
+	@Override
+	public List<List<TransactionHash>> getAddressTransactions(List<byte[]> scripts, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		if (scripts.isEmpty())
+			return new ArrayList<>();
+
+		List<Object[]> paramsList = new ArrayList<>(scripts.size());
+		for (byte[] script : scripts) {
+			byte[] scriptHash = Crypto.digest(script);
+			Bytes.reverse(scriptHash);
+
+			paramsList.add(new Object[] { HashCode.fromBytes(scriptHash).toString() });
+		}
+
+		List<Object> transactionsJsons = this.batchRpc("blockchain.scripthash.get_history", paramsList).results;
+
+		List<List<TransactionHash>> addressTransactions = new ArrayList<>(transactionsJsons.size());
+		for (Object transactionsJson : transactionsJsons)
+			addressTransactions.add(parseAddressTransactions(transactionsJson, includeUnconfirmed));
 
-		Object transactionsJson = this.rpc("blockchain.scripthash.get_history", HashCode.fromBytes(scriptHash).toString());
+		return addressTransactions;
+	}
+
+	private static List<TransactionHash> parseAddressTransactions(Object transactionsJson, boolean includeUnconfirmed) throws ForeignBlockchainException {
 		if (!(transactionsJson instanceof JSONArray))
 			throw new ForeignBlockchainException.NetworkException("Expected array output from ElectrumX blockchain.scripthash.get_history RPC");
 
@@ -580,10 +688,10 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 * @throws ForeignBlockchainException
 	 * @throws ClassCastException to be handled by caller
 	 */
-	private Set<Server> serverPeersSubscribe() throws ForeignBlockchainException {
+	private Set<Server> serverPeersSubscribe(ElectrumXConnection connection) throws ForeignBlockchainException {
 		Set<Server> newServers = new HashSet<>();
 
-		Object peers = this.connectedRpc("server.peers.subscribe");
+		Object peers = this.connectedRpc(connection, "server.peers.subscribe");
 
 		for (Object rawPeer : (JSONArray) peers) {
 			JSONArray peer = (JSONArray) rawPeer;
@@ -643,105 +751,244 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 * @throws ForeignBlockchainException if server returns error or something goes wrong
 	 */
 	private Object rpc(String method, Object...params) throws ForeignBlockchainException {
+		return this.batchRpc(method, Collections.singletonList(params)).results.get(0);
+	}
+
+	/**
+	 * Performs one RPC call per entry in <tt>paramsList</tt>, all on the same server,
+	 * with automatic reconnection to different server if needed.
+	 * <p>
+	 * Calls are sent as JSON-RPC batches, without waiting for earlier responses.
+	 * <p>
+	 * @return "result" objects from within JSON output, in the same order as <tt>paramsList</tt>
+	 * @throws ForeignBlockchainException if server returns error for any call, or something goes wrong
+	 */
+	private RpcResults batchRpc(String method, List<Object[]> paramsList) throws ForeignBlockchainException {
 		synchronized (this.serverLock) {
-			if (this.remainingServers.isEmpty())
+			if (this.remainingServers.isEmpty()) {
 				this.remainingServers.addAll(this.servers);
 
-			while (haveConnection()) {
-				Object response = connectedRpc(method, params);
+				// No need to connect to these again
+				for (ElectrumXConnection connection : this.connections)
+					this.remainingServers.remove(connection.getServer());
+			}
+		}
 
-				// If we have more servers and this one replied slowly, try another
-				if (!this.remainingServers.isEmpty()) {
-					long averageResponseTime = this.currentServer.averageResponseTime();
-					if (averageResponseTime > MAX_AVG_RESPONSE_TIME) {
-						LOGGER.info("Slow average response time {}ms from {} - trying another server...", averageResponseTime, this.currentServer.getHostName());
-						this.closeServer();
-						break;
-					}
-				}
+		ElectrumXConnection connection;
+		while ((connection = this.getConnection()) != null) {
+			List<Object> results = this.connectedBatchRpc(connection, method, paramsList);
 
-				if (response != null)
-					return response;
+			// If we have other servers and this one is replying slowly, stop using it
+			long averageResponseTime = connection.getServer().averageResponseTime();
+			if (averageResponseTime > MAX_AVG_RESPONSE_TIME && this.haveOtherServers()) {
+				LOGGER.info("Slow average response time {}ms from {} - trying another server...", averageResponseTime, connection.getServer().getHostName());
+				this.retireConnection(connection);
+			}
 
-				// Didn't work, try another server...
-				this.closeServer();
+			if (results != null)
+				return new RpcResults(results, connection.getServer());
+
+			// Didn't work, try another server...
+			this.closeConnection(connection);
+		}
+
+		// Failed to perform RPC - maybe lack of servers?
+		LOGGER.info("Error: No connected Electrum servers when trying to make RPC call");
+		throw new ForeignBlockchainException.NetworkException(String.format("Failed to perform ElectrumX RPC %s", method));
+	}
+
+	/**
+	 * Returns connection to fastest server, connecting to a new server if we have no connections.
+	 * <p>
+	 * If our connection pool isn't full, another server is connected in the background.
+	 *
+	 * @return connection, or null if no servers could be connected
+	 */
+	private ElectrumXConnection getConnection() {
+		synchronized (this.serverLock) {
+			ElectrumXConnection connection = this.getFastestConnection();
+
+			if (connection != null) {
+				if (this.connections.size() < CONNECTION_POOL_SIZE && !this.remainingServers.isEmpty() && !this.isAddingConnection) {
+					this.isAddingConnection = true;
+
+					CONNECTION_EXECUTOR.execute(() -> {
+						try {
+							this.addConnection();
+						} finally {
+							synchronized (this.serverLock) {
+								this.isAddingConnection = false;
+							}
+						}
+					});
+				}
+
+				return connection;
 			}
+		}
+
+		// No connections at all, so we have to wait
+		return this.addConnection();
+	}
+
+	/** Returns open connection with lowest average response time, then fewest waiting requests. Caller must hold serverLock. */
+	private ElectrumXConnection getFastestConnection() {
+		this.connections.removeIf(ElectrumXConnection::isClosed);
+		// Catch any draining connections whose servers never answered
+		this.drainingConnections.removeIf(ElectrumXConnection::closeIfDrained);
+
+		return this.connections.stream()
+				.min(Comparator.comparingLong((ElectrumXConnection connection) -> connection.getServer().averageResponseTime())
+						.thenComparingInt(ElectrumXConnection::getPendingCount))
+				.orElse(null);
+	}
 
-			// Failed to perform RPC - maybe lack of servers?
-			LOGGER.info("Error: No connected Electrum servers when trying to make RPC call");
-			throw new ForeignBlockchainException.NetworkException(String.format("Failed to perform ElectrumX RPC %s", method));
+	private boolean haveOtherServers() {
+		synchronized (this.serverLock) {
+			return !this.remainingServers.isEmpty() || this.connections.size() > 1;
 		}
 	}
 
-	/** Returns true if we have, or create, a connection to an ElectrumX server. */
-	private boolean haveConnection() throws ForeignBlockchainException {
-		if (this.currentServer != null)
-			return true;
+	/**
+	 * Connects to one of our remaining servers and adds it to connection pool.
+	 *
+	 * @return new connection, or null if none of the remaining servers were suitable
+	 */
+	private ElectrumXConnection addConnection() {
+		while (true) {
+			ChainableServer server;
+
+			synchronized (this.serverLock) {
+				if (this.remainingServers.isEmpty())
+					return null;
+
+				server = this.remainingServers.remove(RANDOM.nextInt(this.remainingServers.size()));
+			}
 
-		while (!this.remainingServers.isEmpty()) {
-			ChainableServer server = this.remainingServers.remove(RANDOM.nextInt(this.remainingServers.size()));
 			LOGGER.trace(() -> String.format("Connecting to %s", server));
 
-			try {
-				SocketAddress endpoint = new InetSocketAddress(server.getHostName(), server.getPort());
-				int timeout = 5000; // ms
+			// Connect without holding serverLock, so requests using other connections aren't held up
+			ElectrumXConnection connection = this.connect(server);
+			if (connection == null)
+				// Didn't work, try another server...
+				continue;
 
-				this.socket = new Socket();
-				this.socket.connect(endpoint, timeout);
-				this.socket.setTcpNoDelay(true);
+			LOGGER.debug(() -> String.format("Connected to %s", server));
 
-				if (server.getConnectionType() == Server.ConnectionType.SSL) {
-					SSLSocketFactory factory = TrustlessSSLSocketFactory.getSocketFactory();
-					this.socket = factory.createSocket(this.socket, server.getHostName(), server.getPort(), true);
-				}
+			synchronized (this.serverLock) {
+				this.connections.add(connection);
+			}
 
-				this.scanner = new Scanner(this.socket.getInputStream());
-				this.scanner.useDelimiter("\n");
+			return connection;
+		}
+	}
 
-				// All connections need to start with a version negotiation
-				this.connectedRpc("server.version");
+	/** Returns new connection to <tt>server</tt>, or null if server isn't reachable or suitable. */
+	private ElectrumXConnection connect(ChainableServer server) {
+		ElectrumXConnection connection = null;
 
-				// Check connection is suitable by asking for server features, including genesis block hash
-				JSONObject featuresJson = (JSONObject) this.connectedRpc("server.features");
+		try {
+			connection = new ElectrumXConnection(server);
 
-				if (featuresJson == null || Double.valueOf((String) featuresJson.get("protocol_min")) < MIN_PROTOCOL_VERSION)
-					continue;
+			// All connections need to start with a version negotiation
+			if (this.connectedRpc(connection, "server.version") == null)
+				throw new IOException("No response to version negotiation");
 
-				if (this.expectedGenesisHash != null && !((String) featuresJson.get("genesis_hash")).equals(this.expectedGenesisHash))
-					continue;
+			// Check connection is suitable by asking for server features, including genesis block hash
+			JSONObject featuresJson = (JSONObject) this.connectedRpc(connection, "server.features");
 
-				// Ask for more servers
-				Set<Server> moreServers = serverPeersSubscribe();
+			if (featuresJson == null || Double.valueOf((String) featuresJson.get("protocol_min")) < MIN_PROTOCOL_VERSION)
+				throw new IOException("Unsupported protocol version");
+
+			if (this.expectedGenesisHash != null && !((String) featuresJson.get("genesis_hash")).equals(this.expectedGenesisHash))
+				throw new IOException("Unexpected genesis block");
+
+			// Ask for more servers
+			Set<Server> moreServers = serverPeersSubscribe(connection);
+
+			synchronized (this.serverLock) {
 				// Discard duplicate servers we already know
 				moreServers.removeAll(this.servers);
 				// Add to both lists
 				this.remainingServers.addAll(moreServers);
 				this.servers.addAll(moreServers);
-
-				LOGGER.debug(() -> String.format("Connected to %s", server));
-				this.currentServer = server;
-				return true;
-			} catch (IOException | ForeignBlockchainException | ClassCastException | NullPointerException e) {
-				// Didn't work, try another server...
-				closeServer();
 			}
-		}
 
-		return false;
+			return connection;
+		} catch (IOException | ForeignBlockchainException | ClassCastException | NullPointerException e) {
+			// Didn't work
+			if (connection != null)
+				connection.close();
+
+			return null;
+		}
 	}
 
 	/**
-	 * Perform RPC using currently connected server.
+	 * Perform RPC using passed connection.
 	 * <p>
-	 * @param method
-	 * @param params
 	 * @return response Object, or null if server fails to respond
 	 * @throws ForeignBlockchainException if server returns error
 	 */
+	private Object connectedRpc(ElectrumXConnection connection, String method, Object...params) throws ForeignBlockchainException {
+		List<Object> results = this.connectedBatchRpc(connection, method, Collections.singletonList(params));
+		return results != null ? results.get(0) : null;
+	}
+
+	/**
+	 * Perform one RPC per entry in <tt>paramsList</tt> using passed connection.
+	 * <p>
+	 * All requests are sent, in batches of up to {@link #MAX_BATCH_SIZE}, before waiting for any responses.
+	 * <p>
+	 * Server's response time is recorded once per call, as the time taken for the first response to arrive.
+	 * Later responses queue behind earlier requests, so timing those would mostly measure the size of the call.
+	 *
+	 * @return response Objects, in the same order as <tt>paramsList</tt>, or null if server fails to respond to any
+	 * @throws ForeignBlockchainException if server returns error
+	 */
+	private List<Object> connectedBatchRpc(ElectrumXConnection connection, String method, List<Object[]> paramsList) throws ForeignBlockchainException {
+		long startTime = System.currentTimeMillis();
+		long deadline = startTime + RESPONSE_TIMEOUT;
+		List<CompletableFuture<JSONObject>> futures = new ArrayList<>(paramsList.size());
+
+		try {
+			for (int i = 0; i < paramsList.size(); i += MAX_BATCH_SIZE) {
+				List<JSONObject> requests = new ArrayList<>();
+
+				for (Object[] params : paramsList.subList(i, Math.min(i + MAX_BATCH_SIZE, paramsList.size())))
+					requests.add(buildRequest(method, params));
+
+				futures.addAll(connection.send(requests));
+			}
+
+			// Keep track of response times
+			if (!futures.isEmpty())
+				futures.get(0).thenRun(() -> connection.getServer().addResponseTime(System.currentTimeMillis() - startTime));
+
+			List<Object> results = new ArrayList<>(futures.size());
+
+			for (CompletableFuture<JSONObject> future : futures) {
+				Object result = this.parseResponse(connection.getServer(), method, ElectrumXConnection.await(future, deadline));
+				if (result == null)
+					return null;
+
+				results.add(result);
+			}
+
+			return results;
+		} catch (IOException e) {
+			// Unable to send, or receive -- try another server?
+			return null;
+		} catch (NoSuchMethodError e) {
+			// Likely an SSL dependency issue - retries are unlikely to succeed
+			LOGGER.error("ElectrumX output stream error", e);
+			return null;
+		}
+	}
+
 	@SuppressWarnings("unchecked")
-	private Object connectedRpc(String method, Object...params) throws ForeignBlockchainException {
+	private static JSONObject buildRequest(String method, Object...params) {
 		JSONObject requestJson = new JSONObject();
-		requestJson.put("id", this.nextId++);
 		requestJson.put("method", method);
 		requestJson.put("jsonrpc", "2.0");
 
@@ -760,56 +1007,26 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 
 		requestJson.put("params", requestParams);
 
-		String request = requestJson.toJSONString() + "\n";
-		LOGGER.trace(() -> String.format("Request: %s", request));
-
-		long startTime = System.currentTimeMillis();
-		final String response;
-
-		try {
-			this.socket.getOutputStream().write(request.getBytes());
-			response = scanner.next();
-		} catch (IOException | NoSuchElementException e) {
-			// Unable to send, or receive -- try another server?
-			return null;
-		} catch (NoSuchMethodError e) {
-			// Likely an SSL dependency issue - retries are unlikely to succeed
-			LOGGER.error("ElectrumX output stream error", e);
-			return null;
-		}
-
-		long endTime = System.currentTimeMillis();
-		long responseTime = endTime-startTime;
-
-		LOGGER.trace(() -> String.format("Response: %s", response));
-		LOGGER.trace(() -> String.format("Time taken: %dms", endTime-startTime));
-
-		if (response.isEmpty())
-			// Empty response - try another server?
-			return null;
-
-		Object responseObj = JSONValue.parse(response);
-		if (!(responseObj instanceof JSONObject))
-			// Unexpected response - try another server?
-			return null;
-
-		// Keep track of response times
-		if (this.currentServer != null) {
-			this.currentServer.addResponseTime(responseTime);
-		}
-
-		JSONObject responseJson = (JSONObject) responseObj;
+		return requestJson;
+	}
 
+	/**
+	 * Extracts "result" from <tt>responseJson</tt>.
+	 * <p>
+	 * @return result Object, or null if response is unusable
+	 * @throws ForeignBlockchainException if server returned error
+	 */
+	private Object parseResponse(ChainableServer server, String method, JSONObject responseJson) throws ForeignBlockchainException {
 		Object errorObj = responseJson.get("error");
 		if (errorObj != null) {
 			if (errorObj instanceof String) {
-				LOGGER.debug(String.format("Unexpected error message from ElectrumX server %s for RPC method %s: %s", this.currentServer, method, (String) errorObj));
+				LOGGER.debug(String.format("Unexpected error message from ElectrumX server %s for RPC method %s: %s", server, method, (String) errorObj));
 				// Try another server
 				return null;
 			}
 
 			if (!(errorObj instanceof JSONObject)) {
-				LOGGER.debug(String.format("Unexpected error response from ElectrumX server %s for RPC method %s", this.currentServer, method));
+				LOGGER.debug(String.format("Unexpected error response from ElectrumX server %s for RPC method %s", server, method));
 				// Try another server
 				return null;
 			}
@@ -819,7 +1036,7 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 			Object messageObj = errorJson.get("message");
 
 			if (!(messageObj instanceof String)) {
-				LOGGER.debug(String.format("Missing/invalid message in error response from ElectrumX server %s for RPC method %s", this.currentServer, method));
+				LOGGER.debug(String.format("Missing/invalid message in error response from ElectrumX server %s for RPC method %s", server, method));
 				// Try another server
 				return null;
 			}
@@ -833,44 +1050,64 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 			if (messageMatcher.find())
 				try {
 					int daemonErrorCode = Integer.parseInt(messageMatcher.group(1));
-					throw new ForeignBlockchainException.NetworkException(daemonErrorCode, message, this.currentServer);
+					throw new ForeignBlockchainException.NetworkException(daemonErrorCode, message, server);
 				} catch (NumberFormatException e) {
 					// We couldn't parse the error code integer? Fall-through to generic exception...
 				}
 
-			throw new ForeignBlockchainException.NetworkException(message, this.currentServer);
+			throw new ForeignBlockchainException.NetworkException(message, server);
 		}
 
 		return responseJson.get("result");
 	}
 
+	/** Closes, and stops using, <tt>connection</tt>. */
+	private void closeConnection(ElectrumXConnection connection) {
+		synchronized (this.serverLock) {
+			this.connections.remove(connection);
+		}
+
+		connection.close();
+	}
+
 	/**
-	 * Closes connection to <tt>server</tt> if it is currently connected server.
-	 * @param server
+	 * Stops using <tt>connection</tt> for new requests, closing it once requests already in flight have been answered.
+	 * <p>
+	 * Other threads may still be waiting on this connection, so closing it immediately would fail their requests too.
 	 */
-	private void closeServer(ChainableServer server) {
+	private void retireConnection(ElectrumXConnection connection) {
 		synchronized (this.serverLock) {
-			if (this.currentServer == null || !this.currentServer.equals(server))
+			if (!this.connections.remove(connection))
+				// Already retired, or closed, by another thread
 				return;
 
-			if (this.socket != null && !this.socket.isClosed())
-				try {
-					this.socket.close();
-				} catch (IOException e) {
-					// We did try...
-				}
-
-			this.socket = null;
-			this.scanner = null;
-			this.currentServer = null;
+			this.drainingConnections.add(connection);
 		}
+
+		connection.closeWhenDrained(System.currentTimeMillis() + RESPONSE_TIMEOUT);
 	}
 
-	/** Closes connection to currently connected server (if any). */
-	private void closeServer() {
+	/**
+	 * Closes any connection to <tt>server</tt>.
+	 * @param server
+	 */
+	private void closeServer(ChainableServer server) {
+		List<ElectrumXConnection> serverConnections = new ArrayList<>();
+
 		synchronized (this.serverLock) {
-			this.closeServer(this.currentServer);
+			for (ElectrumXConnection connection : this.connections)
+				if (connection.getServer().equals(server))
+					serverConnections.add(connection);
+
+			for (ElectrumXConnection connection : this.drainingConnections)
+				if (connection.getServer().equals(server))
+					serverConnections.add(connection);
+
+			this.connections.removeAll(serverConnections);
+			this.drainingConnections.removeAll(serverConnections);
 		}
+
+		serverConnections.forEach(ElectrumXConnection::close);
 	}
 
 	@Override
@@ -889,8 +1126,12 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 		return uselessServers;
 	}
 
+	/** Returns server we're currently sending most requests to, if any. */
 	@Override
 	public ChainableServer getCurrentServer() {
-		return currentServer;
+		synchronized (this.serverLock) {
+			ElectrumXConnection connection = this.getFastestConnection();
+			return connection != null ? connection.getServer() : null;
+		}
 	}
 }
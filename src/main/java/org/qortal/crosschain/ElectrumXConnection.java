@@ -0,0 +1,253 @@
+package org.qortal.crosschain;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.qortal.crypto.TrustlessSSLSocketFactory;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection to a single ElectrumX server, allowing many JSON-RPC requests to be in flight at once.
+ * <p>
+ * Requests are written as soon as they are made, without waiting for earlier responses.
+ * A background thread reads responses and matches them back up to their requests by id.
+ */
+class ElectrumXConnection {
+
+	private static final Logger LOGGER = LogManager.getLogger(ElectrumXConnection.class);
+
+	private static final int CONNECT_TIMEOUT = 5000; // ms
+
+	private final ChainableServer server;
+	private final Socket socket;
+	private final OutputStream outputStream;
+
+	private final Map<Long, CompletableFuture<JSONObject>> pendingRequests = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private volatile boolean isClosed = false;
+	/** Whether connection is to be closed once requests already in flight have been answered */
+	private volatile boolean isDraining = false;
+	private volatile long drainDeadline;
+
+	ElectrumXConnection(ChainableServer server) throws IOException {
+		this.server = server;
+
+		SocketAddress endpoint = new InetSocketAddress(server.getHostName(), server.getPort());
+
+		Socket socket = new Socket();
+		try {
+			socket.connect(endpoint, CONNECT_TIMEOUT);
+			socket.setTcpNoDelay(true);
+
+			if (server.getConnectionType() == ChainableServer.ConnectionType.SSL) {
+				SSLSocketFactory factory = TrustlessSSLSocketFactory.getSocketFactory();
+				socket = factory.createSocket(socket, server.getHostName(), server.getPort(), true);
+			}
+
+			this.outputStream = socket.getOutputStream();
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+
+		this.socket = socket;
+
+		Thread readerThread = new Thread(this::readResponses, String.format("ElectrumX %s", server));
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	public ChainableServer getServer() {
+		return this.server;
+	}
+
+	public boolean isClosed() {
+		return this.isClosed;
+	}
+
+	/** Returns number of requests still waiting for a response. */
+	public int getPendingCount() {
+		return this.pendingRequests.size();
+	}
+
+	/**
+	 * Sends <tt>requests</tt>, as a single JSON-RPC batch if there is more than one, without waiting for responses.
+	 * <p>
+	 * Each request is given a new "id".
+	 *
+	 * @return future response for each request, in the same order
+	 * @throws IOException if connection is closed, or requests couldn't be written
+	 */
+	@SuppressWarnings("unchecked")
+	public List<CompletableFuture<JSONObject>> send(List<JSONObject> requests) throws IOException {
+		if (this.isClosed)
+			throw new IOException(String.format("Connection to %s is closed", this.server));
+
+		List<CompletableFuture<JSONObject>> futures = new ArrayList<>(requests.size());
+
+		for (JSONObject request : requests) {
+			long id = this.nextId.getAndIncrement();
+			request.put("id", id);
+
+			CompletableFuture<JSONObject> future = new CompletableFuture<>();
+			this.pendingRequests.put(id, future);
+			futures.add(future);
+		}
+
+		String output;
+		if (requests.size() == 1) {
+			output = requests.get(0).toJSONString();
+		} else {
+			JSONArray batch = new JSONArray();
+			batch.addAll(requests);
+			output = batch.toJSONString();
+		}
+
+		LOGGER.trace(() -> String.format("Request to %s: %s", this.server, output));
+
+		try {
+			synchronized (this.outputStream) {
+				this.outputStream.write((output + "\n").getBytes(StandardCharsets.UTF_8));
+				this.outputStream.flush();
+			}
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+
+		return futures;
+	}
+
+	/**
+	 * Waits for <tt>future</tt> response until <tt>deadline</tt>.
+	 *
+	 * @throws IOException if connection failed, or no response arrived in time
+	 */
+	public static JSONObject await(CompletableFuture<JSONObject> future, long deadline) throws IOException {
+		try {
+			return future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			throw new IOException("No response from ElectrumX server", e.getCause());
+		} catch (TimeoutException e) {
+			throw new IOException("Timed out waiting for response from ElectrumX server");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for response from ElectrumX server");
+		}
+	}
+
+	/**
+	 * Closes connection once all requests in flight have been answered, or at <tt>deadline</tt> at the latest.
+	 * <p>
+	 * Caller is expected to stop handing out this connection for new requests.
+	 */
+	public void closeWhenDrained(long deadline) {
+		this.drainDeadline = deadline;
+		this.isDraining = true;
+
+		this.closeIfDrained();
+	}
+
+	/**
+	 * Closes connection if it's draining and has no requests left in flight, or has passed its drain deadline.
+	 *
+	 * @return true if connection is now closed
+	 */
+	public boolean closeIfDrained() {
+		if (this.isClosed)
+			return true;
+
+		if (!this.isDraining)
+			return false;
+
+		if (!this.pendingRequests.isEmpty() && System.currentTimeMillis() < this.drainDeadline)
+			return false;
+
+		this.close();
+		return true;
+	}
+
+	public void close() {
+		this.isClosed = true;
+
+		try {
+			this.socket.close();
+		} catch (IOException e) {
+			// We did try...
+		}
+
+		// Anyone still waiting isn't going to get a response now
+		IOException closedException = new IOException(String.format("Connection to %s closed", this.server));
+		for (Long id : new ArrayList<>(this.pendingRequests.keySet())) {
+			CompletableFuture<JSONObject> future = this.pendingRequests.remove(id);
+
+			if (future != null)
+				future.completeExceptionally(closedException);
+		}
+	}
+
+	private void readResponses() {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8))) {
+			String response;
+
+			while ((response = reader.readLine()) != null) {
+				final String finalResponse = response;
+				LOGGER.trace(() -> String.format("Response from %s: %s", this.server, finalResponse));
+
+				Object responseObj = JSONValue.parse(response);
+
+				if (responseObj instanceof JSONArray) {
+					// Response to a batch
+					for (Object batchResponseObj : (JSONArray) responseObj)
+						this.onResponse(batchResponseObj);
+				} else {
+					this.onResponse(responseObj);
+				}
+			}
+		} catch (IOException e) {
+			// Connection closed or failed
+		} finally {
+			this.close();
+		}
+	}
+
+	private void onResponse(Object responseObj) {
+		if (!(responseObj instanceof JSONObject))
+			// Unexpected response - waiting requests will time out
+			return;
+
+		JSONObject responseJson = (JSONObject) responseObj;
+
+		Object idObj = responseJson.get("id");
+		if (!(idObj instanceof Long))
+			// e.g. subscription notification, which we don't need
+			return;
+
+		CompletableFuture<JSONObject> future = this.pendingRequests.remove(idObj);
+		if (future == null)
+			// Requester has given up already
+			return;
+
+		future.complete(responseJson);
+
+		if (this.isDraining)
+			this.closeIfDrained();
+	}
+
+}
@@ -0,0 +1,139 @@
+package org.qortal.crypto;
+
+import org.qortal.utils.DaemonThreadFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies batches of Ed25519 signatures, spread across all available cores.
+ * <p>
+ * Each signature is still verified individually, using {@link Crypto#verify(byte[], byte[], byte[])},
+ * so results are always identical to verifying one signature at a time.
+ * (Combined, multi-scalar batch verification can accept signatures that single verification
+ * would reject, which we can't allow as block validity must not depend on how it was verified.)
+ */
+public abstract class Ed25519BatchVerifier {
+
+	/** Public key, signature and the message it signs. */
+	public static class SignedMessage {
+		private final byte[] publicKey;
+		private final byte[] signature;
+		private final byte[] message;
+
+		public SignedMessage(byte[] publicKey, byte[] signature, byte[] message) {
+			this.publicKey = publicKey;
+			this.signature = signature;
+			this.message = message;
+		}
+
+		public boolean verify() {
+			if (this.publicKey == null || this.signature == null || this.message == null)
+				return false;
+
+			return Crypto.verify(this.publicKey, this.signature, this.message);
+		}
+	}
+
+	/** Batches smaller than this are verified on the calling thread, as it's not worth handing off to other threads. */
+	private static final int MIN_PARALLEL_BATCH_SIZE = 16;
+	/** Number of signatures each thread claims in one go, to keep contention low. */
+	private static final int CLAIM_SIZE = 8;
+
+	private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+	private static ExecutorService executor;
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null)
+			executor = Executors.newFixedThreadPool(THREAD_COUNT, new DaemonThreadFactory("Ed25519-verify"));
+
+		return executor;
+	}
+
+	public static synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/** Returns whether all <tt>signedMessages</tt> have valid signatures. */
+	public static boolean verifyAll(List<SignedMessage> signedMessages) {
+		for (boolean isValid : verify(signedMessages))
+			if (!isValid)
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Verifies <tt>signedMessages</tt>, returning whether each one's signature is valid.
+	 * <p>
+	 * The calling thread also takes part in verification.
+	 * If the calling thread is interrupted, verification still completes
+	 * but the thread's interrupt status is preserved.
+	 *
+	 * @return array of results, one per entry in <tt>signedMessages</tt>, in the same order
+	 */
+	public static boolean[] verify(List<SignedMessage> signedMessages) {
+		final int size = signedMessages.size();
+		final boolean[] results = new boolean[size];
+
+		if (size < MIN_PARALLEL_BATCH_SIZE || THREAD_COUNT < 2) {
+			for (int i = 0; i < size; ++i)
+				results[i] = signedMessages.get(i).verify();
+
+			return results;
+		}
+
+		final AtomicInteger nextIndex = new AtomicInteger();
+		final CountDownLatch remainingCount = new CountDownLatch(size);
+
+		Runnable worker = () -> {
+			int fromIndex;
+			while ((fromIndex = nextIndex.getAndAdd(CLAIM_SIZE)) < size) {
+				int toIndex = Math.min(fromIndex + CLAIM_SIZE, size);
+
+				for (int i = fromIndex; i < toIndex; ++i) {
+					results[i] = signedMessages.get(i).verify();
+					remainingCount.countDown();
+				}
+			}
+		};
+
+		// Calling thread is one of the workers
+		int helperCount = Math.min(THREAD_COUNT, (size + CLAIM_SIZE - 1) / CLAIM_SIZE) - 1;
+
+		try {
+			ExecutorService executorService = getExecutor();
+			for (int i = 0; i < helperCount; ++i)
+				executorService.execute(worker);
+		} catch (RejectedExecutionException e) {
+			// Shutting down - calling thread will have to do the remaining work
+		}
+
+		worker.run();
+
+		// All signatures have been claimed, but some might still be in the process of verification by helpers
+		boolean wasInterrupted = false;
+		while (true) {
+			try {
+				remainingCount.await();
+				break;
+			} catch (InterruptedException e) {
+				wasInterrupted = true;
+			}
+		}
+
+		if (wasInterrupted)
+			Thread.currentThread().interrupt();
+
+		return results;
+	}
+
+}
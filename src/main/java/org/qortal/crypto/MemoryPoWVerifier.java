@@ -0,0 +1,157 @@
+package org.qortal.crypto;
+
+import org.qortal.utils.DaemonThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies batches of MemoryPoW nonces in parallel, using a bounded pool of worker threads.
+ * <p>
+ * Each worker reuses its own work buffer, instead of allocating a new
+ * multi-megabyte buffer for every verification.
+ */
+public class MemoryPoWVerifier {
+
+	@FunctionalInterface
+	public interface Verification<T> {
+		/** Returns whether <tt>item</tt> is valid, using <tt>workBuffer</tt> for MemoryPoW verification. */
+		boolean verify(T item, long[] workBuffer);
+	}
+
+	private final int workBufferLength;
+	private final int threadCount;
+	private final ExecutorService executor;
+	private final ThreadLocal<long[]> workBuffers;
+
+	/**
+	 * @param workBufferLength MemoryPoW work buffer length, in bytes
+	 * @param threadCount number of worker threads
+	 * @param threadName prefix for worker thread names
+	 */
+	public MemoryPoWVerifier(int workBufferLength, int threadCount, String threadName) {
+		this.workBufferLength = workBufferLength;
+		this.threadCount = Math.max(1, threadCount);
+		this.executor = Executors.newFixedThreadPool(this.threadCount, new DaemonThreadFactory(threadName));
+		this.workBuffers = ThreadLocal.withInitial(() -> new long[workBufferLength / 8]);
+	}
+
+	/**
+	 * Returns whether all <tt>items</tt> are valid.
+	 * <p>
+	 * Verification stops early on the first failure.
+	 */
+	public <T> boolean verifyAll(Collection<T> items, Verification<T> verification) throws InterruptedException {
+		boolean[] results = this.run(new ArrayList<>(items), verification, true);
+
+		for (boolean isValid : results)
+			if (!isValid)
+				return false;
+
+		return true;
+	}
+
+	/** Returns those <tt>items</tt> that are valid. */
+	public <T> List<T> filterValid(Collection<T> items, Verification<T> verification) throws InterruptedException {
+		List<T> itemsList = new ArrayList<>(items);
+		boolean[] results = this.run(itemsList, verification, false);
+
+		List<T> validItems = new ArrayList<>();
+		for (int i = 0; i < results.length; ++i)
+			if (results[i])
+				validItems.add(itemsList.get(i));
+
+		return validItems;
+	}
+
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private <T> boolean[] run(List<T> items, Verification<T> verification, boolean stopOnFailure) throws InterruptedException {
+		final boolean[] results = new boolean[items.size()];
+		if (items.isEmpty())
+			return results;
+
+		// Which items have actually been verified, as workers can stop before verifying all the items they picked up
+		final boolean[] isVerified = new boolean[items.size()];
+		final AtomicInteger nextIndex = new AtomicInteger();
+		final AtomicBoolean hasFailure = new AtomicBoolean();
+
+		// Workers pull the next unverified item until none remain, or we've found a failure and can stop early
+		Runnable worker = () -> {
+			long[] workBuffer = this.workBuffers.get();
+
+			int index;
+			while ((index = nextIndex.getAndIncrement()) < items.size()) {
+				if ((stopOnFailure && hasFailure.get()) || Thread.currentThread().isInterrupted())
+					return;
+
+				boolean isValid = verification.verify(items.get(index), workBuffer);
+				results[index] = isValid;
+				isVerified[index] = true;
+
+				if (!isValid)
+					hasFailure.set(true);
+			}
+		};
+
+		final int workerCount = Math.min(this.threadCount, items.size());
+		List<Future<?>> futures = new ArrayList<>(workerCount);
+
+		try {
+			for (int i = 0; i < workerCount; ++i)
+				futures.add(this.executor.submit(worker));
+		} catch (RejectedExecutionException e) {
+			// We're shutting down - any items not verified by workers already submitted are verified below
+		}
+
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		} catch (ExecutionException e) {
+			throw rethrow(e);
+		} finally {
+			// Don't leave workers running if we were interrupted or something went wrong
+			for (Future<?> future : futures)
+				future.cancel(true);
+		}
+
+		// Workers stop early if we're shutting down, so finish off any remaining items on this thread, with a one-off work buffer
+		long[] workBuffer = null;
+
+		for (int index = 0; index < items.size(); ++index) {
+			if (isVerified[index])
+				continue;
+
+			if (stopOnFailure && hasFailure.get())
+				break;
+
+			if (workBuffer == null)
+				workBuffer = new long[this.workBufferLength / 8];
+
+			results[index] = verification.verify(items.get(index), workBuffer);
+
+			if (!results[index])
+				hasFailure.set(true);
+		}
+
+		return results;
+	}
+
+	private static RuntimeException rethrow(ExecutionException e) {
+		if (e.getCause() instanceof RuntimeException)
+			return (RuntimeException) e.getCause();
+
+		return new IllegalStateException("MemoryPoW verification failed", e.getCause());
+	}
+
+}
@@ -132,6 +132,9 @@ public class ActiveChats {
 
 	private List<DirectChat> direct;
 
+	/** Only present for websocket updates that contain just the chats that have changed */
+	private Boolean isDelta;
+
 	// Constructors
 
 	protected ActiveChats() {
@@ -152,4 +155,12 @@ public class ActiveChats {
 		return this.direct;
 	}
 
+	public Boolean isDelta() {
+		return this.isDelta;
+	}
+
+	public void setIsDelta(Boolean isDelta) {
+		this.isDelta = isDelta;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package org.qortal.data.crosschain;
+
+import org.qortal.crosschain.SimpleTransaction;
+import org.qortal.crosschain.UnspentOutput;
+
+import java.util.*;
+
+/**
+ * Node-local index of a Bitcoin-like HD wallet: derived addresses, confirmed transactions and unspent outputs.
+ * <p>
+ * Wallets are identified by a hash of their key, so the key itself is never stored.
+ */
+public class ForeignWalletData {
+
+	private final byte[] walletId;
+	private final String blockchain;
+
+	/** Derived addresses, in derivation order */
+	private List<String> addresses;
+	/** Addresses with confirmed transactions */
+	private Set<String> usedAddresses;
+	/** Index into <tt>addresses</tt> of last used address, or -1 if wallet has never been used */
+	private int lastUsedIndex;
+
+	/** Confirmed transactions, by transaction hash */
+	private Map<String, SimpleTransaction> transactions;
+	/** Confirmed transaction heights, by transaction hash */
+	private Map<String, Integer> transactionHeights;
+	/** Transactions added, or moved to a different height, since index was last saved */
+	private final Set<String> unsavedTransactionHashes = new HashSet<>();
+	/** Transactions removed since index was last saved */
+	private final Set<String> droppedTransactionHashes = new HashSet<>();
+
+	private List<UnspentOutput> unspentOutputs;
+
+	/** Foreign blockchain height when last synced, or 0 if never synced */
+	private int syncedHeight;
+	private long updatedWhen;
+
+	public ForeignWalletData(byte[] walletId, String blockchain, List<String> addresses, Set<String> usedAddresses, int lastUsedIndex,
+			Map<String, SimpleTransaction> transactions, Map<String, Integer> transactionHeights, List<UnspentOutput> unspentOutputs,
+			int syncedHeight, long updatedWhen) {
+		this.walletId = walletId;
+		this.blockchain = blockchain;
+		this.addresses = addresses;
+		this.usedAddresses = usedAddresses;
+		this.lastUsedIndex = lastUsedIndex;
+		this.transactions = transactions;
+		this.transactionHeights = transactionHeights;
+		this.unspentOutputs = unspentOutputs;
+		this.syncedHeight = syncedHeight;
+		this.updatedWhen = updatedWhen;
+	}
+
+	/** New, empty, never-synced wallet index. */
+	public ForeignWalletData(byte[] walletId, String blockchain) {
+		this(walletId, blockchain, new ArrayList<>(), new HashSet<>(), -1, new HashMap<>(), new HashMap<>(), new ArrayList<>(), 0, 0L);
+	}
+
+	public byte[] getWalletId() {
+		return this.walletId;
+	}
+
+	public String getBlockchain() {
+		return this.blockchain;
+	}
+
+	public List<String> getAddresses() {
+		return this.addresses;
+	}
+
+	public void setAddresses(List<String> addresses) {
+		this.addresses = addresses;
+	}
+
+	public Set<String> getUsedAddresses() {
+		return this.usedAddresses;
+	}
+
+	public void setUsedAddresses(Set<String> usedAddresses) {
+		this.usedAddresses = usedAddresses;
+	}
+
+	public int getLastUsedIndex() {
+		return this.lastUsedIndex;
+	}
+
+	public void setLastUsedIndex(int lastUsedIndex) {
+		this.lastUsedIndex = lastUsedIndex;
+	}
+
+	public Map<String, SimpleTransaction> getTransactions() {
+		return this.transactions;
+	}
+
+	public void setTransactions(Map<String, SimpleTransaction> transactions) {
+		this.transactions = transactions;
+	}
+
+	public Map<String, Integer> getTransactionHeights() {
+		return this.transactionHeights;
+	}
+
+	public void setTransactionHeights(Map<String, Integer> transactionHeights) {
+		this.transactionHeights = transactionHeights;
+	}
+
+	/** Notes transactions that were added/moved, or removed, so that only they are written when index is next saved. */
+	public void recordTransactionChanges(Set<String> changedTxHashes, Set<String> droppedTxHashes) {
+		this.unsavedTransactionHashes.removeAll(droppedTxHashes);
+		this.unsavedTransactionHashes.addAll(changedTxHashes);
+		this.droppedTransactionHashes.addAll(droppedTxHashes);
+	}
+
+	public Set<String> getUnsavedTransactionHashes() {
+		return this.unsavedTransactionHashes;
+	}
+
+	public Set<String> getDroppedTransactionHashes() {
+		return this.droppedTransactionHashes;
+	}
+
+	/** Called once index, including transaction changes, has been saved. */
+	public void markTransactionsSaved() {
+		this.unsavedTransactionHashes.clear();
+		this.droppedTransactionHashes.clear();
+	}
+
+	public List<UnspentOutput> getUnspentOutputs() {
+		return this.unspentOutputs;
+	}
+
+	public void setUnspentOutputs(List<UnspentOutput> unspentOutputs) {
+		this.unspentOutputs = unspentOutputs;
+	}
+
+	public int getSyncedHeight() {
+		return this.syncedHeight;
+	}
+
+	public void setSyncedHeight(int syncedHeight) {
+		this.syncedHeight = syncedHeight;
+	}
+
+	public long getUpdatedWhen() {
+		return this.updatedWhen;
+	}
+
+	public void setUpdatedWhen(long updatedWhen) {
+		this.updatedWhen = updatedWhen;
+	}
+
+}
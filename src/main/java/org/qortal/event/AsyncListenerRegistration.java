@@ -0,0 +1,150 @@
+package org.qortal.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener that receives events on a separate thread, via a bounded queue.
+ * <p>
+ * Events are delivered one at a time, in the order they were queued,
+ * so the listener itself doesn't need to cope with concurrent calls.
+ */
+class AsyncListenerRegistration extends ListenerRegistration {
+
+	private static final Logger LOGGER = LogManager.getLogger(AsyncListenerRegistration.class);
+
+	private static class QueuedEvent {
+		Event event;
+		final long queuedTime;
+
+		QueuedEvent(Event event) {
+			this.event = event;
+			this.queuedTime = System.nanoTime();
+		}
+	}
+
+	private final int maxQueueSize;
+	private final EventBus.OverflowPolicy overflowPolicy;
+	private final Executor executor;
+
+	/** Pending events. Also used as lock for <tt>isDraining</tt> and <tt>isCancelled</tt>. */
+	private final Deque<QueuedEvent> queue = new ArrayDeque<>();
+	private boolean isDraining = false;
+	private boolean isCancelled = false;
+
+	private final LongAdder droppedCount = new LongAdder();
+	private final LongAdder coalescedCount = new LongAdder();
+	private final LongAdder totalQueueDelayNanos = new LongAdder();
+
+	AsyncListenerRegistration(String name, Listener listener, Set<Class<? extends Event>> eventTypes,
+			int maxQueueSize, EventBus.OverflowPolicy overflowPolicy, Executor executor) {
+		super(name, listener, eventTypes);
+
+		this.maxQueueSize = Math.max(1, maxQueueSize);
+		this.overflowPolicy = overflowPolicy;
+		this.executor = executor;
+	}
+
+	@Override
+	void submit(Event event) {
+		synchronized (this.queue) {
+			if (this.isCancelled)
+				return;
+
+			if (!this.enqueue(event))
+				return;
+
+			if (this.isDraining)
+				return;
+
+			this.isDraining = true;
+		}
+
+		try {
+			this.executor.execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			// Shutting down
+			synchronized (this.queue) {
+				this.queue.clear();
+				this.isDraining = false;
+			}
+		}
+	}
+
+	@Override
+	void cancel() {
+		synchronized (this.queue) {
+			this.isCancelled = true;
+			this.queue.clear();
+		}
+	}
+
+	/** Adds <tt>event</tt> to queue, applying overflow policy. Returns whether queue was changed. Caller must hold queue lock. */
+	private boolean enqueue(Event event) {
+		if (this.overflowPolicy == EventBus.OverflowPolicy.COALESCE) {
+			// Replace queued event of same type, keeping its place in queue
+			for (QueuedEvent queuedEvent : this.queue)
+				if (queuedEvent.event.getClass() == event.getClass()) {
+					queuedEvent.event = event;
+					this.coalescedCount.increment();
+					return true;
+				}
+		}
+
+		if (this.queue.size() >= this.maxQueueSize) {
+			this.droppedCount.increment();
+			LOGGER.trace(() -> String.format("Listener %s queue full, dropping %s event", this.name, event.getClass().getSimpleName()));
+
+			if (this.overflowPolicy == EventBus.OverflowPolicy.DROP_NEWEST)
+				return false;
+
+			this.queue.poll();
+		}
+
+		this.queue.offer(new QueuedEvent(event));
+		return true;
+	}
+
+	private void drain() {
+		while (true) {
+			QueuedEvent queuedEvent;
+
+			synchronized (this.queue) {
+				queuedEvent = this.queue.poll();
+
+				if (queuedEvent == null) {
+					this.isDraining = false;
+					return;
+				}
+			}
+
+			this.totalQueueDelayNanos.add(System.nanoTime() - queuedEvent.queuedTime);
+			this.deliver(queuedEvent.event);
+		}
+	}
+
+	@Override
+	EventBus.ListenerStats getStats() {
+		EventBus.ListenerStats stats = super.getStats();
+
+		stats.isAsync = true;
+		stats.maxQueueSize = this.maxQueueSize;
+		stats.droppedCount = this.droppedCount.sum();
+		stats.coalescedCount = this.coalescedCount.sum();
+		stats.averageQueueDelayNanos = stats.deliveredCount > 0 ? this.totalQueueDelayNanos.sum() / stats.deliveredCount : 0L;
+
+		synchronized (this.queue) {
+			stats.queueSize = this.queue.size();
+		}
+
+		return stats;
+	}
+
+}
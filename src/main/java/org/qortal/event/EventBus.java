@@ -1,28 +1,96 @@
 package org.qortal.event;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import org.qortal.utils.DaemonThreadFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public enum EventBus {
 	INSTANCE;
 
-	private static final Logger LOGGER = LogManager.getLogger(EventBus.class);
+	/** What an asynchronous listener does with a new event when its queue is full. */
+	public enum OverflowPolicy {
+		/** Discard the new event */
+		DROP_NEWEST,
+		/** Discard the oldest queued event to make room for the new event */
+		DROP_OLDEST,
+		/** Replace any queued event of the same class with the new event, otherwise as {@link #DROP_OLDEST} */
+		COALESCE
+	}
 
-	private static final List<Listener> LISTENERS = new ArrayList<>();
+	public static class ListenerStats {
+		public String name;
+		public boolean isAsync;
+		/** Number of events passed to listener */
+		public long deliveredCount;
+		/** Average time spent inside listener, per event */
+		public long averageLatencyNanos;
+		public long maxLatencyNanos;
+		/** Asynchronous listeners only: events currently waiting to be delivered */
+		public int queueSize;
+		public int maxQueueSize;
+		/** Asynchronous listeners only: average time events spent in queue before delivery */
+		public long averageQueueDelayNanos;
+		public long droppedCount;
+		public long coalescedCount;
 
-	public void addListener(Listener newListener) {
-		synchronized (LISTENERS) {
-			LISTENERS.add(newListener);
+		public ListenerStats() {
 		}
 	}
 
+	/** Copy-on-write, so notifying threads can iterate without locking */
+	private static final List<ListenerRegistration> LISTENERS = new CopyOnWriteArrayList<>();
+
+	/** Runs asynchronous listeners. Each listener only ever uses one thread at a time. */
+	private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("EventBus"));
+
+	/** Adds listener that is called synchronously, on the notifying thread, for every event. */
+	public void addListener(Listener newListener) {
+		this.addListener(newListener.getClass().getSimpleName(), newListener, Set.of());
+	}
+
+	/**
+	 * Adds listener that is called synchronously, on the notifying thread.
+	 *
+	 * @param eventTypes event classes to pass to listener, or empty for all events
+	 */
+	public void addListener(String name, Listener newListener, Set<Class<? extends Event>> eventTypes) {
+		LISTENERS.add(new ListenerRegistration(name, newListener, eventTypes));
+	}
+
+	/**
+	 * Adds listener that is called on a separate thread, so slow listeners don't hold up notifying threads.
+	 * <p>
+	 * Events are queued, up to <tt>maxQueueSize</tt>, and then passed to listener one at a time, in order.
+	 *
+	 * @param eventTypes event classes to pass to listener, or empty for all events
+	 */
+	public void addAsyncListener(String name, Listener newListener, int maxQueueSize, OverflowPolicy overflowPolicy,
+			Set<Class<? extends Event>> eventTypes) {
+		LISTENERS.add(new AsyncListenerRegistration(name, newListener, eventTypes, maxQueueSize, overflowPolicy, ASYNC_EXECUTOR));
+	}
+
 	public void removeListener(Listener listener) {
-		synchronized (LISTENERS) {
-			LISTENERS.remove(listener);
-		}
+		for (ListenerRegistration registration : LISTENERS)
+			if (registration.listener == listener && LISTENERS.remove(registration))
+				registration.cancel();
+	}
+
+	public List<ListenerStats> getListenerStats() {
+		List<ListenerStats> listenerStats = new ArrayList<>();
+
+		for (ListenerRegistration registration : LISTENERS)
+			listenerStats.add(registration.getStats());
+
+		return listenerStats;
+	}
+
+	public void shutdown() {
+		ASYNC_EXECUTOR.shutdownNow();
 	}
 
 	/**
@@ -42,24 +110,14 @@ public enum EventBus {
 	 * <li>alternatively, another thread has explicitly requested CHECKPOINT</li>
 	 * <li>HSQLDB won't begin CHECKPOINT until all pending (SQL) transactions are committed or rolled back</li>
 	 * <li>Same thread calls <tt>EventBus.INSTANCE.notify()</tt> <i>before</i> (SQL) transaction closed</li>
-	 * <li>EventBus listener (same thread) requests a new repository session via <tt>RepositoryManager.getRepository()</tt></li>
+	 * <li>Synchronous EventBus listener (same thread) requests a new repository session via <tt>RepositoryManager.getRepository()</tt></li>
 	 * <li>New repository sessions are blocked pending completion of CHECKPOINT</li>
 	 * <li>Caller is blocked so never has a chance to close (SQL) transaction - hence deadlock</li>
 	 * </ul>
 	 */
 	public void notify(Event event) {
-		List<Listener> clonedListeners;
-
-		synchronized (LISTENERS) {
-			clonedListeners = new ArrayList<>(LISTENERS);
-		}
-
-		for (Listener listener : clonedListeners)
-			try {
-				listener.listen(event);
-			} catch (Exception e) {
-				// We don't want one listener to break other listeners, or caller
-				LOGGER.warn(() -> String.format("Caught %s from a listener processing %s", e.getClass().getSimpleName(), event.getClass().getSimpleName()), e);
-			}
+		for (ListenerRegistration registration : LISTENERS)
+			if (registration.wants(event))
+				registration.submit(event);
 	}
 }
@@ -0,0 +1,77 @@
+package org.qortal.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Listener registered with {@link EventBus}, along with its delivery statistics. */
+class ListenerRegistration {
+
+	private static final Logger LOGGER = LogManager.getLogger(ListenerRegistration.class);
+
+	protected final String name;
+	protected final Listener listener;
+	/** Event types this listener wants, or empty for all events */
+	private final Set<Class<? extends Event>> eventTypes;
+
+	protected final LongAdder deliveredCount = new LongAdder();
+	private final LongAdder totalLatencyNanos = new LongAdder();
+	private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0L);
+
+	ListenerRegistration(String name, Listener listener, Set<Class<? extends Event>> eventTypes) {
+		this.name = name;
+		this.listener = listener;
+		this.eventTypes = Set.copyOf(eventTypes);
+	}
+
+	boolean wants(Event event) {
+		if (this.eventTypes.isEmpty())
+			return true;
+
+		for (Class<? extends Event> eventType : this.eventTypes)
+			if (eventType.isInstance(event))
+				return true;
+
+		return false;
+	}
+
+	/** Passes <tt>event</tt> to listener. Called on notifying thread. */
+	void submit(Event event) {
+		this.deliver(event);
+	}
+
+	/** Called when listener is removed from event bus. */
+	void cancel() {
+	}
+
+	protected void deliver(Event event) {
+		final long startTime = System.nanoTime();
+
+		try {
+			this.listener.listen(event);
+		} catch (Exception e) {
+			// We don't want one listener to break other listeners, or caller
+			LOGGER.warn(() -> String.format("Caught %s from listener %s processing %s", e.getClass().getSimpleName(), this.name, event.getClass().getSimpleName()), e);
+		}
+
+		final long latency = System.nanoTime() - startTime;
+		this.deliveredCount.increment();
+		this.totalLatencyNanos.add(latency);
+		this.maxLatencyNanos.accumulate(latency);
+	}
+
+	EventBus.ListenerStats getStats() {
+		EventBus.ListenerStats stats = new EventBus.ListenerStats();
+
+		stats.name = this.name;
+		stats.deliveredCount = this.deliveredCount.sum();
+		stats.averageLatencyNanos = stats.deliveredCount > 0 ? this.totalLatencyNanos.sum() / stats.deliveredCount : 0L;
+		stats.maxLatencyNanos = this.maxLatencyNanos.get();
+
+		return stats;
+	}
+
+}
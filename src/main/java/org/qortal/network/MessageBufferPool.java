@@ -0,0 +1,152 @@
+package org.qortal.network;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of direct byte buffers, used to serialize outgoing messages.
+ * <p>
+ * Buffers are grouped into size classes, each a power of two, from {@link #MIN_BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE}.
+ * Requests are rounded up to the nearest size class. Requests larger than the biggest size class are not pooled
+ * and are served using a new heap buffer instead.
+ * <p>
+ * Every buffer returned by {@link #acquire(int)} must be passed to {@link #release(ByteBuffer)} exactly once,
+ * after which the caller must no longer use it.
+ */
+public class MessageBufferPool {
+
+    public static class StatsSnapshot {
+        /** Number of requests served using a pooled buffer */
+        public long hits;
+        /** Number of requests that needed a new buffer */
+        public long misses;
+        /** Total capacity of buffers currently acquired and not yet released */
+        public long bytesInUse;
+        /** Total capacity of idle buffers held by pool, ready for reuse */
+        public long bytesPooled;
+
+        public StatsSnapshot() {
+        }
+    }
+
+    private static final int MIN_BUFFER_SIZE_SHIFT = 12;
+    private static final int MAX_BUFFER_SIZE_SHIFT = 20;
+
+    public static final int MIN_BUFFER_SIZE = 1 << MIN_BUFFER_SIZE_SHIFT; // 4KiB
+    public static final int MAX_BUFFER_SIZE = 1 << MAX_BUFFER_SIZE_SHIFT; // 1MiB
+
+    private static final int SIZE_CLASS_COUNT = MAX_BUFFER_SIZE_SHIFT - MIN_BUFFER_SIZE_SHIFT + 1;
+
+    private static class SizeClass {
+        final int bufferSize;
+        final int maxPooledBuffers;
+        final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pooledCount = new AtomicInteger();
+
+        SizeClass(int bufferSize, int maxPooledBuffers) {
+            this.bufferSize = bufferSize;
+            this.maxPooledBuffers = maxPooledBuffers;
+        }
+    }
+
+    private final SizeClass[] sizeClasses = new SizeClass[SIZE_CLASS_COUNT];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong bytesInUse = new AtomicLong();
+    private final AtomicLong bytesPooled = new AtomicLong();
+
+    /**
+     * @param maxPooledBytes maximum total capacity of idle buffers to keep, shared evenly between size classes
+     */
+    public MessageBufferPool(long maxPooledBytes) {
+        long maxPooledBytesPerClass = maxPooledBytes / SIZE_CLASS_COUNT;
+
+        for (int i = 0; i < SIZE_CLASS_COUNT; ++i) {
+            int bufferSize = MIN_BUFFER_SIZE << i;
+            int maxPooledBuffers = (int) Math.min(Integer.MAX_VALUE, maxPooledBytesPerClass / bufferSize);
+
+            this.sizeClasses[i] = new SizeClass(bufferSize, maxPooledBuffers);
+        }
+    }
+
+    /**
+     * Returns a buffer with at least <tt>length</tt> bytes capacity,
+     * with position zero and limit set to <tt>length</tt>.
+     */
+    public ByteBuffer acquire(int length) {
+        SizeClass sizeClass = getSizeClass(length);
+
+        ByteBuffer buffer;
+        if (sizeClass == null) {
+            // Too big to pool
+            buffer = ByteBuffer.allocate(length);
+            this.misses.increment();
+        } else {
+            buffer = sizeClass.buffers.poll();
+
+            if (buffer != null) {
+                sizeClass.pooledCount.decrementAndGet();
+                this.bytesPooled.addAndGet(-buffer.capacity());
+                this.hits.increment();
+            } else {
+                buffer = ByteBuffer.allocateDirect(sizeClass.bufferSize);
+                this.misses.increment();
+            }
+        }
+
+        this.bytesInUse.addAndGet(buffer.capacity());
+
+        buffer.clear().limit(length);
+        return buffer;
+    }
+
+    /** Returns <tt>buffer</tt>, previously obtained from {@link #acquire(int)}, to the pool. */
+    public void release(ByteBuffer buffer) {
+        this.bytesInUse.addAndGet(-buffer.capacity());
+
+        if (!buffer.isDirect())
+            return;
+
+        SizeClass sizeClass = getSizeClass(buffer.capacity());
+        if (sizeClass == null || sizeClass.bufferSize != buffer.capacity())
+            return;
+
+        // Discard, rather than pool, if we already have enough idle buffers of this size
+        if (sizeClass.pooledCount.incrementAndGet() > sizeClass.maxPooledBuffers) {
+            sizeClass.pooledCount.decrementAndGet();
+            return;
+        }
+
+        this.bytesPooled.addAndGet(buffer.capacity());
+        sizeClass.buffers.offer(buffer);
+    }
+
+    public StatsSnapshot getStatsSnapshot() {
+        StatsSnapshot snapshot = new StatsSnapshot();
+
+        snapshot.hits = this.hits.sum();
+        snapshot.misses = this.misses.sum();
+        snapshot.bytesInUse = this.bytesInUse.get();
+        snapshot.bytesPooled = this.bytesPooled.get();
+
+        return snapshot;
+    }
+
+    private SizeClass getSizeClass(int length) {
+        if (length > MAX_BUFFER_SIZE)
+            return null;
+
+        if (length <= MIN_BUFFER_SIZE)
+            return this.sizeClasses[0];
+
+        // Round up to next power of two
+        int shift = 32 - Integer.numberOfLeadingZeros(length - 1);
+        return this.sizeClasses[shift - MIN_BUFFER_SIZE_SHIFT];
+    }
+
+}
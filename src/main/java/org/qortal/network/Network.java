@@ -106,19 +106,10 @@ public class Network {
     private final List<PeerData> allKnownPeers = new ArrayList<>();
 
     /**
-     * Maintain two lists for each subset of peers:
-     * - A synchronizedList, to be modified when peers are added/removed
-     * - An immutable List, which is rebuilt automatically to mirror the synchronized list, and is then served to consumers
-     * This allows for thread safety without having to synchronize every time a thread requests a peer list
+     * Connected, handshaked and outbound handshaked peers.
+     * Serves immutable peer lists and indexed lookups without having to synchronize every time a thread requests them.
      */
-    private final List<Peer> connectedPeers = Collections.synchronizedList(new ArrayList<>());
-    private List<Peer> immutableConnectedPeers = Collections.emptyList(); // always rebuilt from mutable, synced list above
-
-    private final List<Peer> handshakedPeers = Collections.synchronizedList(new ArrayList<>());
-    private List<Peer> immutableHandshakedPeers = Collections.emptyList(); // always rebuilt from mutable, synced list above
-
-    private final List<Peer> outboundHandshakedPeers = Collections.synchronizedList(new ArrayList<>());
-    private List<Peer> immutableOutboundHandshakedPeers = Collections.emptyList(); // always rebuilt from mutable, synced list above
+    private final PeerRegistry peerRegistry = new PeerRegistry();
 
 
     /**
@@ -141,12 +132,18 @@ public class Network {
 
     private String bindAddress = null;
 
+    private final ExecutorService networkExecutor;
     private final ExecuteProduceConsume networkEPC;
     private Selector channelSelector;
     private ServerSocketChannel serverChannel;
     private SelectionKey serverSelectionKey;
     private final Set<SelectableChannel> channelsPendingWrite = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Direct buffers used by peers to serialize outgoing messages
+     */
+    private final MessageBufferPool messageBufferPool = new MessageBufferPool(Settings.getInstance().getNetworkBufferPoolMaxBytes());
+
     private final Lock mergePeersLock = new ReentrantLock();
 
     private List<String> ourExternalIpAddressHistory = new ArrayList<>();
@@ -164,7 +161,7 @@ public class Network {
         maxPeers = Settings.getInstance().getMaxPeers();
 
         // We'll use a cached thread pool but with more aggressive timeout.
-        ExecutorService networkExecutor = new ThreadPoolExecutor(1,
+        networkExecutor = new ThreadPoolExecutor(1,
                 Settings.getInstance().getMaxNetworkThreadPoolSize(),
                 NETWORK_EPC_KEEPALIVE, TimeUnit.SECONDS,
                 new SynchronousQueue<Runnable>(),
@@ -300,6 +297,19 @@ public class Network {
         return this.networkEPC.getStatsSnapshot();
     }
 
+    /** Executor for network tasks, also used to run actions that depend on responses to peer requests. */
+    public Executor getNetworkExecutor() {
+        return this.networkExecutor;
+    }
+
+    protected MessageBufferPool getMessageBufferPool() {
+        return this.messageBufferPool;
+    }
+
+    public MessageBufferPool.StatsSnapshot getMessageBufferPoolStats() {
+        return this.messageBufferPool.getStatsSnapshot();
+    }
+
     // Peer lists
 
     public List<PeerData> getAllKnownPeers() {
@@ -309,32 +319,24 @@ public class Network {
     }
 
     public List<Peer> getImmutableConnectedPeers() {
-        return this.immutableConnectedPeers;
+        return this.peerRegistry.getConnectedPeers();
     }
 
     public List<Peer> getImmutableConnectedDataPeers() {
-        return this.getImmutableConnectedPeers().stream()
-                .filter(p -> p.isDataPeer())
-                .collect(Collectors.toList());
+        return this.peerRegistry.getConnectedDataPeers();
     }
 
     public List<Peer> getImmutableConnectedNonDataPeers() {
-        return this.getImmutableConnectedPeers().stream()
-                .filter(p -> !p.isDataPeer())
-                .collect(Collectors.toList());
+        return this.peerRegistry.getConnectedNonDataPeers();
     }
 
     public void addConnectedPeer(Peer peer) {
-        this.connectedPeers.add(peer); // thread safe thanks to synchronized list
-        this.immutableConnectedPeers = List.copyOf(this.connectedPeers); // also thread safe thanks to synchronized collection's toArray() being fed to List.of(array)
+        this.peerRegistry.addConnectedPeer(peer);
     }
 
     public void removeConnectedPeer(Peer peer) {
-        // Firstly remove from handshaked peers
-        this.removeHandshakedPeer(peer);
-
-        this.connectedPeers.remove(peer); // thread safe thanks to synchronized list
-        this.immutableConnectedPeers = List.copyOf(this.connectedPeers); // also thread safe thanks to synchronized collection's toArray() being fed to List.of(array)
+        // Also removes from handshaked peers
+        this.peerRegistry.removeConnectedPeer(peer);
     }
 
     public List<PeerAddress> getSelfPeers() {
@@ -369,19 +371,17 @@ public class Network {
             }
 
             // Check if we're already connected to and handshaked with this peer
-            Peer connectedPeer = this.getImmutableConnectedPeers().stream()
-                        .filter(p -> p.getPeerData().getAddress().equals(peerAddress))
-                        .findFirst()
-                        .orElse(null);
+            Peer connectedPeer = this.peerRegistry.getConnectedPeerWithAddress(peerAddress);
 
             boolean isConnected = (connectedPeer != null);
 
-            boolean isHandshaked = this.getImmutableHandshakedPeers().stream()
-                    .anyMatch(p -> p.getPeerData().getAddress().equals(peerAddress));
+            Peer handshakedPeer = this.peerRegistry.getHandshakedPeerWithAddress(peerAddress);
+
+            boolean isHandshaked = (handshakedPeer != null);
 
             if (isConnected && isHandshaked) {
                 // Already connected
-                return this.requestDataFromConnectedPeer(connectedPeer, signature);
+                return this.requestDataFromConnectedPeer(handshakedPeer, signature);
             }
             else {
                 // We need to connect to this peer before we can request data
@@ -422,60 +422,42 @@ public class Network {
      * Returns list of connected peers that have completed handshaking.
      */
     public List<Peer> getImmutableHandshakedPeers() {
-        return this.immutableHandshakedPeers;
+        return this.peerRegistry.getHandshakedPeers();
     }
 
-    public void addHandshakedPeer(Peer peer) {
-        this.handshakedPeers.add(peer); // thread safe thanks to synchronized list
-        this.immutableHandshakedPeers = List.copyOf(this.handshakedPeers); // also thread safe thanks to synchronized collection's toArray() being fed to List.of(array)
-
-        // Also add to outbound handshaked peers cache
-        if (peer.isOutbound()) {
-            this.addOutboundHandshakedPeer(peer);
-        }
+    /**
+     * Adds peer to handshaked peers, and outbound handshaked peers if applicable.
+     *
+     * @return false if peer is no longer connected, or we already have a different handshaked peer with the same public key
+     */
+    public boolean addHandshakedPeer(Peer peer) {
+        return this.peerRegistry.addHandshakedPeer(peer);
     }
 
     public void removeHandshakedPeer(Peer peer) {
-        this.handshakedPeers.remove(peer); // thread safe thanks to synchronized list
-        this.immutableHandshakedPeers = List.copyOf(this.handshakedPeers); // also thread safe thanks to synchronized collection's toArray() being fed to List.of(array)
-
-        // Also remove from outbound handshaked peers cache
-        if (peer.isOutbound()) {
-            this.removeOutboundHandshakedPeer(peer);
-        }
+        // Also removes from outbound handshaked peers
+        this.peerRegistry.removeHandshakedPeer(peer);
     }
 
     /**
      * Returns list of peers we connected to that have completed handshaking.
      */
     public List<Peer> getImmutableOutboundHandshakedPeers() {
-        return this.immutableOutboundHandshakedPeers;
+        return this.peerRegistry.getOutboundHandshakedPeers();
     }
 
-    public void addOutboundHandshakedPeer(Peer peer) {
-        if (!peer.isOutbound()) {
-            return;
-        }
-        this.outboundHandshakedPeers.add(peer); // thread safe thanks to synchronized list
-        this.immutableOutboundHandshakedPeers = List.copyOf(this.outboundHandshakedPeers); // also thread safe thanks to synchronized collection's toArray() being fed to List.of(array)
-    }
-
-    public void removeOutboundHandshakedPeer(Peer peer) {
-        if (!peer.isOutbound()) {
-            return;
-        }
-        this.outboundHandshakedPeers.remove(peer); // thread safe thanks to synchronized list
-        this.immutableOutboundHandshakedPeers = List.copyOf(this.outboundHandshakedPeers); // also thread safe thanks to synchronized collection's toArray() being fed to List.of(array)
+    /**
+     * Returns peer that has completed handshaking and has matching public key.
+     */
+    public Peer getHandshakedPeerWithPublicKey(byte[] publicKey) {
+        return this.peerRegistry.getHandshakedPeerWithPublicKey(publicKey);
     }
 
     /**
-     * Returns first peer that has completed handshaking and has matching public key.
+     * Returns peer that has completed handshaking and has matching node ID.
      */
-    public Peer getHandshakedPeerWithPublicKey(byte[] publicKey) {
-        return this.getImmutableConnectedPeers().stream()
-                .filter(peer -> peer.getHandshakeStatus() == Handshake.COMPLETED
-                        && Arrays.equals(peer.getPeersPublicKey(), publicKey))
-                .findFirst().orElse(null);
+    public Peer getHandshakedPeerWithNodeId(String nodeId) {
+        return this.peerRegistry.getHandshakedPeerWithNodeId(nodeId);
     }
 
     // Peer list filters
@@ -488,10 +470,8 @@ public class Network {
         return this.selfPeers.stream().anyMatch(selfPeer -> selfPeer.equals(peerAddress));
     };
 
-    private final Predicate<PeerData> isConnectedPeer = peerData -> {
-        PeerAddress peerAddress = peerData.getAddress();
-        return this.getImmutableConnectedPeers().stream().anyMatch(peer -> peer.getPeerData().getAddress().equals(peerAddress));
-    };
+    private final Predicate<PeerData> isConnectedPeer = peerData ->
+            this.peerRegistry.getConnectedPeerWithAddress(peerData.getAddress()) != null;
 
     private final Predicate<PeerData> isResolvedAsConnectedPeer = peerData -> {
         try {
@@ -790,13 +770,7 @@ public class Network {
     }
 
     public Peer getPeerFromChannel(SocketChannel socketChannel) {
-        for (Peer peer : this.getImmutableConnectedPeers()) {
-            if (peer.getSocketChannel() == socketChannel) {
-                return peer;
-            }
-        }
-
-        return null;
+        return this.peerRegistry.getPeerFromChannel(socketChannel);
     }
 
     private void checkLongestConnection(Long now) {
@@ -1131,19 +1105,14 @@ public class Network {
         LOGGER.debug("[{}] Handshake completed with peer {} on {}", peer.getPeerConnectionId(), peer,
                 peer.getPeersVersionString());
 
-        // Are we already connected to this peer?
-        Peer existingPeer = getHandshakedPeerWithPublicKey(peer.getPeersPublicKey());
-        // NOTE: actual object reference compare, not Peer.equals()
-        if (existingPeer != peer) {
+        // Add to handshaked peers cache, unless we're already connected to this peer
+        if (!this.addHandshakedPeer(peer)) {
             LOGGER.info("[{}] We already have a connection with peer {} - discarding",
                     peer.getPeerConnectionId(), peer);
             peer.disconnect("existing connection");
             return;
         }
 
-        // Add to handshaked peers cache
-        this.addHandshakedPeer(peer);
-
         // Make a note that we've successfully completed handshake (and when)
         peer.getPeerData().setLastConnected(NTP.getTime());
 
@@ -1623,11 +1592,33 @@ public class Network {
     }
 
     public void broadcast(Function<Peer, Message> peerMessageBuilder) {
-        for (Peer peer : getImmutableHandshakedPeers()) {
+        List<Peer> peers = getImmutableHandshakedPeers();
+
+        // Build all messages first, so we can spot messages that are sent to more than one peer
+        List<Message> messages = new ArrayList<>(peers.size());
+        Set<Message> seenMessages = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Peer peer : peers) {
+            Message message = peerMessageBuilder.apply(peer);
+            messages.add(message);
+
+            // Same message for multiple peers? Serialize only once
+            if (message != null && !seenMessages.add(message)) {
+                try {
+                    message.share();
+                } catch (MessageException e) {
+                    // Each peer will try, and fail, to serialize it instead
+                    LOGGER.warn("Failed to serialize {} message for broadcast: {}", message.getType().name(), e.getMessage());
+                }
+            }
+        }
+
+        for (int i = 0; i < peers.size(); ++i) {
             if (this.isShuttingDown)
                 return;
 
-            Message message = peerMessageBuilder.apply(peer);
+            Peer peer = peers.get(i);
+            Message message = messages.get(i);
 
             if (message == null) {
                 continue;
@@ -57,6 +57,14 @@ public class Peer {
      */
     private static final int PING_INTERVAL = 20_000; // ms
 
+    /**
+     * Schedules request timeouts for all peers, so outstanding requests don't tie up any threads.
+     * <p>
+     * Timed-out requests are completed on a network thread, not by this scheduler,
+     * so that slow dependent actions can't hold up other requests' timeouts.
+     */
+    private static final ScheduledThreadPoolExecutor REQUEST_TIMEOUT_SCHEDULER = createRequestTimeoutScheduler();
+
     private volatile boolean isStopping = false;
 
     private SocketChannel socketChannel = null;
@@ -74,11 +82,15 @@ public class Peer {
     private final UUID peerConnectionId = UUID.randomUUID();
     private final Object byteBufferLock = new Object();
     private ByteBuffer byteBuffer;
-    private Map<Integer, BlockingQueue<Message>> replyQueues;
+    /** Requests awaiting a response, keyed by message ID */
+    private Map<Integer, CompletableFuture<Message>> pendingRequests;
     private LinkedBlockingQueue<Message> pendingMessages;
 
     private TransferQueue<Message> sendQueue;
+    private final Object outputBufferLock = new Object();
+    /** Buffer holding serialized message currently being sent. If pooled, released back to pool once sent */
     private ByteBuffer outputBuffer;
+    private boolean isOutputBufferPooled;
     private String outputMessageType;
     private int outputMessageId;
 
@@ -446,7 +458,7 @@ public class Peer {
         Network.getInstance().setInterestOps(this.socketChannel, SelectionKey.OP_READ);
         this.byteBuffer = null; // Defer allocation to when we need it, to save memory. Sorry GC!
         this.sendQueue = new LinkedTransferQueue<>();
-        this.replyQueues = new ConcurrentHashMap<>();
+        this.pendingRequests = new ConcurrentHashMap<>();
         this.pendingMessages = new LinkedBlockingQueue<>();
 
         Random random = new SecureRandom();
@@ -588,10 +600,10 @@ public class Peer {
                     if (message.getType() == MessageType.UNSUPPORTED)
                         continue;
 
-                    BlockingQueue<Message> queue = this.replyQueues.get(message.getId());
-                    if (queue != null) {
-                        // Adding message to queue will unblock thread waiting for response
-                        this.replyQueues.get(message.getId()).add(message);
+                    CompletableFuture<Message> pendingRequest = this.pendingRequests.get(message.getId());
+                    if (pendingRequest != null) {
+                        // Completing request hands response to whoever is waiting for it
+                        pendingRequest.complete(message);
                         // Consumed elsewhere
                         continue;
                     }
@@ -639,46 +651,92 @@ public class Peer {
                 if (message == null)
                     return false;
 
-                try {
-                    this.outputBuffer = ByteBuffer.wrap(message.toBytes());
-                    this.outputMessageType = message.getType().name();
-                    this.outputMessageId = message.getId();
+                MessageBufferPool messageBufferPool = Network.getInstance().getMessageBufferPool();
 
-                    LOGGER.trace("[{}] Sending {} message with ID {} to peer {}",
-                            this.peerConnectionId, this.outputMessageType, this.outputMessageId, this);
+                // Broadcast messages are already serialized, so we can send from that
+                ByteBuffer messageBuffer = message.getSharedBuffer();
+                final boolean isPooled = messageBuffer == null;
 
-                    // Record message stats
-                    MessageStats messageStats = this.sentMessageStats.computeIfAbsent(message.getType(), k -> new MessageStats());
-                    // Ideally these two operations would be atomic, we could pack 'count' in top X bits of the 64-bit long, but meh
-                    messageStats.count.increment();
-                    messageStats.totalBytes.add(this.outputBuffer.limit());
-                } catch (MessageException e) {
-                    // Something went wrong converting message to bytes, so discard but allow another round
-                    LOGGER.warn("[{}] Failed to send {} message with ID {} to peer {}: {}", this.peerConnectionId,
-                            message.getType().name(), message.getId(), this, e.getMessage());
+                if (isPooled) {
+                    try {
+                        // Serialize straight into pooled buffer
+                        messageBuffer = messageBufferPool.acquire(message.getSerializedLength());
+                        message.serializeInto(messageBuffer);
+                        messageBuffer.flip();
+                    } catch (MessageException e) {
+                        if (messageBuffer != null)
+                            messageBufferPool.release(messageBuffer);
+
+                        // Something went wrong converting message to bytes, so discard but allow another round
+                        LOGGER.warn("[{}] Failed to send {} message with ID {} to peer {}: {}", this.peerConnectionId,
+                                message.getType().name(), message.getId(), this, e.getMessage());
+                        continue;
+                    }
+                }
+
+                synchronized (this.outputBufferLock) {
+                    // Don't hold on to buffer if we've been shut down in the meantime
+                    if (this.isStopping) {
+                        if (isPooled)
+                            messageBufferPool.release(messageBuffer);
+
+                        return false;
+                    }
+
+                    this.outputBuffer = messageBuffer;
+                    this.isOutputBufferPooled = isPooled;
                 }
-            }
 
-            // If output byte buffer is not null, send from that
-            int bytesWritten = this.socketChannel.write(outputBuffer);
+                this.outputMessageType = message.getType().name();
+                this.outputMessageId = message.getId();
 
-            LOGGER.trace("[{}] Sent {} bytes of {} message with ID {} to peer {} ({} total)", this.peerConnectionId,
-                    bytesWritten, this.outputMessageType, this.outputMessageId, this, outputBuffer.limit());
+                LOGGER.trace("[{}] Sending {} message with ID {} to peer {}",
+                        this.peerConnectionId, this.outputMessageType, this.outputMessageId, this);
 
-            // If we've sent 0 bytes then socket buffer is full so we need to wait until it's empty again
-            if (bytesWritten == 0) {
-                return true;
+                // Record message stats
+                MessageStats messageStats = this.sentMessageStats.computeIfAbsent(message.getType(), k -> new MessageStats());
+                // Ideally these two operations would be atomic, we could pack 'count' in top X bits of the 64-bit long, but meh
+                messageStats.count.increment();
+                messageStats.totalBytes.add(messageBuffer.limit());
             }
 
-            // If we then exhaust the byte buffer, set it to null (otherwise loop and try to send more)
-            if (!this.outputBuffer.hasRemaining()) {
-                this.outputMessageType = null;
-                this.outputMessageId = 0;
-                this.outputBuffer = null;
+            synchronized (this.outputBufferLock) {
+                // Buffer released by shutdown()?
+                if (this.outputBuffer == null)
+                    return false;
+
+                // If output byte buffer is not null, send from that
+                int bytesWritten = this.socketChannel.write(this.outputBuffer);
+
+                LOGGER.trace("[{}] Sent {} bytes of {} message with ID {} to peer {} ({} total)", this.peerConnectionId,
+                        bytesWritten, this.outputMessageType, this.outputMessageId, this, this.outputBuffer.limit());
+
+                // If we've sent 0 bytes then socket buffer is full so we need to wait until it's empty again
+                if (bytesWritten == 0) {
+                    return true;
+                }
+
+                // If we then exhaust the byte buffer, release it (otherwise loop and try to send more)
+                if (!this.outputBuffer.hasRemaining()) {
+                    this.outputMessageType = null;
+                    this.outputMessageId = 0;
+                    this.releaseOutputBuffer();
+                }
             }
         }
     }
 
+    /** Discards output buffer, if any, returning it to pool if pooled. Caller must hold <tt>outputBufferLock</tt>. */
+    private void releaseOutputBuffer() {
+        if (this.outputBuffer == null)
+            return;
+
+        if (this.isOutputBufferPooled)
+            Network.getInstance().getMessageBufferPool().release(this.outputBuffer);
+
+        this.outputBuffer = null;
+    }
+
     protected Task getMessageTask() {
         /*
          * If we are still handshaking and there is a message yet to be processed then
@@ -782,30 +840,136 @@ public class Peer {
      * @throws InterruptedException if interrupted while waiting
      */
     public Message getResponseWithTimeout(Message message, int timeout) throws InterruptedException {
-        BlockingQueue<Message> blockingQueue = new ArrayBlockingQueue<>(1);
+        CompletableFuture<Message> pendingRequest = new CompletableFuture<>();
+        int id = this.addPendingRequest(pendingRequest);
+        message.setId(id);
 
-        // Assign random ID to this message
-        Random random = new Random();
+        try {
+            // Try to send message
+            if (!this.sendMessageWithTimeout(message, timeout)) {
+                return null;
+            }
+
+            return pendingRequest.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException | CancellationException e) {
+            return null;
+        } finally {
+            this.pendingRequests.remove(id);
+        }
+    }
+
+    /**
+     * Send message to peer, returning future response, using default RESPONSE_TIMEOUT.
+     *
+     * @see #request(Message, int)
+     */
+    public CompletableFuture<Message> request(Message message) {
+        return request(message, RESPONSE_TIMEOUT);
+    }
+
+    /**
+     * Send message to peer, returning future response, without blocking.
+     * <p>
+     * Message is assigned a random ID and queued for sending.
+     * Returned future completes with the response with matching ID, if received within timeout.
+     * <p>
+     * If no response with matching ID within timeout, message couldn't be queued, or peer disconnects,
+     * then future completes with <code>null</code>.
+     * <p>
+     * Timeouts are handled by a shared scheduler, so outstanding requests don't tie up any threads.
+     * Future is typically completed by a network thread, including on timeout, so any dependent actions
+     * should be quick, or use the <code>...Async()</code> variants with a suitable executor.
+     *
+     * @param message message to send
+     * @param timeout how long to wait for response (ms)
+     * @return future response, or <code>null</code> if not received
+     */
+    public CompletableFuture<Message> request(Message message, int timeout) {
+        CompletableFuture<Message> pendingRequest = new CompletableFuture<>();
+        int id = this.addPendingRequest(pendingRequest);
+        message.setId(id);
+
+        ScheduledFuture<?> timeoutTask = REQUEST_TIMEOUT_SCHEDULER.schedule(() -> completeOnNetworkThread(pendingRequest, null),
+                timeout, TimeUnit.MILLISECONDS);
+
+        pendingRequest.whenComplete((response, e) -> {
+            timeoutTask.cancel(false);
+            this.pendingRequests.remove(id, pendingRequest);
+        });
+
+        if (!this.queueMessage(message)) {
+            pendingRequest.complete(null);
+        }
+
+        return pendingRequest;
+    }
+
+    private static ScheduledThreadPoolExecutor createRequestTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Peer-request-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Most requests are answered well before they time out, so don't keep their cancelled timeouts around
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /** Completes request, and so runs any dependent actions, using network executor rather than calling thread. */
+    private static void completeOnNetworkThread(CompletableFuture<Message> pendingRequest, Message response) {
+        if (pendingRequest.isDone()) {
+            return;
+        }
+
+        try {
+            Network.getInstance().getNetworkExecutor().execute(() -> pendingRequest.complete(response));
+        } catch (RejectedExecutionException e) {
+            // All network threads busy, or shutting down, so use default async executor instead
+            pendingRequest.completeAsync(() -> response);
+        }
+    }
+
+    /** Adds request to pending requests map, keyed by new random ID, which is returned. */
+    private int addPendingRequest(CompletableFuture<Message> pendingRequest) {
+        Random random = ThreadLocalRandom.current();
         int id;
         do {
             id = random.nextInt(Integer.MAX_VALUE - 1) + 1;
 
-            // Put queue into map (keyed by message ID) so we can poll for a response
             // If putIfAbsent() doesn't return null, then this ID is already taken
-        } while (this.replyQueues.putIfAbsent(id, blockingQueue) != null);
-        message.setId(id);
+        } while (this.pendingRequests.putIfAbsent(id, pendingRequest) != null);
 
-        // Try to send message
-        if (!this.sendMessageWithTimeout(message, timeout)) {
-            this.replyQueues.remove(id);
-            return null;
+        return id;
+    }
+
+    /**
+     * Queue message for sending to peer, without waiting for it to be picked up for sending.
+     *
+     * @return <code>true</code> if message queued; <code>false</code> otherwise
+     */
+    private boolean queueMessage(Message message) {
+        if (!this.socketChannel.isOpen()) {
+            return false;
         }
 
         try {
-            return blockingQueue.poll(timeout, TimeUnit.MILLISECONDS);
-        } finally {
-            this.replyQueues.remove(id);
+            // Check message properly constructed
+            message.checkValidOutgoing();
+        } catch (MessageException e) {
+            LOGGER.error(e.getMessage(), e);
+            return false;
+        }
+
+        LOGGER.trace("[{}] Queuing {} message with ID {} to peer {}", this.peerConnectionId,
+                message.getType().name(), message.getId(), this);
+
+        if (!this.sendQueue.offer(message)) {
+            return false;
         }
+
+        Network.getInstance().setInterestOps(this.socketChannel, SelectionKey.OP_WRITE);
+        return true;
     }
 
     protected void startPings() {
@@ -859,6 +1023,16 @@ public class Peer {
             }
         }
 
+        // Nobody will be replying to outstanding requests now
+        if (this.pendingRequests != null) {
+            this.pendingRequests.values().forEach(pendingRequest -> pendingRequest.complete(null));
+        }
+
+        // Any partially-sent message is abandoned, so its buffer can go back to the pool
+        synchronized (this.outputBufferLock) {
+            this.releaseOutputBuffer();
+        }
+
         if (logStats && this.receivedMessageStats.size() > 0) {
             StringBuilder statsBuilder = new StringBuilder(1024);
             statsBuilder.append("peer ").append(this).append(" message stats:\n=received=");
@@ -0,0 +1,283 @@
+package org.qortal.network;
+
+import org.qortal.utils.ByteArray;
+
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connected peers, with indexes for looking up peers by channel, address, public key and node ID.
+ * <p>
+ * Lookups and peer lists don't need any locking. Peer lists are immutable snapshots,
+ * only rebuilt the first time they are requested after a peer is added or removed,
+ * rather than on every change.
+ * <p>
+ * Changes are serialized, so that adding a handshaked peer can atomically check
+ * that we don't already have another peer with the same public key.
+ */
+public class PeerRegistry {
+
+    private static class Snapshot {
+        final long version;
+        final List<Peer> peers;
+        final List<Peer> dataPeers;
+        final List<Peer> nonDataPeers;
+
+        Snapshot(long version, List<Peer> peers) {
+            this.version = version;
+            this.peers = peers;
+
+            List<Peer> dataPeers = new ArrayList<>();
+            List<Peer> nonDataPeers = new ArrayList<>();
+            for (Peer peer : peers) {
+                if (peer.isDataPeer()) {
+                    dataPeers.add(peer);
+                } else {
+                    nonDataPeers.add(peer);
+                }
+            }
+
+            this.dataPeers = Collections.unmodifiableList(dataPeers);
+            this.nonDataPeers = Collections.unmodifiableList(nonDataPeers);
+        }
+    }
+
+    /** Set of peers, with lazily rebuilt snapshot. */
+    private static class PeerSet {
+        private final Set<Peer> peers = ConcurrentHashMap.newKeySet();
+        private volatile long version = 0L;
+        private volatile Snapshot snapshot = new Snapshot(0L, Collections.emptyList());
+
+        boolean add(Peer peer) {
+            if (!this.peers.add(peer)) {
+                return false;
+            }
+
+            this.version++; // only modified while holding registry lock
+            return true;
+        }
+
+        boolean remove(Peer peer) {
+            if (!this.peers.remove(peer)) {
+                return false;
+            }
+
+            this.version++; // only modified while holding registry lock
+            return true;
+        }
+
+        boolean contains(Peer peer) {
+            return this.peers.contains(peer);
+        }
+
+        Snapshot getSnapshot() {
+            Snapshot snapshot = this.snapshot;
+
+            // Must read version before copying peers, so that if peers change mid-copy, snapshot is already stale
+            long version = this.version;
+            if (snapshot.version == version) {
+                return snapshot;
+            }
+
+            snapshot = new Snapshot(version, List.copyOf(this.peers));
+            this.snapshot = snapshot;
+            return snapshot;
+        }
+    }
+
+    /** Maps key to peer(s). Usually there's only one peer per key, but duplicates are possible, e.g. during handshaking. */
+    private static class Index<K> {
+        private final Map<K, List<Peer>> peersByKey = new ConcurrentHashMap<>();
+
+        void add(K key, Peer peer) {
+            if (key == null) {
+                return;
+            }
+
+            this.peersByKey.merge(key, List.of(peer), (existingPeers, newPeers) -> {
+                List<Peer> peers = new ArrayList<>(existingPeers);
+                peers.addAll(newPeers);
+                return List.copyOf(peers);
+            });
+        }
+
+        void remove(K key, Peer peer) {
+            if (key == null) {
+                return;
+            }
+
+            this.peersByKey.computeIfPresent(key, (k, existingPeers) -> {
+                List<Peer> peers = new ArrayList<>(existingPeers);
+                peers.remove(peer);
+                return peers.isEmpty() ? null : List.copyOf(peers);
+            });
+        }
+
+        /** Returns first peer added with <tt>key</tt>, or null. */
+        Peer get(K key) {
+            if (key == null) {
+                return null;
+            }
+
+            List<Peer> peers = this.peersByKey.get(key);
+            return peers == null ? null : peers.get(0);
+        }
+
+        List<Peer> getAll(K key) {
+            if (key == null) {
+                return Collections.emptyList();
+            }
+
+            return this.peersByKey.getOrDefault(key, Collections.emptyList());
+        }
+    }
+
+    private final PeerSet connectedPeers = new PeerSet();
+    private final PeerSet handshakedPeers = new PeerSet();
+    private final PeerSet outboundHandshakedPeers = new PeerSet();
+
+    // Indexes of connected peers
+    private final Index<SocketChannel> connectedPeersByChannel = new Index<>();
+    private final Index<String> connectedPeersByAddress = new Index<>();
+
+    // Indexes of handshaked peers
+    private final Index<ByteArray> handshakedPeersByPublicKey = new Index<>();
+    private final Index<String> handshakedPeersByNodeId = new Index<>();
+
+    // Changes
+
+    public synchronized void addConnectedPeer(Peer peer) {
+        if (!this.connectedPeers.add(peer)) {
+            return;
+        }
+
+        this.connectedPeersByChannel.add(peer.getSocketChannel(), peer);
+        this.connectedPeersByAddress.add(addressKey(peer.getPeerData().getAddress()), peer);
+    }
+
+    /** Removes peer, including from handshaked peers. */
+    public synchronized void removeConnectedPeer(Peer peer) {
+        this.removeHandshakedPeer(peer);
+
+        if (!this.connectedPeers.remove(peer)) {
+            return;
+        }
+
+        this.connectedPeersByChannel.remove(peer.getSocketChannel(), peer);
+        this.connectedPeersByAddress.remove(addressKey(peer.getPeerData().getAddress()), peer);
+    }
+
+    /**
+     * Adds connected peer to handshaked peers, and outbound handshaked peers if applicable.
+     *
+     * @return false if peer is no longer connected, or we already have a different handshaked peer with the same public key
+     */
+    public synchronized boolean addHandshakedPeer(Peer peer) {
+        if (!this.connectedPeers.contains(peer)) {
+            return false;
+        }
+
+        ByteArray publicKey = publicKeyKey(peer.getPeersPublicKey());
+        Peer existingPeer = this.handshakedPeersByPublicKey.get(publicKey);
+        if (existingPeer != null) {
+            // NOTE: actual object reference compare, not Peer.equals()
+            return existingPeer == peer;
+        }
+
+        if (!this.handshakedPeers.add(peer)) {
+            return true;
+        }
+
+        this.handshakedPeersByPublicKey.add(publicKey, peer);
+        this.handshakedPeersByNodeId.add(peer.getPeersNodeId(), peer);
+
+        if (peer.isOutbound()) {
+            this.outboundHandshakedPeers.add(peer);
+        }
+
+        return true;
+    }
+
+    public synchronized void removeHandshakedPeer(Peer peer) {
+        if (!this.handshakedPeers.remove(peer)) {
+            return;
+        }
+
+        this.handshakedPeersByPublicKey.remove(publicKeyKey(peer.getPeersPublicKey()), peer);
+        this.handshakedPeersByNodeId.remove(peer.getPeersNodeId(), peer);
+
+        this.outboundHandshakedPeers.remove(peer);
+    }
+
+    // Peer lists
+
+    public List<Peer> getConnectedPeers() {
+        return this.connectedPeers.getSnapshot().peers;
+    }
+
+    public List<Peer> getConnectedDataPeers() {
+        return this.connectedPeers.getSnapshot().dataPeers;
+    }
+
+    public List<Peer> getConnectedNonDataPeers() {
+        return this.connectedPeers.getSnapshot().nonDataPeers;
+    }
+
+    public List<Peer> getHandshakedPeers() {
+        return this.handshakedPeers.getSnapshot().peers;
+    }
+
+    public List<Peer> getOutboundHandshakedPeers() {
+        return this.outboundHandshakedPeers.getSnapshot().peers;
+    }
+
+    // Lookups
+
+    public Peer getPeerFromChannel(SocketChannel socketChannel) {
+        return this.connectedPeersByChannel.get(socketChannel);
+    }
+
+    /** Returns connected peer with matching address, without DNS lookups, or null. */
+    public Peer getConnectedPeerWithAddress(PeerAddress peerAddress) {
+        return this.connectedPeersByAddress.get(addressKey(peerAddress));
+    }
+
+    /** Returns handshaked peer with matching address, without DNS lookups, or null. */
+    public Peer getHandshakedPeerWithAddress(PeerAddress peerAddress) {
+        for (Peer peer : this.connectedPeersByAddress.getAll(addressKey(peerAddress))) {
+            if (this.handshakedPeers.contains(peer)) {
+                return peer;
+            }
+        }
+
+        return null;
+    }
+
+    public Peer getHandshakedPeerWithPublicKey(byte[] publicKey) {
+        return this.handshakedPeersByPublicKey.get(publicKeyKey(publicKey));
+    }
+
+    public Peer getHandshakedPeerWithNodeId(String nodeId) {
+        return this.handshakedPeersByNodeId.get(nodeId);
+    }
+
+    /** Returns key matching {@link PeerAddress#equals(PeerAddress)}, i.e. same port and case-insensitive host. */
+    private static String addressKey(PeerAddress peerAddress) {
+        if (peerAddress == null) {
+            return null;
+        }
+
+        return peerAddress.getHost().toLowerCase(Locale.ROOT) + ":" + peerAddress.getPort();
+    }
+
+    private static ByteArray publicKeyKey(byte[] publicKey) {
+        return publicKey == null ? null : ByteArray.wrap(publicKey);
+    }
+
+}
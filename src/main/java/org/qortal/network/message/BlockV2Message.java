@@ -15,7 +15,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
 
-public class BlockV2Message extends Message {
+public class BlockV2Message extends Message implements Cloneable {
 
 	private static final Logger LOGGER = LogManager.getLogger(BlockV2Message.class);
 	public static final long MIN_PEER_VERSION = 0x300030003L; // 3.3.3
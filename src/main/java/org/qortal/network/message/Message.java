@@ -1,11 +1,9 @@
 package org.qortal.network.message;
 
-import com.google.common.primitives.Ints;
 import org.qortal.crypto.Crypto;
 import org.qortal.network.Network;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -55,6 +53,9 @@ public abstract class Message {
 	/** Serialized outgoing message checksum. Expected to be written to by subclass. */
 	protected byte[] checksumBytes;
 
+	/** Whole serialized message, shared by all peers it is broadcast to, or null if not shared. */
+	private volatile ByteBuffer sharedBuffer;
+
 	/** Typically called by subclass when constructing message from received network data. */
 	protected Message(int id, MessageType type) {
 		this.id = id;
@@ -76,6 +77,9 @@ public abstract class Message {
 
 	public void setId(int id) {
 		this.id = id;
+
+		// Serialized ID would be wrong
+		this.sharedBuffer = null;
 	}
 
 	public MessageType getType() {
@@ -169,46 +173,87 @@ public abstract class Message {
 			throw new MessageException("Missing data checksum");
 	}
 
-	public byte[] toBytes() throws MessageException {
+	/** Returns exact length of serialized message, including header. */
+	public int getSerializedLength() throws MessageException {
 		checkValidOutgoing();
 
-		// We can calculate exact length
 		int messageLength = MAGIC_LENGTH + TYPE_LENGTH + HAS_ID_LENGTH;
 		messageLength += this.hasId() ? ID_LENGTH : 0;
-		messageLength += DATA_SIZE_LENGTH + this.dataBytes.length > 0 ? CHECKSUM_LENGTH + this.dataBytes.length : 0;
+		messageLength += DATA_SIZE_LENGTH;
+		messageLength += this.dataBytes.length > 0 ? CHECKSUM_LENGTH + this.dataBytes.length : 0;
 
 		if (messageLength > MAX_DATA_SIZE)
 			throw new MessageException(String.format("About to send message with length %d larger than allowed %d", messageLength, MAX_DATA_SIZE));
 
-		try {
-			ByteArrayOutputStream bytes = new ByteArrayOutputStream(messageLength);
+		return messageLength;
+	}
+
+	public byte[] toBytes() throws MessageException {
+		byte[] bytes = new byte[this.getSerializedLength()];
+
+		this.serializeInto(ByteBuffer.wrap(bytes));
+
+		return bytes;
+	}
+
+	/**
+	 * Serializes message into <tt>buffer</tt>, starting at buffer's current position.
+	 * <p>
+	 * Buffer needs at least {@link #getSerializedLength()} bytes remaining.
+	 */
+	public void serializeInto(ByteBuffer buffer) throws MessageException {
+		checkValidOutgoing();
 
+		try {
 			// Magic
-			bytes.write(Network.getInstance().getMessageMagic());
+			buffer.put(Network.getInstance().getMessageMagic());
 
-			bytes.write(Ints.toByteArray(this.type.value));
+			buffer.putInt(this.type.value);
 
 			if (this.hasId()) {
-				bytes.write(1);
+				buffer.put((byte) 1);
 
-				bytes.write(Ints.toByteArray(this.id));
+				buffer.putInt(this.id);
 			} else {
-				bytes.write(0);
+				buffer.put((byte) 0);
 			}
 
-			bytes.write(Ints.toByteArray(this.dataBytes.length));
+			buffer.putInt(this.dataBytes.length);
 
 			if (this.dataBytes.length > 0) {
-				bytes.write(this.checksumBytes);
-				bytes.write(this.dataBytes);
+				buffer.put(this.checksumBytes);
+				buffer.put(this.dataBytes);
 			}
-
-			return bytes.toByteArray();
-		} catch (IOException e) {
+		} catch (BufferOverflowException e) {
 			throw new MessageException("Failed to serialize message", e);
 		}
 	}
 
+	/**
+	 * Serializes message once, into an immutable buffer, so it can be sent to many peers without re-serializing for each one.
+	 * <p>
+	 * Changing message's ID discards shared buffer.
+	 */
+	public void share() throws MessageException {
+		if (this.sharedBuffer != null)
+			return;
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(this.getSerializedLength());
+		this.serializeInto(buffer);
+		buffer.flip();
+
+		this.sharedBuffer = buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns new view of shared, serialized message, with its own position and limit,
+	 * or null if message hasn't been {@link #share()}d.
+	 */
+	public ByteBuffer getSharedBuffer() {
+		ByteBuffer buffer = this.sharedBuffer;
+		return buffer != null ? buffer.duplicate() : null;
+	}
+
 	public static <M extends Message> M cloneWithNewId(M message, int newId) {
 		M clone;
 
@@ -1,6 +1,7 @@
 package org.qortal.repository;
 
 import com.google.common.primitives.Ints;
+import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.data.block.BlockArchiveData;
@@ -11,22 +12,47 @@ import org.qortal.transform.block.BlockTransformer;
 import org.qortal.utils.Triple;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.qortal.transform.Transformer.INT_LENGTH;
 
 public class BlockArchiveReader {
 
     private static BlockArchiveReader instance;
-    private Map<String, Triple<Integer, Integer, Integer>> fileListCache;
+    private volatile Map<String, Triple<Integer, Integer, Integer>> fileListCache;
+    /** Archive filenames keyed by start height, for fast lookup of the file containing a given height */
+    private volatile NavigableMap<Integer, String> fileStartHeightCache;
+
+    /** Bounded, access-ordered pool of memory-mapped archive files, keyed by filename */
+    private final Map<String, ArchiveFile> mappedFiles;
+    /** Held for reading while using mapped files, and for writing while replacing archive files */
+    private final ReentrantReadWriteLock archiveLock = new ReentrantReadWriteLock();
 
     private static final Logger LOGGER = LogManager.getLogger(BlockArchiveReader.class);
 
+    /** Size of the fixed length header at the start of each archive file */
+    private static final int FIXED_HEADER_LENGTH = 5 * INT_LENGTH;
+
     public BlockArchiveReader() {
+        final int maxMappedFiles = Math.max(1, Settings.getInstance().getArchiveReaderMaxMappedFiles());
 
+        this.mappedFiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ArchiveFile> eldest) {
+                // Evicted mappings are released once the GC collects their buffers
+                return this.size() > maxMappedFiles;
+            }
+        };
     }
 
     public static synchronized BlockArchiveReader getInstance() {
@@ -42,6 +68,7 @@ public class BlockArchiveReader {
         File archiveDirFile = archivePath.toFile();
         String[] files = archiveDirFile.list();
         Map<String, Triple<Integer, Integer, Integer>> map = new HashMap<>();
+        NavigableMap<Integer, String> startHeights = new TreeMap<>();
 
         if (files != null) {
             for (String file : files) {
@@ -59,8 +86,10 @@ public class BlockArchiveReader {
                 Integer endHeight = Integer.parseInt(parts[1]);
                 Integer range = endHeight - startHeight;
                 map.put(filename, new Triple(startHeight, endHeight, range));
+                startHeights.put(startHeight, filename);
             }
         }
+        this.fileStartHeightCache = Collections.unmodifiableNavigableMap(startHeights);
         this.fileListCache = Map.copyOf(map);
     }
 
@@ -69,12 +98,17 @@ public class BlockArchiveReader {
             this.fetchFileList();
         }
 
-        Triple<byte[], Integer, Integer> serializedBlock = this.fetchSerializedBlockBytesForHeight(height);
-        if (serializedBlock == null) {
-            return null;
+        this.archiveLock.readLock().lock();
+        try {
+            Triple<ByteBuffer, Integer, Integer> serializedBlock = this.fetchSerializedBlockBufferForHeight(height);
+            if (serializedBlock == null) {
+                return null;
+            }
+            Integer serializationVersion = serializedBlock.getB();
+            return serializationVersion;
+        } finally {
+            this.archiveLock.readLock().unlock();
         }
-        Integer serializationVersion = serializedBlock.getB();
-        return serializationVersion;
     }
 
     public BlockTransformation fetchBlockAtHeight(int height) {
@@ -82,17 +116,23 @@ public class BlockArchiveReader {
             this.fetchFileList();
         }
 
-        Triple<byte[], Integer, Integer> serializedBlock = this.fetchSerializedBlockBytesForHeight(height);
-        if (serializedBlock == null) {
-            return null;
+        this.archiveLock.readLock().lock();
+        try {
+            Triple<ByteBuffer, Integer, Integer> serializedBlock = this.fetchSerializedBlockBufferForHeight(height);
+            if (serializedBlock == null) {
+                return null;
+            }
+            return this.transformBlock(serializedBlock.getA(), serializedBlock.getB(), height);
+        } finally {
+            this.archiveLock.readLock().unlock();
         }
-        byte[] serializedBytes = serializedBlock.getA();
-        Integer serializationVersion = serializedBlock.getB();
-        if (serializedBytes == null || serializationVersion == null) {
+    }
+
+    private BlockTransformation transformBlock(ByteBuffer byteBuffer, Integer serializationVersion, int height) {
+        if (byteBuffer == null || serializationVersion == null) {
             return null;
         }
 
-        ByteBuffer byteBuffer = ByteBuffer.wrap(serializedBytes);
         BlockTransformation blockInfo = null;
         try {
             switch (serializationVersion) {
@@ -137,14 +177,30 @@ public class BlockArchiveReader {
 
         List<BlockTransformation> blockInfoList = new ArrayList<>();
 
-        for (int height = startHeight; height <= endHeight; height++) {
-            BlockTransformation blockInfo = this.fetchBlockAtHeight(height);
-            if (blockInfo == null) {
-                return blockInfoList;
+        this.archiveLock.readLock().lock();
+        try {
+            int height = startHeight;
+            while (height <= endHeight) {
+                // Scan sequentially through each archive file covering the range, so that the
+                // file lookup and header parsing only happen once per file rather than per block
+                ArchiveFile archiveFile = this.getArchiveFileForHeight(height);
+                if (archiveFile == null) {
+                    return blockInfoList;
+                }
+
+                final int lastHeightInFile = Math.min(endHeight, archiveFile.endHeight);
+                for (; height <= lastHeightInFile; height++) {
+                    BlockTransformation blockInfo = this.transformBlock(archiveFile.getBlockBuffer(height), archiveFile.version, height);
+                    if (blockInfo == null) {
+                        return blockInfoList;
+                    }
+                    blockInfoList.add(blockInfo);
+                }
             }
-            blockInfoList.add(blockInfo);
+            return blockInfoList;
+        } finally {
+            this.archiveLock.readLock().unlock();
         }
-        return blockInfoList;
     }
 
     public Integer fetchHeightForSignature(byte[] signature, Repository repository) {
@@ -172,28 +228,26 @@ public class BlockArchiveReader {
     }
 
     private String getFilenameForHeight(int height) {
-        if (this.fileListCache == null) {
+        NavigableMap<Integer, String> startHeights = this.fileStartHeightCache;
+        if (this.fileListCache == null || startHeights == null) {
             this.fetchFileList();
+            startHeights = this.fileStartHeightCache;
         }
 
-        Iterator it = this.fileListCache.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry pair = (Map.Entry) it.next();
-            if (pair == null && pair.getKey() == null && pair.getValue() == null) {
-                continue;
-            }
-            Triple<Integer, Integer, Integer> heightInfo = (Triple<Integer, Integer, Integer>) pair.getValue();
-            Integer startHeight = heightInfo.getA();
-            Integer endHeight = heightInfo.getB();
+        // The relevant file is the one with the highest start height that doesn't exceed the requested height
+        Map.Entry<Integer, String> entry = startHeights.floorEntry(height);
+        if (entry == null) {
+            return null;
+        }
 
-            if (height >= startHeight && height <= endHeight) {
-                // Found the correct file
-                String filename = (String) pair.getKey();
-                return filename;
-            }
+        String filename = entry.getValue();
+        Triple<Integer, Integer, Integer> heightInfo = this.fileListCache != null ? this.fileListCache.get(filename) : null;
+        if (heightInfo == null || height > heightInfo.getB()) {
+            return null;
         }
 
-        return null;
+        // Found the correct file
+        return filename;
     }
 
     public Triple<byte[], Integer, Integer> fetchSerializedBlockBytesForSignature(byte[] signature, boolean includeHeightPrefix, Repository repository) {
@@ -202,113 +256,121 @@ public class BlockArchiveReader {
         }
 
         Integer height = this.fetchHeightForSignature(signature, repository);
-        if (height != null) {
-            Triple<byte[], Integer, Integer> serializedBlock = this.fetchSerializedBlockBytesForHeight(height);
+        if (height == null) {
+            return null;
+        }
+
+        this.archiveLock.readLock().lock();
+        try {
+            Triple<ByteBuffer, Integer, Integer> serializedBlock = this.fetchSerializedBlockBufferForHeight(height);
             if (serializedBlock == null) {
                 return null;
             }
-            byte[] blockBytes = serializedBlock.getA();
+            ByteBuffer blockBuffer = serializedBlock.getA();
             Integer version = serializedBlock.getB();
-            if (blockBytes == null || version == null) {
+            if (blockBuffer == null || version == null) {
                 return null;
             }
 
             // When responding to a peer with a BLOCK message, we must prefix the byte array with the block height
             // This mimics the toData() method in BlockMessage and CachedBlockMessage
+            final int prefixLength = includeHeightPrefix ? INT_LENGTH : 0;
+            byte[] bytes = new byte[prefixLength + blockBuffer.remaining()];
             if (includeHeightPrefix) {
-                ByteArrayOutputStream bytes = new ByteArrayOutputStream(blockBytes.length + INT_LENGTH);
-                try {
-                    bytes.write(Ints.toByteArray(height));
-                    bytes.write(blockBytes);
-                    return new Triple<>(bytes.toByteArray(), version, height);
-
-                } catch (IOException e) {
-                    return null;
-                }
+                System.arraycopy(Ints.toByteArray(height), 0, bytes, 0, INT_LENGTH);
             }
-            return new Triple<>(blockBytes, version, height);
+            blockBuffer.get(bytes, prefixLength, blockBuffer.remaining());
+
+            return new Triple<>(bytes, version, height);
+        } finally {
+            this.archiveLock.readLock().unlock();
         }
-        return null;
     }
 
     public Triple<byte[], Integer, Integer> fetchSerializedBlockBytesForHeight(int height) {
+        this.archiveLock.readLock().lock();
+        try {
+            Triple<ByteBuffer, Integer, Integer> serializedBlock = this.fetchSerializedBlockBufferForHeight(height);
+            if (serializedBlock == null) {
+                return null;
+            }
+
+            ByteBuffer blockBuffer = serializedBlock.getA();
+            byte[] blockBytes = new byte[blockBuffer.remaining()];
+            blockBuffer.get(blockBytes);
+
+            return new Triple<>(blockBytes, serializedBlock.getB(), height);
+        } finally {
+            this.archiveLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a block's serialized bytes, as a read-only slice of the memory-mapped archive file.
+     * <p>
+     * No bytes are copied, so callers should consume the returned buffer promptly
+     * rather than holding on to it, as it keeps the whole mapping alive.
+     * The buffer must not be used once the archive has been replaced via {@link #replaceArchive(Path)},
+     * which callers can prevent by holding {@link #getArchiveLock()}'s read lock until done with it.
+     *
+     * @return Triple of serialized block buffer, serialization version and height, or null if unavailable
+     */
+    public Triple<ByteBuffer, Integer, Integer> fetchSerializedBlockBufferForHeight(int height) {
+        ArchiveFile archiveFile = this.getArchiveFileForHeight(height);
+        if (archiveFile == null) {
+            return null;
+        }
+
+        ByteBuffer blockBuffer = archiveFile.getBlockBuffer(height);
+        if (blockBuffer == null) {
+            return null;
+        }
+
+        return new Triple<>(blockBuffer, archiveFile.version, height);
+    }
+
+    private ArchiveFile getArchiveFileForHeight(int height) {
         String filename = this.getFilenameForHeight(height);
         if (filename == null) {
             // We don't have this block in the archive
-            // Invalidate the file list cache in case it is out of date
-            this.invalidateFileListCache();
+            // Invalidate the file list cache in case it is out of date, but keep
+            // our mappings, as files we've already mapped won't have changed
+            this.fileStartHeightCache = null;
+            this.fileListCache = null;
             return null;
         }
 
-        Path filePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive", filename).toAbsolutePath();
-        RandomAccessFile file = null;
-        try {
-            file = new RandomAccessFile(filePath.toString(), "r");
-            // Get info about this file (the "fixed length header")
-            final int version = file.readInt(); // Do not remove or comment out, as it is moving the file pointer
-            final int startHeight = file.readInt(); // Do not remove or comment out, as it is moving the file pointer
-            final int endHeight = file.readInt(); // Do not remove or comment out, as it is moving the file pointer
-            file.readInt(); // Block count (unused) // Do not remove or comment out, as it is moving the file pointer
-            final int variableHeaderLength = file.readInt(); // Do not remove or comment out, as it is moving the file pointer
-            final int fixedHeaderLength = (int)file.getFilePointer();
-            // End of fixed length header
+        synchronized (this.mappedFiles) {
+            ArchiveFile archiveFile = this.mappedFiles.get(filename);
+            if (archiveFile != null) {
+                // Anything rewriting or removing archive files invalidates our mappings
+                return archiveFile;
+            }
 
-            // Make sure the version is one we recognize
-            if (version != 1 && version != 2) {
-                LOGGER.info("Error: unknown version in file {}: {}", filename, version);
+            Path filePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive", filename).toAbsolutePath();
+            try {
+                archiveFile = ArchiveFile.map(filePath, filename);
+            } catch (FileNotFoundException | NoSuchFileException e) {
+                LOGGER.info("File {} not found: {}", filename, e.getMessage());
+                return null;
+            } catch (IOException e) {
+                LOGGER.info("Unable to read block {} from archive: {}", height, e.getMessage());
                 return null;
             }
 
-            // Verify that the block is within the reported range
-            if (height < startHeight || height > endHeight) {
-                LOGGER.info("Error: requested height {} but the range of file {} is {}-{}",
-                        height, filename, startHeight, endHeight);
+            if (archiveFile == null) {
                 return null;
             }
 
-            // Seek to the location of the block index in the variable length header
-            final int locationOfBlockIndexInVariableHeaderSegment = (height - startHeight) * INT_LENGTH;
-            file.seek(fixedHeaderLength + locationOfBlockIndexInVariableHeaderSegment);
-
-            // Read the value to obtain the index of this block in the data segment
-            int locationOfBlockInDataSegment = file.readInt();
-
-            // Now seek to the block data itself
-            int dataSegmentStartIndex = fixedHeaderLength + variableHeaderLength + INT_LENGTH; // Confirmed correct
-            file.seek(dataSegmentStartIndex + locationOfBlockInDataSegment);
-
-            // Read the block metadata
-            int blockHeight = file.readInt(); // Do not remove or comment out, as it is moving the file pointer
-            int blockLength = file.readInt(); // Do not remove or comment out, as it is moving the file pointer
-
-            // Ensure the block height matches the one requested
-            if (blockHeight != height) {
-                LOGGER.info("Error: height {} does not match requested: {}", blockHeight, height);
+            // Verify that the block is within the reported range
+            if (height < archiveFile.startHeight || height > archiveFile.endHeight) {
+                LOGGER.info("Error: requested height {} but the range of file {} is {}-{}",
+                        height, filename, archiveFile.startHeight, archiveFile.endHeight);
                 return null;
             }
 
-            // Now retrieve the block's serialized bytes
-            byte[] blockBytes = new byte[blockLength];
-            file.read(blockBytes);
-
-            return new Triple<>(blockBytes, version, height);
-
-        } catch (FileNotFoundException e) {
-            LOGGER.info("File {} not found: {}", filename, e.getMessage());
-            return null;
-        } catch (IOException e) {
-            LOGGER.info("Unable to read block {} from archive: {}", height, e.getMessage());
-            return null;
-        }
-        finally {
-            // Close the file
-            if (file != null) {
-                try {
-                    file.close();
-                } catch (IOException e) {
-                    // Failed to close, but no need to handle this
-                }
-            }
+            this.mappedFiles.put(filename, archiveFile);
+            return archiveFile;
         }
     }
 
@@ -336,8 +398,172 @@ public class BlockArchiveReader {
         return maxEndHeight;
     }
 
+    /** Lock to hold for reading while using buffers from {@link #fetchSerializedBlockBufferForHeight(int)}. */
+    public ReentrantReadWriteLock getArchiveLock() {
+        return this.archiveLock;
+    }
+
+    /**
+     * Replaces whole archive with files from <tt>newArchivePath</tt>, e.g. after rebuilding it.
+     * <p>
+     * Blocks can't be read from the archive meanwhile. Existing mappings are released first,
+     * so that old files can be deleted, and nothing reads from a file while it is being replaced.
+     */
+    public void replaceArchive(Path newArchivePath) throws IOException {
+        Path archivePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive");
+
+        this.archiveLock.writeLock().lock();
+        try {
+            this.fileStartHeightCache = null;
+            this.fileListCache = null;
+
+            synchronized (this.mappedFiles) {
+                for (ArchiveFile archiveFile : this.mappedFiles.values()) {
+                    unmap(archiveFile.buffer);
+                }
+                this.mappedFiles.clear();
+            }
+
+            FileUtils.deleteDirectory(archivePath.toFile());
+            FileUtils.moveDirectory(newArchivePath.toFile(), archivePath.toFile());
+        } finally {
+            // In case anything was read while we were waiting for lock
+            this.invalidateFileListCache();
+            this.archiveLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases <tt>buffer</tt>'s mapping now, rather than waiting for GC, so that its file can be deleted on all platforms.
+     * <p>
+     * Only safe while no one else can be using <tt>buffer</tt>, or any slices of it.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafeField.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafeField.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Mapping will be released once GC collects buffer instead
+            LOGGER.debug("Unable to unmap archive file: {}", e.getMessage());
+        }
+    }
+
     public void invalidateFileListCache() {
+        this.fileStartHeightCache = null;
         this.fileListCache = null;
+
+        // Files may have been rewritten or removed, so drop our mappings too
+        synchronized (this.mappedFiles) {
+            this.mappedFiles.clear();
+        }
+    }
+
+
+    /**
+     * Memory-mapped archive file, with its fixed length header and block index table parsed up-front.
+     */
+    private static class ArchiveFile {
+        private final String filename;
+        private final int version;
+        private final int startHeight;
+        private final int endHeight;
+        /** Location of each block in the data segment, indexed by (height - startHeight) */
+        private final int[] blockIndexes;
+        private final int dataSegmentStartIndex;
+        private final MappedByteBuffer buffer;
+
+        private ArchiveFile(String filename, int version, int startHeight, int endHeight, int[] blockIndexes,
+                            int dataSegmentStartIndex, MappedByteBuffer buffer) {
+            this.filename = filename;
+            this.version = version;
+            this.startHeight = startHeight;
+            this.endHeight = endHeight;
+            this.blockIndexes = blockIndexes;
+            this.dataSegmentStartIndex = dataSegmentStartIndex;
+            this.buffer = buffer;
+        }
+
+        private static ArchiveFile map(Path filePath, String filename) throws IOException {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                // The mapping remains valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.capacity() < FIXED_HEADER_LENGTH) {
+                LOGGER.info("Error: file {} is too short to contain a header", filename);
+                return null;
+            }
+
+            // Get info about this file (the "fixed length header")
+            final int version = buffer.getInt(0);
+            final int startHeight = buffer.getInt(INT_LENGTH);
+            final int endHeight = buffer.getInt(2 * INT_LENGTH);
+            // Block count (unused) is at 3 * INT_LENGTH
+            final int variableHeaderLength = buffer.getInt(4 * INT_LENGTH);
+            // End of fixed length header
+
+            // Make sure the version is one we recognize
+            if (version != 1 && version != 2) {
+                LOGGER.info("Error: unknown version in file {}: {}", filename, version);
+                return null;
+            }
+
+            final int blockCount = endHeight - startHeight + 1;
+            if (blockCount <= 0 || (long) blockCount * INT_LENGTH > variableHeaderLength
+                    || (long) FIXED_HEADER_LENGTH + variableHeaderLength + INT_LENGTH > buffer.capacity()) {
+                LOGGER.info("Error: invalid block index in file {}", filename);
+                return null;
+            }
+
+            // Cache the block indexes from the variable length header
+            int[] blockIndexes = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockIndexes[i] = buffer.getInt(FIXED_HEADER_LENGTH + i * INT_LENGTH);
+            }
+
+            final int dataSegmentStartIndex = FIXED_HEADER_LENGTH + variableHeaderLength + INT_LENGTH; // Confirmed correct
+
+            return new ArchiveFile(filename, version, startHeight, endHeight, blockIndexes, dataSegmentStartIndex, buffer);
+        }
+
+        /** Returns a read-only slice of the serialized block at <tt>height</tt>, or null if unavailable. */
+        private ByteBuffer getBlockBuffer(int height) {
+            if (height < this.startHeight || height > this.endHeight) {
+                return null;
+            }
+
+            final long blockMetadataIndex = (long) this.dataSegmentStartIndex + this.blockIndexes[height - this.startHeight];
+            if (blockMetadataIndex < this.dataSegmentStartIndex || blockMetadataIndex + 2 * INT_LENGTH > this.buffer.capacity()) {
+                LOGGER.info("Error: invalid location for height {} in file {}", height, this.filename);
+                return null;
+            }
+
+            // Read the block metadata
+            final int blockHeight = this.buffer.getInt((int) blockMetadataIndex);
+            final int blockLength = this.buffer.getInt((int) blockMetadataIndex + INT_LENGTH);
+
+            // Ensure the block height matches the one requested
+            if (blockHeight != height) {
+                LOGGER.info("Error: height {} does not match requested: {}", blockHeight, height);
+                return null;
+            }
+
+            final long blockStartIndex = blockMetadataIndex + 2 * INT_LENGTH;
+            if (blockLength < 0 || blockStartIndex + blockLength > this.buffer.capacity()) {
+                LOGGER.info("Error: invalid length for height {} in file {}", height, this.filename);
+                return null;
+            }
+
+            // Slice out the block's serialized bytes, using a duplicate so that concurrent readers don't interfere
+            ByteBuffer blockBuffer = this.buffer.duplicate();
+            blockBuffer.position((int) blockStartIndex);
+            blockBuffer.limit((int) blockStartIndex + blockLength);
+            return blockBuffer.slice();
+        }
     }
 
 }
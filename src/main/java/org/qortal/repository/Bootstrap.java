@@ -236,6 +236,9 @@ public class Bootstrap {
                 repository.getAccountRepository().delete(mintingAccount.getPrivateKey());
             }
 
+            LOGGER.info("Deleting foreign wallet indexes...");
+            repository.getCrossChainRepository().deleteAllForeignWallets();
+
             repository.saveChanges();
 
             LOGGER.info("Deleting peers list...");
@@ -474,6 +477,9 @@ public class Bootstrap {
             this.updateStatus("Starting repository from bootstrap...");
         }
         finally {
+            // Archive files were replaced along with the rest of the repository
+            BlockArchiveReader.getInstance().invalidateFileListCache();
+
             RepositoryFactory repositoryFactory = new HSQLDBRepositoryFactory(Controller.getRepositoryUrl());
             RepositoryManager.setRepositoryFactory(repositoryFactory);
 
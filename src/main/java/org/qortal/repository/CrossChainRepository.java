@@ -1,5 +1,6 @@
 package org.qortal.repository;
 
+import org.qortal.data.crosschain.ForeignWalletData;
 import org.qortal.data.crosschain.TradeBotData;
 
 import java.util.List;
@@ -18,4 +19,21 @@ public interface CrossChainRepository {
 	/** Delete trade-bot states using passed private key. */
 	public int delete(byte[] tradePrivateKey) throws DataException;
 
+	// Foreign wallet indexes
+
+	/** Returns indexed addresses, transactions and unspent outputs of foreign wallet with passed ID, or null if not indexed. */
+	public ForeignWalletData getForeignWallet(byte[] walletId) throws DataException;
+
+	/**
+	 * Saves foreign wallet index, replacing any previously saved addresses and unspent outputs.
+	 * <p>
+	 * Only transactions noted as changed or dropped since index was last saved are written.
+	 *
+	 * @see ForeignWalletData#recordTransactionChanges(java.util.Set, java.util.Set)
+	 */
+	public void save(ForeignWalletData foreignWalletData) throws DataException;
+
+	/** Deletes all foreign wallet indexes, e.g. before creating a bootstrap. */
+	public int deleteAllForeignWallets() throws DataException;
+
 }
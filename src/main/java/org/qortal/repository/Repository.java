@@ -41,6 +41,16 @@ public interface Repository extends AutoCloseable {
 
 	public void rollbackToSavepoint() throws DataException;
 
+	/** Returns whether this session has changes that haven't been saved, and so can't be seen by other sessions. */
+	public boolean hasUnsavedChanges() throws DataException;
+
+	/**
+	 * Ends this session's current transaction, so that it sees the latest committed data, like a new session would.
+	 * <p>
+	 * Only possible if there are no unsaved changes or savepoints to lose, otherwise returns false.
+	 */
+	public boolean refreshSnapshot() throws DataException;
+
 	@Override
 	public void close() throws DataException;
 
@@ -12,6 +12,9 @@ public interface RepositoryFactory {
 
 	public Repository tryRepository() throws DataException;
 
+	/** Returns repository session that can only read, for serving API requests without holding up block processing. */
+	public Repository getReadOnlyRepository() throws DataException;
+
 	public void close() throws DataException;
 
 	// Not ideal place for this but implementating class will know the answer without having to open a new DB session
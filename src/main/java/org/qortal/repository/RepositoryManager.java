@@ -57,6 +57,20 @@ public abstract class RepositoryManager {
 		return repositoryFactory.tryRepository();
 	}
 
+	/**
+	 * Returns read-only repository session, for API requests and similar.
+	 * <p>
+	 * Each query sees the latest committed data. Sessions come from a separate pool and don't wait
+	 * for a pending CHECKPOINT to start, so heavy API use doesn't compete with block processing.
+	 * Attempts to write will fail.
+	 */
+	public static Repository getReadOnlyRepository() throws DataException {
+		if (repositoryFactory == null)
+			throw new DataException("No repository available");
+
+		return repositoryFactory.getReadOnlyRepository();
+	}
+
 	public static void closeRepositoryFactory() throws DataException {
 		repositoryFactory.close();
 		repositoryFactory = null;
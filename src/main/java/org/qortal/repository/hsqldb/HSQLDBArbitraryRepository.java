@@ -4,6 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.api.SearchMode;
 import org.qortal.arbitrary.ArbitraryDataFile;
+import org.qortal.arbitrary.ArbitraryResourceSearchIndex;
 import org.qortal.arbitrary.metadata.ArbitraryDataTransactionMetadata;
 import org.qortal.arbitrary.misc.Category;
 import org.qortal.arbitrary.misc.Service;
@@ -502,6 +503,38 @@ public class HSQLDBArbitraryRepository implements ArbitraryRepository {
 
 		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
 
+		return this.getArbitraryResourcesWithMetadata(sql, bindParams);
+	}
+
+	@Override
+	public List<ArbitraryResourceData> getArbitraryResourcesAfter(ArbitraryResourceData after, int limit) throws DataException {
+		StringBuilder sql = new StringBuilder(512);
+		List<Object> bindParams = new ArrayList<>();
+
+		sql.append("SELECT name, service, identifier, size, status, created_when, updated_when, " +
+				"title, description, category, tag1, tag2, tag3, tag4, tag5 " +
+				"FROM ArbitraryResourcesCache " +
+				"LEFT JOIN ArbitraryMetadataCache USING (service, name, identifier) " +
+				"WHERE name IS NOT NULL");
+
+		if (after != null) {
+			// Resume after last resource of previous batch, using full sort key, as creation times aren't unique
+			String afterIdentifier = after.identifier != null ? after.identifier : "default";
+
+			sql.append(" AND created_when >= ? AND (created_when > ? OR (created_when = ? AND (name > ? OR (name = ? " +
+					"AND (service > ? OR (service = ? AND identifier > ?))))))");
+			bindParams.addAll(List.of(after.created, after.created, after.created, after.name, after.name,
+					after.service.value, after.service.value, afterIdentifier));
+		}
+
+		sql.append(" ORDER BY created_when, name, service, identifier");
+
+		HSQLDBRepository.limitOffsetSql(sql, limit, null);
+
+		return this.getArbitraryResourcesWithMetadata(sql, bindParams);
+	}
+
+	private List<ArbitraryResourceData> getArbitraryResourcesWithMetadata(StringBuilder sql, List<Object> bindParams) throws DataException {
 		List<ArbitraryResourceData> arbitraryResources = new ArrayList<>();
 
 		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), bindParams.toArray())) {
@@ -727,8 +760,41 @@ public class HSQLDBArbitraryRepository implements ArbitraryRepository {
 		List<Object> bindParams = new ArrayList<>();
 
 		sql.append("SELECT name, service, identifier, size, status, created_when, updated_when, " +
-				"title, description, category, tag1, tag2, tag3, tag4, tag5 " +
-				"FROM ArbitraryResourcesCache");
+				"title, description, category, tag1, tag2, tag3, tag4, tag5 FROM ");
+
+		// If possible, use search index to narrow general queries down to a few candidate resources,
+		// which we can look up directly, rather than scanning every resource.
+		// Candidates can include false positives, so we still need the usual query checks below.
+		// Results are then ranked by how well they match, so for very broad queries we only need the best candidates,
+		// unless all results were requested, in which case it's quicker to scan in SQL.
+		final boolean isLimited = limit != null && limit > 0;
+		final int maxCandidates = isLimited
+				? Math.max(ArbitraryResourceSearchIndex.MAX_CANDIDATES, (offset != null ? offset : 0) + limit)
+				: ArbitraryResourceSearchIndex.MAX_CANDIDATES + 1;
+		List<ArbitraryResourceSearchIndex.Candidate> candidates = ArbitraryResourceSearchIndex.getInstance().rank(query, prefixOnly, maxCandidates);
+		if (candidates != null && !isLimited && candidates.size() > ArbitraryResourceSearchIndex.MAX_CANDIDATES) {
+			candidates = null;
+		}
+
+		if (candidates != null) {
+			if (candidates.isEmpty()) {
+				return new ArrayList<>();
+			}
+
+			sql.append("(VALUES ");
+			for (int i = 0; i < candidates.size(); ++i) {
+				ArbitraryResourceSearchIndex.Candidate candidate = candidates.get(i);
+				if (i > 0) sql.append(", ");
+				sql.append("(CAST(? AS SMALLINT), CAST(? AS RegisteredName), CAST(? AS VARCHAR(64)), CAST(? AS INTEGER))");
+				bindParams.add(candidate.getKey().getServiceValue());
+				bindParams.add(candidate.getKey().getName());
+				bindParams.add(candidate.getKey().getIdentifier());
+				bindParams.add(candidate.getScore());
+			}
+			sql.append(") AS Candidates (service, name, identifier, search_score) JOIN ArbitraryResourcesCache USING (service, name, identifier)");
+		} else {
+			sql.append("ArbitraryResourcesCache");
+		}
 
 		// Default to "latest" mode
 		if (mode == null) {
@@ -769,8 +835,7 @@ public class HSQLDBArbitraryRepository implements ArbitraryRepository {
 		// Handle general query matches
 		if (query != null) {
 			// Search anywhere in the fields, unless "prefixOnly" has been requested
-			// Note that without prefixOnly it will bypass any indexes so may not scale well
-			// Longer term we probably want to copy resources to their own table anyway
+			// Note that without prefixOnly it will bypass any database indexes, so may not scale well on its own
 			String queryWildcard = prefixOnly ? String.format("%s%%", query.toLowerCase()) : String.format("%%%s%%", query.toLowerCase());
 
 			if (defaultResource) {
@@ -779,9 +844,12 @@ public class HSQLDBArbitraryRepository implements ArbitraryRepository {
 				bindParams.add(queryWildcard);
 			} else {
 				// Non-default resource requested
-				// In this case we search the identifier as well as the name
-				sql.append(" AND (LCASE(name) LIKE ? OR LCASE(identifier) LIKE ? OR LCASE(title) LIKE ? OR LCASE(description) LIKE ?)");
-				bindParams.add(queryWildcard); bindParams.add(queryWildcard); bindParams.add(queryWildcard); bindParams.add(queryWildcard);
+				// In this case we search the identifier, metadata and tags as well as the name
+				sql.append(" AND (LCASE(name) LIKE ? OR LCASE(identifier) LIKE ? OR LCASE(title) LIKE ? OR LCASE(description) LIKE ?" +
+						" OR LCASE(tag1) LIKE ? OR LCASE(tag2) LIKE ? OR LCASE(tag3) LIKE ? OR LCASE(tag4) LIKE ? OR LCASE(tag5) LIKE ?)");
+				for (int i = 0; i < 9; ++i) {
+					bindParams.add(queryWildcard);
+				}
 			}
 		}
 
@@ -875,7 +943,8 @@ public class HSQLDBArbitraryRepository implements ArbitraryRepository {
 			}
 		}
 
-		sql.append(" ORDER BY created_when");
+		// Best matches first, if we know how well resources match
+		sql.append(candidates != null ? " ORDER BY search_score DESC, created_when" : " ORDER BY created_when");
 
 		if (reverse != null && reverse) {
 			sql.append(" DESC");
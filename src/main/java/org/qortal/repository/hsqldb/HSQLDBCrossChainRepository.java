@@ -1,14 +1,15 @@
 package org.qortal.repository.hsqldb;
 
+import org.qortal.crosschain.SimpleTransaction;
+import org.qortal.crosschain.UnspentOutput;
+import org.qortal.data.crosschain.ForeignWalletData;
 import org.qortal.data.crosschain.TradeBotData;
 import org.qortal.repository.CrossChainRepository;
 import org.qortal.repository.DataException;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 public class HSQLDBCrossChainRepository implements CrossChainRepository {
 
@@ -199,4 +200,225 @@ public class HSQLDBCrossChainRepository implements CrossChainRepository {
 		}
 	}
 
-}
\ No newline at end of file
+	// Foreign wallet indexes
+
+	@Override
+	public ForeignWalletData getForeignWallet(byte[] walletId) throws DataException {
+		String walletSql = "SELECT blockchain, last_used_index, synced_height, updated_when "
+				+ "FROM ForeignWallets "
+				+ "WHERE wallet_id = ?";
+
+		String blockchain;
+		int lastUsedIndex;
+		int syncedHeight;
+		long updatedWhen;
+
+		try (ResultSet resultSet = this.repository.checkedExecute(walletSql, walletId)) {
+			if (resultSet == null)
+				return null;
+
+			blockchain = resultSet.getString(1);
+			lastUsedIndex = resultSet.getInt(2);
+			syncedHeight = resultSet.getInt(3);
+			updatedWhen = resultSet.getLong(4);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch foreign wallet from repository", e);
+		}
+
+		List<String> addresses = new ArrayList<>();
+		Set<String> usedAddresses = new HashSet<>();
+
+		String addressesSql = "SELECT address, is_used "
+				+ "FROM ForeignWalletAddresses "
+				+ "WHERE wallet_id = ? "
+				+ "ORDER BY address_index";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(addressesSql, walletId)) {
+			if (resultSet != null)
+				do {
+					String address = resultSet.getString(1);
+					boolean isUsed = resultSet.getBoolean(2);
+
+					addresses.add(address);
+					if (isUsed)
+						usedAddresses.add(address);
+				} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch foreign wallet addresses from repository", e);
+		}
+
+		Map<String, List<SimpleTransaction.Input>> inputsByTxHash = new HashMap<>();
+		Map<String, List<SimpleTransaction.Output>> outputsByTxHash = new HashMap<>();
+
+		String partsSql = "SELECT tx_hash, is_output, address, amount, address_in_wallet "
+				+ "FROM ForeignWalletTransactionParts "
+				+ "WHERE wallet_id = ? "
+				+ "ORDER BY tx_hash, is_output, part_index";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(partsSql, walletId)) {
+			if (resultSet != null)
+				do {
+					String txHash = resultSet.getString(1);
+					boolean isOutput = resultSet.getBoolean(2);
+					String address = resultSet.getString(3);
+					long amount = resultSet.getLong(4);
+					boolean addressInWallet = resultSet.getBoolean(5);
+
+					if (isOutput)
+						outputsByTxHash.computeIfAbsent(txHash, k -> new ArrayList<>()).add(new SimpleTransaction.Output(address, amount, addressInWallet));
+					else
+						inputsByTxHash.computeIfAbsent(txHash, k -> new ArrayList<>()).add(new SimpleTransaction.Input(address, amount, addressInWallet));
+				} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch foreign wallet transaction inputs/outputs from repository", e);
+		}
+
+		Map<String, SimpleTransaction> transactions = new HashMap<>();
+		Map<String, Integer> transactionHeights = new HashMap<>();
+
+		String transactionsSql = "SELECT tx_hash, height, tx_timestamp, total_amount, fee_amount "
+				+ "FROM ForeignWalletTransactions "
+				+ "WHERE wallet_id = ?";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(transactionsSql, walletId)) {
+			if (resultSet != null)
+				do {
+					String txHash = resultSet.getString(1);
+					int height = resultSet.getInt(2);
+					Long timestamp = resultSet.getLong(3);
+					if (timestamp == 0 && resultSet.wasNull())
+						timestamp = null;
+					long totalAmount = resultSet.getLong(4);
+					long feeAmount = resultSet.getLong(5);
+
+					List<SimpleTransaction.Input> inputs = inputsByTxHash.getOrDefault(txHash, new ArrayList<>());
+					List<SimpleTransaction.Output> outputs = outputsByTxHash.getOrDefault(txHash, new ArrayList<>());
+
+					transactions.put(txHash, new SimpleTransaction(txHash, timestamp, totalAmount, feeAmount, inputs, outputs, null));
+					transactionHeights.put(txHash, height);
+				} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch foreign wallet transactions from repository", e);
+		}
+
+		List<UnspentOutput> unspentOutputs = new ArrayList<>();
+
+		String unspentOutputsSql = "SELECT tx_hash, output_index, height, output_value, address "
+				+ "FROM ForeignWalletUnspentOutputs "
+				+ "WHERE wallet_id = ? "
+				+ "ORDER BY height, tx_hash, output_index";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(unspentOutputsSql, walletId)) {
+			if (resultSet != null)
+				do {
+					byte[] txHash = resultSet.getBytes(1);
+					int outputIndex = resultSet.getInt(2);
+					int height = resultSet.getInt(3);
+					long value = resultSet.getLong(4);
+					String address = resultSet.getString(5);
+
+					unspentOutputs.add(new UnspentOutput(txHash, outputIndex, height, value, null, address));
+				} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch foreign wallet unspent outputs from repository", e);
+		}
+
+		return new ForeignWalletData(walletId, blockchain, addresses, usedAddresses, lastUsedIndex,
+				transactions, transactionHeights, unspentOutputs, syncedHeight, updatedWhen);
+	}
+
+	@Override
+	public void save(ForeignWalletData foreignWalletData) throws DataException {
+		byte[] walletId = foreignWalletData.getWalletId();
+
+		HSQLDBSaver saveHelper = new HSQLDBSaver("ForeignWallets");
+
+		saveHelper.bind("wallet_id", walletId)
+				.bind("blockchain", foreignWalletData.getBlockchain())
+				.bind("last_used_index", foreignWalletData.getLastUsedIndex())
+				.bind("synced_height", foreignWalletData.getSyncedHeight())
+				.bind("updated_when", foreignWalletData.getUpdatedWhen());
+
+		List<Object[]> addressRows = new ArrayList<>();
+		List<String> addresses = foreignWalletData.getAddresses();
+		for (int i = 0; i < addresses.size(); ++i) {
+			String address = addresses.get(i);
+			addressRows.add(new Object[] { walletId, i, address, foreignWalletData.getUsedAddresses().contains(address) });
+		}
+
+		// Wallets can have many transactions, so only those that changed since last save are written
+		List<Object[]> staleTransactionRows = new ArrayList<>();
+		for (String txHash : foreignWalletData.getDroppedTransactionHashes())
+			staleTransactionRows.add(new Object[] { walletId, txHash });
+
+		List<Object[]> transactionRows = new ArrayList<>();
+		List<Object[]> partRows = new ArrayList<>();
+		for (String txHash : foreignWalletData.getUnsavedTransactionHashes()) {
+			SimpleTransaction transaction = foreignWalletData.getTransactions().get(txHash);
+			if (transaction == null)
+				continue;
+
+			// Might already be saved, but at a different height
+			staleTransactionRows.add(new Object[] { walletId, txHash });
+
+			Integer height = foreignWalletData.getTransactionHeights().get(txHash);
+
+			transactionRows.add(new Object[] { walletId, txHash, height != null ? height : 0, transaction.getTimestamp(),
+					transaction.getTotalAmount(), transaction.getFeeAmount() });
+
+			List<SimpleTransaction.Input> inputs = transaction.getInputs();
+			for (int i = 0; i < inputs.size(); ++i) {
+				SimpleTransaction.Input input = inputs.get(i);
+				partRows.add(new Object[] { walletId, txHash, false, i, input.getAddress(), input.getAmount(), input.getAddressInWallet() });
+			}
+
+			List<SimpleTransaction.Output> outputs = transaction.getOutputs();
+			for (int i = 0; i < outputs.size(); ++i) {
+				SimpleTransaction.Output output = outputs.get(i);
+				partRows.add(new Object[] { walletId, txHash, true, i, output.getAddress(), output.getAmount(), output.getAddressInWallet() });
+			}
+		}
+
+		List<Object[]> unspentOutputRows = new ArrayList<>();
+		for (UnspentOutput unspentOutput : foreignWalletData.getUnspentOutputs())
+			unspentOutputRows.add(new Object[] { walletId, unspentOutput.hash, unspentOutput.index, unspentOutput.height,
+					unspentOutput.value, unspentOutput.address });
+
+		try {
+			saveHelper.execute(this.repository);
+
+			// Addresses and unspent outputs are few, so simpler to replace them than to work out what changed
+			this.repository.delete("ForeignWalletAddresses", "wallet_id = ?", walletId);
+			this.repository.delete("ForeignWalletUnspentOutputs", "wallet_id = ?", walletId);
+
+			// Transaction parts are deleted by cascade
+			this.repository.executeCheckedBatchUpdate("DELETE FROM ForeignWalletTransactions "
+					+ "WHERE wallet_id = ? AND tx_hash = ?", staleTransactionRows);
+
+			this.repository.executeCheckedBatchUpdate("INSERT INTO ForeignWalletAddresses "
+					+ "(wallet_id, address_index, address, is_used) VALUES (?, ?, ?, ?)", addressRows);
+
+			this.repository.executeCheckedBatchUpdate("INSERT INTO ForeignWalletTransactions "
+					+ "(wallet_id, tx_hash, height, tx_timestamp, total_amount, fee_amount) VALUES (?, ?, ?, ?, ?, ?)", transactionRows);
+
+			this.repository.executeCheckedBatchUpdate("INSERT INTO ForeignWalletTransactionParts "
+					+ "(wallet_id, tx_hash, is_output, part_index, address, amount, address_in_wallet) VALUES (?, ?, ?, ?, ?, ?, ?)", partRows);
+
+			this.repository.executeCheckedBatchUpdate("INSERT INTO ForeignWalletUnspentOutputs "
+					+ "(wallet_id, tx_hash, output_index, height, output_value, address) VALUES (?, ?, ?, ?, ?, ?)", unspentOutputRows);
+		} catch (SQLException e) {
+			throw new DataException("Unable to save foreign wallet into repository", e);
+		}
+	}
+
+	@Override
+	public int deleteAllForeignWallets() throws DataException {
+		try {
+			// Addresses, transactions and unspent outputs are deleted by cascade
+			return this.repository.delete("ForeignWallets");
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete foreign wallets from repository", e);
+		}
+	}
+
+}
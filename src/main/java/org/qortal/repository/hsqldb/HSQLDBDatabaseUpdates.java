@@ -1052,6 +1052,34 @@ public class HSQLDBDatabaseUpdates {
 					stmt.execute("UPDATE Accounts SET blocks_minted_penalty = -5000000 WHERE blocks_minted_penalty < 0");
 					break;
 
+				case 50:
+					// Node-local index of foreign (Bitcoin-like) HD wallets, so wallet calls don't need a full rescan each time.
+					// wallet_id is a hash of the wallet's key - the key itself is never stored.
+					stmt.execute("CREATE TABLE ForeignWallets (wallet_id VARBINARY(32) NOT NULL, blockchain VARCHAR(40) NOT NULL, "
+							+ "last_used_index INT NOT NULL, synced_height INT NOT NULL, updated_when EpochMillis NOT NULL, "
+							+ "PRIMARY KEY (wallet_id))");
+
+					stmt.execute("CREATE TABLE ForeignWalletAddresses (wallet_id VARBINARY(32) NOT NULL, address_index INT NOT NULL, "
+							+ "address VARCHAR(128) NOT NULL, is_used BOOLEAN NOT NULL, PRIMARY KEY (wallet_id, address_index), "
+							+ "FOREIGN KEY (wallet_id) REFERENCES ForeignWallets (wallet_id) ON DELETE CASCADE)");
+
+					stmt.execute("CREATE TABLE ForeignWalletTransactions (wallet_id VARBINARY(32) NOT NULL, tx_hash VARCHAR(64) NOT NULL, "
+							+ "height INT NOT NULL, tx_timestamp BIGINT, total_amount BIGINT NOT NULL, fee_amount BIGINT NOT NULL, "
+							+ "PRIMARY KEY (wallet_id, tx_hash), "
+							+ "FOREIGN KEY (wallet_id) REFERENCES ForeignWallets (wallet_id) ON DELETE CASCADE)");
+
+					// Inputs and outputs of above transactions
+					stmt.execute("CREATE TABLE ForeignWalletTransactionParts (wallet_id VARBINARY(32) NOT NULL, tx_hash VARCHAR(64) NOT NULL, "
+							+ "is_output BOOLEAN NOT NULL, part_index INT NOT NULL, address VARCHAR(128), amount BIGINT NOT NULL, "
+							+ "address_in_wallet BOOLEAN NOT NULL, PRIMARY KEY (wallet_id, tx_hash, is_output, part_index), "
+							+ "FOREIGN KEY (wallet_id, tx_hash) REFERENCES ForeignWalletTransactions (wallet_id, tx_hash) ON DELETE CASCADE)");
+
+					stmt.execute("CREATE TABLE ForeignWalletUnspentOutputs (wallet_id VARBINARY(32) NOT NULL, tx_hash VARBINARY(32) NOT NULL, "
+							+ "output_index INT NOT NULL, height INT NOT NULL, output_value BIGINT NOT NULL, address VARCHAR(128), "
+							+ "PRIMARY KEY (wallet_id, tx_hash, output_index), "
+							+ "FOREIGN KEY (wallet_id) REFERENCES ForeignWallets (wallet_id) ON DELETE CASCADE)");
+					break;
+
 				default:
 					// nothing to do
 					return false;
@@ -2,6 +2,7 @@ package org.qortal.repository.hsqldb;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hsqldb.jdbc.HSQLDBPool;
 import org.qortal.crypto.Crypto;
 import org.qortal.globalization.Translator;
 import org.qortal.gui.SysTray;
@@ -34,12 +35,17 @@ public class HSQLDBRepository implements Repository {
 	private static final Integer DEADLOCK_ERROR_CODE = Integer.valueOf(-4861);
 
 	protected Connection connection;
+	/** Pool that <tt>connection</tt> came from, if it can be given back without being closed */
+	protected final HSQLDBPool connectionPool;
+	/** Read-only sessions use auto-commit, so never hold up, or wait for, CHECKPOINT */
+	protected final boolean isReadOnly;
 	protected final Deque<Savepoint> savepoints = new ArrayDeque<>(3);
 	protected boolean debugState = false;
 	protected Long slowQueryThreshold = null;
 	protected List<String> sqlStatements;
 	protected long sessionId;
-	protected final Map<String, PreparedStatement> preparedStatementCache = new HashMap<>();
+	/** Prepared statements for <tt>connection</tt>, possibly kept by pool from previous sessions */
+	protected final Map<String, PreparedStatement> preparedStatementCache;
 	// We want the same object corresponding to the actual DB
 	protected final Object trimHeightsLock = RepositoryManager.getRepositoryFactory();
 	protected final Object latestATStatesLock = RepositoryManager.getRepositoryFactory();
@@ -63,7 +69,20 @@ public class HSQLDBRepository implements Repository {
 
 	// NB: no visibility modifier so only callable from within same package
 	/* package */ HSQLDBRepository(Connection connection) throws DataException {
+		this(connection, null);
+	}
+
+	/* package */ HSQLDBRepository(Connection connection, HSQLDBPool connectionPool) throws DataException {
+		this(connection, connectionPool, false);
+	}
+
+	/* package */ HSQLDBRepository(Connection connection, HSQLDBPool connectionPool, boolean isReadOnly) throws DataException {
 		this.connection = connection;
+		this.connectionPool = connectionPool;
+		this.isReadOnly = isReadOnly;
+
+		Map<String, PreparedStatement> statementCache = connectionPool != null ? connectionPool.getStatementCache(connection) : null;
+		this.preparedStatementCache = statementCache != null ? statementCache : new HashMap<>();
 
 		this.slowQueryThreshold = Settings.getInstance().getSlowQueryThreshold();
 		if (this.slowQueryThreshold != null)
@@ -84,12 +103,21 @@ public class HSQLDBRepository implements Repository {
 			throw new DataException("Unable to fetch session ID from repository", e);
 		}
 
+		// Read-only sessions don't block CHECKPOINT, so no need to wait for it
+		if (this.isReadOnly)
+			return;
+
 		// synchronize to block new connections if checkpointing in progress 
 		synchronized (CHECKPOINT_LOCK) {
 			assertEmptyTransaction("connection creation");
 		}
 	}
 
+	/** Returns whether this session can only read from repository. */
+	public boolean isReadOnly() {
+		return this.isReadOnly;
+	}
+
 	// Getters / setters
 
 	@Override
@@ -176,13 +204,16 @@ public class HSQLDBRepository implements Repository {
 
 	@Override
 	public void saveChanges() throws DataException {
-		long beforeQuery = this.slowQueryThreshold == null ? 0 : System.currentTimeMillis();
+		long beforeQuery = System.nanoTime();
 
 		try {
 			this.connection.commit();
 
+			long queryNanos = System.nanoTime() - beforeQuery;
+			HSQLDBStatementMetrics.getInstance().record("COMMIT", queryNanos);
+
 			if (this.slowQueryThreshold != null) {
-				long queryTime = System.currentTimeMillis() - beforeQuery;
+				long queryTime = queryNanos / 1_000_000L;
 
 				if (queryTime > this.slowQueryThreshold) {
 					LOGGER.info(() -> String.format("[Session %d] HSQLDB COMMIT took %d ms", this.sessionId, queryTime), new SQLException("slow commit"));
@@ -255,6 +286,39 @@ public class HSQLDBRepository implements Repository {
 		}
 	}
 
+	@Override
+	public boolean hasUnsavedChanges() throws DataException {
+		String sql = "SELECT transaction, transaction_size FROM information_schema.system_sessions WHERE session_id = ?";
+
+		try {
+			PreparedStatement stmt = this.cachePreparedStatement(sql);
+			stmt.setLong(1, this.sessionId);
+
+			try (ResultSet resultSet = stmt.executeQuery()) {
+				if (!resultSet.next())
+					// Can't tell, so assume the worst
+					return true;
+
+				boolean inTransaction = resultSet.getBoolean(1);
+				int transactionSize = resultSet.getInt(2);
+
+				return inTransaction && transactionSize != 0;
+			}
+		} catch (SQLException e) {
+			throw new DataException("Unable to check repository for unsaved changes", e);
+		}
+	}
+
+	@Override
+	public boolean refreshSnapshot() throws DataException {
+		if (!this.savepoints.isEmpty() || this.hasUnsavedChanges())
+			return false;
+
+		// Nothing to lose, and next query starts a new transaction, with a new snapshot
+		this.discardChanges();
+		return true;
+	}
+
 	// Close / backup / rebuild / restore
 
 	@Override
@@ -266,17 +330,30 @@ public class HSQLDBRepository implements Repository {
 		}
 
 		try {
-			assertEmptyTransaction("connection close");
-
 			// Assume we are not going to be GC'd for a while
-			this.preparedStatementCache.clear();
 			this.sqlStatements = null;
 			this.savepoints.clear();
 
-			// If a checkpoint has been requested, we could perform that now
-			this.maybeCheckpoint();
+			if (!this.isReadOnly) {
+				assertEmptyTransaction("connection close");
+
+				// If a checkpoint has been requested, we could perform that now
+				this.maybeCheckpoint();
+			}
+
+			// Give connection back to the pool, keeping session open so its prepared statements can be reused
+			if (this.connectionPool != null) {
+				// Session isn't reset by pool, so don't leave anything behind for next user
+				this.connection.rollback();
+
+				if (this.connectionPool.releaseConnection(this.connection)) {
+					this.connection = null;
+					return;
+				}
+			}
 
-			// Give connection back to the pool
+			// Closing connection also closes its prepared statements
+			this.preparedStatementCache.clear();
 			this.connection.close();
 			this.connection = null;
 		} catch (SQLException e) {
@@ -605,12 +682,15 @@ public class HSQLDBRepository implements Repository {
 		// We don't close the PreparedStatement when the ResultSet is closed because we cached PreparedStatements now.
 		// They are cleaned up when connection/session is closed.
 
-		long beforeQuery = this.slowQueryThreshold == null ? 0 : System.currentTimeMillis();
+		long beforeQuery = System.nanoTime();
 
 		ResultSet resultSet = this.checkedExecuteResultSet(preparedStatement, objects);
 
+		long queryNanos = System.nanoTime() - beforeQuery;
+		HSQLDBStatementMetrics.getInstance().record(sql, queryNanos);
+
 		if (this.slowQueryThreshold != null) {
-			long queryTime = System.currentTimeMillis() - beforeQuery;
+			long queryTime = queryNanos / 1_000_000L;
 
 			if (queryTime > this.slowQueryThreshold) {
 				LOGGER.info(() -> String.format("[Session %d] HSQLDB query took %d ms: %s", this.sessionId, queryTime, sql), new SQLException("slow query"));
@@ -654,10 +734,16 @@ public class HSQLDBRepository implements Repository {
 	private ResultSet checkedExecuteResultSet(PreparedStatement preparedStatement, Object... objects) throws SQLException {
 		bindStatementParams(preparedStatement, objects);
 
-		// synchronize to block new executions if checkpointing in progress
-		synchronized (CHECKPOINT_LOCK) {
+		if (this.isReadOnly) {
+			// Each query is its own transaction, so can't hold up checkpointing
 			if (!preparedStatement.execute())
 				throw new SQLException("Fetching from database produced no results");
+		} else {
+			// synchronize to block new executions if checkpointing in progress
+			synchronized (CHECKPOINT_LOCK) {
+				if (!preparedStatement.execute())
+					throw new SQLException("Fetching from database produced no results");
+			}
 		}
 
 		ResultSet resultSet = preparedStatement.getResultSet();
@@ -701,7 +787,7 @@ public class HSQLDBRepository implements Repository {
 			preparedStatement.addBatch();
 		}
 
-		long beforeQuery = this.slowQueryThreshold == null ? 0 : System.currentTimeMillis();
+		long beforeQuery = System.nanoTime();
 
 		int[] updateCounts = null;
 		try {
@@ -714,8 +800,11 @@ public class HSQLDBRepository implements Repository {
 			throw e;
 		}
 
+		long queryNanos = System.nanoTime() - beforeQuery;
+		HSQLDBStatementMetrics.getInstance().record(sql, queryNanos);
+
 		if (this.slowQueryThreshold != null) {
-			long queryTime = System.currentTimeMillis() - beforeQuery;
+			long queryTime = queryNanos / 1_000_000L;
 
 			if (queryTime > this.slowQueryThreshold) {
 				LOGGER.info(() -> String.format("[Session %d] HSQLDB query took %d ms: %s", this.sessionId, queryTime, sql), new SQLException("slow query"));
@@ -25,6 +25,8 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 
 	private String connectionUrl;
 	private HSQLDBPool connectionPool;
+	/** Separate pool for read-only sessions, or null if they share main pool */
+	private HSQLDBPool readOnlyConnectionPool;
 	private final boolean wasPristine;
 
 	/**
@@ -70,6 +72,13 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 		} catch (SQLException e) {
 			throw new DataException("Repository initialization error", e);
 		}
+
+		int readOnlyPoolSize = Settings.getInstance().getRepositoryReadOnlyConnectionPoolSize();
+		if (readOnlyPoolSize > 0) {
+			this.readOnlyConnectionPool = new HSQLDBPool(readOnlyPoolSize);
+			this.readOnlyConnectionPool.setUrl(this.connectionUrl);
+			this.readOnlyConnectionPool.setProperties(properties);
+		}
 	}
 
 	@Override
@@ -85,7 +94,7 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 	@Override
 	public Repository getRepository() throws DataException {
 		try {
-			return new HSQLDBRepository(this.getConnection());
+			return new HSQLDBRepository(this.getConnection(), this.connectionPool);
 		} catch (SQLException e) {
 			throw new DataException("Repository instantiation error", e);
 		}
@@ -98,22 +107,43 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 			if (connection == null)
 				return null;
 
-			return new HSQLDBRepository(connection);
+			return new HSQLDBRepository(connection, this.connectionPool);
+		} catch (SQLException e) {
+			throw new DataException("Repository instantiation error", e);
+		}
+	}
+
+	@Override
+	public Repository getReadOnlyRepository() throws DataException {
+		if (this.readOnlyConnectionPool == null)
+			return this.getRepository();
+
+		try {
+			Connection connection = this.getConnection(this.readOnlyConnectionPool);
+			setupReadOnlyConnection(connection);
+
+			return new HSQLDBRepository(connection, this.readOnlyConnectionPool, true);
 		} catch (SQLException e) {
 			throw new DataException("Repository instantiation error", e);
 		}
 	}
 
 	private Connection getConnection() throws SQLException {
+		Connection connection = this.getConnection(this.connectionPool);
+
+		setupConnection(connection);
+		return connection;
+	}
+
+	private Connection getConnection(HSQLDBPool pool) throws SQLException {
 		final long before = System.currentTimeMillis();
-		Connection connection = this.connectionPool.getConnection();
+		Connection connection = pool.getConnection();
 		final long delay = System.currentTimeMillis() - before;
 
 		if (delay > SLOW_CONNECTION_THRESHOLD)
 			// This could be an indication of excessive repository use, or insufficient pool size
 			LOGGER.warn(() -> String.format("Fetching repository connection from pool took %dms (threshold: %dms)", delay, SLOW_CONNECTION_THRESHOLD));
 
-		setupConnection(connection);
 		return connection;
 	}
 
@@ -132,12 +162,23 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 		connection.setAutoCommit(false);
 	}
 
+	private void setupReadOnlyConnection(Connection connection) throws SQLException {
+		// Auto-commit so each query is its own transaction, which never holds up CHECKPOINT
+		connection.setAutoCommit(true);
+		// With MVCC, each query sees latest committed data without taking any locks
+		connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		connection.setReadOnly(true);
+	}
+
 	@Override
 	public void close() throws DataException {
 		try {
 			// Close all existing connections immediately
 			this.connectionPool.close(0);
 
+			if (this.readOnlyConnectionPool != null)
+				this.readOnlyConnectionPool.close(0);
+
 			// Now that all connections are closed, create a dedicated connection to shut down repository
 			try (Connection connection = DriverManager.getConnection(this.connectionUrl);
 					Statement stmt = connection.createStatement()) {
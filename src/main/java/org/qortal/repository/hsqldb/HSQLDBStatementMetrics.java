@@ -0,0 +1,141 @@
+package org.qortal.repository.hsqldb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-statement execution counts and latency histograms, across all repository sessions.
+ * <p>
+ * Statements are keyed by SQL, so dynamically built SQL (e.g. with varying numbers of placeholders)
+ * shows up as separate entries. Once {@link #MAX_TRACKED_STATEMENTS} distinct statements have been seen,
+ * executions of any new ones are only counted under {@link #OTHER_SQL}.
+ */
+public class HSQLDBStatementMetrics {
+
+	public static final int MAX_TRACKED_STATEMENTS = 2000;
+	public static final String OTHER_SQL = "(other)";
+
+	/** Upper bounds of latency histogram buckets (ns). Final bucket is for anything slower. */
+	private static final long[] BUCKET_BOUNDS = {
+		100_000L, // 0.1ms
+		1_000_000L, // 1ms
+		10_000_000L, // 10ms
+		100_000_000L, // 100ms
+		1_000_000_000L // 1s
+	};
+	private static final String[] BUCKET_LABELS = { "<0.1ms", "<1ms", "<10ms", "<100ms", "<1s", ">=1s" };
+
+	public static class StatementStats {
+		public String sql;
+		public long executionCount;
+		public long totalNanos;
+		public long averageNanos;
+		public long maxNanos;
+		/** Execution counts, by latency, in the same order as <tt>latencyBuckets</tt> */
+		public long[] latencyHistogram;
+		public String[] latencyBuckets;
+
+		public StatementStats() {
+		}
+	}
+
+	private static class Entry {
+		private final LongAdder executionCount = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder[] histogram = new LongAdder[BUCKET_LABELS.length];
+
+		private Entry() {
+			for (int i = 0; i < this.histogram.length; ++i)
+				this.histogram[i] = new LongAdder();
+		}
+
+		private void record(long nanos) {
+			this.executionCount.increment();
+			this.totalNanos.add(nanos);
+			this.maxNanos.accumulateAndGet(nanos, Math::max);
+
+			int bucket = 0;
+			while (bucket < BUCKET_BOUNDS.length && nanos >= BUCKET_BOUNDS[bucket])
+				++bucket;
+
+			this.histogram[bucket].increment();
+		}
+
+		private StatementStats getStats(String sql) {
+			StatementStats stats = new StatementStats();
+			stats.sql = sql;
+			stats.executionCount = this.executionCount.sum();
+			stats.totalNanos = this.totalNanos.sum();
+			stats.averageNanos = stats.executionCount == 0 ? 0 : stats.totalNanos / stats.executionCount;
+			stats.maxNanos = this.maxNanos.get();
+
+			stats.latencyHistogram = new long[this.histogram.length];
+			for (int i = 0; i < this.histogram.length; ++i)
+				stats.latencyHistogram[i] = this.histogram[i].sum();
+
+			stats.latencyBuckets = BUCKET_LABELS.clone();
+			return stats;
+		}
+	}
+
+	private static final HSQLDBStatementMetrics INSTANCE = new HSQLDBStatementMetrics();
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Entry otherEntry = new Entry();
+
+	public static HSQLDBStatementMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/** Records one execution of <tt>sql</tt>, taking <tt>nanos</tt>. */
+	public void record(String sql, long nanos) {
+		Entry entry = this.entries.get(sql);
+
+		if (entry == null) {
+			if (this.entries.size() >= MAX_TRACKED_STATEMENTS)
+				entry = this.otherEntry;
+			else
+				entry = this.entries.computeIfAbsent(sql, k -> new Entry());
+		}
+
+		entry.record(nanos);
+	}
+
+	/**
+	 * Returns snapshot of statement stats, most total time first.
+	 *
+	 * @param limit maximum number of statements to return, or 0 for all
+	 */
+	public List<StatementStats> getStatementStats(int limit) {
+		List<StatementStats> statementStats = new ArrayList<>(this.entries.size() + 1);
+
+		this.entries.forEach((sql, entry) -> statementStats.add(entry.getStats(sql)));
+
+		StatementStats otherStats = this.otherEntry.getStats(OTHER_SQL);
+		if (otherStats.executionCount > 0)
+			statementStats.add(otherStats);
+
+		statementStats.sort(Comparator.comparingLong((StatementStats stats) -> stats.totalNanos).reversed());
+
+		if (limit > 0 && statementStats.size() > limit)
+			return new ArrayList<>(statementStats.subList(0, limit));
+
+		return statementStats;
+	}
+
+	/** Discards all collected stats. */
+	public void reset() {
+		this.entries.clear();
+		this.otherEntry.executionCount.reset();
+		this.otherEntry.totalNanos.reset();
+		this.otherEntry.maxNanos.set(0);
+		for (LongAdder bucket : this.otherEntry.histogram)
+			bucket.reset();
+	}
+
+}
@@ -6,6 +6,7 @@ import org.eclipse.persistence.exceptions.XMLMarshalException;
 import org.eclipse.persistence.jaxb.JAXBContextFactory;
 import org.eclipse.persistence.jaxb.UnmarshallerProperties;
 import org.qortal.block.BlockChain;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildCache.EvictionPolicy;
 import org.qortal.controller.arbitrary.ArbitraryDataStorageManager.StoragePolicy;
 import org.qortal.crosschain.Bitcoin.BitcoinNet;
 import org.qortal.crosschain.Digibyte.DigibyteNet;
@@ -130,9 +131,18 @@ public class Settings {
 	private boolean showCheckpointNotification = false;
 	/* How many blocks to cache locally. Defaulted to 10, which covers a typical Synchronizer request + a few spare - increased to 100 */
 	private int blockCacheSize = 100;
+	/** Maximum total size of cached BLOCK messages for recent blocks, served to peers (bytes) */
+	private long blockCacheMaxBytes = 32 * 1024 * 1024L; // 32MiB
+	/** Maximum total size of cached BLOCK messages for older blocks in popular height ranges (bytes), or 0 to disable */
+	private long historicBlockCacheMaxBytes = 32 * 1024 * 1024L; // 32MiB
+	/** Minimum number of peer requests for older blocks in the same height range, within 10 minutes, before we cache that range's blocks */
+	private int historicBlockCacheMinRangeRequests = 20;
 
 	/** Maximum number of transactions for the block minter to include in a block */
 	private int maxTransactionsPerBlock = 100;
+	/** Number of threads used to run a block's ATs in parallel, or 1 to run them one after another.<br>
+	 * Only used while holding blockchain lock, and when block's repository session has no unsaved changes. */
+	private int atExecutionThreadCount = 1;
 
 	/** How long to keep old, full, AT state data (ms). */
 	private long atStatesMaxLifetime = 5 * 24 * 60 * 60 * 1000L; // milliseconds
@@ -177,6 +187,8 @@ public class Settings {
 	private long archiveInterval = 7171L; // milliseconds
 	/** Serialization version to use when building an archive */
 	private int defaultArchiveVersion = 2;
+	/** Maximum number of block archive files to keep memory-mapped for serving archived blocks */
+	private int archiveReaderMaxMappedFiles = 16;
 
 	/** Whether to automatically bootstrap instead of syncing from genesis */
 	private boolean bootstrap = true;
@@ -204,6 +216,10 @@ public class Settings {
 	private int maxNetworkThreadPoolSize = 620;
 	/** Maximum number of threads for network proof-of-work compute, used during handshaking. */
 	private int networkPoWComputePoolSize = 2;
+	/** Number of threads used to verify online accounts' MemoryPoW nonces in parallel. */
+	private int onlineAccountsPoWVerifyPoolSize = Runtime.getRuntime().availableProcessors();
+	/** Maximum total size of idle direct buffers kept for serializing outgoing network messages. */
+	private long networkBufferPoolMaxBytes = 16 * 1024 * 1024L; // bytes
 	/** Maximum number of retry attempts if a peer fails to respond with the requested data */
 	private int maxRetries = 2;
 
@@ -232,6 +248,8 @@ public class Settings {
 	private int maxBlocksPerRequest = 100;
 	/** Maximum number of blocks this node will serve in a single response */
 	private int maxBlocksPerResponse = 200;
+	/** Maximum number of block requests kept outstanding while synchronizing, spread across peers sharing our common block */
+	private int syncBlockFetchWindowSize = 8;
 
 	// Which blockchains this node is running
 	private String blockchainConfig = null; // use default from resources
@@ -260,6 +278,8 @@ public class Settings {
 	private String repositoryPath = "db";
 	/** Repository connection pool size. Needs to be a bit bigger than maxNetworkThreadPoolSize */
 	private int repositoryConnectionPoolSize = 1920;
+	/** Connection pool size for read-only repository sessions, used by API and websockets. 0 to share main pool instead. */
+	private int repositoryReadOnlyConnectionPoolSize = 256;
 	private List<String> fixedNetwork;
 
 	// Export/import
@@ -350,8 +370,18 @@ public class Settings {
 	/** Whether to make connections directly with peers that have the required data */
 	private boolean directDataRetrievalEnabled = true;
 
+	/** Whether to share identical data files between transactions, using hard links to a store keyed by file hash.
+	 * Only used on filesystems that support hard links and report link counts. */
+	private boolean dataChunkStoreEnabled = true;
+
 	/** Expiry time (ms) for (unencrypted) built/cached data */
 	private Long builtDataExpiryInterval = 30 * 24 * 60 * 60 * 1000L; // 30 days
+	/** Maximum total size (bytes) of built/cached data, before least valuable builds are deleted */
+	private long builtDataCacheMaxSize = 2L * 1024L * 1024L * 1024L; // 2 GiB
+	/** Which builds to delete first when over builtDataCacheMaxSize: LRU (least recently used) or LFU (least frequently used) */
+	private String builtDataCacheEvictionPolicy = "LRU";
+	/** How many of the most requested resources to rebuild at startup, if no longer cached */
+	private int builtDataCacheWarmUpCount = 10;
 
 	/** Whether to validate every layer when building arbitrary data, or just the final layer */
 	private boolean validateAllDataLayers = false;
@@ -581,6 +611,13 @@ public class Settings {
 			String possibleValues = EnumUtils.getNames(StoragePolicy.class, ", ");
 			throwValidationError(String.format("storagePolicy must be one of: %s", possibleValues));
 		}
+
+		try {
+			EvictionPolicy.valueOf(this.builtDataCacheEvictionPolicy);
+		} catch (IllegalArgumentException ex) {
+			String possibleValues = EnumUtils.getNames(EvictionPolicy.class, ", ");
+			throwValidationError(String.format("builtDataCacheEvictionPolicy must be one of: %s", possibleValues));
+		}
 	}
 
 	private void setAdditionalDefaults() {
@@ -749,10 +786,26 @@ public class Settings {
 		return this.blockCacheSize;
 	}
 
+	public long getBlockCacheMaxBytes() {
+		return this.blockCacheMaxBytes;
+	}
+
+	public long getHistoricBlockCacheMaxBytes() {
+		return this.historicBlockCacheMaxBytes;
+	}
+
+	public int getHistoricBlockCacheMinRangeRequests() {
+		return this.historicBlockCacheMinRangeRequests;
+	}
+
 	public int getMaxTransactionsPerBlock() {
 		return this.maxTransactionsPerBlock;
 	}
 
+	public int getAtExecutionThreadCount() {
+		return this.atExecutionThreadCount;
+	}
+
 	public boolean isTestNet() {
 		return this.isTestNet;
 	}
@@ -811,6 +864,14 @@ public class Settings {
 		return this.networkPoWComputePoolSize;
 	}
 
+	public int getOnlineAccountsPoWVerifyPoolSize() {
+		return this.onlineAccountsPoWVerifyPoolSize;
+	}
+
+	public long getNetworkBufferPoolMaxBytes() {
+		return this.networkBufferPoolMaxBytes;
+	}
+
 	public int getMaxRetries() { return this.maxRetries; }
 
 	public long getRecoveryModeTimeout() {
@@ -885,6 +946,10 @@ public class Settings {
 		return this.repositoryConnectionPoolSize;
 	}
 
+	public int getRepositoryReadOnlyConnectionPoolSize() {
+		return this.repositoryReadOnlyConnectionPoolSize;
+	}
+
 	public String getExportPath() {
 		return this.exportPath;
 	}
@@ -905,6 +970,8 @@ public class Settings {
 
 	public int getMaxBlocksPerResponse() { return this.maxBlocksPerResponse; }
 
+	public int getSyncBlockFetchWindowSize() { return this.syncBlockFetchWindowSize; }
+
 	public boolean isAutoUpdateEnabled() {
 		return this.autoUpdateEnabled;
 	}
@@ -1035,6 +1102,10 @@ public class Settings {
 		return this.defaultArchiveVersion;
 	}
 
+	public int getArchiveReaderMaxMappedFiles() {
+		return this.archiveReaderMaxMappedFiles;
+	}
+
 
 	public boolean getBootstrap() {
 		return this.bootstrap;
@@ -1078,6 +1149,10 @@ public class Settings {
 		return this.directDataRetrievalEnabled;
 	}
 
+	public boolean isDataChunkStoreEnabled() {
+		return this.dataChunkStoreEnabled;
+	}
+
 	public boolean isOriginalCopyIndicatorFileEnabled() {
 		return this.originalCopyIndicatorFileEnabled;
 	}
@@ -1086,6 +1161,18 @@ public class Settings {
 		return this.builtDataExpiryInterval;
 	}
 
+	public long getBuiltDataCacheMaxSize() {
+		return this.builtDataCacheMaxSize;
+	}
+
+	public EvictionPolicy getBuiltDataCacheEvictionPolicy() {
+		return EvictionPolicy.valueOf(this.builtDataCacheEvictionPolicy);
+	}
+
+	public int getBuiltDataCacheWarmUpCount() {
+		return this.builtDataCacheWarmUpCount;
+	}
+
 	public boolean shouldValidateAllDataLayers() {
 		return this.validateAllDataLayers;
 	}
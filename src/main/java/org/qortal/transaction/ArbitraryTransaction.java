@@ -8,9 +8,9 @@ import org.qortal.arbitrary.ArbitraryDataResource;
 import org.qortal.arbitrary.metadata.ArbitraryDataTransactionMetadata;
 import org.qortal.arbitrary.misc.Service;
 import org.qortal.block.BlockChain;
+import org.qortal.controller.arbitrary.ArbitraryDataCacheManager;
 import org.qortal.controller.arbitrary.ArbitraryDataManager;
 import org.qortal.controller.repository.NamesDatabaseIntegrityCheck;
-import org.qortal.crypto.Crypto;
 import org.qortal.crypto.MemoryPoW;
 import org.qortal.data.PaymentData;
 import org.qortal.data.arbitrary.ArbitraryResourceData;
@@ -204,24 +204,7 @@ public class ArbitraryTransaction extends Transaction {
 	}
 
 	@Override
-	public boolean isSignatureValid() {
-		byte[] signature = this.transactionData.getSignature();
-		if (signature == null) {
-			return false;
-		}
-
-		byte[] transactionBytes;
-
-		try {
-			transactionBytes = ArbitraryTransactionTransformer.toBytesForSigning(this.transactionData);
-		} catch (TransformationException e) {
-			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
-		}
-
-		if (!Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, transactionBytes)) {
-			return false;
-		}
-
+	protected boolean isNonceValid(byte[] transactionBytes) {
 		// Nonce wasn't added until version 5+
 		if (arbitraryTransactionData.getVersion() >= 5) {
 
@@ -308,6 +291,8 @@ public class ArbitraryTransaction extends Transaction {
 
 			repository.saveChanges();
 
+			ArbitraryDataCacheManager.getInstance().addToSearchIndexQueue(this.arbitraryTransactionData);
+
 		} catch (Exception e) {
 			// Log and ignore all exceptions. The cache is updated from other places too, and can be rebuilt if needed.
 			LOGGER.info("Unable to update arbitrary caches", e);
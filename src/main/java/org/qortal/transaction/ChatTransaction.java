@@ -204,22 +204,7 @@ public class ChatTransaction extends Transaction {
 	}
 
 	@Override
-	public boolean isSignatureValid() {
-		byte[] signature = this.transactionData.getSignature();
-		if (signature == null)
-			return false;
-
-		byte[] transactionBytes;
-
-		try {
-			transactionBytes = ChatTransactionTransformer.toBytesForSigning(this.transactionData);
-		} catch (TransformationException e) {
-			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
-		}
-
-		if (!Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, transactionBytes))
-			return false;
-
+	protected boolean isNonceValid(byte[] transactionBytes) {
 		int nonce = this.chatTransactionData.getNonce();
 
 		// Clear nonce from transactionBytes
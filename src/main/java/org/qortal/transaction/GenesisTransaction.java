@@ -72,6 +72,11 @@ public class GenesisTransaction extends Transaction {
 		}
 	}
 
+	@Override
+	protected boolean hasCreatorSignature() {
+		return false;
+	}
+
 	/**
 	 * Check validity of genesis transaction signature.
 	 * <p>
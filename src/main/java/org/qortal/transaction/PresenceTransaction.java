@@ -212,6 +212,11 @@ public class PresenceTransaction extends Transaction {
 		return ValidationResult.AT_UNKNOWN;
 	}
 
+	@Override
+	protected boolean hasCreatorSignature() {
+		return false;
+	}
+
 	@Override
 	public boolean isSignatureValid() {
 		return false;
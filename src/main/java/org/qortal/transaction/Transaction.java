@@ -10,6 +10,7 @@ import org.qortal.block.BlockChain;
 import org.qortal.controller.Controller;
 import org.qortal.controller.TransactionImporter;
 import org.qortal.crypto.Crypto;
+import org.qortal.crypto.Ed25519BatchVerifier;
 import org.qortal.data.block.BlockData;
 import org.qortal.data.group.GroupApprovalData;
 import org.qortal.data.group.GroupData;
@@ -512,8 +513,86 @@ public abstract class Transaction {
 		if (signature == null)
 			return false;
 
+		byte[] transactionBytes = this.toBytesForSigning();
+
+		if (!Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, transactionBytes))
+			return false;
+
+		return this.isNonceValid(transactionBytes);
+	}
+
+	/**
+	 * Returns whether each transaction's signature is valid, as per {@link #isSignatureValid()}.
+	 * <p>
+	 * Creator signatures are verified as a batch, across all cores, using {@link Ed25519BatchVerifier}.
+	 * Any nonces are then checked on the calling thread, as they might need repository access.
+	 *
+	 * @return array of results, one per transaction, in the same order
+	 */
+	public static boolean[] areSignaturesValid(List<Transaction> transactions) {
+		final int size = transactions.size();
+		boolean[] results = new boolean[size];
+
+		byte[][] transactionsBytes = new byte[size][];
+		List<Ed25519BatchVerifier.SignedMessage> signedMessages = new ArrayList<>(size);
+		List<Integer> signedMessageIndexes = new ArrayList<>(size);
+
+		for (int i = 0; i < size; ++i) {
+			Transaction transaction = transactions.get(i);
+
+			if (!transaction.hasCreatorSignature()) {
+				results[i] = transaction.isSignatureValid();
+				continue;
+			}
+
+			byte[] signature = transaction.transactionData.getSignature();
+			if (signature == null)
+				continue;
+
+			transactionsBytes[i] = transaction.toBytesForSigning();
+
+			signedMessages.add(new Ed25519BatchVerifier.SignedMessage(transaction.transactionData.getCreatorPublicKey(), signature, transactionsBytes[i]));
+			signedMessageIndexes.add(i);
+		}
+
+		boolean[] signedMessageResults = Ed25519BatchVerifier.verify(signedMessages);
+
+		for (int s = 0; s < signedMessageResults.length; ++s) {
+			if (!signedMessageResults[s])
+				continue;
+
+			int i = signedMessageIndexes.get(s);
+			results[i] = transactions.get(i).isNonceValid(transactionsBytes[i]);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Returns whether transaction is signed by its creator, using Ed25519, over its bytes-for-signing.
+	 * <p>
+	 * Transactions that are signed differently, e.g. genesis transactions, should return false
+	 * and override {@link #isSignatureValid()} instead.
+	 */
+	protected boolean hasCreatorSignature() {
+		return true;
+	}
+
+	/**
+	 * Returns whether transaction's nonce, if any, is valid.
+	 * <p>
+	 * Only called once transaction's signature has been verified.
+	 * Subclasses may modify <tt>transactionBytes</tt>, e.g. to clear the nonce before checking it.
+	 *
+	 * @param transactionBytes transaction's bytes-for-signing
+	 */
+	protected boolean isNonceValid(byte[] transactionBytes) {
+		return true;
+	}
+
+	private byte[] toBytesForSigning() {
 		try {
-			return Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, TransactionTransformer.toBytesForSigning(transactionData));
+			return TransactionTransformer.toBytesForSigning(this.transactionData);
 		} catch (TransformationException e) {
 			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
 		}
@@ -25,6 +25,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class BlockTransformer extends Transformer {
 
@@ -436,15 +437,19 @@ public class BlockTransformer extends Transformer {
 
 			bytes.write(block.getBlockData().getMinterSignature());
 
-			for (Transaction transaction : transactions) {
-				// We don't include AT-Transactions as AT-state/output is dealt with elsewhere in the block code
-				if (transaction.getTransactionData().getType() == TransactionType.AT)
-					continue;
+			// We don't include AT-Transactions as AT-state/output is dealt with elsewhere in the block code
+			List<Transaction> signedTransactions = transactions.stream()
+					.filter(transaction -> transaction.getTransactionData().getType() != TransactionType.AT)
+					.collect(Collectors.toList());
+
+			// Verify all signatures in one batch
+			boolean[] areSignaturesValid = Transaction.areSignaturesValid(signedTransactions);
 
-				if (!transaction.isSignatureValid())
+			for (int i = 0; i < signedTransactions.size(); ++i) {
+				if (!areSignaturesValid[i])
 					throw new TransformationException("Transaction signature invalid when building block's transactions signature");
 
-				bytes.write(transaction.getTransactionData().getSignature());
+				bytes.write(signedTransactions.get(i).getTransactionData().getSignature());
 			}
 
 			return bytes.toByteArray();
@@ -8,6 +8,7 @@ import org.qortal.arbitrary.ArbitraryDataFileChunk;
 import org.qortal.arbitrary.ArbitraryDataReader;
 import org.qortal.arbitrary.ArbitraryDataResource;
 import org.qortal.arbitrary.misc.Service;
+import org.qortal.controller.arbitrary.ArbitraryDataStorageLedger;
 import org.qortal.data.arbitrary.ArbitraryResourceStatus;
 import org.qortal.data.transaction.ArbitraryTransactionData;
 import org.qortal.data.transaction.TransactionData;
@@ -302,7 +303,10 @@ public class ArbitraryTransactionUtils {
                         // Ensure parent directories exist, then copy the file
                         LOGGER.info("Relocating chunk from {} to {}...", oldPath, newPath);
                         Files.createDirectories(newPath.getParent());
+                        long bytes = ArbitraryDataStorageLedger.fileSize(oldPath);
+                        long replacedBytes = ArbitraryDataStorageLedger.fileSize(newPath);
                         Files.move(oldPath, newPath, REPLACE_EXISTING);
+                        ArbitraryDataStorageLedger.getInstance().recordFileMove(oldPath, newPath, bytes, replacedBytes);
                         filesRelocatedCount++;
 
                         // Delete empty parent directories
@@ -320,7 +324,10 @@ public class ArbitraryTransactionUtils {
                 // Ensure parent directories exist, then copy the file
                 LOGGER.info("Relocating complete file from {} to {}...", oldPath, newPath);
                 Files.createDirectories(newPath.getParent());
+                long bytes = ArbitraryDataStorageLedger.fileSize(oldPath);
+                long replacedBytes = ArbitraryDataStorageLedger.fileSize(newPath);
                 Files.move(oldPath, newPath, REPLACE_EXISTING);
+                ArbitraryDataStorageLedger.getInstance().recordFileMove(oldPath, newPath, bytes, replacedBytes);
                 filesRelocatedCount++;
 
                 // Delete empty parent directories
@@ -337,7 +344,10 @@ public class ArbitraryTransactionUtils {
                 // Ensure parent directories exist, then copy the file
                 LOGGER.info("Relocating metadata file from {} to {}...", oldPath, newPath);
                 Files.createDirectories(newPath.getParent());
+                long bytes = ArbitraryDataStorageLedger.fileSize(oldPath);
+                long replacedBytes = ArbitraryDataStorageLedger.fileSize(newPath);
                 Files.move(oldPath, newPath, REPLACE_EXISTING);
+                ArbitraryDataStorageLedger.getInstance().recordFileMove(oldPath, newPath, bytes, replacedBytes);
                 filesRelocatedCount++;
 
                 // Delete empty parent directories
@@ -50,6 +50,47 @@ public class FilesystemUtils {
                 });
     }
 
+    /**
+     * linkOrCopyFile
+     * Hard links dest to source, so that the file's data isn't duplicated,
+     * or copies it if links aren't supported (e.g. different filesystems).
+     * Files linked this way must only ever be replaced, never written to in place.
+     *
+     * @param source
+     * @param dest
+     * @throws IOException
+     */
+    public static void linkOrCopyFile(Path source, Path dest) throws IOException {
+        Files.deleteIfExists(dest);
+        try {
+            Files.createLink(dest, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * linkOrCopyDirectory
+     * Recreates the source directory structure at dest, with each file
+     * linked or copied using linkOrCopyFile().
+     *
+     * @param source
+     * @param dest
+     * @throws IOException
+     */
+    public static void linkOrCopyDirectory(Path source, Path dest) throws IOException {
+        try (java.util.stream.Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path destination = dest.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(destination);
+                }
+                else {
+                    FilesystemUtils.linkOrCopyFile(path, destination);
+                }
+            }
+        }
+    }
 
     /**
      * moveFile
@@ -0,0 +1,185 @@
+package org.qortal.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.controller.ActiveChatsIndex;
+import org.qortal.controller.Controller;
+import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.event.EventBus;
+import org.qortal.group.Group;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.transaction.TestTransaction;
+import org.qortal.utils.Base58;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.qortal.data.chat.ChatMessage.Encoding;
+
+public class ActiveChatsIndexTests extends Common {
+
+	private ActiveChatsIndex activeChatsIndex;
+	private String aliceAddress;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+
+		this.activeChatsIndex = ActiveChatsIndex.getInstance();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			this.aliceAddress = Common.getTestAccount(repository, "alice").getAddress();
+		}
+
+		this.activeChatsIndex.subscribe(this.aliceAddress);
+	}
+
+	@After
+	public void afterTest() {
+		this.activeChatsIndex.unsubscribe(this.aliceAddress);
+	}
+
+	@Test
+	public void testDirectChat() throws DataException {
+		ActiveChats activeChats = this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+		assertTrue(activeChats.getDirect().isEmpty());
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			PrivateKeyAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			ChatTransactionData chatTransactionData = buildChat(alice, bob.getAddress(), Group.NO_GROUP);
+			assertTrue(this.activeChatsIndex.isRelevant(this.aliceAddress, chatTransactionData));
+			EventBus.INSTANCE.notify(new Controller.NewTransactionEvent(chatTransactionData));
+
+			activeChats = this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+			assertEquals(1, activeChats.getDirect().size());
+
+			DirectChat directChat = activeChats.getDirect().get(0);
+			assertEquals(bob.getAddress(), directChat.getAddress());
+			assertEquals(alice.getAddress(), directChat.getSender());
+			assertEquals(chatTransactionData.getTimestamp(), directChat.getTimestamp());
+
+			// Nothing to do with alice
+			ChatTransactionData otherChatTransactionData = buildChat(bob, chloe.getAddress(), Group.NO_GROUP);
+			assertFalse(this.activeChatsIndex.isRelevant(this.aliceAddress, otherChatTransactionData));
+			this.activeChatsIndex.onNewChatTransaction(otherChatTransactionData);
+			assertEquals(1, this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58).getDirect().size());
+		}
+	}
+
+	@Test
+	public void testGroupChat() throws DataException {
+		ActiveChats activeChats = this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+		assertNotNull(findGroup(activeChats, Group.NO_GROUP));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			ChatTransactionData chatTransactionData = buildChat(bob, null, Group.NO_GROUP);
+			assertTrue(this.activeChatsIndex.isRelevant(this.aliceAddress, chatTransactionData));
+			this.activeChatsIndex.onNewChatTransaction(chatTransactionData);
+
+			activeChats = this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+			GroupChat groupChat = findGroup(activeChats, Group.NO_GROUP);
+			assertNotNull(groupChat);
+			assertEquals(bob.getAddress(), groupChat.getSender());
+			assertEquals(Long.valueOf(chatTransactionData.getTimestamp()), groupChat.getTimestamp());
+			assertArrayEquals(chatTransactionData.getSignature(), groupChat.getSignature());
+			assertEquals(Base58.encode(chatTransactionData.getData()), groupChat.getData());
+
+			// Alice isn't in this group
+			assertFalse(this.activeChatsIndex.isRelevant(this.aliceAddress, buildChat(bob, null, 99999)));
+		}
+	}
+
+	@Test
+	public void testReloadedAfterInvalidate() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+			this.activeChatsIndex.onNewChatTransaction(buildChat(bob, this.aliceAddress, Group.NO_GROUP));
+			assertEquals(1, this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58).getDirect().size());
+
+			// Transaction was never actually imported, so repository doesn't know about it
+			this.activeChatsIndex.invalidate();
+			assertTrue(this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58).getDirect().isEmpty());
+		}
+	}
+
+	@Test
+	public void testGroupChatReloadedAfterInvalidate() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+			ChatTransactionData chatTransactionData = buildChat(bob, null, Group.NO_GROUP);
+			this.activeChatsIndex.onNewChatTransaction(chatTransactionData);
+
+			GroupChat groupChat = findGroup(this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58), Group.NO_GROUP);
+			assertArrayEquals(chatTransactionData.getSignature(), groupChat.getSignature());
+
+			// Transaction was never actually imported (e.g. expired unconfirmed), so reload should drop it
+			this.activeChatsIndex.invalidate();
+			groupChat = findGroup(this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58), Group.NO_GROUP);
+			assertNotNull(groupChat);
+			assertFalse(Arrays.equals(chatTransactionData.getSignature(), groupChat.getSignature()));
+		}
+	}
+
+	@Test
+	public void testGroupChatWhileLoading() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58);
+			this.activeChatsIndex.invalidate();
+
+			// Notified while alice needs reloading, so repository might not have it yet
+			ChatTransactionData chatTransactionData = buildChat(bob, null, Group.NO_GROUP);
+			this.activeChatsIndex.onNewChatTransaction(chatTransactionData);
+
+			GroupChat groupChat = findGroup(this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58), Group.NO_GROUP);
+			assertArrayEquals(chatTransactionData.getSignature(), groupChat.getSignature());
+
+			// Only kept for that one reload
+			this.activeChatsIndex.invalidate();
+			groupChat = findGroup(this.activeChatsIndex.getActiveChats(this.aliceAddress, Encoding.BASE58), Group.NO_GROUP);
+			assertFalse(Arrays.equals(chatTransactionData.getSignature(), groupChat.getSignature()));
+		}
+	}
+
+	private static ChatTransactionData buildChat(PrivateKeyAccount sender, String recipient, int txGroupId) throws DataException {
+		Random random = new Random();
+
+		byte[] data = new byte[100];
+		random.nextBytes(data);
+
+		byte[] signature = new byte[64];
+		random.nextBytes(signature);
+
+		ChatTransactionData chatTransactionData = new ChatTransactionData(TestTransaction.generateBase(sender, txGroupId),
+				sender.getAddress(), 0, recipient, null, data, true, false);
+		chatTransactionData.setSignature(signature);
+		return chatTransactionData;
+	}
+
+	private static GroupChat findGroup(ActiveChats activeChats, int groupId) {
+		return activeChats.getGroups().stream()
+				.filter(groupChat -> groupChat.getGroupId() == groupId)
+				.findFirst()
+				.orElse(null);
+	}
+
+}
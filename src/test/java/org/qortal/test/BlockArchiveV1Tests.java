@@ -504,6 +504,9 @@ public class BlockArchiveV1Tests extends Common {
 		} catch (IOException e) {
 
 		}
+
+		// Reader mustn't keep serving blocks from deleted files
+		BlockArchiveReader.getInstance().invalidateFileListCache();
 	}
 
 }
@@ -22,9 +22,13 @@ import org.qortal.transform.TransformationException;
 import org.qortal.transform.block.BlockTransformation;
 import org.qortal.utils.BlockArchiveUtils;
 import org.qortal.utils.NTP;
+import org.qortal.utils.Triple;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.SQLException;
@@ -491,6 +495,164 @@ public class BlockArchiveV2Tests extends Common {
 	}
 
 
+	@Test
+	public void testReaderBuffersAndRange() throws DataException, InterruptedException, TransformationException, IOException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+
+			BlockArchiveWriter writer = this.mintAndArchiveBlocks(repository);
+			Path archiveFilePath = writer.getOutputPath();
+
+			BlockArchiveReader reader = BlockArchiveReader.getInstance();
+			for (int height = 2; height <= 900; height++) {
+				// Mapped buffer contents should match what is actually in the file
+				Triple<ByteBuffer, Integer, Integer> serializedBlock = reader.fetchSerializedBlockBufferForHeight(height);
+				assertNotNull(serializedBlock);
+				assertEquals(2, serializedBlock.getB().intValue());
+				assertTrue(serializedBlock.getA().isReadOnly());
+
+				byte[] mappedBytes = new byte[serializedBlock.getA().remaining()];
+				serializedBlock.getA().get(mappedBytes);
+				assertArrayEquals(readBlockBytesFromFile(archiveFilePath, height), mappedBytes);
+			}
+
+			// Range reads should match individual reads
+			List<BlockTransformation> blockInfoList = reader.fetchBlocksFromRange(2, 900);
+			assertEquals(900 - 1, blockInfoList.size());
+			for (BlockTransformation blockInfo : blockInfoList) {
+				BlockData blockData = blockInfo.getBlockData();
+				assertArrayEquals(reader.fetchBlockAtHeight(blockData.getHeight()).getBlockData().getSignature(), blockData.getSignature());
+			}
+
+			// Range reads stop at the end of the archive
+			assertEquals(10, reader.fetchBlocksFromRange(891, 950).size());
+			assertNull(reader.fetchSerializedBlockBufferForHeight(901));
+		}
+	}
+
+	@Test
+	public void testReplaceArchive() throws DataException, InterruptedException, TransformationException, IOException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+
+			this.mintAndArchiveBlocks(repository);
+
+			BlockArchiveReader reader = BlockArchiveReader.getInstance();
+			byte[] expectedBytes = reader.fetchSerializedBlockBytesForHeight(500).getA();
+
+			// Build "new" archive from a copy of the existing one
+			Path archivePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive");
+			Path newArchivePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive-rebuild");
+			FileUtils.copyDirectory(archivePath.toFile(), newArchivePath.toFile());
+
+			// Replacing archive must wait for readers
+			reader.getArchiveLock().readLock().lock();
+			Thread replaceThread = new Thread(() -> {
+				try {
+					reader.replaceArchive(newArchivePath);
+				} catch (IOException e) {
+					fail(e.getMessage());
+				}
+			});
+			try {
+				replaceThread.start();
+				replaceThread.join(1000L);
+				assertTrue(replaceThread.isAlive());
+				assertTrue(Files.exists(newArchivePath));
+			} finally {
+				reader.getArchiveLock().readLock().unlock();
+			}
+			replaceThread.join();
+
+			assertFalse(Files.exists(newArchivePath));
+
+			// Blocks should be readable from replaced archive
+			assertArrayEquals(expectedBytes, reader.fetchSerializedBlockBytesForHeight(500).getA());
+			assertEquals(900 - 1, reader.fetchBlocksFromRange(2, 900).size());
+		}
+	}
+
+	@Test
+	public void benchmarkReader() throws DataException, InterruptedException, TransformationException, IOException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+
+			BlockArchiveWriter writer = this.mintAndArchiveBlocks(repository);
+			Path archiveFilePath = writer.getOutputPath();
+			BlockArchiveReader reader = BlockArchiveReader.getInstance();
+
+			final int rounds = 20;
+			long checksum = 0;
+
+			// Warm up both readers
+			for (int height = 2; height <= 900; height++) {
+				checksum += readBlockBytesFromFile(archiveFilePath, height).length;
+				checksum += reader.fetchSerializedBlockBytesForHeight(height).getA().length;
+			}
+
+			long before = System.nanoTime();
+			for (int round = 0; round < rounds; round++)
+				for (int height = 2; height <= 900; height++)
+					checksum += readBlockBytesFromFile(archiveFilePath, height).length;
+			long fileNanos = System.nanoTime() - before;
+
+			before = System.nanoTime();
+			for (int round = 0; round < rounds; round++)
+				for (int height = 2; height <= 900; height++)
+					checksum += reader.fetchSerializedBlockBufferForHeight(height).getA().remaining();
+			long mappedNanos = System.nanoTime() - before;
+
+			before = System.nanoTime();
+			for (int round = 0; round < rounds; round++)
+				checksum += reader.fetchBlocksFromRange(2, 900).size();
+			long rangeNanos = System.nanoTime() - before;
+
+			final int blockCount = rounds * (900 - 1);
+			System.out.println(String.format("RandomAccessFile per block: %d ns/block", fileNanos / blockCount));
+			System.out.println(String.format("Memory-mapped slice: %d ns/block", mappedNanos / blockCount));
+			System.out.println(String.format("Memory-mapped range (incl. deserialization): %d ns/block", rangeNanos / blockCount));
+			assertTrue(checksum > 0);
+		}
+	}
+
+	private BlockArchiveWriter mintAndArchiveBlocks(Repository repository) throws DataException, InterruptedException, TransformationException, IOException {
+		// Mint some blocks so that we are able to archive them later
+		for (int i = 0; i < 1000; i++) {
+			BlockMinter.mintTestingBlock(repository, Common.getTestAccount(repository, "alice-reward-share"));
+		}
+
+		// 900 blocks are trimmed (this specifies the first untrimmed height)
+		repository.getBlockRepository().setOnlineAccountsSignaturesTrimHeight(901);
+		repository.getATRepository().setAtTrimHeight(901);
+
+		// Write blocks 2-900 to the archive
+		BlockArchiveWriter writer = new BlockArchiveWriter(0, BlockArchiveWriter.getMaxArchiveHeight(repository), repository);
+		writer.setShouldEnforceFileSizeTarget(false); // To avoid the need to pre-calculate file sizes
+		assertEquals(BlockArchiveWriter.BlockArchiveWriteResult.OK, writer.write());
+		assertEquals(900 - 1, writer.getWrittenCount());
+
+		return writer;
+	}
+
+	/** Reads a block's serialized bytes by opening and seeking within the archive file, as the original reader did */
+	private static byte[] readBlockBytesFromFile(Path filePath, int height) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(filePath.toString(), "r")) {
+			file.readInt(); // version
+			final int startHeight = file.readInt();
+			file.readInt(); // end height
+			file.readInt(); // block count
+			final int variableHeaderLength = file.readInt();
+			final int fixedHeaderLength = (int) file.getFilePointer();
+
+			file.seek(fixedHeaderLength + (height - startHeight) * 4);
+			int locationOfBlockInDataSegment = file.readInt();
+
+			file.seek(fixedHeaderLength + variableHeaderLength + 4 + locationOfBlockInDataSegment);
+			assertEquals(height, file.readInt());
+
+			byte[] blockBytes = new byte[file.readInt()];
+			file.readFully(blockBytes);
+			return blockBytes;
+		}
+	}
+
 	private void deleteArchiveDirectory() {
 		// Delete archive directory if exists
 		Path archivePath = Paths.get(Settings.getInstance().getRepositoryPath(), "archive").toAbsolutePath();
@@ -499,6 +661,9 @@ public class BlockArchiveV2Tests extends Common {
 		} catch (IOException e) {
 
 		}
+
+		// Reader mustn't keep serving blocks from deleted files
+		BlockArchiveReader.getInstance().invalidateFileListCache();
 	}
 
 }
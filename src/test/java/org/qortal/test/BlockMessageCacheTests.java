@@ -0,0 +1,96 @@
+package org.qortal.test;
+
+import org.junit.Test;
+import org.qortal.controller.BlockMessageCache;
+import org.qortal.network.message.CachedBlockMessage;
+import org.qortal.network.message.CachedBlockV2Message;
+import org.qortal.network.message.Message;
+import org.qortal.network.message.MessageType;
+
+import static org.junit.Assert.*;
+
+public class BlockMessageCacheTests {
+
+	private static final int DATA_LENGTH = 1000;
+
+	@Test
+	public void testGetPut() {
+		BlockMessageCache cache = new BlockMessageCache(1024 * 1024L, 0);
+		byte[] signature = signature(1);
+
+		assertNull(cache.get(signature, MessageType.BLOCK));
+
+		Message blockMessage = new CachedBlockMessage(new byte[DATA_LENGTH]);
+		assertTrue(cache.put(1, signature, blockMessage));
+
+		assertSame(blockMessage, cache.get(signature(1), MessageType.BLOCK));
+		// Different message type is a different entry
+		assertNull(cache.get(signature, MessageType.BLOCK_V2));
+
+		Message blockV2Message = new CachedBlockV2Message(new byte[DATA_LENGTH]);
+		assertTrue(cache.put(1, signature, blockV2Message));
+
+		assertSame(blockMessage, cache.get(signature, MessageType.BLOCK));
+		assertSame(blockV2Message, cache.get(signature, MessageType.BLOCK_V2));
+		assertTrue(cache.getByteCount() > 2 * DATA_LENGTH);
+
+		cache.clear();
+		assertNull(cache.get(signature, MessageType.BLOCK));
+		assertEquals(0L, cache.getByteCount());
+	}
+
+	@Test
+	public void testByteLimit() {
+		final long maxBytes = 64 * 1024L;
+		BlockMessageCache cache = new BlockMessageCache(maxBytes, 0);
+
+		for (int i = 0; i < 1000; ++i)
+			cache.put(i, signature(i), new CachedBlockMessage(new byte[DATA_LENGTH]));
+
+		assertTrue(cache.getByteCount() <= maxBytes);
+
+		// Most recent should still be cached
+		assertNotNull(cache.get(signature(999), MessageType.BLOCK));
+		// Oldest should have been evicted
+		assertNull(cache.get(signature(0), MessageType.BLOCK));
+
+		// Too big to cache at all
+		assertFalse(cache.put(1000, signature(1000), new CachedBlockMessage(new byte[(int) maxBytes])));
+	}
+
+	@Test
+	public void testDisabled() {
+		BlockMessageCache cache = new BlockMessageCache(0L, 0);
+
+		assertFalse(cache.isEnabled());
+		assertFalse(cache.put(1, signature(1), new CachedBlockMessage(new byte[DATA_LENGTH])));
+		assertNull(cache.get(signature(1), MessageType.BLOCK));
+	}
+
+	@Test
+	public void testPopularRanges() {
+		BlockMessageCache cache = new BlockMessageCache(1024 * 1024L, 3);
+		final int height = 5 * BlockMessageCache.HEIGHT_RANGE_SIZE + 10;
+
+		// Not yet popular
+		cache.recordRequest(height);
+		cache.recordRequest(height + 1);
+		assertFalse(cache.put(height, signature(height), new CachedBlockMessage(new byte[DATA_LENGTH])));
+
+		// Request for different range doesn't count
+		cache.recordRequest(height + BlockMessageCache.HEIGHT_RANGE_SIZE);
+		assertFalse(cache.put(height, signature(height), new CachedBlockMessage(new byte[DATA_LENGTH])));
+
+		cache.recordRequest(height + 2);
+		assertTrue(cache.put(height, signature(height), new CachedBlockMessage(new byte[DATA_LENGTH])));
+		assertNotNull(cache.get(signature(height), MessageType.BLOCK));
+	}
+
+	private static byte[] signature(int i) {
+		byte[] signature = new byte[64];
+		signature[0] = (byte) i;
+		signature[1] = (byte) (i >> 8);
+		return signature;
+	}
+
+}
@@ -111,6 +111,9 @@ public class BootstrapTests extends Common {
             String newline = System.getProperty("line.separator");
             assertEquals("testdata", Files.readString(archivePath).replace(newline, ""));
 
+            // Anything rewriting archive files has to let the reader know
+            BlockArchiveReader.getInstance().invalidateFileListCache();
+
             // Ensure we can no longer retrieve block 10 from the archive
             assertNull(repository.getBlockArchiveRepository().fromHeight(10));
 
@@ -11,6 +11,7 @@ import org.qortal.account.PrivateKeyAccount;
 import org.qortal.block.BlockChain;
 import org.qortal.crypto.AES;
 import org.qortal.crypto.Crypto;
+import org.qortal.crypto.Ed25519BatchVerifier;
 import org.qortal.crypto.Qortal25519Extras;
 import org.qortal.test.common.Common;
 import org.qortal.utils.Base58;
@@ -30,8 +31,13 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -365,4 +371,78 @@ public class CryptoTests extends Common {
 
 	}
 
+	@Test
+	public void testBatchVerify() {
+		Random random = new Random();
+		List<Ed25519BatchVerifier.SignedMessage> signedMessages = buildSignedMessages(100);
+
+		assertTrue(Ed25519BatchVerifier.verifyAll(signedMessages));
+
+		// Break some signatures
+		Set<Integer> brokenIndexes = new HashSet<>(Arrays.asList(0, 17, 50, 99));
+		for (int index : brokenIndexes) {
+			byte[] publicKey = Crypto.toPublicKey(randomPrivateKey(random));
+			byte[] message = new byte[100];
+			random.nextBytes(message);
+
+			// Signed by someone else
+			signedMessages.set(index, new Ed25519BatchVerifier.SignedMessage(publicKey, Crypto.sign(randomPrivateKey(random), message), message));
+		}
+
+		assertFalse(Ed25519BatchVerifier.verifyAll(signedMessages));
+
+		boolean[] results = Ed25519BatchVerifier.verify(signedMessages);
+		assertEquals(signedMessages.size(), results.length);
+		for (int i = 0; i < results.length; ++i)
+			assertEquals(!brokenIndexes.contains(i), results[i]);
+
+		// Small batches are verified on the calling thread
+		assertTrue(Ed25519BatchVerifier.verifyAll(buildSignedMessages(3)));
+		assertTrue(Ed25519BatchVerifier.verifyAll(Collections.emptyList()));
+	}
+
+	@Test
+	public void benchmarkBatchVerify() {
+		final int batchSize = 5000;
+		List<Ed25519BatchVerifier.SignedMessage> signedMessages = buildSignedMessages(batchSize);
+
+		// Warm up
+		Ed25519BatchVerifier.verify(signedMessages);
+
+		long before = System.nanoTime();
+		for (Ed25519BatchVerifier.SignedMessage signedMessage : signedMessages)
+			assertTrue(signedMessage.verify());
+		long singleNanos = System.nanoTime() - before;
+
+		before = System.nanoTime();
+		assertTrue(Ed25519BatchVerifier.verifyAll(signedMessages));
+		long batchNanos = System.nanoTime() - before;
+
+		System.out.println(String.format("Verified %d signatures: one at a time %d/s, batched %d/s",
+				batchSize,
+				batchSize * 1_000_000_000L / singleNanos,
+				batchSize * 1_000_000_000L / batchNanos));
+	}
+
+	private static List<Ed25519BatchVerifier.SignedMessage> buildSignedMessages(int count) {
+		Random random = new Random();
+		List<Ed25519BatchVerifier.SignedMessage> signedMessages = new ArrayList<>();
+
+		for (int i = 0; i < count; ++i) {
+			byte[] privateKey = randomPrivateKey(random);
+			byte[] message = new byte[100];
+			random.nextBytes(message);
+
+			signedMessages.add(new Ed25519BatchVerifier.SignedMessage(Crypto.toPublicKey(privateKey), Crypto.sign(privateKey, message), message));
+		}
+
+		return signedMessages;
+	}
+
+	private static byte[] randomPrivateKey(Random random) {
+		byte[] privateKey = new byte[32];
+		random.nextBytes(privateKey);
+		return privateKey;
+	}
+
 }
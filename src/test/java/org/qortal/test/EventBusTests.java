@@ -0,0 +1,178 @@
+package org.qortal.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.qortal.event.Event;
+import org.qortal.event.EventBus;
+import org.qortal.event.Listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventBusTests {
+
+	private static class NumberEvent implements Event {
+		final int number;
+
+		NumberEvent(int number) {
+			this.number = number;
+		}
+	}
+
+	private static class OtherEvent implements Event {
+	}
+
+	/** Listener that blocks on first event until released, then records the rest. */
+	private static class BlockingListener implements Listener {
+		final CountDownLatch blockedLatch = new CountDownLatch(1);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		final List<Integer> numbers = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch doneLatch;
+
+		BlockingListener(int expectedCount) {
+			this.doneLatch = new CountDownLatch(expectedCount);
+		}
+
+		@Override
+		public void listen(Event event) {
+			if (this.blockedLatch.getCount() > 0) {
+				this.blockedLatch.countDown();
+
+				try {
+					this.releaseLatch.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+
+			this.numbers.add(((NumberEvent) event).number);
+			this.doneLatch.countDown();
+		}
+	}
+
+	private final List<Listener> listeners = new ArrayList<>();
+
+	@After
+	public void afterTest() {
+		for (Listener listener : this.listeners)
+			EventBus.INSTANCE.removeListener(listener);
+	}
+
+	@Test
+	public void testSyncListener() {
+		List<Event> events = new ArrayList<>();
+		Listener listener = events::add;
+		this.listeners.add(listener);
+
+		EventBus.INSTANCE.addListener("testSyncListener", listener, Set.of(NumberEvent.class));
+
+		EventBus.INSTANCE.notify(new NumberEvent(1));
+		EventBus.INSTANCE.notify(new OtherEvent());
+
+		// Delivered on this thread, before notify() returns, and filtered by type
+		assertEquals(1, events.size());
+
+		EventBus.ListenerStats stats = findStats("testSyncListener");
+		assertFalse(stats.isAsync);
+		assertEquals(1, stats.deliveredCount);
+	}
+
+	@Test
+	public void testAsyncListener() throws InterruptedException {
+		BlockingListener listener = new BlockingListener(10);
+		this.listeners.add(listener);
+
+		EventBus.INSTANCE.addAsyncListener("testAsyncListener", listener, 100, EventBus.OverflowPolicy.DROP_NEWEST, Set.of());
+
+		// notify() doesn't wait for blocked listener
+		for (int i = 0; i < 10; ++i)
+			EventBus.INSTANCE.notify(new NumberEvent(i));
+
+		assertTrue(listener.blockedLatch.await(5, TimeUnit.SECONDS));
+		assertEquals(9, findStats("testAsyncListener").queueSize);
+
+		listener.releaseLatch.countDown();
+		assertTrue(listener.doneLatch.await(5, TimeUnit.SECONDS));
+
+		// All delivered, in order
+		for (int i = 0; i < 10; ++i)
+			assertEquals(i, (int) listener.numbers.get(i));
+
+		EventBus.ListenerStats stats = findStats("testAsyncListener");
+		assertTrue(stats.isAsync);
+		assertEquals(0, stats.droppedCount);
+	}
+
+	@Test
+	public void testDropNewest() throws InterruptedException {
+		assertEquals(List.of(0, 1, 2), runOverflow(EventBus.OverflowPolicy.DROP_NEWEST, 3));
+	}
+
+	@Test
+	public void testDropOldest() throws InterruptedException {
+		assertEquals(List.of(0, 8, 9), runOverflow(EventBus.OverflowPolicy.DROP_OLDEST, 3));
+	}
+
+	@Test
+	public void testCoalesce() throws InterruptedException {
+		// All queued events are same type, so collapse into latest
+		assertEquals(List.of(0, 9), runOverflow(EventBus.OverflowPolicy.COALESCE, 2));
+	}
+
+	@Test
+	public void testRemoveListener() throws InterruptedException {
+		BlockingListener listener = new BlockingListener(1);
+		this.listeners.add(listener);
+
+		EventBus.INSTANCE.addAsyncListener("testRemoveListener", listener, 100, EventBus.OverflowPolicy.DROP_NEWEST, Set.of());
+
+		EventBus.INSTANCE.notify(new NumberEvent(0));
+		assertTrue(listener.blockedLatch.await(5, TimeUnit.SECONDS));
+		EventBus.INSTANCE.notify(new NumberEvent(1));
+
+		EventBus.INSTANCE.removeListener(listener);
+		assertNull(findStats("testRemoveListener"));
+
+		// Queued event discarded
+		listener.releaseLatch.countDown();
+		assertTrue(listener.doneLatch.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100L);
+		assertEquals(List.of(0), listener.numbers);
+	}
+
+	/** Sends 10 events to a listener that's blocked on the first, returning the numbers it eventually receives. */
+	private List<Integer> runOverflow(EventBus.OverflowPolicy overflowPolicy, int expectedCount) throws InterruptedException {
+		BlockingListener listener = new BlockingListener(expectedCount);
+		this.listeners.add(listener);
+
+		EventBus.INSTANCE.addAsyncListener(overflowPolicy.name(), listener, 2, overflowPolicy, Set.of(NumberEvent.class));
+
+		EventBus.INSTANCE.notify(new NumberEvent(0));
+		assertTrue(listener.blockedLatch.await(5, TimeUnit.SECONDS));
+
+		for (int i = 1; i < 10; ++i)
+			EventBus.INSTANCE.notify(new NumberEvent(i));
+
+		listener.releaseLatch.countDown();
+		assertTrue(listener.doneLatch.await(5, TimeUnit.SECONDS));
+
+		// Allow time for any unexpected extra deliveries
+		Thread.sleep(100L);
+
+		return new ArrayList<>(listener.numbers);
+	}
+
+	private static EventBus.ListenerStats findStats(String name) {
+		return EventBus.INSTANCE.getListenerStats().stream()
+				.filter(stats -> stats.name.equals(name))
+				.findFirst()
+				.orElse(null);
+	}
+
+}
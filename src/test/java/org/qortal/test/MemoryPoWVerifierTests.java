@@ -0,0 +1,135 @@
+package org.qortal.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.crypto.MemoryPoW;
+import org.qortal.crypto.MemoryPoWVerifier;
+import org.qortal.repository.DataException;
+import org.qortal.test.common.Common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MemoryPoWVerifierTests {
+
+	private static final int workBufferLength = 1024 * 1024;
+	private static final int difficulty = 8;
+
+	private MemoryPoWVerifier verifier;
+
+	private static class Job {
+		final byte[] data;
+		final int nonce;
+
+		Job(byte[] data, int nonce) {
+			this.data = data;
+			this.nonce = nonce;
+		}
+
+		boolean verify(long[] workBuffer) {
+			return MemoryPoW.verify2(this.data, workBuffer, workBufferLength, difficulty, this.nonce);
+		}
+	}
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+		this.verifier = new MemoryPoWVerifier(workBufferLength, 4, "MemoryPoWVerifierTests");
+	}
+
+	@After
+	public void afterTest() {
+		this.verifier.shutdown();
+	}
+
+	@Test
+	public void testVerifyAll() throws InterruptedException {
+		List<Job> jobs = buildJobs(16);
+
+		assertTrue(this.verifier.verifyAll(jobs, Job::verify));
+		assertTrue(this.verifier.verifyAll(Collections.<Job>emptyList(), Job::verify));
+
+		// Break one nonce
+		Job validJob = jobs.get(5);
+		jobs.set(5, new Job(validJob.data, validJob.nonce + 1));
+
+		// Only fails if the broken nonce happens to be valid too
+		boolean isBrokenJobValid = MemoryPoW.verify2(validJob.data, workBufferLength, difficulty, validJob.nonce + 1);
+		assertEquals(isBrokenJobValid, this.verifier.verifyAll(jobs, Job::verify));
+	}
+
+	@Test
+	public void testFilterValid() throws InterruptedException {
+		List<Job> jobs = buildJobs(16);
+
+		List<Job> invalidJobs = new ArrayList<>();
+		for (Job job : jobs.subList(0, 8))
+			invalidJobs.add(new Job(job.data, -1));
+
+		List<Job> allJobs = new ArrayList<>(invalidJobs);
+		allJobs.addAll(jobs);
+
+		// Nonces of -1 are never valid, so we should only get the original jobs back, in order
+		assertEquals(jobs, this.verifier.filterValid(allJobs, (job, workBuffer) -> job.nonce >= 0 && job.verify(workBuffer)));
+	}
+
+	@Test
+	public void testEarlyStop() throws InterruptedException {
+		List<Job> jobs = buildJobs(64);
+		AtomicInteger verifiedCount = new AtomicInteger();
+
+		boolean result = this.verifier.verifyAll(jobs, (job, workBuffer) -> {
+			verifiedCount.incrementAndGet();
+			return false;
+		});
+
+		assertFalse(result);
+		// Each worker stops after finding a failure
+		assertTrue(verifiedCount.get() < jobs.size());
+	}
+
+	@Test
+	public void testAfterShutdown() throws InterruptedException {
+		List<Job> jobs = buildJobs(4);
+
+		this.verifier.shutdown();
+
+		// Should still verify, on the calling thread
+		assertTrue(this.verifier.verifyAll(jobs, Job::verify));
+	}
+
+	@Test
+	public void testShutdownDuringVerification() throws InterruptedException {
+		List<Job> jobs = buildJobs(16);
+		AtomicInteger verifiedCount = new AtomicInteger();
+
+		boolean result = this.verifier.verifyAll(jobs, (job, workBuffer) -> {
+			// Interrupts all workers, including this one
+			if (verifiedCount.incrementAndGet() == 1)
+				this.verifier.shutdown();
+
+			return job.verify(workBuffer);
+		});
+
+		// Items that workers didn't get to should still be verified, on the calling thread
+		assertTrue(result);
+		assertEquals(jobs.size(), verifiedCount.get());
+	}
+
+	private static List<Job> buildJobs(int count) {
+		List<Job> jobs = new ArrayList<>();
+
+		for (int i = 0; i < count; ++i) {
+			byte[] data = new byte[] { (byte) i, (byte) 0xbb, (byte) 0xcc };
+			jobs.add(new Job(data, MemoryPoW.compute2(data, workBufferLength, difficulty)));
+		}
+
+		return jobs;
+	}
+
+}
@@ -2,6 +2,7 @@ package org.qortal.test;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hsqldb.jdbc.HSQLDBPool;
 import org.junit.Before;
 import org.junit.Test;
 import org.qortal.account.Account;
@@ -16,6 +17,7 @@ import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.repository.hsqldb.HSQLDBRepository;
+import org.qortal.repository.hsqldb.HSQLDBStatementMetrics;
 import org.qortal.test.common.BlockUtils;
 import org.qortal.test.common.Common;
 
@@ -24,6 +26,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -80,6 +83,137 @@ public class RepositoryTests extends Common {
 		}
 	}
 
+	@Test
+	public void testPreparedStatementsKeptBetweenSessions() throws DataException, SQLException {
+		String sql = "SELECT COUNT(*) FROM Accounts";
+		PreparedStatement preparedStatement;
+
+		try (final HSQLDBRepository hsqldb = (HSQLDBRepository) RepositoryManager.getRepository()) {
+			preparedStatement = hsqldb.prepareStatement(sql);
+		}
+
+		// Nothing else is using repository, so we get same pooled connection back
+		try (final HSQLDBRepository hsqldb = (HSQLDBRepository) RepositoryManager.getRepository()) {
+			assertSame(preparedStatement, hsqldb.prepareStatement(sql));
+			assertFalse(preparedStatement.isClosed());
+
+			try (ResultSet resultSet = hsqldb.checkedExecute(sql)) {
+				assertNotNull(resultSet);
+			}
+		}
+	}
+
+	@Test
+	public void testPreparedStatementCacheBounded() throws DataException, SQLException {
+		try (final HSQLDBRepository hsqldb = (HSQLDBRepository) RepositoryManager.getRepository()) {
+			PreparedStatement firstStatement = hsqldb.prepareStatement("SELECT 0 FROM (VALUES(0))");
+			PreparedStatement hotStatement = hsqldb.prepareStatement("SELECT COUNT(*) FROM Accounts");
+
+			// Lots of one-off SQL, while still using hot statement now and again
+			for (int i = 1; i <= HSQLDBPool.MAX_CACHED_STATEMENTS * 2; ++i) {
+				hsqldb.prepareStatement(String.format("SELECT %d FROM (VALUES(0))", i));
+
+				if (i % 10 == 0)
+					assertSame(hotStatement, hsqldb.prepareStatement("SELECT COUNT(*) FROM Accounts"));
+			}
+
+			// Least recently used statement was evicted and closed
+			assertTrue(firstStatement.isClosed());
+			assertNotSame(firstStatement, hsqldb.prepareStatement("SELECT 0 FROM (VALUES(0))"));
+
+			assertFalse(hotStatement.isClosed());
+		}
+	}
+
+	@Test
+	public void testUncommittedChangesDiscardedOnClose() throws DataException {
+		byte[] lastReference = new byte[64];
+		new Random().nextBytes(lastReference);
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			Account account = Common.getTestAccount(repository, "alice");
+			account.setLastReference(lastReference);
+
+			LOGGER.warn("Expect \"uncommitted changes\" complaint below");
+		}
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			Account account = Common.getTestAccount(repository, "alice");
+			assertFalse(Arrays.equals(lastReference, account.getLastReference()));
+		}
+	}
+
+	@Test
+	public void testStatementMetrics() throws DataException, SQLException {
+		HSQLDBStatementMetrics metrics = HSQLDBStatementMetrics.getInstance();
+		metrics.reset();
+
+		String sql = "SELECT COUNT(*) FROM Accounts";
+		try (final HSQLDBRepository hsqldb = (HSQLDBRepository) RepositoryManager.getRepository()) {
+			for (int i = 0; i < 3; ++i)
+				hsqldb.checkedExecute(sql).close();
+		}
+
+		HSQLDBStatementMetrics.StatementStats statementStats = metrics.getStatementStats(0).stream()
+				.filter(stats -> stats.sql.equals(sql))
+				.findFirst()
+				.orElse(null);
+		assertNotNull(statementStats);
+		assertEquals(3L, statementStats.executionCount);
+		assertEquals(3L, Arrays.stream(statementStats.latencyHistogram).sum());
+		assertTrue(statementStats.maxNanos > 0);
+		assertTrue(statementStats.totalNanos >= statementStats.maxNanos);
+	}
+
+	@Test
+	public void testReadOnlyRepository() throws DataException, SQLException {
+		byte[] lastReference = new byte[64];
+		new Random().nextBytes(lastReference);
+
+		try (final Repository repository = RepositoryManager.getRepository();
+				final Repository readOnlyRepository = RepositoryManager.getReadOnlyRepository()) {
+			assertTrue(((HSQLDBRepository) readOnlyRepository).isReadOnly());
+
+			Common.getTestAccount(repository, "alice").setLastReference(lastReference);
+
+			// Uncommitted changes aren't visible
+			Account readOnlyAccount = Common.getTestAccount(readOnlyRepository, "alice");
+			assertFalse(Arrays.equals(lastReference, readOnlyAccount.getLastReference()));
+
+			// Committed changes are visible to next query, without starting a new session
+			repository.saveChanges();
+			assertArrayEquals(lastReference, readOnlyAccount.getLastReference());
+
+			try {
+				readOnlyAccount.setLastReference(new byte[64]);
+				fail("Read-only repository shouldn't allow writes");
+			} catch (DataException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testReadOnlyRepositoryDuringCheckpoint() throws InterruptedException, ExecutionException, TimeoutException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			// Simulate CHECKPOINT in progress, which blocks new read/write sessions
+			synchronized (HSQLDBRepository.CHECKPOINT_LOCK) {
+				Future<Integer> future = executor.submit(() -> {
+					try (final HSQLDBRepository hsqldb = (HSQLDBRepository) RepositoryManager.getReadOnlyRepository();
+							ResultSet resultSet = hsqldb.checkedExecute("SELECT COUNT(*) FROM Accounts")) {
+						return resultSet.getInt(1);
+					}
+				});
+
+				assertTrue(future.get(10, TimeUnit.SECONDS) > 0);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	public void testDeadlock() {
 		// Open connection 1
@@ -38,6 +38,14 @@ public class AdminApiTests extends ApiCommon {
 		assertNotNull(this.adminResource.summary());
 	}
 
+	@Test
+	public void testGetWebSocketStats() throws IllegalAccessException {
+		// Set localAuthBypassEnabled to true, since we don't need to test authentication here
+		FieldUtils.writeField(Settings.getInstance(), "localAuthBypassEnabled", true, true);
+
+		assertNotNull(this.adminResource.getWebSocketStats(null));
+	}
+
 	@Test
 	public void testGetMintingAccounts() {
 		assertNotNull(this.adminResource.getMintingAccounts());
@@ -0,0 +1,196 @@
+package org.qortal.test.api;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.api.websocket.BlocksWebSocket;
+import org.qortal.api.websocket.WebSocketMetrics;
+import org.qortal.controller.Controller;
+import org.qortal.data.block.BlockData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WebSocketTests extends Common {
+
+	/** Session that records frames, but only completes writes when asked */
+	private static class StubSession implements InvocationHandler {
+		private final Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class }, this);
+		private final RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(), new Class<?>[] { RemoteEndpoint.class }, this);
+
+		private final List<String> frames = new ArrayList<>();
+		private final Deque<WriteCallback> pendingWrites = new ArrayDeque<>();
+		private Integer closeStatusCode;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+				case "getRemote":
+					return this.remote;
+
+				case "sendString":
+					this.frames.add((String) args[0]);
+					if (args.length > 1)
+						this.pendingWrites.add((WriteCallback) args[1]);
+					return null;
+
+				case "close":
+					if (args != null && args.length == 2)
+						this.closeStatusCode = (Integer) args[0];
+					return null;
+
+				case "hashCode":
+					return System.identityHashCode(proxy);
+
+				case "equals":
+					return proxy == args[0];
+
+				case "toString":
+					return "stub session";
+
+				default:
+					return null;
+			}
+		}
+
+		/** Completes writes, including any that follow on from completed ones */
+		private void completeWrites() {
+			WriteCallback callback;
+			while ((callback = this.pendingWrites.poll()) != null)
+				callback.writeSuccess();
+		}
+	}
+
+	private BlocksWebSocket blocksWebSocket;
+	private BlockData blockData;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+
+		this.blocksWebSocket = new BlocksWebSocket();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			this.blockData = repository.getBlockRepository().fromHeight(1);
+		}
+	}
+
+	@Test
+	public void testFrameOrdering() {
+		StubSession stubSession = new StubSession();
+		this.blocksWebSocket.onWebSocketConnect(stubSession.session);
+
+		final int frameCount = 20;
+		for (int height = 1; height <= frameCount; ++height)
+			this.notifyBlock(height);
+
+		// Only one write in progress at a time
+		assertEquals(1, stubSession.frames.size());
+
+		stubSession.completeWrites();
+
+		assertEquals(frameCount, stubSession.frames.size());
+		for (int i = 0; i < frameCount; ++i)
+			assertTrue(stubSession.frames.get(i).contains("\"height\":" + (i + 1) + ","));
+
+		assertNull(stubSession.closeStatusCode);
+
+		this.blocksWebSocket.onWebSocketClose(stubSession.session, 1000, "done");
+	}
+
+	@Test
+	public void testEviction() throws IllegalAccessException, ClassNotFoundException {
+		final int maxQueuedFrames = (int) FieldUtils.readDeclaredStaticField(getApiWebSocketClass(), "MAX_QUEUED_FRAMES", true);
+		final long initialEvictedCount = getStats().evictedCount;
+
+		StubSession slowSession = new StubSession();
+		this.blocksWebSocket.onWebSocketConnect(slowSession.session);
+
+		StubSession fastSession = new StubSession();
+		this.blocksWebSocket.onWebSocketConnect(fastSession.session);
+
+		// One frame being written, plus full queue
+		for (int height = 1; height <= 1 + maxQueuedFrames; ++height) {
+			this.notifyBlock(height);
+			fastSession.completeWrites();
+		}
+
+		assertNull(slowSession.closeStatusCode);
+		assertEquals(initialEvictedCount, getStats().evictedCount);
+
+		// One frame too many
+		this.notifyBlock(2 + maxQueuedFrames);
+		fastSession.completeWrites();
+
+		assertEquals(Integer.valueOf(4008), slowSession.closeStatusCode);
+		assertEquals(initialEvictedCount + 1, getStats().evictedCount);
+
+		// Other sessions unaffected
+		assertNull(fastSession.closeStatusCode);
+		assertEquals(2 + maxQueuedFrames, fastSession.frames.size());
+
+		// Queued frames were discarded
+		slowSession.completeWrites();
+		assertEquals(1, slowSession.frames.size());
+
+		this.blocksWebSocket.onWebSocketClose(slowSession.session, 4008, "too slow");
+		this.blocksWebSocket.onWebSocketClose(fastSession.session, 1000, "done");
+	}
+
+	@Test
+	public void testCleanupAfterClose() throws IllegalAccessException, ClassNotFoundException {
+		Map<?, ?> sendersBySession = (Map<?, ?>) FieldUtils.readDeclaredStaticField(getApiWebSocketClass(), "SENDERS_BY_SESSION", true);
+
+		StubSession stubSession = new StubSession();
+		this.blocksWebSocket.onWebSocketConnect(stubSession.session);
+
+		final int initialSessionCount = getStats().sessionCount;
+		assertTrue(sendersBySession.containsKey(stubSession.session));
+
+		this.blocksWebSocket.onWebSocketClose(stubSession.session, 1000, "done");
+
+		assertEquals(initialSessionCount - 1, getStats().sessionCount);
+		assertFalse(sendersBySession.containsKey(stubSession.session));
+
+		// Late broadcasts and replies shouldn't reach session, or bring back its sender
+		this.notifyBlock(1);
+		this.blocksWebSocket.onWebSocketMessage(stubSession.session, "1");
+
+		assertTrue(stubSession.frames.isEmpty());
+		assertFalse(sendersBySession.containsKey(stubSession.session));
+	}
+
+	private void notifyBlock(int height) {
+		BlockData blockData = new BlockData(this.blockData);
+		blockData.setHeight(height);
+
+		this.blocksWebSocket.listen(new Controller.NewBlockEvent(blockData));
+	}
+
+	private static Class<?> getApiWebSocketClass() throws ClassNotFoundException {
+		return Class.forName("org.qortal.api.websocket.ApiWebSocket");
+	}
+
+	private static WebSocketMetrics.EndpointStats getStats() {
+		return WebSocketMetrics.getInstance().getEndpointStats().stream()
+				.filter(stats -> stats.endpoint.equals(BlocksWebSocket.class.getSimpleName()))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("no stats for BlocksWebSocket"));
+	}
+
+}
@@ -0,0 +1,281 @@
+package org.qortal.test.arbitrary;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.arbitrary.ArbitraryDataBuildQueueItem;
+import org.qortal.arbitrary.ArbitraryDataFile.ResourceIdType;
+import org.qortal.arbitrary.ArbitraryDataReader;
+import org.qortal.arbitrary.ArbitraryDataResource;
+import org.qortal.arbitrary.exception.MissingDataException;
+import org.qortal.arbitrary.misc.Service;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildCache;
+import org.qortal.controller.arbitrary.ArbitraryDataBuildManager;
+import org.qortal.data.transaction.ArbitraryTransactionData.Method;
+import org.qortal.data.transaction.RegisterNameTransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.settings.Settings;
+import org.qortal.test.common.ArbitraryUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.test.common.transaction.TestTransaction;
+import org.qortal.transaction.RegisterNameTransaction;
+import org.qortal.utils.Base58;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataBuildCacheTests extends Common {
+
+    private static final long NOW = 100 * 24 * 60 * 60 * 1000L;
+
+    private ArbitraryDataBuildCache buildCache;
+
+    @Before
+    public void beforeTest() throws DataException, IllegalAccessException {
+        Common.useDefaultSettings();
+        this.deleteReaderDirectory();
+
+        // Room for two 1000-byte builds
+        FieldUtils.writeField(Settings.getInstance(), "builtDataCacheMaxSize", 2500L, true);
+
+        this.buildCache = new ArbitraryDataBuildCache();
+    }
+
+    @After
+    public void afterTest() throws IllegalAccessException {
+        this.deleteReaderDirectory();
+        FieldUtils.writeField(Settings.getInstance(), "builtDataCacheEvictionPolicy", "LRU", true);
+        ArbitraryDataBuildManager.getInstance().arbitraryDataBuildQueue.clear();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException {
+        Path pathA = this.build("alice", 1000, 1000L);
+        Path pathB = this.build("bob", 1000, 2000L);
+        assertEquals(2000L, this.buildCache.getTotalBytes());
+
+        // Alice's build is used again, so Bob's is now the oldest
+        this.buildCache.recordHit(resource("alice"), pathA, 3000L);
+
+        Path pathC = this.build("chloe", 1000, NOW);
+        assertEquals(2000L, this.buildCache.getTotalBytes());
+        assertEquals(1L, this.buildCache.getEvictionCount());
+
+        assertTrue(Files.exists(pathA));
+        assertFalse(Files.exists(pathB));
+        assertTrue(Files.exists(pathC));
+        assertFalse(this.buildCache.getEntry(pathB).isBuilt());
+    }
+
+    @Test
+    public void testLeastFrequentlyUsedEvicted() throws IOException, IllegalAccessException {
+        FieldUtils.writeField(Settings.getInstance(), "builtDataCacheEvictionPolicy", "LFU", true);
+
+        Path pathA = this.build("alice", 1000, 1000L);
+        for (int i = 0; i < 5; ++i)
+            this.buildCache.recordHit(resource("alice"), pathA, 1000L + i);
+
+        Path pathB = this.build("bob", 1000, 2000L);
+        this.buildCache.recordHit(resource("bob"), pathB, 3000L);
+
+        this.build("chloe", 1000, NOW);
+
+        // Bob's was used more recently, but less often
+        assertTrue(Files.exists(pathA));
+        assertFalse(Files.exists(pathB));
+    }
+
+    @Test
+    public void testRecentlyUsedNotEvicted() throws IOException {
+        Path pathA = this.build("alice", 1000, NOW - 1000L);
+        Path pathB = this.build("bob", 1000, NOW - 500L);
+        Path pathC = this.build("chloe", 1000, NOW);
+
+        // Over the limit, but everything may still be in use
+        assertEquals(3000L, this.buildCache.getTotalBytes());
+        assertTrue(Files.exists(pathA));
+        assertTrue(Files.exists(pathB));
+        assertTrue(Files.exists(pathC));
+
+        // Once they've aged, oldest is evicted
+        assertEquals(1, this.buildCache.evict(NOW + 60 * 60 * 1000L));
+        assertFalse(Files.exists(pathA));
+    }
+
+    @Test
+    public void testHitsAndMisses() throws IOException {
+        Path path = buildPath("alice");
+        this.buildCache.recordMiss(resource("alice"), path, 1000L);
+        assertEquals(0L, this.buildCache.getTotalBytes());
+
+        writeBuild(path, 1000);
+        this.buildCache.recordBuild(resource("alice"), path, 2000L);
+        this.buildCache.recordHit(resource("alice"), path, 3000L);
+        this.buildCache.recordHit(resource("alice"), path, 4000L);
+
+        assertEquals(1L, this.buildCache.getMissCount());
+        assertEquals(2L, this.buildCache.getHitCount());
+
+        List<ArbitraryDataBuildCache.CachedResource> mostRequested = this.buildCache.getMostRequested(10);
+        assertEquals(1, mostRequested.size());
+        assertEquals("alice", mostRequested.get(0).getResourceId());
+        assertEquals(3L, mostRequested.get(0).getAccessCount());
+        assertEquals(1000L, mostRequested.get(0).getBytes());
+    }
+
+    @Test
+    public void testFollowUpRequestsNotRecorded() throws DataException, IOException, MissingDataException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+            String publicKey58 = Base58.encode(alice.getPublicKey());
+            String name = "TEST"; // Can be anything for this test
+            Service service = Service.ARBITRARY_DATA;
+
+            RegisterNameTransactionData transactionData = new RegisterNameTransactionData(TestTransaction.generateBase(alice), name, "");
+            transactionData.setFee(new RegisterNameTransaction(null, null).getUnitFee(transactionData.getTimestamp()));
+            TransactionUtils.signAndMint(repository, transactionData, alice);
+
+            Path path1 = Paths.get("src/test/resources/arbitrary/demo1");
+            ArbitraryUtils.createAndMintTxn(repository, publicKey58, path1, name, null, Method.PUT, service, alice);
+
+            ArbitraryDataReader arbitraryDataReader = new ArbitraryDataReader(name, ResourceIdType.NAME, service, null);
+            arbitraryDataReader.loadSynchronously(false);
+            Path builtPath = arbitraryDataReader.getFilePath().getParent();
+
+            ArbitraryDataBuildCache buildCache = ArbitraryDataBuildCache.getInstance();
+            long accessCount = buildCache.getEntry(builtPath).getAccessCount();
+            long hitCount = buildCache.getHitCount();
+
+            // Top-level request
+            assertTrue(new ArbitraryDataReader(name, ResourceIdType.NAME, service, null).isCachedDataAvailable());
+            assertEquals(accessCount + 1, buildCache.getEntry(builtPath).getAccessCount());
+            assertEquals(hitCount + 1, buildCache.getHitCount());
+
+            // Follow-up requests, e.g. for a page's assets
+            for (int i = 0; i < 5; i++) {
+                ArbitraryDataReader assetReader = new ArbitraryDataReader(name, ResourceIdType.NAME, service, null);
+                assetReader.setRecordsAccess(false);
+                assertTrue(assetReader.isCachedDataAvailable());
+            }
+            assertEquals(accessCount + 1, buildCache.getEntry(builtPath).getAccessCount());
+            assertEquals(hitCount + 1, buildCache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testOnlyFinalBuildOfLayersTracked() throws DataException, IOException, MissingDataException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+            String publicKey58 = Base58.encode(alice.getPublicKey());
+            String name = "LAYERED"; // Can be anything for this test
+            Service service = Service.ARBITRARY_DATA;
+
+            RegisterNameTransactionData transactionData = new RegisterNameTransactionData(TestTransaction.generateBase(alice), name, "");
+            transactionData.setFee(new RegisterNameTransaction(null, null).getUnitFee(transactionData.getTimestamp()));
+            TransactionUtils.signAndMint(repository, transactionData, alice);
+
+            // One PUT and two PATCH layers
+            ArbitraryUtils.createAndMintTxn(repository, publicKey58, Paths.get("src/test/resources/arbitrary/demo1"), name, null, Method.PUT, service, alice);
+            ArbitraryUtils.createAndMintTxn(repository, publicKey58, Paths.get("src/test/resources/arbitrary/demo2"), name, null, Method.PATCH, service, alice);
+            ArbitraryUtils.createAndMintTxn(repository, publicKey58, Paths.get("src/test/resources/arbitrary/demo3"), name, null, Method.PATCH, service, alice);
+
+            ArbitraryDataBuildCache buildCache = ArbitraryDataBuildCache.getInstance();
+            final int builtCount = buildCache.getBuiltCount();
+            final long totalBytes = buildCache.getTotalBytes();
+
+            ArbitraryDataReader arbitraryDataReader = new ArbitraryDataReader(name, ResourceIdType.NAME, service, null);
+            arbitraryDataReader.loadSynchronously(true);
+            Path builtPath = arbitraryDataReader.getFilePath().getParent();
+
+            // Intermediate layers aren't tracked, as they're cleaned up once combined
+            assertEquals(builtCount + 1, buildCache.getBuiltCount());
+
+            ArbitraryDataBuildCache.CachedResource entry = buildCache.getEntry(builtPath);
+            assertTrue(entry.isBuilt());
+            assertEquals(FileUtils.sizeOfDirectory(builtPath.toFile()), entry.getBytes());
+            assertEquals(totalBytes + entry.getBytes(), buildCache.getTotalBytes());
+        }
+    }
+
+    @Test
+    public void testReconcile() throws IOException {
+        // Built before we were tracking
+        Path pathA = buildPath("alice");
+        writeBuild(pathA, 1000);
+
+        Path pathB = this.build("bob", 1000, 2000L);
+        FileUtils.deleteDirectory(pathB.toFile());
+
+        this.buildCache.reconcile(NOW);
+        assertEquals(1000L, this.buildCache.getTotalBytes());
+        assertEquals(1, this.buildCache.getBuiltCount());
+        assertTrue(this.buildCache.getEntry(pathA).isBuilt());
+        assertFalse(this.buildCache.getEntry(pathB).isBuilt());
+    }
+
+    @Test
+    public void testSaveLoadAndWarmUp() throws IOException {
+        Path pathA = this.build("alice", 1000, 1000L);
+        Path pathB = this.build("bob", 1000, 2000L);
+        for (int i = 0; i < 3; ++i)
+            this.buildCache.recordHit(resource("bob"), pathB, 3000L + i);
+        this.buildCache.recordHit(resource("alice"), pathA, 4000L);
+        this.buildCache.save();
+
+        // Builds are gone after restart
+        FileUtils.deleteDirectory(pathA.toFile());
+        FileUtils.deleteDirectory(pathB.toFile());
+
+        ArbitraryDataBuildCache loadedCache = new ArbitraryDataBuildCache();
+        assertTrue(loadedCache.load());
+        loadedCache.reconcile(NOW);
+        assertEquals(0L, loadedCache.getTotalBytes());
+
+        // Most requested is rebuilt first
+        assertEquals(1, loadedCache.warmUp(1));
+        ArbitraryDataBuildManager buildManager = ArbitraryDataBuildManager.getInstance();
+        assertTrue(buildManager.isInBuildQueue(new ArbitraryDataBuildQueueItem("bob", ResourceIdType.NAME, Service.WEBSITE, null)));
+        assertFalse(buildManager.isInBuildQueue(new ArbitraryDataBuildQueueItem("alice", ResourceIdType.NAME, Service.WEBSITE, null)));
+    }
+
+    private Path build(String name, int size, long now) throws IOException {
+        Path path = buildPath(name);
+        writeBuild(path, size);
+        this.buildCache.recordBuild(resource(name), path, now);
+        return path;
+    }
+
+    private static ArbitraryDataResource resource(String name) {
+        return new ArbitraryDataResource(name, ResourceIdType.NAME, Service.WEBSITE, null);
+    }
+
+    private static Path buildPath(String name) {
+        return Paths.get(Settings.getInstance().getTempDataPath(), "reader", "NAME", name, "WEBSITE", "default");
+    }
+
+    private static void writeBuild(Path path, int size) throws IOException {
+        Path dataPath = path.resolve("data");
+        Files.createDirectories(dataPath);
+        Files.write(dataPath.resolve("index.html"), new byte[size]);
+    }
+
+    private void deleteReaderDirectory() {
+        try {
+            FileUtils.deleteDirectory(ArbitraryDataBuildCache.getReaderPath().toFile());
+        } catch (IOException e) {
+
+        }
+    }
+
+}
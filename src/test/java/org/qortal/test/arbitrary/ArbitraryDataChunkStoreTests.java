@@ -0,0 +1,179 @@
+package org.qortal.test.arbitrary;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.arbitrary.ArbitraryDataChunkStore;
+import org.qortal.arbitrary.ArbitraryDataFile;
+import org.qortal.controller.arbitrary.ArbitraryDataStorageLedger;
+import org.qortal.repository.DataException;
+import org.qortal.settings.Settings;
+import org.qortal.test.common.Common;
+import org.qortal.utils.Base58;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataChunkStoreTests extends Common {
+
+    private ArbitraryDataChunkStore chunkStore;
+
+    @Before
+    public void beforeTest() throws DataException {
+        Common.useDefaultSettings();
+        this.deleteDataDirectories();
+
+        this.chunkStore = ArbitraryDataChunkStore.getInstance();
+        // Only supported on filesystems that report link counts
+        Assume.assumeTrue(this.chunkStore.isEnabled());
+
+        ArbitraryDataStorageLedger.getInstance().reconcile(System.currentTimeMillis());
+    }
+
+    @After
+    public void afterTest() {
+        this.deleteDataDirectories();
+        ArbitraryDataStorageLedger.getInstance().reconcile(System.currentTimeMillis());
+    }
+
+    @Test
+    public void testSharedBetweenSignatures() throws DataException, IOException {
+        byte[] data = randomBytes(1000);
+
+        ArbitraryDataFile file1 = new ArbitraryDataFile(data, randomBytes(64), false);
+        String hash58 = file1.getHash58();
+        assertTrue(this.chunkStore.contains(hash58));
+        assertEquals(1, this.chunkStore.getReferenceCount(hash58));
+
+        ArbitraryDataFile file2 = new ArbitraryDataFile(data, randomBytes(64), false);
+        assertEquals(hash58, file2.getHash58());
+        assertEquals(2, this.chunkStore.getReferenceCount(hash58));
+
+        // Writing the same file again doesn't add a reference
+        new ArbitraryDataFile(data, file2.getSignature(), false);
+        assertEquals(2, this.chunkStore.getReferenceCount(hash58));
+        assertArrayEquals(data, Files.readAllBytes(file1.getFilePath()));
+
+        assertTrue(file1.delete());
+        assertEquals(1, this.chunkStore.getReferenceCount(hash58));
+        assertArrayEquals(data, Files.readAllBytes(file2.getFilePath()));
+
+        // Store entry is removed along with last reference
+        assertTrue(file2.delete());
+        assertFalse(this.chunkStore.contains(hash58));
+        assertFalse(Files.exists(ArbitraryDataChunkStore.getStorePath(hash58)));
+    }
+
+    @Test
+    public void testLinkInsteadOfFetch() throws DataException, IOException {
+        byte[] data = randomBytes(1000);
+        ArbitraryDataFile file1 = new ArbitraryDataFile(data, randomBytes(64), false);
+        String hash58 = file1.getHash58();
+
+        // Another transaction needs the same file
+        byte[] signature2 = randomBytes(64);
+        ArbitraryDataFile file2 = ArbitraryDataFile.fromHash58(hash58, signature2);
+        assertFalse(file2.exists());
+
+        assertTrue(file2.linkFromChunkStore());
+        assertTrue(file2.exists());
+        assertArrayEquals(data, Files.readAllBytes(file2.getFilePath()));
+        assertEquals(2, this.chunkStore.getReferenceCount(hash58));
+        assertEquals(1000L, ArbitraryDataStorageLedger.getInstance().getBytesForSignature(Base58.encode(signature2)));
+
+        // Nothing to link once all copies are gone
+        assertTrue(file1.delete());
+        assertTrue(file2.delete());
+        assertFalse(ArbitraryDataFile.fromHash58(hash58, randomBytes(64)).linkFromChunkStore());
+    }
+
+    @Test
+    public void testSplitChunksShared() throws DataException {
+        byte[] data = randomBytes(ArbitraryDataFile.CHUNK_SIZE * 2 + 100);
+
+        ArbitraryDataFile file1 = new ArbitraryDataFile(data, randomBytes(64), false);
+        assertEquals(3, file1.split(ArbitraryDataFile.CHUNK_SIZE));
+
+        ArbitraryDataFile file2 = new ArbitraryDataFile(data, randomBytes(64), false);
+        assertEquals(3, file2.split(ArbitraryDataFile.CHUNK_SIZE));
+
+        for (byte[] chunkHash : file1.chunkHashList()) {
+            assertEquals(2, this.chunkStore.getReferenceCount(Base58.encode(chunkHash)));
+        }
+        assertArrayEquals(file1.chunkHashes(), file2.chunkHashes());
+    }
+
+    @Test
+    public void testMismatchedJoinNotStored() throws DataException {
+        byte[] data = randomBytes(ArbitraryDataFile.CHUNK_SIZE * 2 + 100);
+
+        ArbitraryDataFile file = new ArbitraryDataFile(data, randomBytes(64), false);
+        String hash58 = file.getHash58();
+        assertEquals(3, file.split(ArbitraryDataFile.CHUNK_SIZE));
+        assertTrue(file.delete());
+        assertFalse(this.chunkStore.contains(hash58));
+
+        // Each chunk is still valid, but together they no longer make up the expected file
+        Collections.swap(file.getChunks(), 0, 1);
+        assertFalse(file.join());
+        assertFalse(file.exists());
+        assertFalse(this.chunkStore.contains(hash58));
+
+        Collections.swap(file.getChunks(), 0, 1);
+        assertTrue(file.join());
+        assertTrue(this.chunkStore.contains(hash58));
+    }
+
+    @Test
+    public void testShared() throws DataException {
+        byte[] data = randomBytes(1000);
+
+        ArbitraryDataFile file1 = new ArbitraryDataFile(data, randomBytes(64), false);
+        // Only linked from the store, so deleting it would free space
+        assertFalse(this.chunkStore.isShared(file1.getFilePath()));
+
+        ArbitraryDataFile file2 = new ArbitraryDataFile(data, randomBytes(64), false);
+        assertTrue(this.chunkStore.isShared(file1.getFilePath()));
+        assertTrue(this.chunkStore.isShared(file2.getFilePath()));
+
+        assertTrue(file2.delete());
+        assertFalse(this.chunkStore.isShared(file1.getFilePath()));
+    }
+
+    @Test
+    public void testPrune() throws DataException, IOException, InterruptedException {
+        ArbitraryDataFile file = new ArbitraryDataFile(randomBytes(1000), randomBytes(64), false);
+        String hash58 = file.getHash58();
+
+        // Remove whole signature directory, bypassing the store
+        FileUtils.deleteDirectory(file.getFilePath().getParent().toFile());
+        assertEquals(0, this.chunkStore.getReferenceCount(hash58));
+
+        assertEquals(1, this.chunkStore.prune());
+        assertFalse(this.chunkStore.contains(hash58));
+        assertEquals(0, this.chunkStore.prune());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+
+    private void deleteDataDirectories() {
+        try {
+            FileUtils.deleteDirectory(Paths.get(Settings.getInstance().getDataPath()).toFile());
+            FileUtils.deleteDirectory(Paths.get(Settings.getInstance().getTempDataPath()).toFile());
+        } catch (IOException e) {
+
+        }
+    }
+
+}
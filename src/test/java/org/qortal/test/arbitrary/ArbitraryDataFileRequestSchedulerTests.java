@@ -0,0 +1,231 @@
+package org.qortal.test.arbitrary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.arbitrary.ArbitraryDataFileRequestScheduler;
+import org.qortal.data.arbitrary.ArbitraryFileListResponseInfo;
+import org.qortal.data.network.PeerData;
+import org.qortal.network.Peer;
+import org.qortal.network.PeerAddress;
+import org.qortal.repository.DataException;
+import org.qortal.test.common.Common;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataFileRequestSchedulerTests {
+
+    private static class Request {
+        private final Peer peer;
+        private final String signature58;
+        private final String hash58;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private Request(Peer peer, String signature58, String hash58) {
+            this.peer = peer;
+            this.signature58 = signature58;
+            this.hash58 = hash58;
+        }
+    }
+
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    private final Set<String> externalRequests = Collections.synchronizedSet(new HashSet<>());
+    private ArbitraryDataFileRequestScheduler scheduler;
+    private Thread schedulerThread;
+
+    @Before
+    public void beforeTest() throws DataException {
+        Common.useDefaultSettings();
+
+        this.scheduler = new ArbitraryDataFileRequestScheduler(new ArbitraryDataFileRequestScheduler.ChunkFetcher() {
+            @Override
+            public boolean isRequesting(String hash58) {
+                return externalRequests.contains(hash58);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> fetch(Peer peer, String signature58, String hash58) {
+                Request request = new Request(peer, signature58, hash58);
+                requests.add(request);
+                return request.future;
+            }
+        });
+
+        this.schedulerThread = new Thread(() -> {
+            try {
+                this.scheduler.processRequests();
+            } catch (InterruptedException e) {
+                // Exit
+            }
+        });
+        this.schedulerThread.start();
+    }
+
+    @After
+    public void afterTest() throws InterruptedException {
+        this.scheduler.shutdown();
+        this.schedulerThread.join(5000L);
+    }
+
+    @Test
+    public void testPerPeerLimit() throws InterruptedException {
+        Peer peer = newPeer("10.0.0.1:12392");
+        for (int i = 0; i < 10; ++i)
+            this.scheduler.addResponse(response("sig", "hash" + i, peer, 1));
+
+        List<Request> inFlight = takeRequests(ArbitraryDataFileRequestScheduler.MAX_IN_FLIGHT_PER_PEER);
+        assertNoMoreRequests();
+        assertEquals(ArbitraryDataFileRequestScheduler.MAX_IN_FLIGHT_PER_PEER, this.scheduler.getInFlightCount());
+
+        // Completing a request frees up a slot for the next chunk
+        inFlight.get(0).future.complete(true);
+        Request next = takeRequest();
+        assertEquals("hash4", next.hash58);
+        assertNoMoreRequests();
+
+        assertEquals(10 - 1, this.scheduler.getResponseCount());
+        assertEquals(10 - 1, this.scheduler.getPendingChunkCount());
+    }
+
+    @Test
+    public void testResourcesTakeTurns() throws InterruptedException {
+        List<Peer> peers = new ArrayList<>();
+        for (int i = 0; i < 20; ++i)
+            peers.add(newPeer("10.0.0." + i + ":12392"));
+
+        // Large resource first, available from every peer
+        for (int i = 0; i < 100; ++i)
+            for (Peer peer : peers)
+                this.scheduler.addResponse(response("large", "large" + i, peer, 1));
+
+        List<Request> inFlight = takeRequests(ArbitraryDataFileRequestScheduler.MAX_IN_FLIGHT);
+        assertNoMoreRequests();
+
+        // Small resource shouldn't have to wait for all of the large one's chunks
+        this.scheduler.addResponse(response("small", "small0", peers.get(0), 1));
+        this.scheduler.addResponse(response("small", "small1", peers.get(0), 1));
+
+        inFlight.get(0).future.complete(true);
+        inFlight.get(1).future.complete(true);
+        inFlight.get(2).future.complete(true);
+
+        Set<String> signatures = new HashSet<>();
+        for (Request request : takeRequests(3))
+            signatures.add(request.signature58);
+
+        assertTrue(signatures.contains("small"));
+        assertTrue(signatures.contains("large"));
+    }
+
+    @Test
+    public void testPrefersFastPeers() throws InterruptedException {
+        Peer slowPeer = newPeer("10.0.0.1:12392");
+        Peer fastPeer = newPeer("10.0.0.2:12392");
+
+        this.scheduler.addResponse(response("sig", "hash0", slowPeer, 1));
+        this.scheduler.addResponse(response("sig", "hash0", fastPeer, 1));
+
+        // Untried peers are equally good, so first response is used
+        Request request = takeRequest();
+        assertSame(slowPeer, request.peer);
+        request.future.complete(false);
+
+        // Failure means we try the other peer
+        request = takeRequest();
+        assertSame(fastPeer, request.peer);
+        request.future.complete(true);
+        assertNoMoreRequests();
+
+        // Hold back chunks until all responses have arrived
+        this.externalRequests.add("hash1");
+        this.externalRequests.add("hash2");
+
+        // Now we know which peer responds better
+        this.scheduler.addResponse(response("sig", "hash1", slowPeer, 1));
+        this.scheduler.addResponse(response("sig", "hash1", fastPeer, 1));
+
+        // ...but fewer hops is better still
+        this.scheduler.addResponse(response("sig", "hash2", fastPeer, 3));
+        this.scheduler.addResponse(response("sig", "hash2", slowPeer, 1));
+
+        this.externalRequests.clear();
+        this.scheduler.addResponse(response("sig", "hash3", fastPeer, 1));
+
+        Map<String, Peer> peersByHash = new HashMap<>();
+        for (Request nextRequest : takeRequests(3))
+            peersByHash.put(nextRequest.hash58, nextRequest.peer);
+
+        assertSame(fastPeer, peersByHash.get("hash1"));
+        assertSame(slowPeer, peersByHash.get("hash2"));
+
+        List<ArbitraryDataFileRequestScheduler.PeerSummary> summaries = this.scheduler.getPeerSummaries();
+        assertEquals(2, summaries.size());
+        assertEquals(slowPeer.toString(), summaries.get(0).getPeer());
+        assertEquals(1, summaries.get(0).getFailureCount());
+        assertEquals(1, summaries.get(0).getInFlight());
+        assertTrue(summaries.get(0).getAverageLatency() > summaries.get(1).getAverageLatency());
+    }
+
+    @Test
+    public void testSkipsExternalRequests() throws InterruptedException {
+        Peer peer = newPeer("10.0.0.1:12392");
+        this.externalRequests.add("hash0");
+
+        this.scheduler.addResponse(response("sig", "hash0", peer, 1));
+        this.scheduler.addResponse(response("sig", "hash1", peer, 1));
+
+        assertEquals("hash1", takeRequest().hash58);
+        assertNoMoreRequests();
+        assertEquals(2, this.scheduler.getPendingChunkCount());
+    }
+
+    @Test
+    public void testCleanup() throws InterruptedException {
+        Peer peer = newPeer("10.0.0.1:12392");
+        this.externalRequests.add("hash0");
+
+        ArbitraryFileListResponseInfo oldResponse = new ArbitraryFileListResponseInfo("hash0", "sig", peer, 1000L, 1000L, 1);
+        this.scheduler.addResponse(oldResponse);
+        assertEquals(1, this.scheduler.getResponseCount());
+        assertEquals(1, this.scheduler.getPendingResourceCount());
+
+        this.scheduler.cleanup(2000L, System.currentTimeMillis());
+        assertEquals(0, this.scheduler.getResponseCount());
+        assertEquals(0, this.scheduler.getPendingResourceCount());
+        assertNoMoreRequests();
+    }
+
+    private Request takeRequest() throws InterruptedException {
+        Request request = this.requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Expected chunk request", request);
+        return request;
+    }
+
+    private List<Request> takeRequests(int count) throws InterruptedException {
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            requests.add(takeRequest());
+
+        return requests;
+    }
+
+    private void assertNoMoreRequests() throws InterruptedException {
+        assertNull(this.requests.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private static ArbitraryFileListResponseInfo response(String signature58, String hash58, Peer peer, int hops) {
+        long now = System.currentTimeMillis();
+        return new ArbitraryFileListResponseInfo(hash58, signature58, peer, now, now, hops);
+    }
+
+    private static Peer newPeer(String address) {
+        return new Peer(new PeerData(PeerAddress.fromString(address)));
+    }
+
+}
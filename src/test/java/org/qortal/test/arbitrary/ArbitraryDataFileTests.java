@@ -6,7 +6,11 @@ import org.qortal.arbitrary.ArbitraryDataFile;
 import org.qortal.repository.DataException;
 import org.qortal.test.common.Common;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Random;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -74,4 +78,47 @@ public class ArbitraryDataFileTests extends Common {
 		assertEquals(originalFileDigest, arbitraryDataFile.digest58());
 	}
 
+	@Test
+	public void testSplitAndJoinWithIdenticalChunks() throws DataException {
+		// Chunks with identical content are stored at the same path
+		byte[] data = new byte[10 * 1024 + 100];
+		ArbitraryDataFile arbitraryDataFile = new ArbitraryDataFile(data, null, false);
+		String originalFileDigest = arbitraryDataFile.digest58();
+
+		assertEquals(11, arbitraryDataFile.split(1024));
+		assertEquals(arbitraryDataFile.getChunks().get(0).digest58(), arbitraryDataFile.getChunks().get(9).digest58());
+		assertEquals(1024, arbitraryDataFile.getChunks().get(9).size());
+		assertEquals(100, arbitraryDataFile.getChunks().get(10).size());
+
+		arbitraryDataFile.delete();
+		assertTrue(arbitraryDataFile.join());
+
+		assertEquals(data.length, arbitraryDataFile.size());
+		assertEquals(originalFileDigest, arbitraryDataFile.digest58());
+	}
+
+	@Test
+	public void testJoinWithCorruptChunk() throws DataException, IOException {
+		byte[] randomData = new byte[100 * 1024];
+		new Random().nextBytes(randomData);
+
+		ArbitraryDataFile arbitraryDataFile = new ArbitraryDataFile(randomData, null, false);
+		assertEquals(10, arbitraryDataFile.split(10 * 1024));
+		arbitraryDataFile.delete();
+
+		// Corrupt one of the chunks
+		Path chunkPath = arbitraryDataFile.getChunks().get(5).getFilePath();
+		byte[] chunkData = Files.readAllBytes(chunkPath);
+		chunkData[0]++;
+		Files.write(chunkPath, chunkData);
+
+		assertFalse(arbitraryDataFile.join());
+		assertFalse(arbitraryDataFile.exists());
+
+		// No partially joined file is left behind
+		try (Stream<Path> paths = Files.list(arbitraryDataFile.getFilePath().getParent())) {
+			assertEquals(0, paths.filter(path -> path.getFileName().toString().endsWith(".join")).count());
+		}
+	}
+
 }
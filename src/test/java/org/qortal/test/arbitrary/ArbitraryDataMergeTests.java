@@ -137,6 +137,53 @@ public class ArbitraryDataMergeTests extends Common {
         assertEquals(path2Digest.getHash58(), finalPathDigest.getHash58());
     }
 
+    @Test
+    public void testMergeLayersInPlace() throws IOException, DataException {
+        Path path1 = Paths.get("src/test/resources/arbitrary/demo1");
+        Path path2 = Paths.get("src/test/resources/arbitrary/demo2");
+        Path path3 = Paths.get("src/test/resources/arbitrary/demo3");
+
+        ArbitraryDataDigest path1Digest = new ArbitraryDataDigest(path1);
+        path1Digest.compute();
+
+        // Generate random signatures for the purposes of validation
+        byte[] signature1 = new byte[32];
+        new Random().nextBytes(signature1);
+        byte[] signature2 = new byte[32];
+        new Random().nextBytes(signature2);
+
+        ArbitraryDataCreatePatch patch1 = new ArbitraryDataCreatePatch(path1, path2, signature1);
+        patch1.create();
+        ArbitraryDataCreatePatch patch2 = new ArbitraryDataCreatePatch(path2, path3, signature2);
+        patch2.create();
+
+        // First layer is combined into a new directory
+        ArbitraryDataCombiner combiner = new ArbitraryDataCombiner(path1, patch1.getFinalPath(), signature1);
+        combiner.setShouldValidateHashes(true);
+        combiner.combine();
+        Path mergePath = combiner.getFinalPath();
+
+        // Second layer is applied directly on top of it
+        combiner = new ArbitraryDataCombiner(mergePath, patch2.getFinalPath(), signature2);
+        combiner.setMergeInPlace(true);
+        combiner.setShouldValidateHashes(true);
+        combiner.combine();
+        combiner.cleanup();
+        assertEquals(mergePath, combiner.getFinalPath());
+        assertTrue(Files.exists(mergePath));
+
+        ArbitraryDataDigest path3Digest = new ArbitraryDataDigest(path3);
+        path3Digest.compute();
+        ArbitraryDataDigest finalPathDigest = new ArbitraryDataDigest(mergePath);
+        finalPathDigest.compute();
+        assertEquals(path3Digest.getHash58(), finalPathDigest.getHash58());
+
+        // Original files are shared with the merge, but mustn't have been modified by it
+        ArbitraryDataDigest path1DigestAfter = new ArbitraryDataDigest(path1);
+        path1DigestAfter.compute();
+        assertEquals(path1Digest.getHash58(), path1DigestAfter.getHash58());
+    }
+
     @Test
     public void testIdenticalPaths() throws IOException, DataException {
         Path path = Paths.get("src/test/resources/arbitrary/demo1");
@@ -0,0 +1,98 @@
+package org.qortal.test.arbitrary;
+
+import org.junit.Test;
+import org.qortal.api.HTMLParser;
+import org.qortal.arbitrary.ArbitraryDataRenderer;
+import org.qortal.arbitrary.ArbitraryDataRenderer.ByteRange;
+import org.qortal.arbitrary.misc.Service;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataRendererTests {
+
+    @Test
+    public void testByteRanges() {
+        final long fileSize = 1000;
+
+        assertRange(0, 499, ByteRange.parse("bytes=0-499", fileSize));
+        assertRange(500, 999, ByteRange.parse("bytes=500-", fileSize));
+        assertRange(900, 999, ByteRange.parse("bytes=-100", fileSize));
+        assertRange(0, 999, ByteRange.parse("bytes=-5000", fileSize));
+        // End is clamped to file size
+        assertRange(990, 999, ByteRange.parse("bytes=990-5000", fileSize));
+        assertEquals(10, ByteRange.parse("bytes=990-5000", fileSize).getLength());
+
+        // Whole file
+        assertNull(ByteRange.parse(null, fileSize));
+        assertNull(ByteRange.parse("bytes=0-10,20-30", fileSize));
+        assertNull(ByteRange.parse("bytes=500-100", fileSize));
+        assertNull(ByteRange.parse("bytes=abc", fileSize));
+        assertNull(ByteRange.parse("items=0-10", fileSize));
+
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", fileSize));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", fileSize));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=0-", 0));
+    }
+
+    @Test
+    public void testMatchesETag() {
+        final String eTag = "\"abc\"";
+
+        assertTrue(ArbitraryDataRenderer.matchesETag("\"abc\"", eTag));
+        assertTrue(ArbitraryDataRenderer.matchesETag("\"xyz\", W/\"abc\"", eTag));
+        assertTrue(ArbitraryDataRenderer.matchesETag("*", eTag));
+
+        assertFalse(ArbitraryDataRenderer.matchesETag("\"xyz\"", eTag));
+        assertFalse(ArbitraryDataRenderer.matchesETag(null, eTag));
+        assertFalse(ArbitraryDataRenderer.matchesETag("*", null));
+    }
+
+    @Test
+    public void testHeaderTagsOffset() {
+        assertHeaderTagsOffset("<!DOCTYPE html><html lang=\"en\"><HEAD>", "<title>Test</title></head><body></body></html>");
+        assertHeaderTagsOffset("<html><!-- <head> --><head data-x=\"1\">", "</head></html>");
+        // <header> isn't <head>
+        assertHeaderTagsOffset("<!doctype html><html>", "<body><header></header></body></html>");
+        assertHeaderTagsOffset("<!doctype html>", "<p>No html or head tag</p>");
+        assertHeaderTagsOffset("", "Plain text");
+        assertHeaderTagsOffset("﻿", "<p>Byte order mark</p>");
+    }
+
+    @Test
+    public void testAdditionalHeaderTags() {
+        HTMLParser htmlParser = new HTMLParser("Test\"Name", "/index.html", "/render/WEBSITE", true, null,
+                "render", Service.WEBSITE, "default", "dark", false);
+        String tags = htmlParser.getAdditionalHeaderTags();
+
+        assertTrue(tags.startsWith("<meta charset=\"UTF-8\"><base href=\"/render/WEBSITE/Test\"Name/\">"));
+        assertTrue(tags.contains("var _qdnName=\"Test\\\"Name\";"));
+        assertTrue(tags.contains("var _qdnTheme=\"dark\";"));
+        assertTrue(tags.contains("<script src=\"/apps/q-apps.js?time="));
+        assertFalse(tags.contains("q-apps-gateway.js"));
+
+        // Same tags are added when parsing whole document
+        byte[] html = "<html><head><title>Test</title></head><body></body></html>".getBytes(StandardCharsets.UTF_8);
+        htmlParser = new HTMLParser("Test", "/index.html", "", false, html,
+                "gateway", Service.WEBSITE, "default", "light", false);
+        htmlParser.addAdditionalHeaderTags();
+        String parsed = new String(htmlParser.getData(), StandardCharsets.UTF_8);
+        assertTrue(parsed.contains("q-apps-gateway.js"));
+        assertTrue(parsed.indexOf("<meta charset") < parsed.indexOf("<title>"));
+    }
+
+    private static void assertRange(long expectedStart, long expectedEnd, ByteRange range) {
+        assertNotNull(range);
+        assertNotSame(ByteRange.UNSATISFIABLE, range);
+        assertEquals(expectedStart, range.getStart());
+        assertEquals(expectedEnd, range.getEnd());
+    }
+
+    private static void assertHeaderTagsOffset(String beforeTags, String afterTags) {
+        byte[] data = (beforeTags + afterTags).getBytes(StandardCharsets.UTF_8);
+        int expectedOffset = beforeTags.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(expectedOffset, HTMLParser.findHeaderTagsOffset(data, data.length));
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.qortal.test.arbitrary;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.arbitrary.ArbitraryDataFile;
+import org.qortal.arbitrary.misc.Service;
+import org.qortal.controller.arbitrary.ArbitraryDataManager;
+import org.qortal.controller.arbitrary.ArbitraryDataStorageLedger;
+import org.qortal.data.transaction.ArbitraryTransactionData;
+import org.qortal.data.transaction.RegisterNameTransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.settings.Settings;
+import org.qortal.test.common.ArbitraryUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.test.common.transaction.TestTransaction;
+import org.qortal.transaction.RegisterNameTransaction;
+import org.qortal.utils.Base58;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryDataStorageLedgerTests extends Common {
+
+    private ArbitraryDataStorageLedger ledger;
+
+    @Before
+    public void beforeTest() throws DataException, IllegalAccessException {
+        Common.useDefaultSettings();
+        this.deleteDataDirectories();
+
+        // Set difficulty to 1 to speed up the tests
+        FieldUtils.writeField(ArbitraryDataManager.getInstance(), "powDifficulty", 1, true);
+
+        // Start from empty data directory
+        this.ledger = ArbitraryDataStorageLedger.getInstance();
+        assertTrue(this.ledger.reconcile(System.currentTimeMillis()));
+        assertEquals(0L, this.ledger.getTotalBytes());
+    }
+
+    @After
+    public void afterTest() {
+        this.deleteDataDirectories();
+        this.ledger.reconcile(System.currentTimeMillis());
+    }
+
+    @Test
+    public void testWriteAndDelete() throws DataException {
+        byte[] signature = randomBytes(64);
+        String signature58 = Base58.encode(signature);
+
+        ArbitraryDataFile arbitraryDataFile = new ArbitraryDataFile(randomBytes(1000), signature, false);
+        assertEquals(1000L, this.ledger.getBytesForSignature(signature58));
+        assertEquals(1000L, this.ledger.getTotalBytes());
+
+        // Files in temp directory aren't tracked
+        new ArbitraryDataFile(randomBytes(500), signature, true);
+        assertEquals(1000L, this.ledger.getTotalBytes());
+
+        assertTrue(arbitraryDataFile.delete());
+        assertEquals(0L, this.ledger.getBytesForSignature(signature58));
+        assertEquals(0L, this.ledger.getTotalBytes());
+    }
+
+    @Test
+    public void testDirectoryRemoval() throws DataException, IOException {
+        byte[] signature = randomBytes(64);
+        String signature58 = Base58.encode(signature);
+
+        ArbitraryDataFile arbitraryDataFile = new ArbitraryDataFile(randomBytes(1000), signature, false);
+        Path signaturePath = arbitraryDataFile.getFilePath().getParent();
+
+        // Non-signature directories are ignored
+        this.ledger.recordDirectoryRemoval(signaturePath.getParent());
+        assertEquals(1000L, this.ledger.getBytesForSignature(signature58));
+
+        // e.g. cleanup of data whose transaction has expired
+        FileUtils.deleteDirectory(signaturePath.toFile());
+        this.ledger.recordDirectoryRemoval(signaturePath);
+
+        assertEquals(0L, this.ledger.getBytesForSignature(signature58));
+        assertEquals(0L, this.ledger.getTotalBytes());
+    }
+
+    @Test
+    public void testReconcile() throws DataException, IOException {
+        byte[] signature = randomBytes(64);
+        String signature58 = Base58.encode(signature);
+
+        ArbitraryDataFile arbitraryDataFile = new ArbitraryDataFile(randomBytes(1000), signature, false);
+
+        // Change behind the ledger's back
+        Path untrackedPath = arbitraryDataFile.getFilePath().resolveSibling("untracked");
+        Files.write(untrackedPath, randomBytes(200));
+        assertEquals(1000L, this.ledger.getBytesForSignature(signature58));
+
+        assertTrue(this.ledger.reconcile(System.currentTimeMillis()));
+        assertEquals(1200L, this.ledger.getBytesForSignature(signature58));
+
+        // Removing whole directory behind the ledger's back
+        FileUtils.deleteDirectory(untrackedPath.getParent().toFile());
+
+        assertTrue(this.ledger.reconcile(System.currentTimeMillis()));
+        assertEquals(0L, this.ledger.getBytesForSignature(signature58));
+        assertEquals(0L, this.ledger.getTotalBytes());
+    }
+
+    @Test
+    public void testMeasureUntrackedBytes() throws DataException, IOException {
+        byte[] signature = randomBytes(64);
+        String signature58 = Base58.encode(signature);
+
+        new ArbitraryDataFile(randomBytes(1000), signature, false);
+
+        // Temp files and other data directory files aren't tracked as they change
+        Path tempFilePath = Paths.get(Settings.getInstance().getTempDataPath(), "reader", "built");
+        Files.createDirectories(tempFilePath.getParent());
+        Files.write(tempFilePath, randomBytes(500));
+        Files.write(Paths.get(Settings.getInstance().getDataPath(), "other"), randomBytes(100));
+        assertEquals(1000L, this.ledger.getTotalBytes());
+
+        // ...but are picked up without needing a full reconcile
+        this.ledger.measureUntrackedBytes();
+        assertEquals(1600L, this.ledger.getTotalBytes());
+        assertEquals(1000L, this.ledger.getBytesForSignature(signature58));
+
+        Files.delete(tempFilePath);
+        this.ledger.measureUntrackedBytes();
+        assertEquals(1100L, this.ledger.getTotalBytes());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws DataException {
+        byte[] signature = randomBytes(64);
+        String signature58 = Base58.encode(signature);
+
+        new ArbitraryDataFile(randomBytes(1000), signature, false);
+        this.ledger.save();
+        long totalBytes = this.ledger.getTotalBytes();
+
+        ArbitraryDataStorageLedger loadedLedger = new ArbitraryDataStorageLedger();
+        assertFalse(loadedLedger.isInitialized());
+        assertTrue(loadedLedger.load());
+
+        assertTrue(loadedLedger.isInitialized());
+        assertEquals(1000L, loadedLedger.getBytesForSignature(signature58));
+        assertEquals(totalBytes, loadedLedger.getTotalBytes());
+    }
+
+    @Test
+    public void testBytesForName() throws DataException, IOException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+            String name = "alice";
+            RegisterNameTransactionData transactionData = new RegisterNameTransactionData(TestTransaction.generateBase(alice), name, "");
+            transactionData.setFee(new RegisterNameTransaction(null, null).getUnitFee(transactionData.getTimestamp()));
+            TransactionUtils.signAndMint(repository, transactionData, alice);
+
+            Path path = ArbitraryUtils.generateRandomDataPath(1000);
+            ArbitraryDataFile arbitraryDataFile = ArbitraryUtils.createAndMintTxn(repository, Base58.encode(alice.getPublicKey()), path, name,
+                    null, ArbitraryTransactionData.Method.PUT, Service.ARBITRARY_DATA, alice, 100);
+
+            // Ledger should agree with what's actually on disk
+            String signature58 = Base58.encode(arbitraryDataFile.getSignature());
+            Path signaturePath = arbitraryDataFile.getFilePath().getParent();
+            assertEquals(signature58, signaturePath.getFileName().toString());
+
+            long expectedBytes = FileUtils.sizeOfDirectory(signaturePath.toFile());
+            assertTrue(expectedBytes > 0);
+            assertEquals(expectedBytes, this.ledger.getBytesForSignature(signature58));
+
+            // Not counted towards name until name is looked up in the background
+            this.ledger.resolveNames(repository);
+            assertFalse(this.ledger.hasUnresolvedNames());
+            assertEquals(expectedBytes, this.ledger.getBytesForName(name));
+            assertEquals(0L, this.ledger.getBytesForName("bob"));
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+
+    private void deleteDataDirectories() {
+        try {
+            FileUtils.deleteDirectory(Paths.get(Settings.getInstance().getDataPath()).toFile());
+            FileUtils.deleteDirectory(Paths.get(Settings.getInstance().getTempDataPath()).toFile());
+        } catch (IOException e) {
+
+        }
+    }
+
+}
@@ -0,0 +1,412 @@
+package org.qortal.test.arbitrary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.qortal.api.SearchMode;
+import org.qortal.arbitrary.ArbitraryResourceSearchIndex;
+import org.qortal.arbitrary.ArbitraryResourceSearchIndex.ResourceKey;
+import org.qortal.arbitrary.misc.Category;
+import org.qortal.arbitrary.misc.Service;
+import org.qortal.data.arbitrary.ArbitraryResourceData;
+import org.qortal.data.arbitrary.ArbitraryResourceMetadata;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ArbitraryResourceSearchIndexTests extends Common {
+
+    /** Roughly the number of resources on mainnet at time of writing */
+    private static final int BENCHMARK_RESOURCE_COUNT = 50000;
+    private static final int BENCHMARK_ROUNDS = 20;
+
+    @Before
+    public void beforeTest() throws DataException {
+        Common.useDefaultSettings();
+    }
+
+    @After
+    public void afterTest() {
+        // Don't leave shared index in use by other tests
+        ArbitraryResourceSearchIndex.getInstance().clear();
+    }
+
+    @Test
+    public void testNotReady() {
+        ArbitraryResourceSearchIndex index = new ArbitraryResourceSearchIndex();
+        index.put(resource(Service.WEBSITE, "Alice", null, "My Website", null));
+
+        assertNull(index.search("alice", false));
+
+        index.markReady(index.clear());
+        assertEquals(0, index.search("alice", false).size());
+    }
+
+    @Test
+    public void testSearch() {
+        ArbitraryResourceSearchIndex index = newReadyIndex();
+        index.put(resource(Service.WEBSITE, "Alice", null, "Gardening Tips", "How to grow tomatoes", "garden", "vegetables"));
+        index.put(resource(Service.VIDEO, "Bob", "my-video", "Tomato Soup", "Cooking with Bob"));
+        index.put(resource(Service.BLOG_POST, "Carol", "post-1", null, null));
+
+        // Case-insensitive, in any field, including tags and default identifier
+        assertEquals(List.of(key(Service.WEBSITE, "Alice", null)), index.search("ALICE", false));
+        assertEquals(List.of(key(Service.WEBSITE, "Alice", null)), index.search("vegetables", false));
+        assertEquals(List.of(key(Service.WEBSITE, "Alice", null)), index.search("defaul", false));
+        assertEquals(List.of(key(Service.VIDEO, "Bob", "my-video")), index.search("cooking", false));
+
+        // Substring
+        assertEquals(2, index.search("omat", false).size());
+        // ...but prefix-only searches need fields to start with query's first word
+        assertEquals(0, index.search("omat", true).size());
+        // Candidates can include false positives, e.g. "tomatoes" isn't at start of description, but still starts a word
+        assertEquals(List.of(key(Service.VIDEO, "Bob", "my-video"), key(Service.WEBSITE, "Alice", null)), index.search("tomato", true));
+
+        // All words must match
+        assertEquals(List.of(key(Service.VIDEO, "Bob", "my-video")), index.search("tomato soup", false));
+        assertEquals(List.of(key(Service.BLOG_POST, "Carol", "post-1")), index.search("post-1", false));
+        assertEquals(0, index.search("tomato carol", false).size());
+
+        // Nothing to look up
+        assertNull(index.search("--", false));
+    }
+
+    @Test
+    public void testRanking() {
+        ArbitraryResourceSearchIndex index = newReadyIndex();
+        index.put(resource(Service.WEBSITE, "Infix", null, "Cookbook", null));
+        index.put(resource(Service.WEBSITE, "Exact", null, "Book", null));
+        index.put(resource(Service.WEBSITE, "Prefix", null, "Bookmarks", null));
+
+        List<ResourceKey> candidates = index.search("book", false);
+        assertEquals(List.of(key(Service.WEBSITE, "Exact", null), key(Service.WEBSITE, "Prefix", null), key(Service.WEBSITE, "Infix", null)), candidates);
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        ArbitraryResourceSearchIndex index = newReadyIndex();
+        index.put(resource(Service.WEBSITE, "Alice", null, "Old Title", null));
+        index.put(resource(Service.WEBSITE, "Alice", null, "New Title", null));
+
+        assertEquals(1, index.getResourceCount());
+        assertEquals(0, index.search("old", false).size());
+        assertEquals(1, index.search("new", false).size());
+
+        index.remove(Service.WEBSITE, "Alice", null);
+        assertEquals(0, index.getResourceCount());
+        assertEquals(0, index.search("title", false).size());
+        assertEquals(0, index.getTokenCount());
+
+        // Removed doc IDs are reused
+        index.put(resource(Service.WEBSITE, "Bob", null, "Title", null));
+        assertEquals(List.of(key(Service.WEBSITE, "Bob", null)), index.search("title", false));
+    }
+
+    @Test
+    public void testLongTokens() {
+        ArbitraryResourceSearchIndex index = newReadyIndex();
+        String longWord = "a".repeat(70) + "needle";
+        index.put(resource(Service.WEBSITE, "Alice", null, "Hashes", "Contains " + longWord));
+        index.put(resource(Service.WEBSITE, "Bob", null, "Needles", null));
+        index.put(resource(Service.WEBSITE, "Carol", null, "Nothing", null));
+
+        // Term only occurs beyond indexed part of long word, but resource is still a candidate, ranked last
+        assertEquals(List.of(key(Service.WEBSITE, "Bob", null), key(Service.WEBSITE, "Alice", null)), index.search("needle", false));
+        assertEquals(List.of(key(Service.WEBSITE, "Alice", null)), index.search("haystack", false));
+        assertEquals(List.of(key(Service.WEBSITE, "Alice", null)), index.search("needle nothing", true));
+
+        // No longer a candidate for everything once long word is gone
+        index.put(resource(Service.WEBSITE, "Alice", null, "Hashes", "Contains nothing long"));
+        assertEquals(List.of(key(Service.WEBSITE, "Bob", null)), index.search("needle", false));
+
+        index.put(resource(Service.WEBSITE, "Alice", null, "Hashes", longWord));
+        index.remove(Service.WEBSITE, "Alice", null);
+        assertEquals(0, index.search("haystack", false).size());
+    }
+
+    @Test
+    public void testTooManyCandidates() {
+        ArbitraryResourceSearchIndex index = newReadyIndex();
+        index.put(resource(Service.WEBSITE, "Worse", null, "Commonplace", null));
+        for (int i = 0; i <= ArbitraryResourceSearchIndex.MAX_CANDIDATES; ++i)
+            index.put(resource(Service.WEBSITE, "name" + i, null, "Common", null));
+
+        // Only best matches, with most recently indexed first for equal scores
+        List<ResourceKey> candidates = index.search("common", false);
+        assertEquals(ArbitraryResourceSearchIndex.MAX_CANDIDATES, candidates.size());
+        assertEquals(key(Service.WEBSITE, "name" + ArbitraryResourceSearchIndex.MAX_CANDIDATES, null), candidates.get(0));
+        assertFalse(candidates.contains(key(Service.WEBSITE, "Worse", null)));
+
+        assertEquals(1, index.search("name250", true).size());
+    }
+
+    @Test
+    public void testRepositorySearchRanked() throws DataException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            List<ArbitraryResourceData> resources = new ArrayList<>();
+
+            // Exact matches are oldest...
+            for (int i = 0; i < 5; ++i)
+                resources.add(resource(Service.WEBSITE, "exact" + i, null, "Common", null));
+            // ...and there are too many other candidates to consider them all
+            for (int i = 0; i < ArbitraryResourceSearchIndex.MAX_CANDIDATES; ++i)
+                resources.add(resource(Service.WEBSITE, "prefix" + i, null, "Commonplace", null));
+            resources.add(resource(Service.WEBSITE, "infix", null, "Uncommon", null));
+
+            saveResources(repository, resources);
+            buildSharedIndex(resources);
+
+            List<ArbitraryResourceData> results = repository.getArbitraryRepository().searchArbitraryResources(null, "common", null, null,
+                    null, null, false, null, false, SearchMode.ALL, null, null, null, true, false, null, null, 6, null, true);
+
+            // Best matches first, newest first (as reverse requested) for equal scores
+            List<String> names = new ArrayList<>();
+            for (ArbitraryResourceData result : results)
+                names.add(result.name);
+            assertEquals(List.of("exact4", "exact3", "exact2", "exact1", "exact0", "prefix" + (ArbitraryResourceSearchIndex.MAX_CANDIDATES - 1)), names);
+        }
+    }
+
+    @Test
+    public void testRepositorySearchMatchesSql() throws DataException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            List<ArbitraryResourceData> resources = saveRandomResources(repository, 2000);
+            buildSharedIndex(resources);
+
+            Random random = new Random(1L);
+            for (int i = 0; i < 200; ++i) {
+                String query = randomQuery(random);
+                boolean prefixOnly = random.nextBoolean();
+                SearchMode mode = random.nextBoolean() ? SearchMode.ALL : SearchMode.LATEST;
+
+                // Index is only used for unlimited searches if there aren't too many candidates, so compare all results
+                List<ArbitraryResourceData> indexResults = search(repository, query, prefixOnly, mode, null);
+
+                ArbitraryResourceSearchIndex.getInstance().clear();
+                List<ArbitraryResourceData> sqlResults = search(repository, query, prefixOnly, mode, null);
+                buildSharedIndex(resources);
+
+                // Index results are ranked, so can be in different order
+                assertEquals(String.format("Results differ for query '%s'", query), sorted(sqlResults), sorted(indexResults));
+            }
+        }
+    }
+
+    @Test
+    public void testPagingWithEqualCreationTimes() throws DataException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            List<ArbitraryResourceData> resources = new ArrayList<>();
+            for (int i = 0; i < 7; ++i)
+                resources.add(resource(i % 2 == 0 ? Service.WEBSITE : Service.VIDEO, "name" + (i / 3), i % 3 == 0 ? null : "id" + i, null, null));
+            saveResources(repository, resources);
+
+            // All created at same time, so paging needs rest of key to tell them apart
+            for (ArbitraryResourceData resource : resources) {
+                ArbitraryResourceData savedResource = new ArbitraryResourceData(resource.service, resource.name, resource.identifier);
+                savedResource.size = resource.size;
+                savedResource.created = 1L;
+                repository.getArbitraryRepository().save(savedResource);
+            }
+            repository.saveChanges();
+
+            List<String> pagedKeys = new ArrayList<>();
+            ArbitraryResourceData lastResource = null;
+            List<ArbitraryResourceData> page;
+            while (!(page = repository.getArbitraryRepository().getArbitraryResourcesAfter(lastResource, 3)).isEmpty()) {
+                for (ArbitraryResourceData resource : page)
+                    pagedKeys.add(new ResourceKey(resource.service, resource.name, resource.identifier).toString());
+                lastResource = page.get(page.size() - 1);
+            }
+
+            // Every resource exactly once
+            assertEquals(resources.size(), pagedKeys.size());
+            for (ArbitraryResourceData resource : resources)
+                assertTrue(pagedKeys.contains(new ResourceKey(resource.service, resource.name, resource.identifier).toString()));
+        }
+    }
+
+    @Ignore("Benchmark - slow, and only prints timings")
+    @Test
+    public void testBenchmark() throws DataException {
+        try (final Repository repository = RepositoryManager.getRepository()) {
+            List<ArbitraryResourceData> resources = saveRandomResources(repository, BENCHMARK_RESOURCE_COUNT);
+
+            long buildStart = System.nanoTime();
+            buildSharedIndex(resources);
+            long buildNanos = System.nanoTime() - buildStart;
+
+            System.out.println(String.format("Built index of %d resources, %d tokens, in %dms",
+                    resources.size(), ArbitraryResourceSearchIndex.getInstance().getTokenCount(), buildNanos / 1_000_000L));
+
+            List<String> queries = new ArrayList<>();
+            Random random = new Random(2L);
+            for (int i = 0; i < BENCHMARK_ROUNDS; ++i)
+                queries.add(randomQuery(random));
+
+            for (boolean prefixOnly : new boolean[] { false, true }) {
+                buildSharedIndex(resources);
+                List<List<ArbitraryResourceData>> indexResults = new ArrayList<>();
+                long start = System.nanoTime();
+                for (String query : queries)
+                    indexResults.add(sorted(search(repository, query, prefixOnly, SearchMode.ALL, null)));
+                long indexNanos = System.nanoTime() - start;
+
+                ArbitraryResourceSearchIndex.getInstance().clear();
+                List<List<ArbitraryResourceData>> sqlResults = new ArrayList<>();
+                start = System.nanoTime();
+                for (String query : queries)
+                    sqlResults.add(sorted(search(repository, query, prefixOnly, SearchMode.ALL, null)));
+                long sqlNanos = System.nanoTime() - start;
+
+                assertEquals(sqlResults, indexResults);
+
+                System.out.println(String.format("%s search over %d resources: index %.2fms, SQL %.2fms per query",
+                        prefixOnly ? "Prefix" : "Substring", resources.size(),
+                        indexNanos / 1e6 / queries.size(), sqlNanos / 1e6 / queries.size()));
+            }
+        }
+    }
+
+    private static List<ArbitraryResourceData> search(Repository repository, String query, boolean prefixOnly, SearchMode mode, Integer limit) throws DataException {
+        return repository.getArbitraryRepository().searchArbitraryResources(null, query, null, null, null, null, prefixOnly,
+                null, false, mode, null, null, null, true, false, null, null, limit, null, true);
+    }
+
+    /** Returns <tt>resources</tt> in key order, for comparing results regardless of ranking. */
+    private static List<ArbitraryResourceData> sorted(List<ArbitraryResourceData> resources) {
+        List<ArbitraryResourceData> sortedResources = new ArrayList<>(resources);
+        sortedResources.sort(Comparator.comparing((ArbitraryResourceData resource) -> resource.name)
+                .thenComparing(resource -> resource.service.value)
+                .thenComparing(resource -> String.valueOf(resource.identifier)));
+        return sortedResources;
+    }
+
+    private static void buildSharedIndex(List<ArbitraryResourceData> resources) {
+        ArbitraryResourceSearchIndex index = ArbitraryResourceSearchIndex.getInstance();
+        if (index.isReady())
+            return;
+
+        int generation = index.clear();
+        for (ArbitraryResourceData resource : resources)
+            index.put(resource);
+        index.markReady(generation);
+    }
+
+    private static List<ArbitraryResourceData> saveRandomResources(Repository repository, int count) throws DataException {
+        Random random = new Random(0L);
+        Service[] services = { Service.WEBSITE, Service.VIDEO, Service.AUDIO, Service.BLOG_POST, Service.DOCUMENT, Service.THUMBNAIL };
+        List<ArbitraryResourceData> resources = new ArrayList<>(count);
+
+        for (int i = 0; i < count; ++i) {
+            String name = randomWord(random) + i;
+            String identifier = random.nextInt(3) == 0 ? null : randomWord(random) + "-" + random.nextInt(1000);
+
+            ArbitraryResourceData resource = random.nextInt(2) == 0
+                    ? resource(services[random.nextInt(services.length)], name, identifier, null, null)
+                    : resource(services[random.nextInt(services.length)], name, identifier, randomWords(random, 1 + random.nextInt(5)),
+                        randomWords(random, random.nextInt(30)), randomWord(random), randomWord(random));
+            resources.add(resource);
+        }
+
+        saveResources(repository, resources);
+        return resources;
+    }
+
+    /** Saves <tt>resources</tt> to resources cache, each created after the previous one. */
+    private static void saveResources(Repository repository, List<ArbitraryResourceData> resources) throws DataException {
+        for (int i = 0; i < resources.size(); ++i) {
+            ArbitraryResourceData resource = resources.get(i);
+            resource.size = 1000;
+            resource.created = 1_600_000_000_000L + i;
+
+            // Repository stores null identifiers as "default"
+            ArbitraryResourceData savedResource = new ArbitraryResourceData(resource.service, resource.name, resource.identifier);
+            savedResource.size = resource.size;
+            savedResource.created = resource.created;
+            repository.getArbitraryRepository().save(savedResource);
+
+            if (resource.metadata != null) {
+                resource.metadata.setArbitraryResourceData(savedResource);
+                repository.getArbitraryRepository().save(resource.metadata);
+            }
+        }
+
+        repository.saveChanges();
+    }
+
+    private static String randomQuery(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                // Partial word
+                String word = randomWord(random);
+                return word.substring(0, 2 + random.nextInt(word.length() - 2));
+
+            case 1:
+                // Two words
+                return randomWords(random, 2);
+
+            default:
+                return randomWord(random);
+        }
+    }
+
+    private static String randomWords(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i)
+            words.add(randomWord(random));
+
+        return String.join(" ", words);
+    }
+
+    /** Returns one of a few thousand pronounceable words, with more common words returned more often. */
+    private static String randomWord(Random random) {
+        final String consonants = "bcdfghjklmnprstvz";
+        final String vowels = "aeiou";
+
+        // Skew towards lower numbers, like word frequencies in real text
+        int wordNumber = (int) (Math.pow(random.nextDouble(), 3) * 5000);
+
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 3; ++i) {
+            word.append(consonants.charAt(wordNumber % consonants.length()));
+            wordNumber /= consonants.length();
+            word.append(vowels.charAt(wordNumber % vowels.length()));
+            wordNumber /= vowels.length();
+        }
+
+        return word.toString();
+    }
+
+    private static ArbitraryResourceSearchIndex newReadyIndex() {
+        ArbitraryResourceSearchIndex index = new ArbitraryResourceSearchIndex();
+        index.markReady(index.clear());
+        return index;
+    }
+
+    private static ResourceKey key(Service service, String name, String identifier) {
+        return new ResourceKey(service, name, identifier);
+    }
+
+    private static ArbitraryResourceData resource(Service service, String name, String identifier, String title, String description, String... tags) {
+        ArbitraryResourceData resource = new ArbitraryResourceData();
+        resource.service = service;
+        resource.name = name;
+        resource.identifier = identifier;
+
+        if (title != null || description != null || tags.length > 0)
+            resource.metadata = new ArbitraryResourceMetadata(title, description, tags.length > 0 ? List.of(tags) : null,
+                    Category.UNCATEGORIZED, null, null);
+
+        return resource;
+    }
+
+}
@@ -0,0 +1,338 @@
+package org.qortal.test.at;
+
+import com.google.common.primitives.Longs;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.ciyam.at.CompilationException;
+import org.ciyam.at.FunctionCode;
+import org.ciyam.at.MachineState;
+import org.ciyam.at.OpCode;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.asset.Asset;
+import org.qortal.at.ATRunner;
+import org.qortal.controller.Controller;
+import org.qortal.crypto.Crypto;
+import org.qortal.data.at.ATData;
+import org.qortal.data.at.ATStateData;
+import org.qortal.data.transaction.ATTransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.settings.Settings;
+import org.qortal.test.common.AtUtils;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.transaction.AtTransaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.*;
+
+public class ATRunnerTests extends Common {
+
+	private static final long fundingAmount = 10_00000000L;
+	private static final long paymentAmount = 1000L;
+	private static final int threadCount = 4;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testParallelMatchesSequential() throws DataException, IOException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount deployer = Common.getTestAccount(repository, "alice");
+
+			deployATs(repository, deployer, 12);
+
+			// Let some ATs get part-way through their loops
+			BlockUtils.mintBlock(repository);
+
+			ReentrantLock blockchainLock = Controller.getInstance().getBlockchainLock();
+			blockchainLock.lock();
+			try {
+				int height = repository.getBlockRepository().getBlockchainHeight() + 1;
+				long timestamp = System.currentTimeMillis();
+
+				List<ATRunner.Result> sequentialResults = ATRunner.runSequentially(repository, repository.getATRepository().getAllExecutableATs(), height, timestamp);
+				List<ATRunner.Result> parallelResults = ATRunner.runInParallel(repository, repository.getATRepository().getAllExecutableATs(), height, timestamp, threadCount);
+
+				assertEqual(sequentialResults, parallelResults);
+				assertArrayEquals(calcAtStatesHash(sequentialResults), calcAtStatesHash(parallelResults));
+
+				// Some ATs should have paid their creator this block
+				assertTrue(sequentialResults.stream().anyMatch(result -> !result.getAtTransactions().isEmpty()));
+			} finally {
+				blockchainLock.unlock();
+			}
+		}
+	}
+
+	@Test
+	public void testUnsavedChanges() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+
+			repository.saveChanges();
+			assertFalse(repository.hasUnsavedChanges());
+
+			alice.modifyAssetBalance(Asset.QORT, 1L);
+			assertTrue(repository.hasUnsavedChanges());
+
+			repository.discardChanges();
+			assertFalse(repository.hasUnsavedChanges());
+		}
+	}
+
+	@Test
+	public void testParallelBlocks() throws DataException, IllegalAccessException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount deployer = Common.getTestAccount(repository, "alice");
+
+			deployATs(repository, deployer, 8);
+
+			// Mint blocks sequentially, recording AT states
+			final int blockCount = 3;
+			int startHeight = repository.getBlockRepository().getBlockchainHeight();
+
+			BlockUtils.mintBlocks(repository, blockCount);
+			List<ATStateData> sequentialAtStates = repository.getATRepository().getBlockATStatesAtHeight(startHeight + blockCount);
+
+			BlockUtils.orphanToBlock(repository, startHeight);
+
+			// Mint same blocks again, this time running ATs in parallel
+			FieldUtils.writeField(Settings.getInstance(), "atExecutionThreadCount", threadCount, true);
+
+			ReentrantLock blockchainLock = Controller.getInstance().getBlockchainLock();
+			blockchainLock.lock();
+			try {
+				assertFalse(repository.hasUnsavedChanges());
+
+				BlockUtils.mintBlocks(repository, blockCount);
+			} finally {
+				blockchainLock.unlock();
+			}
+
+			List<ATStateData> parallelAtStates = repository.getATRepository().getBlockATStatesAtHeight(startHeight + blockCount);
+
+			assertEquals(sequentialAtStates.size(), parallelAtStates.size());
+			for (int i = 0; i < sequentialAtStates.size(); ++i) {
+				assertEquals(sequentialAtStates.get(i).getATAddress(), parallelAtStates.get(i).getATAddress());
+				assertArrayEquals(sequentialAtStates.get(i).getStateHash(), parallelAtStates.get(i).getStateHash());
+				assertEquals(sequentialAtStates.get(i).getFees(), parallelAtStates.get(i).getFees());
+			}
+		}
+	}
+
+	@Test
+	public void testStaleSnapshot() throws DataException, IllegalAccessException, IOException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount deployer = Common.getTestAccount(repository, "alice");
+
+			deployATs(repository, deployer, 8);
+
+			// Block's session reads from chain before blockchain lock is acquired...
+			int height = repository.getBlockRepository().getBlockchainHeight();
+
+			// ...meanwhile, another session adds a block, which also runs ATs
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				BlockUtils.mintBlock(otherRepository);
+			}
+
+			// Block's session still sees old chain
+			assertEquals(height, repository.getBlockRepository().getBlockchainHeight());
+
+			FieldUtils.writeField(Settings.getInstance(), "atExecutionThreadCount", threadCount, true);
+
+			ReentrantLock blockchainLock = Controller.getInstance().getBlockchainLock();
+			blockchainLock.lock();
+			try {
+				long timestamp = System.currentTimeMillis();
+
+				List<ATRunner.Result> results = ATRunner.run(repository, height + 2, timestamp);
+
+				// Block's session must see same chain as parallel sessions did
+				assertEquals(height + 1, repository.getBlockRepository().getBlockchainHeight());
+
+				try (final Repository latestRepository = RepositoryManager.getRepository()) {
+					List<ATRunner.Result> latestResults = ATRunner.runSequentially(latestRepository, latestRepository.getATRepository().getAllExecutableATs(), height + 2, timestamp);
+					assertEqual(latestResults, results);
+				}
+			} finally {
+				blockchainLock.unlock();
+			}
+		}
+	}
+
+	@Test
+	public void testBenchmark() throws DataException, IOException {
+		final int atCount = 64;
+		final int rounds = 20;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount deployer = Common.getTestAccount(repository, "alice");
+
+			deployATs(repository, deployer, atCount);
+
+			ReentrantLock blockchainLock = Controller.getInstance().getBlockchainLock();
+			blockchainLock.lock();
+			try {
+				int height = repository.getBlockRepository().getBlockchainHeight() + 1;
+				long timestamp = System.currentTimeMillis();
+
+				List<ATData> executableATs = repository.getATRepository().getAllExecutableATs();
+				assertEquals(atCount, executableATs.size());
+
+				// Warm up
+				byte[] sequentialHash = calcAtStatesHash(ATRunner.runSequentially(repository, repository.getATRepository().getAllExecutableATs(), height, timestamp));
+				byte[] parallelHash = calcAtStatesHash(ATRunner.runInParallel(repository, repository.getATRepository().getAllExecutableATs(), height, timestamp, threadCount));
+				assertArrayEquals(sequentialHash, parallelHash);
+
+				long sequentialNanos = 0;
+				long parallelNanos = 0;
+
+				for (int round = 0; round < rounds; ++round) {
+					executableATs = repository.getATRepository().getAllExecutableATs();
+					long before = System.nanoTime();
+					List<ATRunner.Result> sequentialResults = ATRunner.runSequentially(repository, executableATs, height, timestamp);
+					sequentialNanos += System.nanoTime() - before;
+
+					executableATs = repository.getATRepository().getAllExecutableATs();
+					before = System.nanoTime();
+					List<ATRunner.Result> parallelResults = ATRunner.runInParallel(repository, executableATs, height, timestamp, threadCount);
+					parallelNanos += System.nanoTime() - before;
+
+					assertArrayEquals(calcAtStatesHash(sequentialResults), calcAtStatesHash(parallelResults));
+				}
+
+				System.out.println(String.format("%d ATs x %d rounds: sequential %d ms, parallel (%d threads) %d ms",
+						atCount, rounds, sequentialNanos / 1_000_000L, threadCount, parallelNanos / 1_000_000L));
+			} finally {
+				blockchainLock.unlock();
+			}
+		}
+	}
+
+	private static void deployATs(Repository repository, PrivateKeyAccount deployer, int count) throws DataException {
+		for (int i = 0; i < count; ++i)
+			AtUtils.doDeployAT(repository, deployer, buildCountingAT(50L + i * 37L), fundingAmount);
+	}
+
+	private static void assertEqual(List<ATRunner.Result> expectedResults, List<ATRunner.Result> actualResults) {
+		assertEquals(expectedResults.size(), actualResults.size());
+
+		for (int i = 0; i < expectedResults.size(); ++i) {
+			ATStateData expectedState = expectedResults.get(i).getATStateData();
+			ATStateData actualState = actualResults.get(i).getATStateData();
+
+			assertEquals(expectedState.getATAddress(), actualState.getATAddress());
+			assertArrayEquals(expectedState.getStateHash(), actualState.getStateHash());
+			assertArrayEquals(expectedState.getStateData(), actualState.getStateData());
+			assertEquals(expectedState.getFees(), actualState.getFees());
+
+			List<AtTransaction> expectedTransactions = expectedResults.get(i).getAtTransactions();
+			List<AtTransaction> actualTransactions = actualResults.get(i).getAtTransactions();
+			assertEquals(expectedTransactions.size(), actualTransactions.size());
+
+			for (int t = 0; t < expectedTransactions.size(); ++t) {
+				ATTransactionData expectedData = (ATTransactionData) expectedTransactions.get(t).getTransactionData();
+				ATTransactionData actualData = (ATTransactionData) actualTransactions.get(t).getTransactionData();
+
+				assertEquals(expectedData.getATAddress(), actualData.getATAddress());
+				assertEquals(expectedData.getRecipient(), actualData.getRecipient());
+				assertEquals(expectedData.getAmount(), actualData.getAmount());
+				assertEquals(expectedData.getTimestamp(), actualData.getTimestamp());
+				assertArrayEquals(expectedData.getSignature(), actualData.getSignature());
+			}
+		}
+	}
+
+	/** Same calculation as Block's AT states hash. */
+	private static byte[] calcAtStatesHash(List<ATRunner.Result> results) throws IOException {
+		ByteArrayOutputStream atHashBytes = new ByteArrayOutputStream();
+
+		for (ATRunner.Result result : results) {
+			ATStateData atStateData = result.getATStateData();
+			if (atStateData == null)
+				continue;
+
+			atHashBytes.write(atStateData.getATAddress().getBytes(StandardCharsets.UTF_8));
+			atHashBytes.write(atStateData.getStateHash());
+			atHashBytes.write(Longs.toByteArray(atStateData.getFees()));
+		}
+
+		return Crypto.digest(atHashBytes.toByteArray());
+	}
+
+	/** Builds AT that counts up to <tt>limit</tt>, possibly over several blocks, then pays its creator. */
+	private static byte[] buildCountingAT(long limit) {
+		// Labels for data segment addresses
+		int addrCounter = 0;
+
+		final int addrCount = addrCounter++;
+		final int addrLimit = addrCounter++;
+		final int addrPaymentAmount = addrCounter++;
+
+		// Data segment
+		ByteBuffer dataByteBuffer = ByteBuffer.allocate(addrCounter * MachineState.VALUE_SIZE);
+
+		// skip addrCount
+		dataByteBuffer.position(dataByteBuffer.position() + MachineState.VALUE_SIZE);
+
+		dataByteBuffer.putLong(limit);
+		dataByteBuffer.putLong(paymentAmount);
+
+		ByteBuffer codeByteBuffer = ByteBuffer.allocate(512);
+
+		// Labels for code segment addresses
+		Integer labelLoop = null;
+
+		// Two-pass version
+		for (int pass = 0; pass < 2; ++pass) {
+			codeByteBuffer.clear();
+
+			try {
+				// Restart from here each time AT stops
+				codeByteBuffer.put(OpCode.SET_PCS.compile());
+
+				// Reset count
+				codeByteBuffer.put(OpCode.SET_VAL.compile(addrCount, 0L));
+
+				/* Count loop, which can run out of steps and continue next block */
+				labelLoop = codeByteBuffer.position();
+
+				codeByteBuffer.put(OpCode.INC_DAT.compile(addrCount));
+				codeByteBuffer.put(OpCode.BLT_DAT.compile(addrCount, addrLimit, OpCode.calcOffset(codeByteBuffer, labelLoop)));
+
+				// Pay creator
+				codeByteBuffer.put(OpCode.EXT_FUN.compile(FunctionCode.PUT_CREATOR_INTO_B));
+				codeByteBuffer.put(OpCode.EXT_FUN_DAT.compile(FunctionCode.PAY_TO_ADDRESS_IN_B, addrPaymentAmount));
+
+				// Wait for next block
+				codeByteBuffer.put(OpCode.STP_IMD.compile());
+			} catch (CompilationException e) {
+				throw new IllegalStateException("Unable to compile AT?", e);
+			}
+		}
+
+		codeByteBuffer.flip();
+
+		byte[] codeBytes = new byte[codeByteBuffer.limit()];
+		codeByteBuffer.get(codeBytes);
+
+		final short ciyamAtVersion = 2;
+		final short numCallStackPages = 0;
+		final short numUserStackPages = 0;
+		final long minActivationAmount = 0L;
+
+		return MachineState.toCreationBytes(ciyamAtVersion, codeBytes, dataByteBuffer.array(), numCallStackPages, numUserStackPages, minActivationAmount);
+	}
+
+}
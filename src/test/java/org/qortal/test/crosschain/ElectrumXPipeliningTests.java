@@ -0,0 +1,264 @@
+package org.qortal.test.crosschain;
+
+import com.google.common.hash.HashCode;
+import com.google.common.primitives.Bytes;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.crosschain.ChainableServer.ConnectionType;
+import org.qortal.crosschain.ElectrumX;
+import org.qortal.crosschain.ForeignBlockchainException;
+import org.qortal.crosschain.TransactionHash;
+import org.qortal.crypto.Crypto;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ElectrumXPipeliningTests {
+
+	/** Stand-in ElectrumX server, replying to each request on its own thread after a delay. */
+	private static class LocalElectrumXServer implements Runnable {
+		private final ServerSocket serverSocket;
+		private final long responseDelay;
+		private final ExecutorService executor = Executors.newCachedThreadPool();
+
+		private final AtomicInteger connectionCount = new AtomicInteger();
+		private final AtomicInteger lineCount = new AtomicInteger();
+		private final AtomicInteger batchCount = new AtomicInteger();
+
+		private LocalElectrumXServer(long responseDelay) throws IOException {
+			this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			this.responseDelay = responseDelay;
+			this.executor.execute(this);
+		}
+
+		private int getPort() {
+			return this.serverSocket.getLocalPort();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Socket socket = this.serverSocket.accept();
+					this.connectionCount.incrementAndGet();
+					this.executor.execute(() -> this.serve(socket));
+				}
+			} catch (IOException e) {
+				// Shutting down
+			}
+		}
+
+		private void serve(Socket socket) {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+				OutputStream outputStream = socket.getOutputStream();
+
+				String line;
+				while ((line = reader.readLine()) != null) {
+					this.lineCount.incrementAndGet();
+					Object requestObj = JSONValue.parse(line);
+
+					// Only handshake is answered immediately
+					boolean isHandshake = requestObj instanceof JSONObject
+							&& ((String) ((JSONObject) requestObj).get("method")).startsWith("server.");
+
+					this.executor.execute(() -> {
+						if (!isHandshake)
+							sleep(this.responseDelay);
+
+						String response;
+						if (requestObj instanceof JSONArray) {
+							this.batchCount.incrementAndGet();
+
+							// Reply in reverse order, to check responses are matched by id
+							List<Object> responses = new ArrayList<>();
+							for (Object batchRequest : (JSONArray) requestObj)
+								responses.add(0, respond((JSONObject) batchRequest));
+
+							response = JSONArray.toJSONString(responses);
+						} else {
+							response = respond((JSONObject) requestObj).toJSONString();
+						}
+
+						try {
+							synchronized (outputStream) {
+								outputStream.write((response + "\n").getBytes(StandardCharsets.UTF_8));
+							}
+						} catch (IOException e) {
+							// Client went away
+						}
+					});
+				}
+			} catch (IOException e) {
+				// Client went away
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static JSONObject respond(JSONObject request) {
+			String method = (String) request.get("method");
+			JSONArray params = (JSONArray) request.get("params");
+
+			Object result;
+			switch (method) {
+				case "server.version":
+					result = Arrays.asList("LocalElectrumX", "1.4");
+					break;
+
+				case "server.features":
+					JSONObject features = new JSONObject();
+					features.put("protocol_min", "1.4");
+					result = features;
+					break;
+
+				case "server.peers.subscribe":
+					result = new JSONArray();
+					break;
+
+				case "blockchain.headers.subscribe":
+					JSONObject header = new JSONObject();
+					header.put("height", 123456L);
+					result = header;
+					break;
+
+				case "blockchain.scripthash.get_history":
+					// Use scripthash as tx hash, so caller can tell which response is which
+					JSONObject transactionInfo = new JSONObject();
+					transactionInfo.put("height", 100L);
+					transactionInfo.put("tx_hash", params.get(0));
+					result = Collections.singletonList(transactionInfo);
+					break;
+
+				case "blockchain.transaction.get":
+					result = params.get(0);
+					break;
+
+				default:
+					result = null;
+			}
+
+			JSONObject response = new JSONObject();
+			response.put("jsonrpc", "2.0");
+			response.put("id", request.get("id"));
+			response.put("result", result);
+			return response;
+		}
+
+		private void shutdown() throws IOException {
+			this.serverSocket.close();
+			this.executor.shutdownNow();
+		}
+	}
+
+	private LocalElectrumXServer localServer;
+	private ElectrumX electrumX;
+
+	private void startServer(long responseDelay) throws IOException {
+		this.localServer = new LocalElectrumXServer(responseDelay);
+
+		ElectrumX.Server server = new ElectrumX.Server("127.0.0.1", ConnectionType.TCP, this.localServer.getPort());
+		this.electrumX = new ElectrumX("Local", null, Collections.singletonList(server), new EnumMap<>(ConnectionType.class));
+	}
+
+	@Before
+	public void beforeTest() {
+		this.localServer = null;
+	}
+
+	@After
+	public void afterTest() throws IOException {
+		if (this.localServer != null)
+			this.localServer.shutdown();
+	}
+
+	@Test
+	public void testPipelinedRequests() throws Exception {
+		final long responseDelay = 500L; // ms
+		final int requestCount = 8;
+
+		this.startServer(responseDelay);
+
+		// Connect first
+		assertEquals(123456, this.electrumX.getCurrentHeight());
+
+		ExecutorService executor = Executors.newFixedThreadPool(requestCount);
+		try {
+			List<Callable<Integer>> requests = new ArrayList<>();
+			for (int i = 0; i < requestCount; ++i)
+				requests.add(this.electrumX::getCurrentHeight);
+
+			long startTime = System.currentTimeMillis();
+			for (Future<Integer> future : executor.invokeAll(requests))
+				assertEquals(123456, future.get().intValue());
+			long duration = System.currentTimeMillis() - startTime;
+
+			// One round trip after another would take at least requestCount * responseDelay
+			assertTrue(String.format("Requests took %dms", duration), duration < (requestCount / 2) * responseDelay);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// All requests shared the same connection
+		assertEquals(1, this.localServer.connectionCount.get());
+	}
+
+	@Test
+	public void testBatchedAddressTransactions() throws Exception {
+		this.startServer(10L);
+
+		final int scriptCount = 30;
+		List<byte[]> scripts = new ArrayList<>();
+		for (int i = 0; i < scriptCount; ++i)
+			scripts.add(new byte[] { (byte) i, 0x01, 0x02 });
+
+		List<List<TransactionHash>> addressTransactions = this.electrumX.getAddressTransactions(scripts, false);
+		assertEquals(scriptCount, addressTransactions.size());
+
+		// Responses came back in reverse order, but results should match requested order
+		for (int i = 0; i < scriptCount; ++i) {
+			byte[] scriptHash = Crypto.digest(scripts.get(i));
+			Bytes.reverse(scriptHash);
+
+			List<TransactionHash> transactionHashes = addressTransactions.get(i);
+			assertEquals(1, transactionHashes.size());
+			assertEquals(HashCode.fromBytes(scriptHash).toString(), transactionHashes.get(0).txHash);
+		}
+
+		// Sent as two batches, of 20 and 10
+		assertEquals(2, this.localServer.batchCount.get());
+	}
+
+	@Test
+	public void testBatchedRawTransactions() throws ForeignBlockchainException, IOException {
+		this.startServer(10L);
+
+		List<String> txHashes = Arrays.asList("00", "0102", "a1b2c3");
+		List<byte[]> rawTransactions = this.electrumX.getRawTransactions(txHashes);
+
+		assertEquals(txHashes.size(), rawTransactions.size());
+		for (int i = 0; i < txHashes.size(); ++i)
+			assertArrayEquals(HashCode.fromString(txHashes.get(i)).asBytes(), rawTransactions.get(i));
+
+		assertEquals(1, this.localServer.batchCount.get());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,388 @@
+package org.qortal.test.crosschain;
+
+import cash.z.wallet.sdk.rpc.CompactFormats.CompactBlock;
+import com.google.common.hash.HashCode;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.script.Script.ScriptType;
+import org.bitcoinj.script.ScriptBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.crosschain.*;
+import org.qortal.data.crosschain.ForeignWalletData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.utils.ByteArray;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ForeignWalletIndexTests extends Common {
+
+	private static final NetworkParameters PARAMS = TestNet3Params.get();
+
+	/** Stand-in blockchain provider, serving canned histories and transactions, and counting requests. */
+	private static class TestBlockchainProvider extends BitcoinyBlockchainProvider {
+		private int height = 100;
+		private final Map<ByteArray, List<TransactionHash>> histories = new HashMap<>();
+		private final Map<ByteArray, List<UnspentOutput>> unspentOutputs = new HashMap<>();
+		private final Map<String, BitcoinyTransaction> transactions = new HashMap<>();
+
+		private int historyRequestCount = 0;
+		private int transactionRequestCount = 0;
+
+		@Override
+		public void setBlockchain(Bitcoiny blockchain) {
+		}
+
+		@Override
+		public String getNetId() {
+			return "Test-TEST3";
+		}
+
+		@Override
+		public int getCurrentHeight() {
+			return this.height;
+		}
+
+		@Override
+		public List<TransactionHash> getAddressTransactions(byte[] scriptPubKey, boolean includeUnconfirmed) {
+			++this.historyRequestCount;
+			return this.histories.getOrDefault(ByteArray.wrap(scriptPubKey), Collections.emptyList());
+		}
+
+		@Override
+		public BitcoinyTransaction getTransaction(String txHash) throws ForeignBlockchainException {
+			++this.transactionRequestCount;
+
+			BitcoinyTransaction transaction = this.transactions.get(txHash);
+			if (transaction == null)
+				throw new ForeignBlockchainException.NotFoundException("Unknown transaction");
+
+			return transaction;
+		}
+
+		@Override
+		public List<UnspentOutput> getUnspentOutputs(byte[] scriptPubKey, boolean includeUnconfirmed) {
+			return this.unspentOutputs.getOrDefault(ByteArray.wrap(scriptPubKey), Collections.emptyList());
+		}
+
+		@Override
+		public List<UnspentOutput> getUnspentOutputs(String address, boolean includeUnconfirmed) {
+			return this.getUnspentOutputs(toScript(address), includeUnconfirmed);
+		}
+
+		@Override
+		public List<CompactBlock> getCompactBlocks(int startHeight, int count) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<byte[]> getRawBlockHeaders(int startHeight, int count) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<Long> getBlockTimestamps(int startHeight, int count) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getConfirmedBalance(byte[] scriptPubKey) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getConfirmedAddressBalance(String base58Address) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public byte[] getRawTransaction(String txHash) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public byte[] getRawTransaction(byte[] txHash) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<BitcoinyTransaction> getAddressBitcoinyTransactions(String address, boolean includeUnconfirmed) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void broadcastTransaction(byte[] rawTransaction) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Set<ChainableServer> getServers() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public List<ChainableServer> getRemainingServers() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public Set<ChainableServer> getUselessServers() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public ChainableServer getCurrentServer() {
+			return null;
+		}
+	}
+
+	private static class TestBitcoiny extends Bitcoiny {
+		private TestBitcoiny(BitcoinyBlockchainProvider blockchainProvider) {
+			super(blockchainProvider, new Context(PARAMS), "TEST", Coin.valueOf(10000L));
+		}
+
+		@Override
+		public long getP2shFee(Long timestamp) {
+			return 0L;
+		}
+
+		@Override
+		public long getFeeCeiling() {
+			return 0L;
+		}
+
+		@Override
+		public void setFeeCeiling(long fee) {
+		}
+	}
+
+	private Object originalRefreshInterval;
+	private TestBlockchainProvider blockchainProvider;
+	private String xprv58;
+
+	@Before
+	public void beforeTest() throws DataException, IllegalAccessException {
+		Common.useDefaultSettings();
+
+		// Check foreign blockchain on every call
+		this.originalRefreshInterval = FieldUtils.readStaticField(Bitcoiny.class, "WALLET_INDEX_REFRESH_INTERVAL", true);
+		FieldUtils.writeStaticField(Bitcoiny.class, "WALLET_INDEX_REFRESH_INTERVAL", 0L, true);
+
+		this.blockchainProvider = new TestBlockchainProvider();
+
+		byte[] seed = new byte[32];
+		new Random(12345L).nextBytes(seed);
+		DeterministicKey masterKey = HDKeyDerivation.createMasterPrivateKey(seed);
+		this.xprv58 = masterKey.serializePrivB58(PARAMS);
+	}
+
+	@After
+	public void afterTest() throws IllegalAccessException {
+		FieldUtils.writeStaticField(Bitcoiny.class, "WALLET_INDEX_REFRESH_INTERVAL", this.originalRefreshInterval, true);
+	}
+
+	@Test
+	public void testRepositoryRoundTrip() throws DataException {
+		byte[] walletId = new byte[32];
+		new Random().nextBytes(walletId);
+
+		ForeignWalletData walletData = new ForeignWalletData(walletId, "Test-TEST3");
+		walletData.setAddresses(new ArrayList<>(Arrays.asList("address0", "address1", "address2")));
+		walletData.setUsedAddresses(new HashSet<>(Collections.singletonList("address1")));
+		walletData.setLastUsedIndex(1);
+
+		SimpleTransaction transaction = new SimpleTransaction("aabb", 1600000000000L, 1000L, 10L,
+				Collections.singletonList(new SimpleTransaction.Input("external", 1010L, false)),
+				Arrays.asList(new SimpleTransaction.Output("address1", 1000L, true), new SimpleTransaction.Output(null, 0L, false)),
+				null);
+		walletData.getTransactions().put(transaction.getTxHash(), transaction);
+		walletData.getTransactionHeights().put(transaction.getTxHash(), 123);
+		walletData.recordTransactionChanges(Collections.singleton(transaction.getTxHash()), Collections.emptySet());
+
+		walletData.getUnspentOutputs().add(new UnspentOutput(HashCode.fromString("aabb").asBytes(), 0, 123, 1000L, null, "address1"));
+
+		walletData.setSyncedHeight(125);
+		walletData.setUpdatedWhen(1600000001000L);
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertNull(repository.getCrossChainRepository().getForeignWallet(walletId));
+
+			repository.getCrossChainRepository().save(walletData);
+			repository.saveChanges();
+			walletData.markTransactionsSaved();
+
+			ForeignWalletData loadedData = repository.getCrossChainRepository().getForeignWallet(walletId);
+			assertNotNull(loadedData);
+			assertEquals("Test-TEST3", loadedData.getBlockchain());
+			assertEquals(walletData.getAddresses(), loadedData.getAddresses());
+			assertEquals(walletData.getUsedAddresses(), loadedData.getUsedAddresses());
+			assertEquals(1, loadedData.getLastUsedIndex());
+			assertEquals(125, loadedData.getSyncedHeight());
+			assertEquals(1600000001000L, loadedData.getUpdatedWhen());
+
+			SimpleTransaction loadedTransaction = loadedData.getTransactions().get("aabb");
+			assertNotNull(loadedTransaction);
+			assertEquals(Long.valueOf(1600000000000L), loadedTransaction.getTimestamp());
+			assertEquals(1000L, loadedTransaction.getTotalAmount());
+			assertEquals(10L, loadedTransaction.getFeeAmount());
+			assertEquals(1, loadedTransaction.getInputs().size());
+			assertEquals("external", loadedTransaction.getInputs().get(0).getAddress());
+			assertEquals(2, loadedTransaction.getOutputs().size());
+			assertTrue(loadedTransaction.getOutputs().get(0).getAddressInWallet());
+			assertNull(loadedTransaction.getOutputs().get(1).getAddress());
+			assertEquals(Integer.valueOf(123), loadedData.getTransactionHeights().get("aabb"));
+
+			assertEquals(1, loadedData.getUnspentOutputs().size());
+			assertEquals("address1", loadedData.getUnspentOutputs().get(0).address);
+			assertEquals(1000L, loadedData.getUnspentOutputs().get(0).value);
+
+			// Unchanged transactions are left as they are
+			walletData.getUnspentOutputs().clear();
+			repository.getCrossChainRepository().save(walletData);
+			repository.saveChanges();
+
+			loadedData = repository.getCrossChainRepository().getForeignWallet(walletId);
+			assertEquals(1, loadedData.getTransactions().size());
+			assertEquals(2, loadedData.getTransactions().get("aabb").getOutputs().size());
+			assertTrue(loadedData.getUnspentOutputs().isEmpty());
+
+			// Transaction moved to a different block
+			walletData.getTransactionHeights().put("aabb", 124);
+			walletData.recordTransactionChanges(Collections.singleton("aabb"), Collections.emptySet());
+			repository.getCrossChainRepository().save(walletData);
+			repository.saveChanges();
+			walletData.markTransactionsSaved();
+
+			loadedData = repository.getCrossChainRepository().getForeignWallet(walletId);
+			assertEquals(Integer.valueOf(124), loadedData.getTransactionHeights().get("aabb"));
+			assertEquals(2, loadedData.getTransactions().get("aabb").getOutputs().size());
+
+			// Dropped transactions are deleted
+			walletData.getTransactions().clear();
+			walletData.getTransactionHeights().clear();
+			walletData.recordTransactionChanges(Collections.emptySet(), Collections.singleton("aabb"));
+			repository.getCrossChainRepository().save(walletData);
+			repository.saveChanges();
+			walletData.markTransactionsSaved();
+
+			loadedData = repository.getCrossChainRepository().getForeignWallet(walletId);
+			assertTrue(loadedData.getTransactions().isEmpty());
+			assertTrue(loadedData.getUnspentOutputs().isEmpty());
+			assertEquals(3, loadedData.getAddresses().size());
+
+			assertEquals(1, repository.getCrossChainRepository().deleteAllForeignWallets());
+			repository.saveChanges();
+
+			assertNull(repository.getCrossChainRepository().getForeignWallet(walletId));
+		}
+	}
+
+	@Test
+	public void testIncrementalSync() throws ForeignBlockchainException {
+		Bitcoiny bitcoiny = new TestBitcoiny(this.blockchainProvider);
+
+		// Unused wallet
+		Set<String> addresses = bitcoiny.getWalletAddresses(this.xprv58);
+		assertFalse(addresses.isEmpty());
+		assertTrue(bitcoiny.getWalletTransactions(this.xprv58).isEmpty());
+		assertEquals(0L, bitcoiny.getWalletBalance(this.xprv58).longValue());
+
+		// Height hasn't changed, so address histories weren't requested again
+		int historyRequestCount = this.blockchainProvider.historyRequestCount;
+		assertEquals(addresses.size(), historyRequestCount);
+
+		// Receive some coins
+		String address = addresses.iterator().next();
+		this.addIncomingTransaction("aa01", address, 1000L, 101);
+
+		List<SimpleTransaction> transactions = bitcoiny.getWalletTransactions(this.xprv58);
+		assertEquals(1, transactions.size());
+		// Used address means more addresses within gap limit
+		assertTrue(bitcoiny.getWalletAddresses(this.xprv58).containsAll(addresses));
+		assertEquals(1000L, transactions.get(0).getTotalAmount());
+		assertEquals(1000L, bitcoiny.getWalletBalance(this.xprv58).longValue());
+		assertEquals(2, this.blockchainProvider.transactionRequestCount);
+
+		// New block, but nothing new for this wallet, so no transactions are fetched again
+		this.blockchainProvider.height = 102;
+		assertEquals(1, bitcoiny.getWalletTransactions(this.xprv58).size());
+		assertEquals(2, this.blockchainProvider.transactionRequestCount);
+
+		// Only the new transaction is fetched
+		this.addIncomingTransaction("aa02", address, 500L, 103);
+
+		transactions = bitcoiny.getWalletTransactions(this.xprv58);
+		assertEquals(2, transactions.size());
+		// Newest first
+		assertEquals("aa02", transactions.get(0).getTxHash());
+		assertEquals(1500L, bitcoiny.getWalletBalance(this.xprv58).longValue());
+		assertEquals(4, this.blockchainProvider.transactionRequestCount);
+
+		// Index survives restart
+		Bitcoiny restartedBitcoiny = new TestBitcoiny(this.blockchainProvider);
+		assertEquals(2, restartedBitcoiny.getWalletTransactions(this.xprv58).size());
+		assertEquals(1500L, restartedBitcoiny.getWalletBalance(this.xprv58).longValue());
+		assertEquals(bitcoiny.getWalletAddresses(this.xprv58), restartedBitcoiny.getWalletAddresses(this.xprv58));
+		assertEquals(4, this.blockchainProvider.transactionRequestCount);
+	}
+
+	@Test
+	public void testReorgedTransactionDropped() throws ForeignBlockchainException {
+		Bitcoiny bitcoiny = new TestBitcoiny(this.blockchainProvider);
+
+		String address = bitcoiny.getWalletAddresses(this.xprv58).iterator().next();
+		this.addIncomingTransaction("bb01", address, 1000L, 101);
+		assertEquals(1, bitcoiny.getWalletTransactions(this.xprv58).size());
+
+		// Transaction's block is orphaned
+		this.blockchainProvider.histories.clear();
+		this.blockchainProvider.unspentOutputs.clear();
+		this.blockchainProvider.height = 102;
+
+		assertTrue(bitcoiny.getWalletTransactions(this.xprv58).isEmpty());
+		assertEquals(0L, bitcoiny.getWalletBalance(this.xprv58).longValue());
+	}
+
+	/** Adds transaction paying <tt>amount</tt> to <tt>address</tt> from outside the wallet, costing two transaction requests to index. */
+	private void addIncomingTransaction(String txHash, String address, long amount, int height) {
+		byte[] script = toScript(address);
+
+		// Where the coins came from
+		String externalAddress = Address.fromKey(PARAMS, new ECKey(), ScriptType.P2PKH).toString();
+		String fundingTxHash = txHash + "ff";
+		BitcoinyTransaction fundingTransaction = new BitcoinyTransaction(fundingTxHash, 100, 0, (height - 1) * 600,
+				Collections.emptyList(),
+				Collections.singletonList(new BitcoinyTransaction.Output(HashCode.fromBytes(toScript(externalAddress)).toString(), amount + 10L, Collections.singletonList(externalAddress))));
+		this.blockchainProvider.transactions.put(fundingTxHash, fundingTransaction);
+
+		BitcoinyTransaction transaction = new BitcoinyTransaction(txHash, 100, 0, height * 600,
+				Collections.singletonList(new BitcoinyTransaction.Input("", 0, fundingTxHash, 0)),
+				Collections.singletonList(new BitcoinyTransaction.Output(HashCode.fromBytes(script).toString(), amount, Collections.singletonList(address))));
+		this.blockchainProvider.transactions.put(txHash, transaction);
+
+		this.blockchainProvider.histories.computeIfAbsent(ByteArray.wrap(script), k -> new ArrayList<>())
+				.add(new TransactionHash(height, txHash));
+		this.blockchainProvider.unspentOutputs.computeIfAbsent(ByteArray.wrap(script), k -> new ArrayList<>())
+				.add(new UnspentOutput(HashCode.fromString(txHash).asBytes(), 0, height, amount));
+
+		this.blockchainProvider.height = Math.max(this.blockchainProvider.height, height);
+	}
+
+	private static byte[] toScript(String address) {
+		return ScriptBuilder.createOutputScript(Address.fromString(PARAMS, address)).getProgram();
+	}
+
+}
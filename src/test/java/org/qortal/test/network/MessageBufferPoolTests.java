@@ -0,0 +1,82 @@
+package org.qortal.test.network;
+
+import org.junit.Test;
+import org.qortal.network.MessageBufferPool;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MessageBufferPoolTests {
+
+    @Test
+    public void testAcquireRelease() {
+        MessageBufferPool pool = new MessageBufferPool(64 * 1024 * 1024L);
+
+        ByteBuffer buffer = pool.acquire(100);
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(100, buffer.limit());
+        assertEquals(MessageBufferPool.MIN_BUFFER_SIZE, buffer.capacity());
+
+        MessageBufferPool.StatsSnapshot stats = pool.getStatsSnapshot();
+        assertEquals(0, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(MessageBufferPool.MIN_BUFFER_SIZE, stats.bytesInUse);
+        assertEquals(0, stats.bytesPooled);
+
+        buffer.put(new byte[50]);
+        pool.release(buffer);
+
+        stats = pool.getStatsSnapshot();
+        assertEquals(0, stats.bytesInUse);
+        assertEquals(MessageBufferPool.MIN_BUFFER_SIZE, stats.bytesPooled);
+
+        // Same buffer should be reused, reset for new length
+        ByteBuffer reusedBuffer = pool.acquire(MessageBufferPool.MIN_BUFFER_SIZE);
+        assertSame(buffer, reusedBuffer);
+        assertEquals(0, reusedBuffer.position());
+        assertEquals(MessageBufferPool.MIN_BUFFER_SIZE, reusedBuffer.limit());
+
+        stats = pool.getStatsSnapshot();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(0, stats.bytesPooled);
+
+        pool.release(reusedBuffer);
+    }
+
+    @Test
+    public void testSizeClasses() {
+        MessageBufferPool pool = new MessageBufferPool(64 * 1024 * 1024L);
+
+        assertEquals(8 * 1024, pool.acquire(MessageBufferPool.MIN_BUFFER_SIZE + 1).capacity());
+        assertEquals(64 * 1024, pool.acquire(64 * 1024).capacity());
+        assertEquals(MessageBufferPool.MAX_BUFFER_SIZE, pool.acquire(MessageBufferPool.MAX_BUFFER_SIZE).capacity());
+
+        // Too big to pool
+        ByteBuffer bigBuffer = pool.acquire(MessageBufferPool.MAX_BUFFER_SIZE + 1);
+        assertFalse(bigBuffer.isDirect());
+        assertEquals(MessageBufferPool.MAX_BUFFER_SIZE + 1, bigBuffer.limit());
+
+        pool.release(bigBuffer);
+        assertEquals(0, pool.getStatsSnapshot().bytesPooled);
+    }
+
+    @Test
+    public void testMaxPooledBytes() {
+        // Zero capacity, so nothing is ever kept
+        MessageBufferPool pool = new MessageBufferPool(0L);
+
+        ByteBuffer buffer = pool.acquire(100);
+        pool.release(buffer);
+
+        MessageBufferPool.StatsSnapshot stats = pool.getStatsSnapshot();
+        assertEquals(0, stats.bytesInUse);
+        assertEquals(0, stats.bytesPooled);
+
+        assertNotSame(buffer, pool.acquire(100));
+        assertEquals(2, pool.getStatsSnapshot().misses);
+    }
+
+}
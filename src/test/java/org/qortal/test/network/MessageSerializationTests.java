@@ -0,0 +1,92 @@
+package org.qortal.test.network;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.network.message.GetPeersMessage;
+import org.qortal.network.message.Message;
+import org.qortal.network.message.MessageException;
+import org.qortal.network.message.TransactionSignaturesMessage;
+import org.qortal.repository.DataException;
+import org.qortal.test.common.Common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MessageSerializationTests {
+
+    private static final Random RANDOM = new Random();
+
+    @Before
+    public void beforeTest() throws DataException {
+        Common.useDefaultSettings();
+    }
+
+    @Test
+    public void testSerializeInto() throws MessageException {
+        Message message = buildMessage(10);
+
+        byte[] bytes = message.toBytes();
+        assertEquals(message.getSerializedLength(), bytes.length);
+
+        // Serializing at an offset into a larger buffer
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10);
+        buffer.position(5);
+        message.serializeInto(buffer);
+        assertEquals(5 + bytes.length, buffer.position());
+
+        buffer.flip().position(5);
+        assertEquals(ByteBuffer.wrap(bytes), buffer);
+
+        // Round trip
+        Message parsedMessage = Message.fromByteBuffer(ByteBuffer.wrap(bytes));
+        assertNotNull(parsedMessage);
+        assertEquals(message.getType(), parsedMessage.getType());
+        assertEquals(10, ((TransactionSignaturesMessage) parsedMessage).getSignatures().size());
+
+        // Message without any data
+        Message emptyMessage = new GetPeersMessage();
+        assertEquals(emptyMessage.getSerializedLength(), emptyMessage.toBytes().length);
+        assertNotNull(Message.fromByteBuffer(ByteBuffer.wrap(emptyMessage.toBytes())));
+    }
+
+    @Test
+    public void testSharedBuffer() throws MessageException {
+        Message message = buildMessage(10);
+        assertNull(message.getSharedBuffer());
+
+        message.share();
+
+        ByteBuffer sharedBuffer = message.getSharedBuffer();
+        assertTrue(sharedBuffer.isReadOnly());
+        assertEquals(ByteBuffer.wrap(message.toBytes()), sharedBuffer);
+
+        // Each caller gets their own position
+        sharedBuffer.get(new byte[10]);
+        assertEquals(0, message.getSharedBuffer().position());
+
+        // Changing ID discards shared buffer
+        message.setId(1234);
+        assertNull(message.getSharedBuffer());
+
+        message.share();
+        Message parsedMessage = Message.fromByteBuffer(message.getSharedBuffer());
+        assertNotNull(parsedMessage);
+        assertEquals(1234, parsedMessage.getId());
+    }
+
+    private static Message buildMessage(int signatureCount) {
+        List<byte[]> signatures = new ArrayList<>();
+        for (int i = 0; i < signatureCount; ++i) {
+            byte[] signature = new byte[64];
+            RANDOM.nextBytes(signature);
+            signatures.add(signature);
+        }
+
+        return new TransactionSignaturesMessage(signatures);
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.qortal.test.network;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.data.network.PeerData;
+import org.qortal.network.Peer;
+import org.qortal.network.PeerAddress;
+import org.qortal.network.PeerRegistry;
+import org.qortal.repository.DataException;
+import org.qortal.test.common.Common;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PeerRegistryTests {
+
+    private static class TestPeer extends Peer {
+        TestPeer(String address, byte[] publicKey, String nodeId) {
+            super(new PeerData(PeerAddress.fromString(address)));
+
+            this.setPeersPublicKey(publicKey);
+            this.setPeersNodeId(nodeId);
+        }
+    }
+
+    @Before
+    public void beforeTest() throws DataException {
+        Common.useDefaultSettings();
+    }
+
+    @Test
+    public void testConnectedPeers() {
+        PeerRegistry registry = new PeerRegistry();
+        Peer peer1 = new TestPeer("10.0.0.1:12392", new byte[] { 1 }, "node1");
+        Peer peer2 = new TestPeer("10.0.0.2:12392", new byte[] { 2 }, "node2");
+        peer2.setIsDataPeer(true);
+
+        List<Peer> emptySnapshot = registry.getConnectedPeers();
+        assertTrue(emptySnapshot.isEmpty());
+
+        registry.addConnectedPeer(peer1);
+        registry.addConnectedPeer(peer2);
+
+        List<Peer> snapshot = registry.getConnectedPeers();
+        assertEquals(2, snapshot.size());
+        // Unchanged, so same snapshot
+        assertSame(snapshot, registry.getConnectedPeers());
+        // Earlier snapshot unaffected
+        assertTrue(emptySnapshot.isEmpty());
+
+        assertEquals(List.of(peer2), registry.getConnectedDataPeers());
+        assertEquals(List.of(peer1), registry.getConnectedNonDataPeers());
+
+        // Address lookups are case-insensitive, without DNS lookups
+        assertSame(peer1, registry.getConnectedPeerWithAddress(PeerAddress.fromString("10.0.0.1:12392")));
+        assertNull(registry.getConnectedPeerWithAddress(PeerAddress.fromString("10.0.0.1:12393")));
+
+        registry.removeConnectedPeer(peer1);
+
+        assertEquals(List.of(peer2), registry.getConnectedPeers());
+        assertNull(registry.getConnectedPeerWithAddress(PeerAddress.fromString("10.0.0.1:12392")));
+    }
+
+    @Test
+    public void testHandshakedPeers() {
+        PeerRegistry registry = new PeerRegistry();
+        Peer peer = new TestPeer("example.com:12392", new byte[] { 1 }, "node1");
+
+        // Not connected
+        assertFalse(registry.addHandshakedPeer(peer));
+
+        registry.addConnectedPeer(peer);
+        assertNull(registry.getHandshakedPeerWithAddress(PeerAddress.fromString("EXAMPLE.com:12392")));
+
+        assertTrue(registry.addHandshakedPeer(peer));
+
+        assertEquals(List.of(peer), registry.getHandshakedPeers());
+        // Constructed using peer data, so outbound
+        assertEquals(List.of(peer), registry.getOutboundHandshakedPeers());
+
+        assertSame(peer, registry.getHandshakedPeerWithPublicKey(new byte[] { 1 }));
+        assertSame(peer, registry.getHandshakedPeerWithNodeId("node1"));
+        assertSame(peer, registry.getHandshakedPeerWithAddress(PeerAddress.fromString("EXAMPLE.com:12392")));
+
+        // Removing connected peer also removes handshaked peer
+        registry.removeConnectedPeer(peer);
+
+        assertTrue(registry.getHandshakedPeers().isEmpty());
+        assertTrue(registry.getOutboundHandshakedPeers().isEmpty());
+        assertNull(registry.getHandshakedPeerWithPublicKey(new byte[] { 1 }));
+        assertNull(registry.getHandshakedPeerWithNodeId("node1"));
+    }
+
+    @Test
+    public void testDuplicatePublicKey() {
+        PeerRegistry registry = new PeerRegistry();
+        Peer peer1 = new TestPeer("10.0.0.1:12392", new byte[] { 1 }, "node1");
+        Peer peer2 = new TestPeer("10.0.0.2:12392", new byte[] { 1 }, "node1");
+
+        registry.addConnectedPeer(peer1);
+        registry.addConnectedPeer(peer2);
+
+        assertTrue(registry.addHandshakedPeer(peer1));
+        // Same public key as existing handshaked peer
+        assertFalse(registry.addHandshakedPeer(peer2));
+        // Adding again is harmless
+        assertTrue(registry.addHandshakedPeer(peer1));
+
+        assertEquals(List.of(peer1), registry.getHandshakedPeers());
+
+        // Once original peer has gone, we can accept new peer
+        registry.removeConnectedPeer(peer1);
+        assertTrue(registry.addHandshakedPeer(peer2));
+        assertSame(peer2, registry.getHandshakedPeerWithPublicKey(new byte[] { 1 }));
+    }
+
+}